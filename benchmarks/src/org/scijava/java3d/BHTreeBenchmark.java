@@ -0,0 +1,122 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmarks of BHTree creation, insertion and selection.  The leaves are
+ * GeometryAtoms of standalone mirror shapes with random world bounds in a
+ * cube, as GeometryStructure builds them for a live scene.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class BHTreeBenchmark {
+
+    @Param({"1000", "10000"})
+    public int leafCount;
+
+    // Leaves of the tree and leaves inserted into it
+    private BHNode[] leaves;
+    private BHNode[] inserted;
+
+    private BHTree tree;
+    private PickShape pickShape;
+    private UnorderList hitList;
+
+    @Setup
+    public void setup() {
+	Random random = new Random(1L);
+	leaves = createLeaves(leafCount, random);
+	inserted = createLeaves(leafCount / 10, random);
+	tree = new BHTree(leaves.clone());
+	pickShape = new PickRay(new Point3d(0.1, 0.2, leafCount),
+				new Vector3d(0.0, 0.0, -1.0));
+	hitList = new UnorderList(BHNode.class);
+    }
+
+    /**
+     * A tree that is rebuilt before each call, as insert changes it.
+     */
+    @State(Scope.Thread)
+    public static class FreshTree {
+	BHTree tree;
+
+	@Setup(Level.Invocation)
+	public void setup(BHTreeBenchmark b) {
+	    tree = new BHTree(b.leaves.clone());
+	}
+    }
+
+    private static BHNode[] createLeaves(int count, Random random) {
+	double extent = 10.0 * Math.cbrt(count);
+	BHNode[] nodes = new BHNode[count];
+	for (int i = 0; i < count; i++) {
+	    double x = (random.nextDouble() - 0.5) * extent;
+	    double y = (random.nextDouble() - 0.5) * extent;
+	    double z = (random.nextDouble() - 0.5) * extent;
+	    double size = 0.5 + random.nextDouble();
+
+	    Shape3DRetained source = new Shape3DRetained();
+	    source.vwcBounds = new BoundingBox(
+		new Point3d(x - size, y - size, z - size),
+		new Point3d(x + size, y + size, z + size));
+	    source.switchState = new SwitchState(false);
+
+	    GeometryAtom ga = new GeometryAtom();
+	    ga.source = source;
+	    ga.bhLeafNode = new BHLeafNode(ga);
+	    nodes[i] = ga.bhLeafNode;
+	}
+	return nodes;
+    }
+
+    @Benchmark
+    public BHTree create() {
+	return new BHTree(leaves.clone());
+    }
+
+    @Benchmark
+    public BHTree insert(FreshTree fresh) {
+	fresh.tree.insert(inserted.clone(), inserted.length);
+	return fresh.tree;
+    }
+
+    @Benchmark
+    public UnorderList select() {
+	hitList.clear();
+	tree.select(pickShape, hitList);
+	return hitList;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Generated geometry and scenes shared by the benchmarks.  The benchmarks
+ * run with the noop pipeline (-Dj3d.rend=noop) in a headless JVM; the
+ * scenes are attached to a View with an offscreen Canvas3D, which is
+ * never rendered, so that MasterControl runs the structure updates.
+ */
+final class BenchmarkScenes {
+
+    // Time to wait for MasterControl to process a new scene
+    private static final long LIVE_TIMEOUT = 30000L;
+
+    private BenchmarkScenes() {
+    }
+
+    /**
+     * Creates a TriangleArray of a square in the z=0 plane from
+     * (-size,-size) to (size,size), tessellated into 2*n*n triangles.
+     */
+    static TriangleArray createGrid(int n, float size) {
+	float[] coords = new float[n * n * 18];
+	float step = 2.0f * size / n;
+	int k = 0;
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < n; j++) {
+		float x0 = -size + i * step, x1 = x0 + step;
+		float y0 = -size + j * step, y1 = y0 + step;
+		k = putTriangle(coords, k, x0, y0, 0.0f, x1, y0, 0.0f, x1, y1, 0.0f);
+		k = putTriangle(coords, k, x0, y0, 0.0f, x1, y1, 0.0f, x0, y1, 0.0f);
+	    }
+	}
+
+	TriangleArray geo = new TriangleArray(n * n * 6, GeometryArray.COORDINATES);
+	geo.setCoordinates(0, coords);
+	geo.setCapability(Geometry.ALLOW_INTERSECT);
+	return geo;
+    }
+
+    /**
+     * Creates a TriangleArray of the 12 triangles of an axis-aligned box.
+     */
+    static TriangleArray createBox(float cx, float cy, float cz, float half) {
+	float x0 = cx - half, x1 = cx + half;
+	float y0 = cy - half, y1 = cy + half;
+	float z0 = cz - half, z1 = cz + half;
+	float[] coords = new float[12 * 9];
+	int k = 0;
+	// front and back
+	k = putQuad(coords, k, x0, y0, z1, x1, y0, z1, x1, y1, z1, x0, y1, z1);
+	k = putQuad(coords, k, x1, y0, z0, x0, y0, z0, x0, y1, z0, x1, y1, z0);
+	// left and right
+	k = putQuad(coords, k, x0, y0, z0, x0, y0, z1, x0, y1, z1, x0, y1, z0);
+	k = putQuad(coords, k, x1, y0, z1, x1, y0, z0, x1, y1, z0, x1, y1, z1);
+	// top and bottom
+	k = putQuad(coords, k, x0, y1, z1, x1, y1, z1, x1, y1, z0, x0, y1, z0);
+	k = putQuad(coords, k, x0, y0, z0, x1, y0, z0, x1, y0, z1, x0, y0, z1);
+
+	TriangleArray geo = new TriangleArray(36, GeometryArray.COORDINATES);
+	geo.setCoordinates(0, coords);
+	geo.setCapability(Geometry.ALLOW_INTERSECT);
+	return geo;
+    }
+
+    private static int putQuad(float[] coords, int k,
+			       float ax, float ay, float az,
+			       float bx, float by, float bz,
+			       float cx, float cy, float cz,
+			       float dx, float dy, float dz) {
+	k = putTriangle(coords, k, ax, ay, az, bx, by, bz, cx, cy, cz);
+	return putTriangle(coords, k, ax, ay, az, cx, cy, cz, dx, dy, dz);
+    }
+
+    private static int putTriangle(float[] coords, int k,
+				   float ax, float ay, float az,
+				   float bx, float by, float bz,
+				   float cx, float cy, float cz) {
+	coords[k++] = ax; coords[k++] = ay; coords[k++] = az;
+	coords[k++] = bx; coords[k++] = by; coords[k++] = bz;
+	coords[k++] = cx; coords[k++] = cy; coords[k++] = cz;
+	return k;
+    }
+
+    /**
+     * Creates n appearances that differ in their material, so that the
+     * shapes using them end up in different render molecules.
+     */
+    static Appearance[] createAppearances(int n) {
+	Appearance[] apps = new Appearance[n];
+	for (int i = 0; i < n; i++) {
+	    Material mat = new Material();
+	    mat.setDiffuseColor((float)i / n, 0.5f, 1.0f - (float)i / n);
+	    apps[i] = new Appearance();
+	    apps[i].setMaterial(mat);
+	}
+	return apps;
+    }
+
+    /**
+     * Creates a branch graph with a n*n*n grid of pickable boxes centered
+     * on the origin, one unit apart.  The boxes cycle through the given
+     * appearances.
+     */
+    static BranchGroup createBoxScene(int n, Appearance[] apps) {
+	BranchGroup root = new BranchGroup();
+	float offset = (n - 1) * 0.5f;
+	int count = 0;
+	for (int i = 0; i < n; i++) {
+	    for (int j = 0; j < n; j++) {
+		for (int k = 0; k < n; k++) {
+		    Shape3D shape = new Shape3D(
+			createBox(i - offset, j - offset, k - offset, 0.25f),
+			apps[count++ % apps.length]);
+		    shape.setCapability(Shape3D.ALLOW_GEOMETRY_READ);
+		    root.addChild(shape);
+		}
+	    }
+	}
+	return root;
+    }
+
+    /**
+     * Creates a View on a new ViewPlatform of the locale, with an offscreen
+     * Canvas3D so that the view becomes active.  The canvas is never
+     * rendered.
+     */
+    static View createView(Locale locale) {
+	ViewPlatform vp = new ViewPlatform();
+	BranchGroup vpRoot = new BranchGroup();
+	vpRoot.addChild(vp);
+	locale.addBranchGraph(vpRoot);
+
+	GraphicsConfiguration gc =
+	    new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).
+	    createGraphics().getDeviceConfiguration();
+	GraphicsConfigTemplate3D template = new GraphicsConfigTemplate3D();
+	Canvas3D canvas = new Canvas3D(
+	    template.getBestConfiguration(new GraphicsConfiguration[] { gc }),
+	    true);
+	Screen3D screen = canvas.getScreen3D();
+	screen.setSize(256, 256);
+	screen.setPhysicalScreenWidth(0.0254 / 90.0 * 256);
+	screen.setPhysicalScreenHeight(0.0254 / 90.0 * 256);
+	canvas.setOffScreenBuffer(new ImageComponent2D(ImageComponent.FORMAT_RGB,
+	    new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB)));
+
+	View view = new View();
+	view.setPhysicalBody(new PhysicalBody());
+	view.setPhysicalEnvironment(new PhysicalEnvironment());
+	view.addCanvas3D(canvas);
+	view.attachViewPlatform(vp);
+	return view;
+    }
+
+    /**
+     * Waits until MasterControl has processed the scene, that is until
+     * picking all with the given pick shape finds the expected number of
+     * shapes.
+     */
+    static void waitForPickable(Locale locale, PickShape pickShape,
+				int expected) {
+	long end = System.currentTimeMillis() + LIVE_TIMEOUT;
+	while (true) {
+	    SceneGraphPath[] paths = locale.pickAll(pickShape);
+	    if (paths != null && paths.length == expected) {
+		return;
+	    }
+	    if (System.currentTimeMillis() > end) {
+		throw new IllegalStateException("Scene not pickable after " +
+						LIVE_TIMEOUT + " ms");
+	    }
+	    MasterControl.threadYield();
+	}
+    }
+
+    /**
+     * Returns a ray along the -z axis through the column of boxes of a
+     * scene created by createBoxScene, which hits n of them.
+     */
+    static PickRay createColumnRay(int n) {
+	double x = -(n - 1) * 0.5 + 0.1;
+	return new PickRay(new Point3d(x, x, n + 1.0),
+			   new Vector3d(0.0, 0.0, -1.0));
+    }
+}
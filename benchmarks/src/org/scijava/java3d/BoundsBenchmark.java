@@ -0,0 +1,86 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Point3d;
+
+/**
+ * Benchmarks of combine and intersect between BoundingBox, BoundingSphere
+ * and BoundingPolytope.  The two bounds overlap, so intersect can't
+ * return early.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class BoundsBenchmark {
+
+    @Param({"BOX", "SPHERE", "POLYTOPE"})
+    public String type;
+
+    @Param({"BOX", "SPHERE", "POLYTOPE"})
+    public String otherType;
+
+    private Bounds bounds;
+    private Bounds other;
+    private Bounds result;
+
+    @Setup
+    public void setup() {
+	bounds = create(type, new Point3d(0.0, 0.0, 0.0), 1.0);
+	other = create(otherType, new Point3d(0.5, 0.7, -0.3), 0.8);
+	result = create(type, new Point3d(0.0, 0.0, 0.0), 1.0);
+    }
+
+    private static Bounds create(String type, Point3d center, double size) {
+	BoundingBox box = new BoundingBox(
+	    new Point3d(center.x - size, center.y - size, center.z - size),
+	    new Point3d(center.x + size, center.y + size, center.z + size));
+	if (type.equals("BOX")) {
+	    return box;
+	} else if (type.equals("SPHERE")) {
+	    return new BoundingSphere(center, size);
+	} else if (type.equals("POLYTOPE")) {
+	    return new BoundingPolytope(box);
+	}
+	throw new IllegalArgumentException(type);
+    }
+
+    @Benchmark
+    public Bounds combine() {
+	result.set(bounds);
+	result.combine(other);
+	return result;
+    }
+
+    @Benchmark
+    public boolean intersect() {
+	return bounds.intersect(other);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Point3d;
+
+/**
+ * Stress benchmark of GeometryStructure.processCollisionDetection with
+ * one armed WakeupOnCollisionEntry per box of a grid of boxes, none of
+ * them colliding, while the bounds of a few boxes move each frame.  With
+ * the broad phase only the criteria around the moved boxes are tested
+ * against the BHTree, without it all of them are.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class CollisionBenchmark {
+
+    @Param({"1000", "4000"})
+    public int criteriaCount;
+
+    @Param({"true", "false"})
+    public boolean broadPhase;
+
+    // Number of boxes that move each frame
+    private static final int MOVING = 16;
+
+    private static final long ARM_TIMEOUT = 30000L;
+
+    private VirtualUniverse universe;
+    private GeometryStructure geometryStructure;
+    private Bounds[] movingBounds;
+    private int frame = 0;
+
+    /**
+     * Behavior that rearms a collision entry criterion on its shape.
+     */
+    static class CollisionBehavior extends Behavior {
+	private final WakeupOnCollisionEntry entry;
+
+	CollisionBehavior(Shape3D shape) {
+	    entry = new WakeupOnCollisionEntry(shape,
+		WakeupOnCollisionEntry.USE_BOUNDS);
+	}
+
+	@Override
+	public void initialize() {
+	    wakeupOn(entry);
+	}
+
+	@Override
+	public void processStimulus(Enumeration criteria) {
+	    wakeupOn(entry);
+	}
+    }
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	View view = BenchmarkScenes.createView(locale);
+
+	// Boxes one unit apart with a half size of 0.25 don't collide
+	int n = (int)Math.ceil(Math.cbrt(criteriaCount));
+	float offset = (n - 1) * 0.5f;
+	BoundingSphere schedulingBounds =
+	    new BoundingSphere(new Point3d(), Double.POSITIVE_INFINITY);
+	BranchGroup scene = new BranchGroup();
+	Shape3D[] shapes = new Shape3D[criteriaCount];
+	for (int i = 0; i < criteriaCount; i++) {
+	    shapes[i] = new Shape3D(BenchmarkScenes.createBox(
+		i % n - offset, (i / n) % n - offset, i / (n * n) - offset,
+		0.25f));
+	    scene.addChild(shapes[i]);
+	    CollisionBehavior behavior = new CollisionBehavior(shapes[i]);
+	    behavior.setSchedulingBounds(schedulingBounds);
+	    scene.addChild(behavior);
+	}
+	locale.addBranchGraph(scene);
+
+	geometryStructure = universe.geometryStructure;
+	long end = System.currentTimeMillis() + ARM_TIMEOUT;
+	while (geometryStructure.wakeupOnCollisionEntry.arraySize() <
+	       criteriaCount) {
+	    if (System.currentTimeMillis() > end) {
+		throw new IllegalStateException("Criteria not armed after " +
+						ARM_TIMEOUT + " ms");
+	    }
+	    MasterControl.threadYield();
+	}
+	// The scene is static, the view only had to arm the criteria
+	view.stopView();
+
+	movingBounds = new Bounds[criteriaCount];
+	for (int i = 0; i < criteriaCount; i++) {
+	    movingBounds[i] =
+		((Shape3DRetained)shapes[i].retained).mirrorShape3D.get(0).vwcBounds;
+	}
+
+	VirtualUniverse.mc.collisionBroadPhase = broadPhase;
+	// Test all criteria once, as after the scene was inserted
+	geometryStructure.processCollisionDetection();
+    }
+
+    @TearDown
+    public void tearDown() {
+	VirtualUniverse.mc.collisionBroadPhase = true;
+	universe.removeAllLocales();
+    }
+
+    // Each frame, MOVING boxes spread over the grid report bounds changes
+    @Benchmark
+    public GeometryStructure processCollisionDetection() {
+	int step = criteriaCount / MOVING;
+	for (int i = 0; i < MOVING; i++) {
+	    geometryStructure.collisionSweep.addRegion(
+		movingBounds[(i * step + frame) % criteriaCount]);
+	}
+	frame++;
+	geometryStructure.processCollisionDetection();
+	return geometryStructure;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmark of an immediate mode frame of small draws, each with its own
+ * model transform and one of a few appearances, from the application
+ * thread.  The "calls" mode calls the GraphicsContext3D methods, which
+ * send one message per call; "record" records the frame in a
+ * CommandBuffer and executes it; "replay" executes a CommandBuffer
+ * recorded once.  A frame ends when the renderer has taken all its
+ * messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class CommandBufferBenchmark {
+
+    @Param({"10000"})
+    public int drawCount;
+
+    @Param({"calls", "record", "replay"})
+    public String mode;
+
+    private static final int APPEARANCE_COUNT = 8;
+
+    private VirtualUniverse universe;
+    private Canvas3D canvas;
+    private GraphicsContext3D gc;
+    private Geometry geometry;
+    private Appearance[] apps;
+    private Transform3D[] transforms;
+    private CommandBuffer commands;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	View view = BenchmarkScenes.createView(locale);
+	canvas = view.getCanvas3D(0);
+	gc = canvas.getGraphicsContext3D();
+
+	geometry = BenchmarkScenes.createBox(0.0f, 0.0f, 0.0f, 0.01f);
+	apps = BenchmarkScenes.createAppearances(APPEARANCE_COUNT);
+	transforms = new Transform3D[drawCount];
+	Vector3d translation = new Vector3d();
+	for (int i = 0; i < drawCount; i++) {
+	    translation.set((i % 100) * 0.02 - 1.0, (i / 100) * 0.02 - 1.0, 0.0);
+	    transforms[i] = new Transform3D();
+	    transforms[i].setTranslation(translation);
+	}
+
+	commands = new CommandBuffer();
+	record();
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    private void record() {
+	commands.reset();
+	commands.clear();
+	for (int i = 0; i < drawCount; i++) {
+	    commands.setAppearance(apps[i % APPEARANCE_COUNT]);
+	    commands.setModelTransform(transforms[i]);
+	    commands.draw(geometry);
+	}
+    }
+
+    @Benchmark
+    public void frame() {
+	if (mode.equals("calls")) {
+	    gc.clear();
+	    for (int i = 0; i < drawCount; i++) {
+		gc.setAppearance(apps[i % APPEARANCE_COUNT]);
+		gc.setModelTransform(transforms[i]);
+		gc.draw(geometry);
+	    }
+	} else {
+	    if (mode.equals("record")) {
+		record();
+	    }
+	    gc.execute(commands);
+	}
+
+	MessageQueue queue =
+	    canvas.screen.renderer.rendererStructure.messageQueue;
+	while (queue.size() > 0) {
+	    MasterControl.threadYield();
+	}
+    }
+}
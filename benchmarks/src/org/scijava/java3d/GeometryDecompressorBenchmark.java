@@ -0,0 +1,223 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Color4f;
+import org.scijava.vecmath.Point3f;
+import org.scijava.vecmath.Vector3f;
+
+/**
+ * Benchmarks of GeometryDecompressor throughput, on its own and through
+ * GeometryDecompressorShape3D.  There is no compressor in this tree, so
+ * the compressed buffer is encoded here: a grid of n*n cells as n
+ * generalized triangle strips, with absolute 16-bit positions and no
+ * bundled normals or colors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class GeometryDecompressorBenchmark {
+
+    @Param({"16", "128"})
+    public int gridSize;
+
+    // Geometry compression opcodes, see GeometryDecompressor
+    private static final int GC_VERTEX    = 0x40;
+    private static final int GC_SET_STATE = 0x18;
+    private static final int GC_SET_TABLE = 0x10;
+    private static final int GC_EOS       = 0x00;
+
+    private byte[] data;
+    private CompressedGeometryRetained cgr;
+    private CountingDecompressor decompressor;
+    private GeometryDecompressorShape3D shapeDecompressor;
+
+    @Setup
+    public void setup() {
+	data = encodeGrid(gridSize);
+
+	CompressedGeometryHeader hdr = new CompressedGeometryHeader();
+	hdr.majorVersionNumber = GeometryDecompressor.majorVersionNumber;
+	hdr.minorVersionNumber = GeometryDecompressor.minorVersionNumber;
+	hdr.minorMinorVersionNumber = GeometryDecompressor.minorMinorVersionNumber;
+	hdr.bufferType = CompressedGeometryHeader.TRIANGLE_BUFFER;
+	hdr.bufferDataPresent = 0;
+	hdr.start = 0;
+	hdr.size = data.length;
+	cgr = (CompressedGeometryRetained)new CompressedGeometry(hdr, data).retained;
+
+	decompressor = new CountingDecompressor();
+	shapeDecompressor = new GeometryDecompressorShape3D();
+    }
+
+    /**
+     * Decompressor backend that only counts the vertices.
+     */
+    static class CountingDecompressor extends GeometryDecompressor {
+	int vertexCount;
+
+	@Override
+	void outputVertexFormat(boolean bundlingNorm, boolean bundlingColor,
+				boolean doingAlpha) {
+	}
+
+	@Override
+	void outputVertex(Point3f position, Vector3f normal,
+			  Color4f color, int vertexReplaceCode) {
+	    vertexCount++;
+	}
+
+	@Override
+	void outputColor(Color4f color) {
+	}
+
+	@Override
+	void outputNormal(Vector3f normal) {
+	}
+    }
+
+    @Benchmark
+    public int decompress() {
+	decompressor.vertexCount = 0;
+	decompressor.decompress(0, data.length, data);
+	return decompressor.vertexCount;
+    }
+
+    @Benchmark
+    public Shape3D[] toTriangleArrays() {
+	return shapeDecompressor.toTriangleArrays(cgr);
+    }
+
+    @Benchmark
+    public Shape3D[] toTriangleStripArrays() {
+	return shapeDecompressor.toTriangleStripArrays(cgr);
+    }
+
+    /**
+     * Encodes a square grid of n*n cells, one triangle strip per row.
+     */
+    static byte[] encodeGrid(int n) {
+	Encoder enc = new Encoder();
+
+	// One position table entry for all 64 tags: tag length 0, data
+	// length 16 (coded as 0), absolute, no shift
+	enc.command(GC_SET_TABLE, (1 << 9) | (1 << 4), 15);
+	// No bundled normals, colors or alpha
+	enc.command(GC_SET_STATE, 0, 3);
+
+	int step = 60000 / n;
+	for (int row = 0; row < n; row++) {
+	    int y0 = -30000 + row * step;
+	    for (int col = 0; col <= n; col++) {
+		int x = -30000 + col * step;
+		enc.vertex(x, y0, 0, col == 0 ?
+			   GeneralizedStripFlags.RESTART_CW :
+			   GeneralizedStripFlags.REPLACE_OLDEST);
+		enc.vertex(x, y0 + step, 0,
+			   GeneralizedStripFlags.REPLACE_OLDEST);
+	    }
+	}
+	enc.command(GC_EOS, 0, 0);
+	return enc.toByteArray();
+    }
+
+    /**
+     * Writes the commands in the interleaved order of the decompressor:
+     * the header of each command comes before the body of the previous
+     * one.  The stream implicitly starts with a variable length no-op.
+     */
+    static class Encoder {
+	// Commands as { header, body, body length, more body, more length }
+	private final ArrayList<int[]> list = new ArrayList<int[]>();
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private long bitCount = 0;
+	private int pending = 0;
+	private int pendingCount = 0;
+
+	void command(int header, int body, int bodyLength) {
+	    list.add(new int[] { header, body, bodyLength, 0, 0 });
+	}
+
+	// A vertex with a 16-bit absolute position: the 6 upper bits of x
+	// are in the header, then repcode and mesh buffer push, the 10
+	// lower bits of x, y and z
+	void vertex(int x, int y, int z, int repCode) {
+	    list.add(new int[] { GC_VERTEX | ((x >> 10) & 0x3F),
+				 ((repCode << 1) << 10) | (x & 0x3FF), 13,
+				 ((y & 0xFFFF) << 16) | (z & 0xFFFF), 32 });
+	}
+
+	byte[] toByteArray() {
+	    // Total length of the stream without the no-op bits, which pad
+	    // it to a whole number of bytes so that the decompressor ends
+	    // on a header of trailing end-of-stream opcodes
+	    long total = 5;
+	    for (int i = 0; i < list.size(); i++) {
+		int[] cmd = list.get(i);
+		total += 8 + cmd[2] + cmd[4];
+	    }
+	    int noopLength = (int)((8 - total % 8) % 8);
+
+	    // The no-op body follows the first header
+	    writeBits(list.get(0)[0], 8);
+	    writeBits(noopLength, 5);
+	    writeBits(0, noopLength);
+	    for (int i = 0; i < list.size(); i++) {
+		if (i + 1 < list.size()) {
+		    writeBits(list.get(i + 1)[0], 8);
+		}
+		int[] cmd = list.get(i);
+		writeBits(cmd[1], cmd[2]);
+		writeBits(cmd[3], cmd[4]);
+	    }
+
+	    // Pad with end-of-stream opcodes to a whole number of words
+	    while (bitCount % 32 != 0) {
+		writeBits(GC_EOS, 8);
+	    }
+	    return out.toByteArray();
+	}
+
+	private void writeBits(int bits, int length) {
+	    for (int i = length - 1; i >= 0; i--) {
+		pending = (pending << 1) | ((bits >>> i) & 0x1);
+		if (++pendingCount == 8) {
+		    out.write(pending);
+		    pending = 0;
+		    pendingCount = 0;
+		}
+	    }
+	    bitCount += length;
+	}
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmarks of GeometryArrayRetained.intersect of a tessellated square
+ * with each kind of PickShape that triangle geometry supports (PickPoint
+ * is not).  A live geometry with enough triangles is picked through its
+ * TrianglePickTree, a geometry that isn't live with the linear loops.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class GeometryIntersectBenchmark {
+
+    @Param({"RAY", "SEGMENT", "CYLINDER_RAY", "CYLINDER_SEGMENT",
+	    "CONE_RAY", "CONE_SEGMENT",
+	    "BOUNDING_BOX", "BOUNDING_SPHERE", "BOUNDING_POLYTOPE"})
+    public String pickType;
+
+    // Number of cells along each side of the square, with 2 triangles each
+    @Param({"8", "64"})
+    public int gridSize;
+
+    @Param({"false", "true"})
+    public boolean live;
+
+    private static final int FLAGS =
+	PickInfo.CLOSEST_INTERSECTION_POINT | PickInfo.CLOSEST_DISTANCE;
+
+    private VirtualUniverse universe;
+    private GeometryArrayRetained geo;
+    private PickShape pickShape;
+    private Point3d iPnt;
+
+    @Setup
+    public void setup() {
+	TriangleArray grid = BenchmarkScenes.createGrid(gridSize, 1.0f);
+	geo = (GeometryArrayRetained)grid.retained;
+
+	if (live) {
+	    universe = new VirtualUniverse();
+	    Locale locale = new Locale(universe);
+	    BranchGroup root = new BranchGroup();
+	    root.addChild(new Shape3D(grid));
+	    locale.addBranchGraph(root);
+	}
+
+	pickShape = createPickShape(pickType);
+	iPnt = new Point3d();
+    }
+
+    @TearDown
+    public void tearDown() {
+	if (universe != null) {
+	    universe.removeAllLocales();
+	}
+    }
+
+    // The pick shapes go through the square near its center
+    private static PickShape createPickShape(String type) {
+	Point3d start = new Point3d(0.01, 0.02, 2.0);
+	Point3d end = new Point3d(0.01, 0.02, -2.0);
+	Vector3d dir = new Vector3d(0.0, 0.0, -1.0);
+	BoundingBox box = new BoundingBox(new Point3d(-0.04, -0.03, -0.05),
+					  new Point3d(0.06, 0.07, 0.05));
+
+	if (type.equals("RAY")) {
+	    return new PickRay(start, dir);
+	} else if (type.equals("SEGMENT")) {
+	    return new PickSegment(start, end);
+	} else if (type.equals("CYLINDER_RAY")) {
+	    return new PickCylinderRay(start, dir, 0.05);
+	} else if (type.equals("CYLINDER_SEGMENT")) {
+	    return new PickCylinderSegment(start, end, 0.05);
+	} else if (type.equals("CONE_RAY")) {
+	    return new PickConeRay(start, dir, 0.02);
+	} else if (type.equals("CONE_SEGMENT")) {
+	    return new PickConeSegment(start, end, 0.02);
+	} else if (type.equals("BOUNDING_BOX")) {
+	    return new PickBounds(box);
+	} else if (type.equals("BOUNDING_SPHERE")) {
+	    return new PickBounds(new BoundingSphere(new Point3d(0.01, 0.02, 0.0), 0.05));
+	} else if (type.equals("BOUNDING_POLYTOPE")) {
+	    return new PickBounds(new BoundingPolytope(box));
+	}
+	throw new IllegalArgumentException(type);
+    }
+
+    @Benchmark
+    public Point3d intersect() {
+	geo.intersect(pickShape, null, FLAGS, iPnt, geo, 0);
+	return iPnt;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of copying a BufferedImage into a by-copy ImageComponent2D.
+ * Each image type is copied into an RGB and an RGBA image component, so
+ * that every ImageFormatType is stored as is for one of the formats and
+ * converted to the byte RGB or RGBA components for the other; the gray
+ * images always take the generic, per pixel conversion.  The large size
+ * is above the size from which the conversion is split over threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class ImageConversionBenchmark {
+
+    @Param({"INT_RGB", "INT_ARGB", "INT_BGR", "3BYTE_BGR", "4BYTE_ABGR",
+	    "BYTE_GRAY"})
+    public String imageType;
+
+    @Param({"RGB", "RGBA"})
+    public String format;
+
+    @Param({"256", "1024"})
+    public int size;
+
+    private BufferedImage image;
+    private ImageComponent2D imageComponent;
+
+    @Setup
+    public void setup() {
+	image = new BufferedImage(size, size, getImageType(imageType));
+	Random random = new Random(1);
+	for (int y = 0; y < size; y++) {
+	    for (int x = 0; x < size; x++) {
+		image.setRGB(x, y, random.nextInt());
+	    }
+	}
+
+	int fmt = format.equals("RGB") ?
+	    ImageComponent.FORMAT_RGB : ImageComponent.FORMAT_RGBA;
+	imageComponent = new ImageComponent2D(fmt, size, size);
+	imageComponent.setCapability(ImageComponent.ALLOW_IMAGE_WRITE);
+    }
+
+    @Benchmark
+    public ImageComponent2D set() {
+	imageComponent.set(image);
+	return imageComponent;
+    }
+
+    private static int getImageType(String name) {
+	if (name.equals("INT_RGB")) {
+	    return BufferedImage.TYPE_INT_RGB;
+	} else if (name.equals("INT_ARGB")) {
+	    return BufferedImage.TYPE_INT_ARGB;
+	} else if (name.equals("INT_BGR")) {
+	    return BufferedImage.TYPE_INT_BGR;
+	} else if (name.equals("3BYTE_BGR")) {
+	    return BufferedImage.TYPE_3BYTE_BGR;
+	} else if (name.equals("4BYTE_ABGR")) {
+	    return BufferedImage.TYPE_4BYTE_ABGR;
+	} else {
+	    return BufferedImage.TYPE_BYTE_GRAY;
+	}
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmark of frames of a grid of objects with two levels of detail
+ * each, as the scene moves back and forth so that the levels change.
+ * "DistanceLOD" chooses the levels with a DistanceLOD behavior per
+ * object, which changes the child of a Switch node; "LODSwitch" uses
+ * LODSwitch nodes, whose levels are chosen with the visible objects.
+ * A frame ends when the off-screen canvas has been rendered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class LODBenchmark {
+
+    @Param({"32"})
+    public int gridSize;
+
+    @Param({"DistanceLOD", "LODSwitch"})
+    public String mode;
+
+    // Size of the fine level, and distance at which the coarse one is
+    // good enough
+    private static final float HALF_SIZE = 0.25f;
+    private static final float DISTANCE = 20.0f;
+
+    private VirtualUniverse universe;
+    private Canvas3D canvas;
+    private TransformGroup sceneGroup;
+    private Transform3D near = new Transform3D();
+    private Transform3D far = new Transform3D();
+    private boolean isNear = false;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	View view = BenchmarkScenes.createView(locale);
+	canvas = view.getCanvas3D(0);
+
+	Geometry fine = BenchmarkScenes.createBox(0.0f, 0.0f, 0.0f, HALF_SIZE);
+	Geometry coarse = BenchmarkScenes.createBox(0.0f, 0.0f, 0.0f, HALF_SIZE * 0.9f);
+	Appearance app = BenchmarkScenes.createAppearances(1)[0];
+	// Error of the coarse level that covers a pixel of the 256 pixel
+	// wide canvas at DISTANCE
+	double error =
+	    DISTANCE * 2.0 * Math.tan(view.getFieldOfView() / 2.0) / 256.0;
+
+	BranchGroup root = new BranchGroup();
+	sceneGroup = new TransformGroup();
+	sceneGroup.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	root.addChild(sceneGroup);
+
+	BoundingSphere bounds = new BoundingSphere(new Point3d(), Double.MAX_VALUE);
+	float offset = (gridSize - 1) * 0.5f;
+	Transform3D t = new Transform3D();
+	for (int i = 0; i < gridSize; i++) {
+	    for (int j = 0; j < gridSize; j++) {
+		t.setTranslation(new Vector3d(i - offset, j - offset, 0.0));
+		TransformGroup tg = new TransformGroup(t);
+
+		Switch sw;
+		if (mode.equals("LODSwitch")) {
+		    sw = new LODSwitch(new double[] { 0.0, error });
+		} else {
+		    sw = new Switch(0);
+		    sw.setCapability(Switch.ALLOW_SWITCH_WRITE);
+		    DistanceLOD lod = new DistanceLOD(new float[] { DISTANCE });
+		    lod.addSwitch(sw);
+		    lod.setSchedulingBounds(bounds);
+		    tg.addChild(lod);
+		}
+		sw.addChild(new Shape3D(fine, app));
+		sw.addChild(new Shape3D(coarse, app));
+		tg.addChild(sw);
+		sceneGroup.addChild(tg);
+	    }
+	}
+
+	near.setTranslation(new Vector3d(0.0, 0.0, -DISTANCE * 0.5));
+	far.setTranslation(new Vector3d(0.0, 0.0, -DISTANCE * 2.0));
+	sceneGroup.setTransform(far);
+	locale.addBranchGraph(root);
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void frame() {
+	isNear = !isNear;
+	sceneGroup.setTransform(isNear ? near : far);
+	canvas.renderOffScreenBuffer();
+	canvas.waitForOffScreenRendering();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Contention benchmark of the message queue of a structure: three
+ * producer threads add messages while the consumer thread takes those
+ * up to the reference time, as the update thread does each frame.  The
+ * UnorderList variant is the synchronized list, scanned and shifted by
+ * the consumer, that the structures used before MessageQueue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Group)
+public class MessageQueueBenchmark {
+
+    @Param({"MessageQueue", "UnorderList"})
+    public String queue;
+
+    // Work of a producer between two messages, as in a setter
+    private static final long PRODUCER_WORK = 32;
+
+    private MessageQueue messageQueue;
+    private UnorderList messageList;
+    private J3dMessage message;
+    private J3dMessage[] msgList = new J3dMessage[5];
+
+    @Setup
+    public void setup() {
+	messageQueue = new MessageQueue();
+	messageList = new UnorderList(5, J3dMessage.class);
+	message = new J3dMessage();
+	message.time = 0L;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void add() {
+	Blackhole.consumeCPU(PRODUCER_WORK);
+	if (queue.equals("MessageQueue")) {
+	    messageQueue.add(message);
+	} else {
+	    messageList.add(message);
+	}
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int getMessages() {
+	return queue.equals("MessageQueue") ? pollQueue() : shiftList();
+    }
+
+    private int pollQueue() {
+	int n = 0;
+	J3dMessage m;
+	while ((m = messageQueue.poll(0L)) != null) {
+	    if (n == msgList.length) {
+		msgList = new J3dMessage[2 * n];
+	    }
+	    msgList[n++] = m;
+	}
+	return n;
+    }
+
+    // The former J3dStructure.getMessages
+    private int shiftList() {
+	int sz, n = 0;
+	synchronized (messageList) {
+	    if ((sz = messageList.size()) > 0) {
+		J3dMessage mess[] = (J3dMessage [])messageList.toArray(false);
+		for (n = 0; n < sz; n++) {
+		    if (mess[n].time > 0L) {
+			break;
+		    }
+		}
+		if (n > 0) {
+		    if (msgList.length < n) {
+			msgList = new J3dMessage[n];
+		    }
+		    messageList.shift(msgList, n);
+		}
+	    }
+	}
+	return n;
+    }
+}
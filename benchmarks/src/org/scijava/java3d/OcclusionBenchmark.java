@@ -0,0 +1,104 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmark of frames of a grid of boxes hidden behind a wall, as the
+ * scene moves back and forth so that the visible objects are found
+ * again each frame.  The wall is an occluder, and occlusion culling of
+ * the view is "off" or "on".  A frame ends when the off-screen canvas has
+ * been rendered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class OcclusionBenchmark {
+
+    @Param({"10"})
+    public int gridSize;
+
+    @Param({"off", "on"})
+    public String mode;
+
+    private VirtualUniverse universe;
+    private Canvas3D canvas;
+    private TransformGroup sceneGroup;
+    private Transform3D near = new Transform3D();
+    private Transform3D far = new Transform3D();
+    private boolean isNear = false;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	View view = BenchmarkScenes.createView(locale);
+	view.setOcclusionCullingEnable(mode.equals("on"));
+	canvas = view.getCanvas3D(0);
+
+	BranchGroup root = new BranchGroup();
+	sceneGroup = new TransformGroup();
+	sceneGroup.setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	root.addChild(sceneGroup);
+	sceneGroup.addChild(BenchmarkScenes.createBoxScene(gridSize,
+	    BenchmarkScenes.createAppearances(8)));
+
+	// Wall in front of the boxes, much wider than the canvas shows
+	Shape3D wall = new Shape3D(BenchmarkScenes.createGrid(1, 4.0f * gridSize),
+				   BenchmarkScenes.createAppearances(1)[0]);
+	wall.setOccluder(true);
+	TransformGroup wallGroup = new TransformGroup();
+	Transform3D t = new Transform3D();
+	t.setTranslation(new Vector3d(0.0, 0.0, gridSize * 0.5 + 1.0));
+	wallGroup.setTransform(t);
+	wallGroup.addChild(wall);
+	sceneGroup.addChild(wallGroup);
+
+	near.setTranslation(new Vector3d(0.0, 0.0, -gridSize * 1.5));
+	far.setTranslation(new Vector3d(0.0, 0.0, -gridSize * 2.0));
+	sceneGroup.setTransform(far);
+	locale.addBranchGraph(root);
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public void frame() {
+	isNear = !isNear;
+	sceneGroup.setTransform(isNear ? near : far);
+	canvas.renderOffScreenBuffer();
+	canvas.waitForOffScreenRendering();
+    }
+}
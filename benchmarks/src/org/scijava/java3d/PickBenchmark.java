@@ -0,0 +1,84 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of Locale.pickAllSorted on a generated n*n*n grid of boxes,
+ * with a ray that goes through a column of n boxes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class PickBenchmark {
+
+    @Param({"10", "20"})
+    public int gridSize;
+
+    @Param({"BOUNDS", "GEOMETRY"})
+    public String mode;
+
+    private static final int FLAGS = PickInfo.NODE | PickInfo.CLOSEST_DISTANCE;
+
+    private VirtualUniverse universe;
+    private Locale locale;
+    private PickShape pickShape;
+    private int pickMode;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	locale = new Locale(universe);
+	View view = BenchmarkScenes.createView(locale);
+
+	BranchGroup scene = BenchmarkScenes.createBoxScene(gridSize,
+	    BenchmarkScenes.createAppearances(1));
+	locale.addBranchGraph(scene);
+
+	pickShape = BenchmarkScenes.createColumnRay(gridSize);
+	BenchmarkScenes.waitForPickable(locale, pickShape, gridSize);
+	// The scene is static, the view only had to build the structures
+	view.stopView();
+
+	pickMode = mode.equals("BOUNDS") ? PickInfo.PICK_BOUNDS :
+	    PickInfo.PICK_GEOMETRY;
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public PickInfo[] pickAllSorted() {
+	return locale.pickAllSorted(pickMode, FLAGS, pickShape);
+    }
+}
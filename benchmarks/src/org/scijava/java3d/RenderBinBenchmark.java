@@ -0,0 +1,109 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the insertion of the render atoms of a scene into an empty
+ * RenderBin, which sorts them into environment sets, attribute, shader
+ * and texture bins and render molecules.  The geometry atoms come from a
+ * live n*n*n grid of boxes with the given number of distinct appearances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class RenderBinBenchmark {
+
+    @Param({"10"})
+    public int gridSize;
+
+    @Param({"1", "16", "256"})
+    public int appearanceCount;
+
+    private VirtualUniverse universe;
+    private View view;
+    private GeometryAtom[] atoms;
+    private RenderBin renderBin;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	view = BenchmarkScenes.createView(locale);
+
+	BranchGroup scene = BenchmarkScenes.createBoxScene(gridSize,
+	    BenchmarkScenes.createAppearances(appearanceCount));
+	// The children can't be read once live
+	Shape3DRetained[] shapes = new Shape3DRetained[scene.numChildren()];
+	for (int i = 0; i < shapes.length; i++) {
+	    shapes[i] = (Shape3DRetained)scene.getChild(i).retained;
+	}
+	locale.addBranchGraph(scene);
+	BenchmarkScenes.waitForPickable(locale,
+	    BenchmarkScenes.createColumnRay(gridSize), gridSize);
+	// The scene is static, the view only had to build the structures
+	view.stopView();
+
+	ArrayList<GeometryAtom> list = new ArrayList<GeometryAtom>();
+	for (int i = 0; i < shapes.length; i++) {
+	    GeometryAtom[] gaArr =
+		Shape3DRetained.getGeomAtomsArray(shapes[i].mirrorShape3D);
+	    for (int j = 0; j < gaArr.length; j++) {
+		list.add(gaArr[j]);
+	    }
+	}
+	atoms = list.toArray(new GeometryAtom[list.size()]);
+    }
+
+    // Each call inserts into a new RenderBin new render atoms
+    @Setup(Level.Invocation)
+    public void setupRenderBin() {
+	renderBin = new RenderBin(universe, view);
+	for (int i = 0; i < atoms.length; i++) {
+	    atoms[i].renderAtoms = new RenderAtom[0];
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    @Benchmark
+    public RenderBin insertRenderAtoms() {
+	for (int i = 0; i < atoms.length; i++) {
+	    renderBin.processGeometryAtom(atoms[i], 0L);
+	}
+	return renderBin;
+    }
+}
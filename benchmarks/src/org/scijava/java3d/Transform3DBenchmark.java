@@ -0,0 +1,100 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.AxisAngle4d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmarks of Transform3D multiply, invert and normalize, for a rigid
+ * transform and for a general affine transform, which take different
+ * paths through the type classification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class Transform3DBenchmark {
+
+    private Transform3D rigid;
+    private Transform3D affine;
+    private Transform3D result;
+
+    @Setup
+    public void setup() {
+	rigid = new Transform3D();
+	rigid.setRotation(new AxisAngle4d(1.0, 2.0, 3.0, 0.7));
+	rigid.setTranslation(new Vector3d(1.0, -2.0, 3.0));
+
+	affine = new Transform3D(new double[] {
+	    1.2, 0.3, -0.1, 4.0,
+	    0.2, 0.9, 0.4, -1.0,
+	    -0.3, 0.1, 1.1, 2.0,
+	    0.0, 0.0, 0.0, 1.0 });
+
+	result = new Transform3D();
+    }
+
+    @Benchmark
+    public Transform3D mulRigid() {
+	result.mul(rigid, rigid);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D mulAffine() {
+	result.mul(affine, rigid);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D invertRigid() {
+	result.invert(rigid);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D invertAffine() {
+	result.invert(affine);
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D normalizeRigid() {
+	result.set(rigid);
+	result.normalize();
+	return result;
+    }
+
+    @Benchmark
+    public Transform3D normalizeAffine() {
+	result.set(affine);
+	result.normalize();
+	return result;
+    }
+}
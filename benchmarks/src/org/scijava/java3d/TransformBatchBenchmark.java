@@ -0,0 +1,104 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * Benchmarks of setting the transforms of the live TransformGroups of a
+ * scene, one TransformGroup.setTransform call per node against a
+ * TransformBatch commit.  The view keeps running so that MasterControl
+ * consumes the messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dj3d.rend=noop", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class TransformBatchBenchmark {
+
+    @Param({"100", "1000"})
+    public int groupCount;
+
+    private VirtualUniverse universe;
+    private TransformGroup[] groups;
+    private Transform3D[] transforms;
+    private TransformBatch batch;
+    private final Vector3d translation = new Vector3d();
+    private int frame = 0;
+
+    @Setup
+    public void setup() {
+	universe = new VirtualUniverse();
+	Locale locale = new Locale(universe);
+	BenchmarkScenes.createView(locale);
+
+	BranchGroup scene = new BranchGroup();
+	groups = new TransformGroup[groupCount];
+	transforms = new Transform3D[groupCount];
+	for (int i = 0; i < groupCount; i++) {
+	    groups[i] = new TransformGroup();
+	    groups[i].setCapability(TransformGroup.ALLOW_TRANSFORM_WRITE);
+	    groups[i].addChild(new Shape3D(
+		BenchmarkScenes.createBox(0.0f, 0.0f, 0.0f, 0.25f)));
+	    scene.addChild(groups[i]);
+	    transforms[i] = new Transform3D();
+	}
+	locale.addBranchGraph(scene);
+	batch = new TransformBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+	universe.removeAllLocales();
+    }
+
+    private void updateTransforms() {
+	frame++;
+	for (int i = 0; i < groupCount; i++) {
+	    translation.set(i, frame % 16, 0.0);
+	    transforms[i].setTranslation(translation);
+	}
+    }
+
+    @Benchmark
+    public void setTransform() {
+	updateTransforms();
+	for (int i = 0; i < groupCount; i++) {
+	    groups[i].setTransform(transforms[i]);
+	}
+    }
+
+    @Benchmark
+    public void transformBatch() {
+	updateTransforms();
+	batch.setTransforms(groups, transforms);
+	batch.commit();
+    }
+}
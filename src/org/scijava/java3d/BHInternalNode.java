@@ -141,6 +141,31 @@ class BHInternalNode extends BHNode {
 
     }
 
+    // Same as updateMarkedBoundingHull, but returns the change of the sum
+    // of the hull areas of the internal nodes that were updated.
+    double refitMarkedBoundingHull() {
+
+	if(mark == false)
+	    return 0.0;
+
+	double delta = 0.0;
+	if(rChild.nodeType == BHNode.BH_TYPE_INTERNAL)
+	    delta += ((BHInternalNode)rChild).refitMarkedBoundingHull();
+	else
+	    rChild.updateMarkedBoundingHull();
+
+	if(lChild.nodeType == BHNode.BH_TYPE_INTERNAL)
+	    delta += ((BHInternalNode)lChild).refitMarkedBoundingHull();
+	else
+	    lChild.updateMarkedBoundingHull();
+
+	double oldArea = computeHullArea();
+	computeBoundingHull();
+	mark = false;
+
+	return delta + computeHullArea() - oldArea;
+    }
+
     // this method inserts a single element into the tree given the stipulation
     // that the current tree node already contains the child ... 3 cases
     // one --node is inside the left child, and not inside the right
@@ -42,6 +42,10 @@ abstract class BHNode {
     BoundingBox bHull = null;
     boolean mark;
 
+    // Index of the frustum plane that last culled this node, see
+    // FrustumCuller
+    byte cullPlane = -1;
+
     BHNode () {
 	this.parent = null;
 	mark = false;
@@ -227,6 +231,29 @@ abstract class BHNode {
     }
 
 
+    // half the surface area of the bounding hull, zero if it is empty
+    double computeHullArea() {
+	if ((bHull == null) || bHull.isEmpty()) {
+	    return 0.0;
+	}
+	double dx = bHull.upper.x - bHull.lower.x;
+	double dy = bHull.upper.y - bHull.lower.y;
+	double dz = bHull.upper.z - bHull.lower.z;
+	return dx * dy + dy * dz + dz * dx;
+    }
+
+    // sum of the hull areas of the internal nodes of the subtree; divided
+    // by the area of the root, the SAH cost of traversing the tree
+    double computeInternalArea() {
+	if ( this.nodeType == BHNode.BH_TYPE_LEAF ) {
+	    return 0.0;
+	} else {
+	    return (((BHInternalNode)this).rChild.computeInternalArea() +
+		    ((BHInternalNode)this).lChild.computeInternalArea() +
+		    computeHullArea() );
+	}
+    }
+
     // generic tree gathering statistics operations
 
     int countNumberOfInternals() {
@@ -27,6 +27,7 @@
 package org.scijava.java3d;
 
 import java.util.ArrayList;
+import java.util.PriorityQueue;
 import java.util.Vector;
 
 import org.scijava.vecmath.Point4d;
@@ -55,6 +56,18 @@ class BHTree  {
     static final int INCR_DEPTH_BOUND = 5;
     int  depthUpperBound = DEPTH_UPPER_BOUND;
 
+    // Sum of the hull areas of the internal nodes, kept up to date by the
+    // refits of boundsChanged. Divided by the area of the root it is the
+    // SAH cost of the tree, which is compared with the cost the tree had
+    // when it was built, or when leaves were last inserted or deleted.
+    private double internalArea = 0.0;
+    private double referenceCost = 0.0;
+    private boolean areaValid = false;
+
+    // Number of refits and of rebuilds done by boundsChanged
+    long refitCount = 0;
+    long rebuildCount = 0;
+
     BHTree() {
 	locale = null;
 	root = null;
@@ -108,18 +121,70 @@ class BHTree  {
 
     // bhArr can only contains BHLeafNode.
 
-    void boundsChanged(BHNode bhArr[], int size) {
+    // Refits the bounds of the marked parent chains and, when
+    // j3d.bhTreeRebuild is set, rebuilds the tree once its SAH cost
+    // exceeds the reference cost by the j3d.bhTreeRebuildThreshold
+    // percentage. Returns true if the tree was rebuilt.
+    boolean boundsChanged(BHNode bhArr[], int size) {
 	// Mark phase.
 	markParentChain(bhArr, size);
 
+	refitCount++;
+
 	// Compute phase.
-	root.updateMarkedBoundingHull();
+	if(!VirtualUniverse.mc.bhTreeRebuild ||
+	   (root.nodeType != BHNode.BH_TYPE_INTERNAL)) {
+	    root.updateMarkedBoundingHull();
+	    return false;
+	}
+
+	if(areaValid) {
+	    internalArea += ((BHInternalNode)root).refitMarkedBoundingHull();
+	} else {
+	    root.updateMarkedBoundingHull();
+	    resetCost();
+	    return false;
+	}
+
+	if(getCost() * 100.0 >
+	   referenceCost * VirtualUniverse.mc.bhTreeRebuildThreshold) {
+	    reConstructTree(root.countNumberOfLeaves());
+	    rebuildCount++;
+	    return true;
+	}
+	return false;
+    }
+
+    // SAH cost of the tree, the expected number of internal nodes visited
+    // by a query that hits the root
+    double getCost() {
+	if(root == null)
+	    return 0.0;
+
+	double rootArea = root.computeHullArea();
+	if(rootArea <= 0.0)
+	    return 0.0;
+
+	if(!areaValid) {
+	    internalArea = root.computeInternalArea();
+	    areaValid = true;
+	}
+	return internalArea / rootArea;
+    }
+
+    // Recomputes the SAH cost and takes it as the reference
+    private void resetCost() {
+	areaValid = false;
+	referenceCost = getCost();
     }
 
 
     // Return true if bhTree's root in encompass by frustumBBox and nothing changed.
+    // The nodes are also culled against the planes of the culler, if it
+    // is not null.
     boolean getVisibleBHTrees(RenderBin rBin, ArrayList bhTrees,
-			      BoundingBox frustumBBox, long referenceTime,
+			      BoundingBox frustumBBox, FrustumCuller culler,
+			      long referenceTime,
 			      boolean stateChanged, int visibilityPolicy,
 			      boolean singleLocale) {
 
@@ -127,7 +192,14 @@ class BHTree  {
 
 	if ((frustumBBox != null) && (root != null)) {
 
-	    boolean inSide = aEncompassB(frustumBBox, root.bHull);
+	    boolean inSide;
+	    int mask = 0;
+	    if (culler != null) {
+		mask = culler.classify(root, culler.getMask());
+		inSide = (mask == FrustumCuller.INSIDE);
+	    } else {
+		inSide = aEncompassB(frustumBBox, root.bHull);
+	    }
 	    /*
 	      System.err.println("stateChanged is " + stateChanged);
 	      System.err.println("frustumBBox is " + frustumBBox);
@@ -135,7 +207,11 @@ class BHTree  {
 	      System.err.println("inSide is " + inSide);
 	    */
 
-	    if(singleLocale && !stateChanged && inSide && stable) {
+	    // The projected sizes, LODSwitch levels and occluded objects
+	    // change as the view moves
+	    if(singleLocale && !stateChanged && inSide && stable &&
+	       ((culler == null) || ((locale.universe.lodSwitchCount == 0) &&
+				     (rBin.cullTime != referenceTime)))) {
 		// just return the whole tree, no change in render mol..
 		// System.err.println("Optimize case 1 ..." + this);
 		bhTrees.add(root);
@@ -145,15 +221,17 @@ class BHTree  {
 		// the whole tree is in, but we've to be sure that RenderBin is
 		// stable ...
 		// System.err.println("Optimize case 2 ..." + this);
-		select(rBin, bhTrees, frustumBBox, root, referenceTime,
-		       visibilityPolicy, true);
+		select(rBin, bhTrees, frustumBBox, culler, 0, root,
+		       referenceTime, visibilityPolicy, true);
 
 		bhTrees.add(root);
 		stable = true;
 	    } else {
 		// System.err.println("Not in Optimize case ..." + this);
-		select(rBin, bhTrees, frustumBBox, root, referenceTime,
-		       visibilityPolicy, false);
+		if ((culler == null) || (mask != 0)) {
+		    select(rBin, bhTrees, frustumBBox, culler, mask, root,
+			   referenceTime, visibilityPolicy, false);
+		}
 
 		stable = false;
 	    }
@@ -163,7 +241,9 @@ class BHTree  {
 	return false;
     }
 
+    // mask is the mask of the planes of the culler the node straddles
     private void select(RenderBin rBin, ArrayList bhTrees, BoundingBox frustumBBox,
+			FrustumCuller culler, int mask,
 			BHNode bh, long referenceTime, int visibilityPolicy,
 			boolean inSide) {
 
@@ -171,16 +251,33 @@ class BHTree  {
 	    return;
 	}
 
+	if ((culler != null) && culler.isTooSmall(bh)) {
+	    return;
+	}
+
+	// An occluder is never tested, so that it is not hidden by itself
+	if ((culler != null) && !isOccluder(bh) && culler.isOccluded(bh)) {
+	    if ((bh.nodeType == BHNode.BH_TYPE_LEAF) ||
+		VirtualUniverse.mc.collectFrameMetrics) {
+		countOccludedAtoms(rBin, bh, visibilityPolicy);
+	    }
+	    return;
+	}
+
 	switch(bh.nodeType) {
 	case BHNode.BH_TYPE_LEAF:
 	    if((((BHLeafNode) bh).leafIF instanceof GeometryAtom) &&
 	       (((BHLeafNode) bh).isEnable(visibilityPolicy)) &&
-	       ((inSide) ||  (frustumBBox.intersect(bh.bHull)))) {
+	       ((inSide) ||  (frustumBBox.intersect(bh.bHull) &&
+			      ((culler == null) || (culler.classify(bh, mask) != 0)))) &&
+	       isSelectedLevel(rBin, (GeometryAtom)((BHLeafNode) bh).leafIF,
+			       culler, referenceTime)) {
 
 	       // do render atom setup.
 		rBin.processGeometryAtom((GeometryAtom)
 					 (((BHLeafNode)bh).leafIF),
 					 referenceTime);
+		rBin.visibleAtomCount++;
 		if(!inSide) {
 		    bhTrees.add(bh);
 		}
@@ -188,27 +285,50 @@ class BHTree  {
 	    break;
 	case BHNode.BH_TYPE_INTERNAL:
 	    if(inSide) {
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, culler, 0,
 		       ((BHInternalNode)bh).getRightChild(),
 		       referenceTime, visibilityPolicy, true);
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, culler, 0,
 		       ((BHInternalNode)bh).getLeftChild(),
 		       referenceTime, visibilityPolicy, true);
 	    }
+	    else if(culler != null) {
+		if(!frustumBBox.intersect(bh.bHull)) {
+		    break;
+		}
+		int childMask = culler.classify(bh, mask);
+		if(childMask == FrustumCuller.INSIDE) {
+		    bhTrees.add(bh);
+		    select(rBin, bhTrees, frustumBBox, culler, 0,
+			   ((BHInternalNode)bh).getRightChild(),
+			   referenceTime, visibilityPolicy, true);
+		    select(rBin, bhTrees, frustumBBox, culler, 0,
+			   ((BHInternalNode)bh).getLeftChild(),
+			   referenceTime, visibilityPolicy, true);
+		}
+		else if(childMask != 0) {
+		    select(rBin, bhTrees, frustumBBox, culler, childMask,
+			   ((BHInternalNode)bh).getRightChild(),
+			   referenceTime, visibilityPolicy, false);
+		    select(rBin, bhTrees, frustumBBox, culler, childMask,
+			   ((BHInternalNode)bh).getLeftChild(),
+			   referenceTime, visibilityPolicy, false);
+		}
+	    }
 	    else if(aEncompassB(frustumBBox, bh.bHull)) {
 		bhTrees.add(bh);
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, null, 0,
 		       ((BHInternalNode)bh).getRightChild(),
 		       referenceTime, visibilityPolicy, true);
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, null, 0,
 		       ((BHInternalNode)bh).getLeftChild(),
 		       referenceTime, visibilityPolicy, true);
 	    }
 	    else if(frustumBBox.intersect(bh.bHull)) {
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, null, 0,
 		       ((BHInternalNode)bh).getRightChild(),
 		       referenceTime, visibilityPolicy, false);
-		select(rBin, bhTrees, frustumBBox,
+		select(rBin, bhTrees, frustumBBox, null, 0,
 		       ((BHInternalNode)bh).getLeftChild(),
 		       referenceTime, visibilityPolicy, false);
 	    }
@@ -216,6 +336,47 @@ class BHTree  {
 	}
     }
 
+    private static boolean isOccluder(BHNode bh) {
+	return (bh.nodeType == BHNode.BH_TYPE_LEAF) &&
+	    (((BHLeafNode) bh).leafIF instanceof GeometryAtom) &&
+	    ((GeometryAtom)((BHLeafNode) bh).leafIF).source.occluder;
+    }
+
+    // Counts the geometry atoms of an occluded node for the frame
+    // metrics.  The whole subtree is visited, so for internal nodes it is
+    // only done while the metrics are collected.
+    private static void countOccludedAtoms(RenderBin rBin, BHNode bh,
+					   int visibilityPolicy) {
+	if (bh == null) {
+	    return;
+	}
+	if (bh.nodeType == BHNode.BH_TYPE_LEAF) {
+	    if ((((BHLeafNode) bh).leafIF instanceof GeometryAtom) &&
+		((BHLeafNode) bh).isEnable(visibilityPolicy)) {
+		rBin.occludedAtomCount++;
+	    }
+	} else {
+	    countOccludedAtoms(rBin, ((BHInternalNode)bh).getLeftChild(),
+			       visibilityPolicy);
+	    countOccludedAtoms(rBin, ((BHInternalNode)bh).getRightChild(),
+			       visibilityPolicy);
+	}
+    }
+
+    // Returns false for the geometry of a level of an LODSwitch that is
+    // not the level chosen for the view.
+    private static boolean isSelectedLevel(RenderBin rBin, GeometryAtom ga,
+					   FrustumCuller culler,
+					   long referenceTime) {
+	SwitchRetained sw = ga.source.closestSwitchParent;
+	if (!(sw instanceof LODSwitchRetained)) {
+	    return true;
+	}
+	return ((LODSwitchRetained)sw).getLevel(rBin.view, culler,
+						 referenceTime) ==
+	    ga.source.closestSwitchIndex;
+    }
+
     // returns true iff the bBox is completely inside aBox
     // i.e.  bBoxl values are strictly less than or equal to all aBox values.
     static boolean aEncompassB(BoundingBox aBox, BoundingBox bBox) {
@@ -584,6 +745,135 @@ class BHTree  {
 
     }
 
+    /**
+     * Tests the pickable geometry atoms whose bounds a PickRay or
+     * PickSegment intersects, best first: the nodes are visited in the
+     * order of the distance along the shape at which it enters their
+     * bounds, and the traversal ends when the closest hit returned by
+     * the pick is no farther than where the remaining nodes begin.  Since
+     * the geometry of an atom is inside its bounds, no nearer hit is
+     * left untested.
+     */
+    void selectClosest(PickShape pickShape, PickInfo.ClosestPick pick) {
+
+	if ((pickShape == null) || (root == null) || root.bHull.isEmpty())
+	    return;
+
+	double ox, oy, oz, dx, dy, dz;
+	if (pickShape instanceof PickRay) {
+	    PickRay ray = (PickRay)pickShape;
+	    ox = ray.origin.x;
+	    oy = ray.origin.y;
+	    oz = ray.origin.z;
+	    dx = ray.direction.x;
+	    dy = ray.direction.y;
+	    dz = ray.direction.z;
+	} else if (pickShape instanceof PickSegment) {
+	    PickSegment segment = (PickSegment)pickShape;
+	    ox = segment.start.x;
+	    oy = segment.start.y;
+	    oz = segment.start.z;
+	    dx = segment.end.x - ox;
+	    dy = segment.end.y - oy;
+	    dz = segment.end.z - oz;
+	} else {
+	    return;
+	}
+	double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+	if (length > 0.0) {
+	    dx /= length;
+	    dy /= length;
+	    dz /= length;
+	}
+
+	Point4d pickPos = new Point4d();
+	if (!isPickable(root) || !pickShape.intersect(root.bHull, pickPos))
+	    return;
+
+	PriorityQueue<PickCandidate> queue = new PriorityQueue<PickCandidate>();
+	queue.add(new PickCandidate(root,
+		entryDistance(root.bHull, ox, oy, oz, dx, dy, dz)));
+	double closest = Double.POSITIVE_INFINITY;
+
+	while (!queue.isEmpty()) {
+	    PickCandidate candidate = queue.poll();
+	    if (candidate.distance >= closest) {
+		break;
+	    }
+	    BHNode bh = candidate.node;
+	    if (bh.nodeType == BHNode.BH_TYPE_LEAF) {
+		double distance =
+		    pick.test((GeometryAtom)((BHLeafNode)bh).leafIF);
+		if (distance < closest) {
+		    closest = distance;
+		}
+		continue;
+	    }
+	    for (int i = 0; i < 2; i++) {
+		BHNode child = (i == 0) ?
+		    ((BHInternalNode)bh).getLeftChild() :
+		    ((BHInternalNode)bh).getRightChild();
+		if ((child != null) && !child.bHull.isEmpty() &&
+		    isPickable(child) &&
+		    pickShape.intersect(child.bHull, pickPos)) {
+		    queue.add(new PickCandidate(child,
+			    entryDistance(child.bHull, ox, oy, oz, dx, dy, dz)));
+		}
+	    }
+	}
+    }
+
+    // Distance from the origin along the unit direction to where the line
+    // enters the box, 0 if the origin is inside it.  Only called for
+    // boxes the pick shape intersects.
+    private static double entryDistance(BoundingBox box,
+					double ox, double oy, double oz,
+					double dx, double dy, double dz) {
+	double tnear = 0.0;
+	if (dx != 0.0) {
+	    tnear = Math.max(tnear, Math.min((box.lower.x - ox) / dx,
+					     (box.upper.x - ox) / dx));
+	}
+	if (dy != 0.0) {
+	    tnear = Math.max(tnear, Math.min((box.lower.y - oy) / dy,
+					     (box.upper.y - oy) / dy));
+	}
+	if (dz != 0.0) {
+	    tnear = Math.max(tnear, Math.min((box.lower.z - oz) / dz,
+					     (box.upper.z - oz) / dz));
+	}
+	// 0 as well if not comparable, for an origin that is not finite
+	return (tnear >= 0.0) ? tnear : 0.0;
+    }
+
+    // Internal nodes, and the enabled leaves of pickable geometry atoms
+    private static boolean isPickable(BHNode bh) {
+	if (bh.nodeType != BHNode.BH_TYPE_LEAF) {
+	    return true;
+	}
+	BHLeafNode leaf = (BHLeafNode)bh;
+	return leaf.isEnable() && (leaf.leafIF instanceof GeometryAtom) &&
+	    ((GeometryAtom)leaf.leafIF).source.isPickable;
+    }
+
+    // Node of the best first pick traversal, ordered by distance
+    private static final class PickCandidate
+	implements Comparable<PickCandidate> {
+
+	final BHNode node;
+	final double distance;
+
+	PickCandidate(BHNode node, double distance) {
+	    this.node = node;
+	    this.distance = distance;
+	}
+
+	@Override
+	public int compareTo(PickCandidate other) {
+	    return Double.compare(distance, other.distance);
+	}
+    }
+
 
     private BHNode doSelectAny(PickShape pickShape, BHNode bh, Point4d pickPos) {
 
@@ -625,6 +915,8 @@ class BHTree  {
     private void create(BHNode bhArr[]) {
 	int i;
 
+	areaValid = false;
+
 	if(bhArr == null) {
 	    root = null;
 	    return;
@@ -650,6 +942,7 @@ class BHTree  {
 	root = new BHInternalNode();
 	constructTree((BHInternalNode) root, bhArr, centerValues,
 		      centerValuesIndex);
+	resetCost();
 
 
 	if(J3dDebug.devPhase && J3dDebug.debug)
@@ -715,6 +1008,7 @@ class BHTree  {
 
 	insertStructure.updateBoundingTree(this);
 	// System.err.println("BHTree - Inserting ...");
+	areaValid = false;
 
         // Issue 353: clear temporary insertStructure so we don't leak.
         insertStructure.clear();
@@ -829,6 +1123,7 @@ class BHTree  {
 	}
 
 	root = root.deleteAndUpdateMarkedNodes();
+	areaValid = false;
 
 	if(J3dDebug.devPhase)
 	    if (root == null) {
@@ -1106,23 +1401,37 @@ class BHTree  {
     }
 
     void gatherTreeStatistics() {
+	System.err.print(getTreeStatistics());
+	// printTree(root);
+    }
+
+    String getTreeStatistics() {
+	StringBuffer strBuf = new StringBuffer();
+
+	strBuf.append("Statistics for tree = " + this + "\n");
+	if(root == null) {
+	    strBuf.append("Empty tree\n");
+	    return strBuf.toString();
+	}
 
 	int leafCount = root.countNumberOfLeaves();
 	int internalCount = root.countNumberOfInternals();
 	int maxDepth = root.computeMaxDepth(0);
 	float averageDepth = root.computeAverageLeafDepth ( leafCount, 0);
 
-
-	System.err.println("Statistics for tree = " + this);
-	System.err.println("Total Number of nodes in tree = " +
-			   (leafCount + internalCount) );
-	System.err.println("Number of Leaf Nodes = " + leafCount );
-	System.err.println("Number of Internal Nodes = " + internalCount );
-	System.err.println("Maximum Leaf depth = " + maxDepth );
-	System.err.println("Average Leaf depth = " + averageDepth );
-	System.err.println("root.bHull = " + root.bHull);
-	// printTree(root);
-
+	strBuf.append("Total Number of nodes in tree = " +
+		      (leafCount + internalCount) + "\n");
+	strBuf.append("Number of Leaf Nodes = " + leafCount + "\n");
+	strBuf.append("Number of Internal Nodes = " + internalCount + "\n");
+	strBuf.append("Maximum Leaf depth = " + maxDepth + "\n");
+	strBuf.append("Average Leaf depth = " + averageDepth + "\n");
+	strBuf.append("SAH cost = " + getCost() +
+		      " (reference " + referenceCost + ")\n");
+	strBuf.append("Refits = " + refitCount +
+		      ", Rebuilds = " + rebuildCount + "\n");
+	strBuf.append("root.bHull = " + root.bHull + "\n");
+
+	return strBuf.toString();
     }
 
 
@@ -427,6 +427,46 @@ public abstract class Behavior extends Leaf {
         return ((BehaviorRetained)this.retained).getSchedulingInterval();
     }
 
+    /**
+     * Sets a hint that this behavior's <code>processStimulus</code>
+     * method is thread-safe. When the <code>j3d.parallelBehaviors</code>
+     * property is set to true, the behavior scheduler may execute
+     * thread-safe behaviors that are triggered in the same scheduling
+     * interval concurrently, on threads other than the behavior
+     * scheduler thread. Behaviors that are not thread-safe are executed
+     * one at a time after all thread-safe behaviors of the interval have
+     * finished. The ordering between scheduling intervals is not
+     * affected by this hint.
+     * <p>
+     * A thread-safe behavior must not rely on the order in which the
+     * behaviors of its scheduling interval are executed, and must
+     * synchronize access to any state it shares with other behaviors.
+     * The calls that do not wait for the renderer when made from a
+     * behavior, such as those of GraphicsContext3D, do not wait either
+     * when made from these threads.
+     * The default value is false.
+     *
+     * @param threadSafe true if <code>processStimulus</code> may be
+     * executed concurrently with other thread-safe behaviors
+     *
+     * @since Java 3D 1.6
+     */
+    public void setThreadSafe(boolean threadSafe) {
+	((BehaviorRetained)this.retained).setThreadSafe(threadSafe);
+    }
+
+    /**
+     * Retrieves the thread-safe hint of this behavior.
+     *
+     * @return true if this behavior may be executed concurrently with
+     * other thread-safe behaviors
+     *
+     * @since Java 3D 1.6
+     */
+    public boolean getThreadSafe() {
+	return ((BehaviorRetained)this.retained).getThreadSafe();
+    }
+
     /**
      * Returns the primary view associated with this behavior.  This method
      * is useful with certain types of behaviors (e.g., Billboard, LOD) that
@@ -474,6 +514,7 @@ public abstract class Behavior extends Leaf {
 	rt.setEnable(attr.getEnable());
 	rt.setSchedulingBounds(attr.getSchedulingBounds());
 	rt.setSchedulingInterval(attr.getSchedulingInterval());
+	rt.setThreadSafe(attr.getThreadSafe());
 	// will set to the correct one in updateNodeReferences
 	rt.setSchedulingBoundingLeaf(attr.getSchedulingBoundingLeaf());
 
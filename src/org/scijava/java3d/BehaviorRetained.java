@@ -105,6 +105,12 @@ class BehaviorRetained extends LeafRetained  {
      */
     int schedulingInterval = NUM_SCHEDULING_INTERVALS / 2;
 
+    /**
+     * Flag indicating whether processStimulus may run concurrently
+     * with other thread-safe behaviors in the same scheduling interval.
+     */
+    boolean threadSafe = false;
+
     /**
      * This is a flag that tells the behavior scheduler whether the
      * user-programmed process stimulus called wakeupOn, if it did
@@ -272,6 +278,23 @@ class BehaviorRetained extends LeafRetained  {
 	return schedulingInterval;
     }
 
+    /**
+     * Sets the thread-safe hint of this Behavior node.
+     * @param threadSafe true if processStimulus may run in parallel
+     * with other thread-safe behaviors
+     */
+    void setThreadSafe(boolean threadSafe) {
+	this.threadSafe = threadSafe;
+    }
+
+    /**
+     * Retrieves the thread-safe hint of this Behavior node.
+     * @return the thread-safe hint
+     */
+    boolean getThreadSafe() {
+	return threadSafe;
+    }
+
 
     /**
      * Get the Behavior's scheduling region
@@ -26,6 +26,9 @@
 
 package org.scijava.java3d;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 
 class BehaviorScheduler extends J3dThread {
@@ -56,6 +59,24 @@ class BehaviorScheduler extends J3dThread {
     // lock to ensure consistency of interval values read
     Object intervalTimeLock = new Object();
 
+    // Total time in nanoseconds spent in doWork, kept for the frame
+    // metrics of the views while MasterControl.collectFrameMetrics is set
+    long processTime = 0L;
+
+    // Worker threads for thread-safe behaviors, created on first use
+    // when j3d.parallelBehaviors is set
+    private ForkJoinPool workerPool = null;
+
+    // Triggered thread-safe behaviors of the current scheduling interval
+    // and their wakeup conditions
+    private BehaviorRetained[] parallelBehaviors = new BehaviorRetained[0];
+    private WakeupCondition[] parallelConditions = new WakeupCondition[0];
+
+    // Thread-safe flag of each behavior of the current scheduling
+    // interval, read once since Behavior.setThreadSafe may change it
+    // between the parallel and the serial pass
+    private boolean[] threadSafeFlags = new boolean[0];
+
     /**
      * Some variables used to name threads correctly
      */
@@ -128,6 +149,9 @@ class BehaviorScheduler extends J3dThread {
 	int i, size, interval;
 
 	lastStartTime = J3dClock.currentTimeMillis();
+	boolean timed = VirtualUniverse.mc.collectFrameMetrics ||
+	    MasterControl.isStatsLoggable(Level.FINE);
+	long startTime = timed ? System.nanoTime() : 0L;
 
 	if (stopCount >= 0) {
 	    VirtualUniverse.mc.sendRunMessage(univ, J3dThread.BEHAVIOR_SCHEDULER);
@@ -137,6 +161,8 @@ class BehaviorScheduler extends J3dThread {
 	}
 
 
+	boolean logIntervals = MasterControl.isStatsLoggable(Level.FINER);
+
 	for (interval = 0;
 	     interval < BehaviorRetained.NUM_SCHEDULING_INTERVALS;
 	     interval++) {
@@ -150,88 +176,371 @@ class BehaviorScheduler extends J3dThread {
 
 	    size = list.arraySize();
 
+	    if (VirtualUniverse.mc.parallelBehaviors) {
+		processInterval(arr, size, interval, logIntervals);
+		list.clear();
+		continue;
+	    }
+
+	    long intervalStart = logIntervals ? System.nanoTime() : 0L;
+	    int count = 0;
+
 	    for (i = 0; i < size ; i++) {
 		BehaviorRetained behavret = arr[i];
 
-
 		synchronized (behavret) {
-		    Behavior behav = (Behavior) behavret.source;
-
-		    if (!behav.isLive() ||
-			!behavret.conditionSet ||
-			(behavret.wakeupCondition == null)) {
+		    WakeupCondition wakeupCond = prepareBehavior(behavret);
+		    if (wakeupCond == null) {
 			continue;
 		    }
 
-		    if (behavret.wakeupCondition.trigEnum == null) {
-			behavret.wakeupCondition.trigEnum =
-			    new WakeupCriteriaEnumerator(behavret.wakeupCondition,
-							 WakeupCondition.TRIGGERED_ELEMENTS);
-		    } else {
-			behavret.wakeupCondition.trigEnum.reset(
-								behavret.wakeupCondition,
-								WakeupCondition.TRIGGERED_ELEMENTS);
-		    }
-
-		    // BehaviorRetained now cache the old
-		    // wakeupCondition in order to
-		    // reuse it without the heavyweight cleanTree()
-		    // behavret.wakeupCondition.cleanTree();
-
-		    behavret.conditionSet = false;
-		    WakeupCondition wakeupCond = behavret.wakeupCondition;
-
-		    synchronized (behavret) {
-			behavret.inCallback = true;
-			univ.inBehavior = true;
-			try {
-			    behav.processStimulus(wakeupCond.trigEnum);
-			}
-			catch (RuntimeException e) {
-			    // Force behavior condition to be unset
-			    // Issue 21: don't call cleanTree here
-			    behavret.conditionSet = false;
-			    System.err.println("Exception occurred during Behavior execution:");
-			    e.printStackTrace();
-			}
-			catch (Error e) {
-			    // Force behavior condition to be unset
-                            // Fix for issue 264
-			    behavret.conditionSet = false;
-			    System.err.println("Error occurred during Behavior execution:");
-			    e.printStackTrace();
-			}
-			univ.inBehavior = false;
-			behavret.inCallback = false;
-		    }
-		    // note that if the behavior wasn't reset, we need to make the
-		    // wakeupcondition equal to null
-		    if (behavret.conditionSet == false) {
-			if (wakeupCond != null) {
-			    wakeupCond.cleanTree(behaviorStructure);
-			}
-			behavret.wakeupCondition = null;
-			behavret.active = false;
-			scheduleList.remove(behavret);
-		    } else {
-			behavret.handleLastWakeupOn(wakeupCond,
-						    behaviorStructure);
-		    }
+		    univ.inBehavior = true;
+		    executeBehavior(behavret, wakeupCond);
+		    univ.inBehavior = false;
+		    finishBehavior(behavret, wakeupCond);
 		}
+		count++;
 	    }
 	    list.clear();
+
+	    if (logIntervals) {
+		long wall = System.nanoTime() - intervalStart;
+		logInterval(interval, count, 0, wall, wall);
+	    }
 	}
 
 	behaviorStructure.handleAWTEvent();
 	behaviorStructure.handleBehaviorPost();
 	lastStopTime = J3dClock.currentTimeMillis();
 
-        if (MasterControl.isStatsLoggable(Level.FINE)) {
-            VirtualUniverse.mc.recordTime(MasterControl.TimeType.BEHAVIOR, (lastStopTime-lastStartTime)*1000000);
-        }
+	if (timed) {
+	    long deltaTime = System.nanoTime() - startTime;
+	    processTime += deltaTime;
+	    if (MasterControl.isStatsLoggable(Level.FINE)) {
+		VirtualUniverse.mc.recordTime(MasterControl.TimeType.BEHAVIOR, deltaTime);
+	    }
+	}
+    }
+
+    /**
+     * Checks whether the behavior of this scheduler is triggered and
+     * sets up its enumeration of triggered wakeup criteria. Returns the
+     * wakeup condition to pass to processStimulus, or null if the
+     * behavior should not run.  Must be called with the behavior locked.
+     */
+    private WakeupCondition prepareBehavior(BehaviorRetained behavret) {
+	Behavior behav = (Behavior) behavret.source;
+
+	if (!behav.isLive() ||
+	    !behavret.conditionSet ||
+	    (behavret.wakeupCondition == null)) {
+	    return null;
+	}
+
+	if (behavret.wakeupCondition.trigEnum == null) {
+	    behavret.wakeupCondition.trigEnum =
+		new WakeupCriteriaEnumerator(behavret.wakeupCondition,
+					     WakeupCondition.TRIGGERED_ELEMENTS);
+	} else {
+	    behavret.wakeupCondition.trigEnum.reset(
+						behavret.wakeupCondition,
+						WakeupCondition.TRIGGERED_ELEMENTS);
+	}
+
+	// BehaviorRetained now cache the old
+	// wakeupCondition in order to
+	// reuse it without the heavyweight cleanTree()
+	// behavret.wakeupCondition.cleanTree();
+
+	behavret.conditionSet = false;
+	return behavret.wakeupCondition;
+    }
+
+    /**
+     * Calls the user's processStimulus method.  This may be called from
+     * a behavior worker thread when the behavior is thread-safe.
+     */
+    private void executeBehavior(BehaviorRetained behavret,
+				 WakeupCondition wakeupCond) {
+	Behavior behav = (Behavior) behavret.source;
+
+	synchronized (behavret) {
+	    behavret.inCallback = true;
+	    try {
+		behav.processStimulus(wakeupCond.trigEnum);
+	    }
+	    catch (RuntimeException e) {
+		// Force behavior condition to be unset
+		// Issue 21: don't call cleanTree here
+		behavret.conditionSet = false;
+		System.err.println("Exception occurred during Behavior execution:");
+		e.printStackTrace();
+	    }
+	    catch (Error e) {
+		// Force behavior condition to be unset
+		// Fix for issue 264
+		behavret.conditionSet = false;
+		System.err.println("Error occurred during Behavior execution:");
+		e.printStackTrace();
+	    }
+	    behavret.inCallback = false;
+	}
+    }
+
+    /**
+     * Updates the wakeup state of the behavior after processStimulus.
+     * Must be called from the scheduler thread with the behavior locked.
+     */
+    private void finishBehavior(BehaviorRetained behavret,
+				WakeupCondition wakeupCond) {
+	// note that if the behavior wasn't reset, we need to make the
+	// wakeupcondition equal to null
+	if (behavret.conditionSet == false) {
+	    if (wakeupCond != null) {
+		wakeupCond.cleanTree(behaviorStructure);
+	    }
+	    behavret.wakeupCondition = null;
+	    behavret.active = false;
+	    scheduleList.remove(behavret);
+	} else {
+	    behavret.handleLastWakeupOn(wakeupCond,
+					behaviorStructure);
+	}
+    }
+
+    /**
+     * Processes the triggered behaviors of one scheduling interval when
+     * j3d.parallelBehaviors is set.  The behaviors that are thread-safe
+     * at the start of the interval are run first, concurrently on the
+     * worker pool; the scheduler thread waits for all of them and then
+     * updates their wakeup state in list order.  The remaining behaviors
+     * are then run one at a time, as usual.
+     */
+    private void processInterval(BehaviorRetained[] arr, int size,
+				 int interval, boolean logInterval) {
+	long intervalStart = logInterval ? System.nanoTime() : 0L;
+
+	if (parallelBehaviors.length < size) {
+	    parallelBehaviors = new BehaviorRetained[size];
+	    parallelConditions = new WakeupCondition[size];
+	    threadSafeFlags = new boolean[size];
+	}
+	for (int i = 0; i < size; i++) {
+	    threadSafeFlags[i] = arr[i].threadSafe;
+	}
+
+	int numParallel = 0;
+	for (int i = 0; i < size; i++) {
+	    BehaviorRetained behavret = arr[i];
+	    if (!threadSafeFlags[i]) {
+		continue;
+	    }
+	    synchronized (behavret) {
+		WakeupCondition wakeupCond = prepareBehavior(behavret);
+		if (wakeupCond != null) {
+		    parallelBehaviors[numParallel] = behavret;
+		    parallelConditions[numParallel] = wakeupCond;
+		    numParallel++;
+		}
+	    }
+	}
+
+	long busyTime = 0L;
+	if (numParallel > 0) {
+	    univ.inBehavior = true;
+	    try {
+		if (numParallel == 1) {
+		    long start = logInterval ? System.nanoTime() : 0L;
+		    executeBehavior(parallelBehaviors[0], parallelConditions[0]);
+		    if (logInterval) {
+			busyTime = System.nanoTime() - start;
+		    }
+		} else {
+		    int grain = Math.max(1, numParallel /
+					 (4 * VirtualUniverse.mc.behaviorThreads));
+		    ExecuteTask task =
+			new ExecuteTask(0, numParallel, grain, logInterval);
+		    getWorkerPool().invoke(task);
+		    busyTime = task.busyTime;
+		}
+	    } finally {
+		univ.inBehavior = false;
+	    }
+
+	    for (int i = 0; i < numParallel; i++) {
+		BehaviorRetained behavret = parallelBehaviors[i];
+		synchronized (behavret) {
+		    finishBehavior(behavret, parallelConditions[i]);
+		}
+		parallelBehaviors[i] = null;
+		parallelConditions[i] = null;
+	    }
+	}
+
+	int numSerial = 0;
+	for (int i = 0; i < size; i++) {
+	    BehaviorRetained behavret = arr[i];
+	    if (threadSafeFlags[i]) {
+		continue;
+	    }
+	    synchronized (behavret) {
+		WakeupCondition wakeupCond = prepareBehavior(behavret);
+		if (wakeupCond == null) {
+		    continue;
+		}
+
+		long start = logInterval ? System.nanoTime() : 0L;
+		univ.inBehavior = true;
+		executeBehavior(behavret, wakeupCond);
+		univ.inBehavior = false;
+		if (logInterval) {
+		    busyTime += System.nanoTime() - start;
+		}
+		finishBehavior(behavret, wakeupCond);
+	    }
+	    numSerial++;
+	}
+
+	if (logInterval) {
+	    logInterval(interval, numParallel, numSerial,
+			System.nanoTime() - intervalStart, busyTime);
+	}
+    }
+
+    /**
+     * Reports the wall time of a scheduling interval and the parallelism
+     * achieved, that is the time spent in processStimulus summed over
+     * all threads divided by the wall time.
+     */
+    private void logInterval(int interval, int numParallel, int numSerial,
+			     long wallTime, long busyTime) {
+	StringBuffer strBuf = new StringBuffer();
+	strBuf.append("BehaviorScheduler interval ").
+		append(interval).
+		append(": ").
+		append(numParallel + numSerial).
+		append(" behaviors (").
+		append(numParallel).
+		append(" parallel, ").
+		append(numSerial).
+		append(" serial), wall = ").
+		append((double)wallTime / 1000000.0).
+		append(" msec, busy = ").
+		append((double)busyTime / 1000000.0).
+		append(" msec, parallelism = ").
+		append(wallTime > 0 ? (double)busyTime / (double)wallTime : 0.0);
+	MasterControl.getStatsLogger().finer(strBuf.toString());
+    }
+
+    private ForkJoinPool getWorkerPool() {
+	if (workerPool == null) {
+	    workerPool = new ForkJoinPool(VirtualUniverse.mc.behaviorThreads,
+		new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+		    @Override
+		    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			return new BehaviorWorker(pool);
+		    }
+		}, null, false);
+	}
+	return workerPool;
+    }
+
+    /**
+     * Returns true if the given thread is this scheduler or one of its
+     * worker threads, i.e., a thread that may be running a Behavior.
+     */
+    boolean isBehaviorThread(Thread thread) {
+	return thread == this ||
+	    (thread instanceof BehaviorWorker &&
+	     ((BehaviorWorker) thread).scheduler() == this);
+    }
+
+    /**
+     * Returns true if the current thread may be running a Behavior of the
+     * given universe.  Calls that wait for the renderer must not wait from
+     * such a thread, since MasterControl only runs the renderer once the
+     * behaviors are done.
+     */
+    static boolean inBehaviorThread(VirtualUniverse universe) {
+	BehaviorScheduler scheduler = universe.behaviorScheduler;
+	return (scheduler != null) &&
+	    scheduler.isBehaviorThread(Thread.currentThread());
+    }
+
+    /**
+     * Returns true if the current thread may be running a Behavior of any
+     * universe.
+     */
+    static boolean inAnyBehaviorThread() {
+	Thread thread = Thread.currentThread();
+	return (thread instanceof BehaviorScheduler) ||
+	    (thread instanceof BehaviorWorker);
+    }
+
+    /**
+     * Worker thread that executes thread-safe behaviors for this scheduler.
+     */
+    private class BehaviorWorker extends ForkJoinWorkerThread {
+	BehaviorWorker(ForkJoinPool pool) {
+	    super(pool);
+	    setPriority(BehaviorScheduler.this.getPriority());
+	}
+
+	@Override
+	protected void onStart() {
+	    super.onStart();
+	    // The pool index is only assigned once the worker is registered
+	    setName("J3D-BehaviorWorker-" + getInstanceNum() + "-" +
+		    getPoolIndex());
+	}
+
+	BehaviorScheduler scheduler() {
+	    return BehaviorScheduler.this;
+	}
+    }
+
+    /**
+     * Runs processStimulus on a range of parallelBehaviors, splitting
+     * the range until it is no larger than grain.
+     */
+    private class ExecuteTask extends RecursiveAction {
+	private final int start, end, grain;
+	private final boolean timed;
+	long busyTime = 0L;
+
+	ExecuteTask(int start, int end, int grain, boolean timed) {
+	    this.start = start;
+	    this.end = end;
+	    this.grain = grain;
+	    this.timed = timed;
+	}
+
+	@Override
+	protected void compute() {
+	    if (end - start > grain) {
+		int mid = (start + end) >>> 1;
+		ExecuteTask left = new ExecuteTask(start, mid, grain, timed);
+		ExecuteTask right = new ExecuteTask(mid, end, grain, timed);
+		invokeAll(left, right);
+		busyTime = left.busyTime + right.busyTime;
+		return;
+	    }
+
+	    long t = timed ? System.nanoTime() : 0L;
+	    for (int i = start; i < end; i++) {
+		executeBehavior(parallelBehaviors[i], parallelConditions[i]);
+	    }
+	    if (timed) {
+		busyTime = System.nanoTime() - t;
+	    }
+	}
     }
 
     void free() {
+	if (workerPool != null) {
+	    workerPool.shutdown();
+	    workerPool = null;
+	}
 	behaviorStructure = null;
 	getThreadData(null, null).thread = null;
 	univ = null;
@@ -332,6 +332,15 @@ class BranchGroupRetained extends GroupRetained {
 
     PickInfo pickClosest( int mode, int flags, PickShape pickShape ) {
 
+        // Best first down the BHTree, instead of picking and sorting all
+        if ((pickShape instanceof PickRay) ||
+            (pickShape instanceof PickSegment)) {
+            if (inSharedGroup) {
+                throw new RestrictedAccessException(J3dI18N.getString("BranchGroup9"));
+            }
+            return PickInfo.pickClosest(this, locale, mode, flags, pickShape);
+        }
+
         PickInfo[] pickInfoArr = null;
 
         pickInfoArr = pickAllSorted( mode, flags, pickShape );
@@ -109,6 +109,12 @@ import org.scijava.vecmath.Vector4d;
  * rendering is complete must either subclass Canvas3D and
  * override the postSwap method, or call waitForOffScreenRendering.
  * <p>
+ * The setOffScreenBuffers method sets a ring of off-screen buffers.
+ * The frames rendered by renderOffScreenBuffer are then read back into
+ * the buffers of the ring in turn, asynchronously if the graphics driver
+ * supports it, and delivered to the OffScreenFrameListener set by
+ * setOffScreenFrameListener.
+ * <p>
  * The setOfScreenLocation methods set the location of this off-screen
  * Canvas3D.  The location is the upper-left corner of the Canvas3D
  * relative to the upper-left corner of the corresponding off-screen
@@ -379,6 +385,30 @@ public class Canvas3D extends Canvas {
     //
     ImageComponent2D offScreenBuffer = null;
 
+    //
+    // Ring of off-screen buffers set by setOffScreenBuffers, whose first
+    // buffer is offScreenBuffer, or null
+    //
+    ImageComponent2D[] offScreenBuffers = null;
+
+    // Listener of the frames rendered into the ring of off-screen buffers
+    volatile OffScreenFrameListener offScreenFrameListener = null;
+
+    //
+    // Flag that indicates we are waiting for the Renderer to deliver the
+    // frames of the ring that are being read back.
+    //
+    volatile boolean offScreenFramesPending = false;
+
+    // Number of the next frame rendered into the ring, frames being read
+    // back, oldest first, and frames read back but not yet delivered to
+    // the listener.  Only used by the Renderer.
+    private long offScreenFrameNumber = 0L;
+    private final LinkedList<OffScreenFrame> readbackFrames =
+	new LinkedList<OffScreenFrame>();
+    private final ArrayList<OffScreenFrame> completedFrames =
+	new ArrayList<OffScreenFrame>();
+
     // flag that indicates whether this canvas will use shared context
     boolean useSharedCtx = true;
 
@@ -508,6 +538,14 @@ public class Canvas3D extends Canvas {
 
     RenderAtom ra = null;
 
+    // Running totals for the frame metrics of the view, updated by the
+    // renderer and the render methods; see FrameMetricsCollector
+    long renderTime = 0L;
+    long swapTime = 0L;
+    long renderedAtomCount = 0L;
+    long culledAtomCount = 0L;
+    long stateChangeCount = 0L;
+
     // Stereo related field has changed.
     static final int STEREO_DIRTY                   = 0x01;
     // MonoscopicViewPolicy field has changed.
@@ -713,6 +751,12 @@ ArrayList<Object[]> dirtyDlistPerRinfoList = new ArrayList<Object[]>();
 ArrayList<Integer> displayListResourceFreeList = new ArrayList<Integer>();
 ArrayList<Integer> textureIdResourceFreeList = new ArrayList<Integer>();
 
+// Geometry arrays with a vertex buffer object in the context of this
+// canvas, and the MasterControl vertexBufferReleaseCount when the list
+// was last checked for released buffers
+ArrayList<GeometryArrayRetained> vertexBufferResourceList = new ArrayList<GeometryArrayRetained>();
+private int vertexBufferReleaseCount = 0;
+
     // an unique bit to identify this canvas
     int canvasBit = 0;
     // an unique number to identify this canvas : ( canvasBit = 1 << canvasId)
@@ -763,6 +807,8 @@ ArrayList<Integer> textureIdResourceFreeList = new ArrayList<Integer>();
     static final int EXT_ABGR                    = 0x2;
     static final int EXT_BGR                     = 0x4;
     static final int MULTISAMPLE                 = 0x8;
+    static final int VERTEX_BUFFER_OBJECT        = 0x10;
+    static final int PIXEL_BUFFER_OBJECT         = 0x20;
 
     // The following 10 variables are set by the native
     // createNewContext()/createQueryContext() methods
@@ -1761,6 +1807,12 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
      * Screen3D must be set explicitly prior to rendering.
      * Failure to do so will result in an exception.
      * <p>
+     * If the image component refers to a NioImageBuffer, the rendered
+     * pixels are read directly into its NIO buffer, without going through
+     * an intermediate array or BufferedImage.  As NioImageBuffer images are
+     * always y-up, the rows are in the order of the off-screen buffer, the
+     * bottom row first.
+     * <p>
      *
      * @param buffer the image component that will be rendered into by
      * subsequent calls to renderOffScreenBuffer. The image component must not
@@ -1784,12 +1836,16 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
      * an off-screen buffer.
      *
      * @exception IllegalArgumentException if the image class of the specified
-     * ImageComponent2D is <i>not</i> ImageClass.BUFFERED_IMAGE.
+     * ImageComponent2D is <i>not</i> ImageClass.BUFFERED_IMAGE or
+     * ImageClass.NIO_IMAGE_BUFFER.
      *
      * @exception IllegalArgumentException if the specified
      * ImageComponent2D is in by-reference mode and its
      * RenderedImage is null.
      *
+     * @exception IllegalArgumentException if the NioImageBuffer of the
+     * specified ImageComponent2D is of type TYPE_4BYTE_ABGR.
+     *
      * @exception IllegalArgumentException if the ImageComponent2D format
      * is <i>not</i> a 3-component format (e.g., FORMAT_RGB)
      * or a 4-component format (e.g., FORMAT_RGBA).
@@ -1815,6 +1871,9 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 	// Check that offScreenBufferPending is not already set
 	J3dDebug.doAssert(!offScreenBufferPending, "!offScreenBufferPending");
 
+        // Deliver the frames of the ring, if any, before releasing it
+        releaseOffScreenBuffers();
+
         if (offScreenBuffer != null && offScreenBuffer != buffer) {
             ImageComponent2DRetained i2dRetained =
                     (ImageComponent2DRetained)offScreenBuffer.retained;
@@ -1825,27 +1884,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 	    ImageComponent2DRetained bufferRetained =
 		(ImageComponent2DRetained)buffer.retained;
 
-	    if (bufferRetained.byReference &&
-		!(bufferRetained.getRefImage(0) instanceof BufferedImage)) {
-
-		throw new IllegalArgumentException(J3dI18N.getString("Canvas3D15"));
-	    }
-
-	    if (bufferRetained.getNumberOfComponents() < 3 ) {
-		throw new IllegalArgumentException(J3dI18N.getString("Canvas3D16"));
-	    }
-
-            if (buffer.isLive()) {
-                throw new IllegalSharingException(J3dI18N.getString("Canvas3D26"));
-            }
-
-            if (bufferRetained.getInImmCtx()) {
-                throw new IllegalSharingException(J3dI18N.getString("Canvas3D27"));
-            }
-
-            if (buffer != offScreenBuffer && bufferRetained.getUsedByOffScreen()) {
-                throw new IllegalSharingException(J3dI18N.getString("Canvas3D28"));
-            }
+	    checkOffScreenBuffer(buffer);
 
             bufferRetained.setUsedByOffScreen(true);
 
@@ -1921,6 +1960,276 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
         return (offScreenBuffer);
     }
 
+    // Checks that the image component can be used as an off-screen buffer
+    // of this Canvas3D
+    private void checkOffScreenBuffer(ImageComponent2D buffer) {
+	ImageComponent2DRetained bufferRetained =
+	    (ImageComponent2DRetained)buffer.retained;
+
+	if (bufferRetained.byReference) {
+	    Object refImage = bufferRetained.getRefImage(0);
+	    if (refImage instanceof NioImageBuffer) {
+		// Read into directly, unless it needs a format conversion
+		if (((NioImageBuffer)refImage).getImageType() ==
+		    NioImageBuffer.ImageType.TYPE_4BYTE_ABGR) {
+		    throw new IllegalArgumentException(J3dI18N.getString("Canvas3D34"));
+		}
+	    } else if (!(refImage instanceof BufferedImage)) {
+		throw new IllegalArgumentException(J3dI18N.getString("Canvas3D15"));
+	    }
+	}
+
+	if (bufferRetained.getNumberOfComponents() < 3 ) {
+	    throw new IllegalArgumentException(J3dI18N.getString("Canvas3D16"));
+	}
+
+        if (buffer.isLive()) {
+            throw new IllegalSharingException(J3dI18N.getString("Canvas3D26"));
+        }
+
+        if (bufferRetained.getInImmCtx()) {
+            throw new IllegalSharingException(J3dI18N.getString("Canvas3D27"));
+        }
+
+        if (!isOffScreenBuffer(buffer) && bufferRetained.getUsedByOffScreen()) {
+            throw new IllegalSharingException(J3dI18N.getString("Canvas3D28"));
+        }
+    }
+
+    // Returns true if the image component is the off-screen buffer or in
+    // the ring of off-screen buffers of this Canvas3D
+    private boolean isOffScreenBuffer(ImageComponent2D buffer) {
+	if (buffer == offScreenBuffer) {
+	    return true;
+	}
+	if (offScreenBuffers != null) {
+	    for (int i = 0; i < offScreenBuffers.length; i++) {
+		if (buffer == offScreenBuffers[i]) {
+		    return true;
+		}
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Sets a ring of off-screen buffers for this Canvas3D.  Each frame
+     * rendered by <code>renderOffScreenBuffer</code> is read back into
+     * the next buffer of the ring, then delivered with its frame number
+     * and time to the OffScreenFrameListener of this Canvas3D.
+     * <p>
+     * If the graphics driver supports pixel buffer objects, the image of
+     * a frame is read back asynchronously while the following frames are
+     * rendered: with a ring of <i>n</i> buffers, frame <i>k</i> is
+     * delivered once frame <i>k</i>&nbsp;+&nbsp;<i>n</i>&nbsp;-&nbsp;1
+     * has been rendered, so the renderer does not wait for the image to
+     * be read before starting the next frame.  Otherwise, each frame is
+     * read back and delivered as soon as it has been rendered.  The
+     * <code>flushOffScreenFrames</code> method delivers the frames still
+     * being read back.
+     * <p>
+     * The first buffer of the ring becomes the off-screen buffer of this
+     * Canvas3D, as with <code>setOffScreenBuffer</code>, and all buffers
+     * must have its size.  Setting a new ring, or a new off-screen buffer,
+     * first delivers the frames of the previous ring.
+     *
+     * @param buffers the image components of the ring, each subject to
+     * the restrictions of <code>setOffScreenBuffer</code>.  The buffers
+     * may be null, indicating that the ring is released and that the
+     * current off-screen buffer is kept.
+     *
+     * @exception IllegalStateException if this Canvas3D is not in
+     * off-screen mode.
+     *
+     * @exception RestrictedAccessException if an off-screen rendering
+     * is in process for this Canvas3D.
+     *
+     * @exception IllegalArgumentException if the array is empty, or
+     * contains null or the same ImageComponent2D more than once, or if
+     * the buffers do not all have the same width and height.
+     *
+     * @exception IllegalSharingException if one of the ImageComponent2D
+     * is part of a live scene graph, or is being used by an immediate mode
+     * context, or by another Canvas3D as an off-screen buffer.
+     *
+     * @exception IllegalArgumentException if one of the ImageComponent2D
+     * could not be set by <code>setOffScreenBuffer</code> for any of the
+     * other reasons it lists.
+     *
+     * @see #setOffScreenBuffer
+     * @see #setOffScreenFrameListener
+     * @see #flushOffScreenFrames
+     *
+     * @since Java 3D 1.6
+     */
+    public void setOffScreenBuffers(ImageComponent2D[] buffers) {
+
+        if (!offScreen)
+            throw new IllegalStateException(J3dI18N.getString("Canvas3D1"));
+
+        if (offScreenRendering)
+            throw new RestrictedAccessException(J3dI18N.getString("Canvas3D2"));
+
+	if (buffers == null) {
+	    releaseOffScreenBuffers();
+	    return;
+	}
+
+	if (buffers.length == 0)
+	    throw new IllegalArgumentException(J3dI18N.getString("Canvas3D32"));
+
+	for (int i = 0; i < buffers.length; i++) {
+	    if (buffers[i] == null)
+		throw new IllegalArgumentException(J3dI18N.getString("Canvas3D32"));
+
+	    for (int j = 0; j < i; j++) {
+		if (buffers[j] == buffers[i])
+		    throw new IllegalArgumentException(J3dI18N.getString("Canvas3D32"));
+	    }
+
+	    ImageComponent2DRetained first =
+		(ImageComponent2DRetained)buffers[0].retained;
+	    ImageComponent2DRetained bufferRetained =
+		(ImageComponent2DRetained)buffers[i].retained;
+	    if ((bufferRetained.width != first.width) ||
+		(bufferRetained.height != first.height))
+		throw new IllegalArgumentException(J3dI18N.getString("Canvas3D33"));
+
+	    checkOffScreenBuffer(buffers[i]);
+	}
+
+	// Releases the previous ring and sets the first buffer
+	setOffScreenBuffer(buffers[0]);
+
+	for (int i = 1; i < buffers.length; i++) {
+	    ((ImageComponent2DRetained)buffers[i].retained).setUsedByOffScreen(true);
+	}
+	offScreenFrameNumber = 0L;
+	offScreenBuffers = buffers.clone();
+    }
+
+    /**
+     * Retrieves the ring of off-screen buffers for this Canvas3D.
+     *
+     * @return a copy of the ring of off-screen buffers, or null if
+     * none is set.
+     *
+     * @exception IllegalStateException if this Canvas3D is not in
+     * off-screen mode.
+     *
+     * @since Java 3D 1.6
+     */
+    public ImageComponent2D[] getOffScreenBuffers() {
+
+        if (!offScreen)
+            throw new IllegalStateException(J3dI18N.getString("Canvas3D1"));
+
+	ImageComponent2D[] buffers = offScreenBuffers;
+	return (buffers == null) ? null : buffers.clone();
+    }
+
+    // Delivers the frames of the ring of off-screen buffers and releases
+    // its buffers, except for offScreenBuffer
+    private void releaseOffScreenBuffers() {
+	if (offScreenBuffers == null) {
+	    return;
+	}
+
+	flushOffScreenFrames();
+
+	for (int i = 1; i < offScreenBuffers.length; i++) {
+	    ((ImageComponent2DRetained)offScreenBuffers[i].retained).setUsedByOffScreen(false);
+	}
+	offScreenBuffers = null;
+    }
+
+    /**
+     * Sets the listener of the frames rendered into the ring of
+     * off-screen buffers of this Canvas3D.  The frames rendered while no
+     * listener is set are not delivered.
+     *
+     * @param listener the listener, or null
+     *
+     * @exception IllegalStateException if this Canvas3D is not in
+     * off-screen mode.
+     *
+     * @see #setOffScreenBuffers
+     *
+     * @since Java 3D 1.6
+     */
+    public void setOffScreenFrameListener(OffScreenFrameListener listener) {
+
+        if (!offScreen)
+            throw new IllegalStateException(J3dI18N.getString("Canvas3D1"));
+
+	offScreenFrameListener = listener;
+    }
+
+    /**
+     * Retrieves the listener of the frames rendered into the ring of
+     * off-screen buffers of this Canvas3D.
+     *
+     * @return the listener, or null
+     *
+     * @exception IllegalStateException if this Canvas3D is not in
+     * off-screen mode.
+     *
+     * @since Java 3D 1.6
+     */
+    public OffScreenFrameListener getOffScreenFrameListener() {
+
+        if (!offScreen)
+            throw new IllegalStateException(J3dI18N.getString("Canvas3D1"));
+
+	return offScreenFrameListener;
+    }
+
+    /**
+     * Delivers to the OffScreenFrameListener the frames of the ring of
+     * off-screen buffers that are still being read back, once the
+     * off-screen rendering in process, if any, is done.  Unless called
+     * from a behavior or from a render callback method, this method waits
+     * for the frames to be delivered.  It returns immediately if no ring
+     * of off-screen buffers is set.
+     *
+     * @exception IllegalStateException if this Canvas3D is not in
+     * off-screen mode.
+     *
+     * @see #setOffScreenBuffers
+     *
+     * @since Java 3D 1.6
+     */
+    public void flushOffScreenFrames() {
+
+        if (!offScreen)
+            throw new IllegalStateException(J3dI18N.getString("Canvas3D1"));
+
+	if ((offScreenBuffers == null) || (screen == null)) {
+	    return;
+	}
+
+	// Wait for the frames to be delivered unless called from a
+	// Behavior or from a Rendering thread
+	Thread currentThread = Thread.currentThread();
+	boolean wait = !BehaviorScheduler.inAnyBehaviorThread() &&
+	    !(currentThread instanceof Renderer);
+
+	if (wait) {
+	    while (offScreenRendering) {
+		MasterControl.threadYield();
+	    }
+	    offScreenFramesPending = true;
+	}
+
+	// Send message to Renderer thread to finish the read back
+	VirtualUniverse.mc.sendFlushOffScreenFrames(this);
+
+	while (offScreenFramesPending) {
+	    VirtualUniverse.mc.createMasterControlThread();
+	    MasterControl.threadYield();
+	}
+    }
+
 
     /**
      * Schedules the rendering of a frame into this Canvas3D's
@@ -2072,12 +2381,12 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 		  VirtualUniverse.mc.setWorkForRequestRenderer();
 	    }
 
-        } else if (Thread.currentThread() instanceof BehaviorScheduler) {
+        } else if (BehaviorScheduler.inAnyBehaviorThread()) {
 
-	    // If called from behavior scheduler, send a message directly to
-	    // the renderer message queue.
+	    // If called from a behavior scheduler or one of its workers,
+	    // send a message directly to the renderer message queue.
 	    // Note that we didn't use
-	    // currentThread() == view.universe.behaviorScheduler
+	    // BehaviorScheduler.inBehaviorThread(view.universe)
 	    // since the caller may be another universe Behavior
 	    // scheduler.
             J3dMessage createMessage = new J3dMessage();
@@ -2256,8 +2565,120 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
     }
 
     void endOffScreenRendering() {
+	if (offScreenBuffers != null) {
+	    endOffScreenRingRendering();
+	} else {
+	    readOffScreenImage((ImageComponent2DRetained)offScreenBuffer.retained, null);
+	}
+    }
+
+    // Returns true if the frames rendered into the ring of off-screen
+    // buffers are read back asynchronously
+    boolean isOffScreenReadbackAsync() {
+	return (offScreenBuffers != null) &&
+	    ((extensionsSupported & PIXEL_BUFFER_OBJECT) != 0);
+    }
+
+    // Called by the Renderer, with the context current, once a frame has
+    // been rendered into the ring of off-screen buffers
+    private void endOffScreenRingRendering() {
+	ImageComponent2D[] buffers = offScreenBuffers;
+	int slot = (int)(offScreenFrameNumber % buffers.length);
+	ImageComponent2DRetained icRetained =
+	    (ImageComponent2DRetained)buffers[slot].retained;
+	long time = System.nanoTime();
+
+	if (!isOffScreenReadbackAsync()) {
+	    readOffScreenImage(icRetained, null);
+	    completedFrames.add(new OffScreenFrame(buffers[slot],
+		    offScreenFrameNumber++, time, -1, 0, 0));
+	    return;
+	}
+
+	// Same preparation of the image as readOffScreenImage, so that
+	// the format it is read back with does not change until then
+	if (icRetained.isByReference()) {
+	    icRetained.geomLock.getLock();
+	    icRetained.evaluateExtensions(this);
+	    icRetained.geomLock.unLock();
+	} else if (icRetained.getImageData(false) == null) {
+	    icRetained.createBlankImageData();
+	} else {
+	    icRetained.evaluateExtensions(this);
+	}
+
+	OffScreenFrame frame = new OffScreenFrame(buffers[slot],
+		offScreenFrameNumber++, time, slot,
+		icRetained.getImageFormatTypeIntValue(false),
+		icRetained.getImageDataTypeIntValue());
+	startOffScreenReadback(ctx, slot, frame.format, frame.dataType,
+		offScreenCanvasSize.width, offScreenCanvasSize.height);
+	readbackFrames.add(frame);
+
+	// The oldest frames were read back while this one was rendered
+	finishOffScreenReadbacks(buffers.length - 1);
+    }
+
+    // Finishes the read back of the oldest frames of the ring until at
+    // most count are left.  Called by the Renderer with the context
+    // current.
+    void finishOffScreenReadbacks(int count) {
+	while (readbackFrames.size() > count) {
+	    OffScreenFrame frame = readbackFrames.removeFirst();
+	    readOffScreenImage((ImageComponent2DRetained)frame.getImage().retained,
+		    frame);
+	    completedFrames.add(frame);
+	}
+    }
+
+    // Drops the frames being read back, whose pixel buffers were lost
+    // with the context
+    void discardOffScreenReadbacks() {
+	readbackFrames.clear();
+    }
+
+    // Delivers the frames read back to the listener.  Called by the
+    // Renderer once the off-screen rendering is over.
+    void notifyOffScreenFrames() {
+	if (completedFrames.isEmpty()) {
+	    return;
+	}
+
+	// The listener may render the next frame from this thread
+	OffScreenFrame[] frames =
+	    completedFrames.toArray(new OffScreenFrame[completedFrames.size()]);
+	completedFrames.clear();
+
+	OffScreenFrameListener listener = offScreenFrameListener;
+	if (listener == null) {
+	    return;
+	}
+
+	View v = view;
+	if (v != null) {
+	    v.inCanvasCallback = true;
+	}
+	for (int i = 0; i < frames.length; i++) {
+	    try {
+		listener.frameCompleted(this, frames[i]);
+	    } catch (RuntimeException e) {
+		System.err.println("Exception occurred during Canvas 3D callback:");
+		e.printStackTrace();
+	    } catch (Error e) {
+		System.err.println("Error occurred during Canvas3D callback:");
+		e.printStackTrace();
+	    }
+	}
+	if (v != null) {
+	    v.inCanvasCallback = false;
+	}
+    }
+
+    // Reads the off-screen buffer into the image or, for a frame of the
+    // ring being read back, the pixels read into its readback slot
+    private void readOffScreenImage(ImageComponent2DRetained icRetained,
+				    OffScreenFrame frame) {
 
-        ImageComponent2DRetained icRetained = (ImageComponent2DRetained)offScreenBuffer.retained;
         boolean isByRef = icRetained.isByReference();
         ImageComponentRetained.ImageData imageData = icRetained.getImageData(false);
 
@@ -2274,9 +2695,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                 icRetained.evaluateExtensions(this);
             }
             // read the image from the offscreen buffer
-            readOffScreenBuffer(ctx, icRetained.getImageFormatTypeIntValue(false),
-                    icRetained.getImageDataTypeIntValue(), imageData.get(),
-                    offScreenCanvasSize.width, offScreenCanvasSize.height);
+            readOffScreenData(icRetained, imageData.get(), frame);
 
         } else {
             icRetained.geomLock.getLock();
@@ -2284,9 +2703,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
             icRetained.evaluateExtensions(this);
 
             // read the image from the offscreen buffer
-            readOffScreenBuffer(ctx, icRetained.getImageFormatTypeIntValue(false),
-                    icRetained.getImageDataTypeIntValue(), imageData.get(),
-                    offScreenCanvasSize.width, offScreenCanvasSize.height);
+            readOffScreenData(icRetained, imageData.get(), frame);
 
             // For byRef, we might have to copy buffer back into
             // the user's referenced ImageComponent2D
@@ -2303,6 +2720,23 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
         }
     }
 
+    private void readOffScreenData(ImageComponent2DRetained icRetained,
+				   Object data, OffScreenFrame frame) {
+	int format = icRetained.getImageFormatTypeIntValue(false);
+	int dataType = icRetained.getImageDataTypeIntValue();
+	int width = offScreenCanvasSize.width;
+	int height = offScreenCanvasSize.height;
+
+	if (frame == null) {
+	    readOffScreenBuffer(ctx, format, dataType, data, width, height);
+	} else if ((format == frame.format) && (dataType == frame.dataType)) {
+	    // Skipped if the application set an image of another type
+	    // since the read back started
+	    finishOffScreenReadback(ctx, frame.slot, format, dataType, data,
+		    width, height);
+	}
+    }
+
     /**
      * Synchronize and swap buffers on a double buffered canvas for
      * this Canvas3D object.  This method should only be called if the
@@ -2333,7 +2767,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 
 	if (view != null && graphicsContext3D != null) {
 	    if ((view.universe != null) &&
-		(Thread.currentThread() == view.universe.behaviorScheduler)) {
+		BehaviorScheduler.inBehaviorThread(view.universe)) {
 		graphicsContext3D.sendRenderMessage(false, GraphicsContext3D.SWAP, null, null);
 	    } else {
 		graphicsContext3D.sendRenderMessage(true, GraphicsContext3D.SWAP, null, null);
@@ -4023,7 +4457,7 @@ public Point getLocationOnScreen() {
     private void sendCreateOffScreenBuffer() {
 	// Wait for the buffer to be created unless called from
 	// a Behavior or from a Rendering thread
-	if (!(Thread.currentThread() instanceof BehaviorScheduler) &&
+	if (!BehaviorScheduler.inAnyBehaviorThread() &&
 	    !(Thread.currentThread() instanceof Renderer)) {
 
 	    offScreenBufferPending = true;
@@ -4046,7 +4480,7 @@ public Point getLocationOnScreen() {
 	// Wait for the buffer to be destroyed unless called from
 	// a Behavior or from a Rendering thread
 	Thread currentThread = Thread.currentThread();
-	if (!(currentThread instanceof BehaviorScheduler) &&
+	if (!BehaviorScheduler.inAnyBehaviorThread() &&
 	    !(currentThread instanceof Renderer)) {
 
 	    offScreenBufferPending = true;
@@ -4093,7 +4527,7 @@ public Point getLocationOnScreen() {
 	    // Wait for the context to be freed unless called from
 	    // a Behavior or from a Rendering thread
 	    Thread currentThread = Thread.currentThread();
-	    if (!(currentThread instanceof BehaviorScheduler) &&
+	    if (!BehaviorScheduler.inAnyBehaviorThread() &&
 		!(currentThread instanceof Renderer)) {
 		while (ctxTimeStamp != 0) {
 		    MasterControl.threadYield();
@@ -4187,6 +4621,8 @@ public Point getLocationOnScreen() {
 	if (stateUpdateMask == 0)
 	    return;
 
+	stateChangeCount += Integer.bitCount(stateUpdateMask);
+
 	updateEnvState();
 
 	if ((stateUpdateMask & (1 << TEXTUREBIN_BIT)) != 0) {
@@ -4572,9 +5008,40 @@ void addTextureResource(int id, TextureRetained obj) {
 	}
 	textureIDResourceTable.clear();
 
+	freeVertexBuffers(ctx, true);
+
+	// The pixel buffers go with the context
+	discardOffScreenReadbacks();
+
 	freeAllDisplayListResources(ctx);
     }
 
+    // Frees the vertex buffer objects of the geometry arrays that have
+    // been released since the last call
+    void freeReleasedVertexBuffers(Context ctx) {
+	int count = VirtualUniverse.mc.vertexBufferReleaseCount;
+	if (count != vertexBufferReleaseCount) {
+	    vertexBufferReleaseCount = count;
+	    freeVertexBuffers(ctx, false);
+	}
+    }
+
+    private void freeVertexBuffers(Context ctx, boolean freeAll) {
+	for (int i = vertexBufferResourceList.size() - 1; i >= 0; i--) {
+	    GeometryArrayRetained geo = vertexBufferResourceList.get(i);
+	    if (!freeAll && !geo.vboReleased) {
+		continue;
+	    }
+	    int id = geo.freeVertexBuffer(canvasBit);
+	    if (id > 0) {
+		Canvas3D.freeVertexBuffer(ctx, id);
+	    }
+	    int last = vertexBufferResourceList.size() - 1;
+	    vertexBufferResourceList.set(i, vertexBufferResourceList.get(last));
+	    vertexBufferResourceList.remove(last);
+	}
+    }
+
     void freeAllDisplayListResources(Context ctx) {
 	if ((view != null) && (view.renderBin != null)) {
 	    view.renderBin.freeAllDisplayListResources(this, ctx);
@@ -4626,6 +5093,14 @@ void addTextureResource(int id, TextureRetained obj) {
         Pipeline.getPipeline().readOffScreenBuffer(this, ctx, format, type, data, width, height);
     }
 
+    private void startOffScreenReadback(Context ctx, int slot, int format, int type, int width, int height) {
+        Pipeline.getPipeline().startOffScreenReadback(this, ctx, slot, format, type, width, height);
+    }
+
+    private void finishOffScreenReadback(Context ctx, int slot, int format, int type, Object data, int width, int height) {
+        Pipeline.getPipeline().finishOffScreenReadback(this, ctx, slot, format, type, data, width, height);
+    }
+
 // The native method for swapBuffers
 void swapBuffers(Context ctx, Drawable drawable) {
 	Pipeline.getPipeline().swapBuffers(this, ctx, drawable);
@@ -4883,6 +5358,10 @@ boolean isAntialiasingSet() {
         Pipeline.getPipeline().freeTexture(ctx, id);
     }
 
+    static void freeVertexBuffer(Context ctx, int id) {
+        Pipeline.getPipeline().freeVertexBuffer(ctx, id);
+    }
+
     static int generateTexID(Context ctx) {
         return Pipeline.getPipeline().generateTexID(ctx);
     }
@@ -1925,6 +1925,33 @@ class CanvasViewCache extends Object {
 	return rightFrustumPlanes;
     }
 
+    /**
+     * Computes the position of the left or right eye in virtual world
+     * coordinates, and returns the scale from a size in virtual world
+     * coordinates to pixels on the canvas.  For a perspective projection
+     * the size is first divided by its distance to the eye.  Returns 0
+     * in compatibility mode, where the image plate is not known.
+     * Used by the small feature culling.
+     */
+    double getPixelScale(boolean rightEye, Point3d eyeInVworld) {
+	if (viewCache.compatibilityModeEnable) {
+	    return 0.0;
+	}
+	double metersPerPixel = Math.min(metersPerPixelX, metersPerPixelY);
+	Point3d eyeInImagePlate;
+	if (rightEye) {
+	    eyeInImagePlate = rightEyeInImagePlate;
+	    rightPlateToVworld.transform(eyeInImagePlate, eyeInVworld);
+	} else {
+	    eyeInImagePlate = leftEyeInImagePlate;
+	    leftPlateToVworld.transform(eyeInImagePlate, eyeInVworld);
+	}
+	if (viewCache.projectionPolicy == View.PARALLEL_PROJECTION) {
+	    return 1.0 / (metersPerPixel * leftPlateToVworld.getScale());
+	}
+	return eyeInImagePlate.z / metersPerPixel;
+    }
+
 
     void getPixelLocationInImagePlate(double x, double y, double z,
 				      Point3d imagePlatePoint) {
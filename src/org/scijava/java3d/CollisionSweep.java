@@ -0,0 +1,284 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * Broad phase of the collision detection of GeometryStructure.  It
+ * gathers the world bounds of the BHTree leaves that moved since the
+ * collision criteria were last tested, and finds with a sweep and prune
+ * along the x axis the criteria whose bounds intersect any of them.  A
+ * criterion that did not collide, whose own bounds did not change and
+ * that no moved leaf intersects, can't collide now either, so its test
+ * against the BHTree can be skipped.
+ * <p>
+ * Boxes are stored as lower x, y, z followed by upper x, y, z.  Only
+ * used by the GeometryStructure thread.
+ */
+class CollisionSweep {
+
+    // Boxes of the leaves that moved
+    private double[] regions = new double[6 * 16];
+    private int regionCount = 0;
+
+    // Set when something other than the bounds of the leaves changed,
+    // such as the leaves or their switch state, so all criteria must be
+    // tested
+    private boolean allChanged = true;
+
+    // Boxes of the criteria to test against the regions
+    private double[] boxes = new double[6 * 16];
+    private int[] boxIds = new int[16];
+    private int boxCount = 0;
+
+    // Sort and sweep buffers
+    private int[] regionOrder = new int[16];
+    private int[] boxOrder = new int[16];
+    private int[] activeRegions = new int[16];
+    private int[] activeBoxes = new int[16];
+
+    private final BoundingBox tmpBox = new BoundingBox();
+
+    /**
+     * Returns a box that differs from any other box, even itself, so that
+     * the first test of a criterion is never skipped.
+     */
+    static double[] newBox() {
+	double[] box = new double[6];
+	invalidateBox(box);
+	return box;
+    }
+
+    static void invalidateBox(double[] box) {
+	for (int i = 0; i < 6; i++) {
+	    box[i] = Double.NaN;
+	}
+    }
+
+    void setAllChanged() {
+	allChanged = true;
+    }
+
+    boolean isAllChanged() {
+	return allChanged;
+    }
+
+    /**
+     * Adds the bounds of a leaf that moved.
+     */
+    void addRegion(Bounds bounds) {
+	if (allChanged || (bounds == null) || bounds.isEmpty()) {
+	    return;
+	}
+	if (regions.length < 6 * (regionCount + 1)) {
+	    regions = grow(regions, 12 * regionCount);
+	}
+	getBox(bounds, regions, 6 * regionCount);
+	regionCount++;
+    }
+
+    /**
+     * Stores the box around the given bounds at offset off of box.
+     * Null or empty bounds give a box with lower > upper.
+     */
+    void getBox(Bounds bounds, double[] box, int off) {
+	if ((bounds == null) || bounds.isEmpty()) {
+	    box[off] = box[off + 1] = box[off + 2] = Double.POSITIVE_INFINITY;
+	    box[off + 3] = box[off + 4] = box[off + 5] = Double.NEGATIVE_INFINITY;
+	    return;
+	}
+
+	BoundingBox bbox;
+	if (bounds instanceof BoundingBox) {
+	    bbox = (BoundingBox) bounds;
+	} else {
+	    tmpBox.set(bounds);
+	    bbox = tmpBox;
+	}
+	box[off]     = bbox.lower.x;
+	box[off + 1] = bbox.lower.y;
+	box[off + 2] = bbox.lower.z;
+	box[off + 3] = bbox.upper.x;
+	box[off + 4] = bbox.upper.y;
+	box[off + 5] = bbox.upper.z;
+    }
+
+    /**
+     * Adds the box of a criterion, stored at offset off of box, to be
+     * tested by sweep.  The id is the one passed back to sweep.
+     */
+    void addBox(double[] box, int off, int id) {
+	if (box[off] > box[off + 3]) {
+	    // Empty, it can't intersect anything
+	    return;
+	}
+	if (boxIds.length < boxCount + 1) {
+	    boxes = grow(boxes, 12 * boxCount);
+	    boxIds = grow(boxIds, 2 * boxCount);
+	}
+	System.arraycopy(box, off, boxes, 6 * boxCount, 6);
+	boxIds[boxCount] = id;
+	boxCount++;
+    }
+
+    /**
+     * Sets hits[id] for the ids of the boxes that intersect a region,
+     * then clears the regions and the boxes for the next test.
+     */
+    void sweep(boolean[] hits) {
+	if ((regionCount > 0) && (boxCount > 0)) {
+	    sweepSorted(hits);
+	}
+	regionCount = 0;
+	boxCount = 0;
+	allChanged = false;
+    }
+
+    private void sweepSorted(boolean[] hits) {
+	if (regionOrder.length < regionCount) {
+	    regionOrder = new int[regionCount];
+	    activeRegions = new int[regionCount];
+	}
+	if (boxOrder.length < boxCount) {
+	    boxOrder = new int[boxCount];
+	    activeBoxes = new int[boxCount];
+	}
+	sortByLowerX(regions, regionCount, regionOrder);
+	sortByLowerX(boxes, boxCount, boxOrder);
+
+	// Merge both lists in increasing lower x.  Each box is tested
+	// against the active boxes of the other kind, those seen so far;
+	// those whose upper x is below the current lower x can't intersect
+	// anything that follows and are pruned.  The remaining ones overlap
+	// in x, so only y and z are left to test.
+	int numActiveRegions = 0;
+	int numActiveBoxes = 0;
+	int i = 0, j = 0;
+	while ((i < regionCount) || (j < boxCount)) {
+	    // Nothing left that can intersect
+	    if (((i == regionCount) && (numActiveRegions == 0)) ||
+		((j == boxCount) && (numActiveBoxes == 0))) {
+		break;
+	    }
+
+	    if ((j == boxCount) ||
+		((i < regionCount) &&
+		 (regions[6 * regionOrder[i]] <= boxes[6 * boxOrder[j]]))) {
+		int r = 6 * regionOrder[i];
+		double x = regions[r];
+		int n = 0;
+		for (int k = 0; k < numActiveBoxes; k++) {
+		    int a = activeBoxes[k];
+		    if (boxes[6 * a + 3] < x) {
+			continue;
+		    }
+		    if (overlapYZ(regions, r, boxes, 6 * a)) {
+			// Found, no need to test it again
+			hits[boxIds[a]] = true;
+		    } else {
+			activeBoxes[n++] = a;
+		    }
+		}
+		numActiveBoxes = n;
+		activeRegions[numActiveRegions++] = regionOrder[i];
+		i++;
+	    } else {
+		int b = 6 * boxOrder[j];
+		double x = boxes[b];
+		boolean hit = false;
+		int n = 0;
+		for (int k = 0; k < numActiveRegions; k++) {
+		    int a = activeRegions[k];
+		    if (regions[6 * a + 3] < x) {
+			continue;
+		    }
+		    activeRegions[n++] = a;
+		    if (!hit && overlapYZ(boxes, b, regions, 6 * a)) {
+			hit = true;
+		    }
+		}
+		numActiveRegions = n;
+		if (hit) {
+		    hits[boxIds[boxOrder[j]]] = true;
+		} else {
+		    activeBoxes[numActiveBoxes++] = boxOrder[j];
+		}
+		j++;
+	    }
+	}
+    }
+
+    private static boolean overlapYZ(double[] b1, int o1, double[] b2, int o2) {
+	return (b1[o1 + 1] <= b2[o2 + 4]) && (b1[o1 + 4] >= b2[o2 + 1]) &&
+	    (b1[o1 + 2] <= b2[o2 + 5]) && (b1[o1 + 5] >= b2[o2 + 2]);
+    }
+
+    // Sorts the indices of the first count boxes by their lower x
+    private static void sortByLowerX(double[] box, int count, int[] order) {
+	for (int i = 0; i < count; i++) {
+	    order[i] = i;
+	}
+	quicksort(box, order, 0, count - 1);
+    }
+
+    private static void quicksort(double[] box, int[] order, int l, int r) {
+	while (r - l >= 7) {
+	    int i = l;
+	    int j = r;
+	    double k = box[6 * order[(l + r) >>> 1]];
+	    do {
+		while (box[6 * order[i]] < k) i++;
+		while (k < box[6 * order[j]]) j--;
+		if (i <= j) {
+		    int tmp = order[i];
+		    order[i] = order[j];
+		    order[j] = tmp;
+		    i++;
+		    j--;
+		}
+	    } while (i <= j);
+
+	    // Recurse into the smaller part
+	    if (j - l < r - i) {
+		quicksort(box, order, l, j);
+		l = i;
+	    } else {
+		quicksort(box, order, i, r);
+		r = j;
+	    }
+	}
+
+	// Insertion sort on small ranges
+	for (int i = l + 1; i <= r; i++) {
+	    int tmp = order[i];
+	    double k = box[6 * tmp];
+	    int j = i;
+	    for (; (j > l) && (box[6 * order[j - 1]] > k); j--) {
+		order[j] = order[j - 1];
+	    }
+	    order[j] = tmp;
+	}
+    }
+
+    private static double[] grow(double[] arr, int size) {
+	double[] newArr = new double[Math.max(size, 6 * 16)];
+	System.arraycopy(arr, 0, newArr, 0, arr.length);
+	return newArr;
+    }
+
+    private static int[] grow(int[] arr, int size) {
+	int[] newArr = new int[Math.max(size, 16)];
+	System.arraycopy(arr, 0, newArr, 0, arr.length);
+	return newArr;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+/**
+ * The CommandBuffer object records a sequence of immediate mode
+ * operations, to be executed by a GraphicsContext3D.  Outside of the
+ * renderer thread, each call to a GraphicsContext3D method sends a
+ * message to the renderer; GraphicsContext3D.execute instead sends the
+ * whole sequence in a single message, and runs it at once when called
+ * from a Canvas3D callback.
+ * <p>
+ * A CommandBuffer can be executed any number of times, for instance every
+ * frame, without being recorded again.  Recording or clearing a buffer
+ * that was executed does not change the operations being executed.
+ * <p>
+ * The operations are those of GraphicsContext3D that change its
+ * appearance, background, fog, model clip and model transform, and
+ * those that clear the canvas and draw geometry.  The objects are
+ * checked when they are recorded, as by the GraphicsContext3D methods,
+ * and referenced by the buffer: changes to them are seen by the next
+ * execution.  Transforms are copied.
+ * <p>
+ * A CommandBuffer is not thread safe; it is meant to be recorded by one
+ * thread.
+ *
+ * @see GraphicsContext3D#execute
+ *
+ * @since Java 3D 1.6
+ */
+public class CommandBuffer {
+
+    private static final int INITIAL_SIZE = 16;
+
+    // Operations, as GraphicsContext3D commands, and their argument
+    int[] commands;
+    Object[] args;
+    int size = 0;
+
+    // Set once the arrays are referenced by a copy, which may be executed
+    // by the renderer thread; they are copied before the next change
+    private boolean shared = false;
+
+    /**
+     * Constructs an empty CommandBuffer.
+     */
+    public CommandBuffer() {
+	commands = new int[INITIAL_SIZE];
+	args = new Object[INITIAL_SIZE];
+    }
+
+    /**
+     * Records setting the appearance of the graphics context.
+     * @param appearance the new Appearance object, or null for the
+     * default appearance
+     * @exception IllegalSharingException if the specified appearance refers
+     * to an ImageComponent2D that is being used by a Canvas3D as
+     * an off-screen buffer.
+     * @see GraphicsContext3D#setAppearance
+     */
+    public void setAppearance(Appearance appearance) {
+	if (appearance != null) {
+	    GraphicsContext3D.checkAppearance(appearance);
+	}
+	add(GraphicsContext3D.SET_APPEARANCE, appearance);
+    }
+
+    /**
+     * Records setting the background of the graphics context.
+     * @param background the new Background object
+     * @exception IllegalSharingException if the Background node
+     * is part of or is subsequently made part of a live scene graph.
+     * @exception IllegalSharingException if the specified background node
+     * refers to an ImageComponent2D that is being used by a Canvas3D as
+     * an off-screen buffer.
+     * @see GraphicsContext3D#setBackground
+     */
+    public void setBackground(Background background) {
+	GraphicsContext3D.checkBackground(background);
+	add(GraphicsContext3D.SET_BACKGROUND, background);
+    }
+
+    /**
+     * Records setting the fog of the graphics context.
+     * @param fog the new Fog object, or null
+     * @exception IllegalSharingException if the Fog node
+     * is part of or is subsequently made part of a live scene graph.
+     * @see GraphicsContext3D#setFog
+     */
+    public void setFog(Fog fog) {
+	if ((fog != null) && fog.isLive()) {
+	    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D12"));
+	}
+	add(GraphicsContext3D.SET_FOG, fog);
+    }
+
+    /**
+     * Records setting the model clip of the graphics context.
+     * @param modelClip the new ModelClip object, or null
+     * @exception IllegalSharingException if the ModelClip node
+     * is part of or is subsequently made part of a live scene graph.
+     * @see GraphicsContext3D#setModelClip
+     */
+    public void setModelClip(ModelClip modelClip) {
+	if ((modelClip != null) && modelClip.isLive()) {
+	    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D25"));
+	}
+	add(GraphicsContext3D.SET_MODELCLIP, modelClip);
+    }
+
+    /**
+     * Records setting the model transform of the graphics context to a
+     * copy of the specified transform.
+     * @param t the new model transform
+     * @see GraphicsContext3D#setModelTransform
+     */
+    public void setModelTransform(Transform3D t) {
+	add(GraphicsContext3D.SET_MODEL_TRANSFORM, new Transform3D(t));
+    }
+
+    /**
+     * Records multiplying the model transform of the graphics context by
+     * a copy of the specified transform.
+     * @param t the model transform to be concatenated with the
+     * current model transform
+     * @see GraphicsContext3D#multiplyModelTransform
+     */
+    public void multiplyModelTransform(Transform3D t) {
+	add(GraphicsContext3D.MULTIPLY_MODEL_TRANSFORM, new Transform3D(t));
+    }
+
+    /**
+     * Records clearing the canvas to the background of the graphics
+     * context.
+     * @see GraphicsContext3D#clear
+     */
+    public void clear() {
+	add(GraphicsContext3D.CLEAR, null);
+    }
+
+    /**
+     * Records drawing the specified Geometry component object.
+     * @param geometry the Geometry object to draw
+     * @exception IllegalSharingException if the specified geometry is a
+     * Raster that refers to an ImageComponent2D that is being used by a
+     * Canvas3D as an off-screen buffer.
+     * @see GraphicsContext3D#draw(Geometry)
+     */
+    public void draw(Geometry geometry) {
+	GraphicsContext3D.checkGeometry(geometry);
+	add(GraphicsContext3D.DRAW, geometry);
+    }
+
+    /**
+     * Records drawing the specified Shape3D leaf node object, that is
+     * setting the appearance of the shape then drawing its geometry.
+     * @param shape the Shape3D node containing the Appearance component
+     * object to set and Geometry component object to draw
+     * @exception IllegalSharingException if the Shape3D node
+     * is part of or is subsequently made part of a live scene graph.
+     * @exception IllegalSharingException if the Shape3D node's Appearance
+     * refers to an ImageComponent2D that is being used by a
+     * Canvas3D as an off-screen buffer.
+     * @see GraphicsContext3D#draw(Shape3D)
+     */
+    public void draw(Shape3D shape) {
+	if (shape.isLive()) {
+	    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D26"));
+	}
+	((Shape3DRetained)shape.retained).setInImmCtx(true);
+	setAppearance(shape.getAppearance());
+	draw(shape.getGeometry());
+    }
+
+    /**
+     * Removes all the operations of this CommandBuffer.
+     */
+    public void reset() {
+	if (shared) {
+	    commands = new int[INITIAL_SIZE];
+	    args = new Object[INITIAL_SIZE];
+	    shared = false;
+	} else {
+	    Arrays.fill(args, 0, size, null);
+	}
+	size = 0;
+    }
+
+    /**
+     * Returns the number of operations of this CommandBuffer.
+     * @return the number of operations recorded since this CommandBuffer
+     * was constructed or last reset
+     */
+    public int size() {
+	return size;
+    }
+
+    private void add(int command, Object arg) {
+	if (shared || (size == commands.length)) {
+	    int length = (size == commands.length) ? 2 * size : commands.length;
+	    commands = Arrays.copyOf(commands, length);
+	    args = Arrays.copyOf(args, length);
+	    shared = false;
+	}
+	commands[size] = command;
+	args[size] = arg;
+	size++;
+    }
+
+    /**
+     * Returns a copy of the operations, which later changes to this
+     * CommandBuffer do not affect.  The arrays are shared until then.
+     */
+    CommandBuffer copy() {
+	CommandBuffer c = new CommandBuffer(commands, args, size);
+	shared = true;
+	return c;
+    }
+
+    private CommandBuffer(int[] commands, Object[] args, int size) {
+	this.commands = commands;
+	this.args = args;
+	this.size = size;
+	shared = true;
+    }
+}
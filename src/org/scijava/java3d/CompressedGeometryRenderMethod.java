@@ -59,15 +59,18 @@ class CompressedGeometryRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.isCulled(rm.renderBin) &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
+		    cv.renderedAtomCount++;
 		    renderCompressedGeo(ra, rm, cv);
 		    isVisible = true;
 		}
 		else {
 		    cv.raIsVisible = false;
+		    cv.culledAtomCount++;
 		}
 		cv.ra = ra.renderAtom;
 	    }
@@ -55,9 +55,11 @@ class DefaultRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.isCulled(rm.renderBin) &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.raIsVisible = true;
+		    cv.renderedAtomCount++;
 		    cv.updateState(dirtyBits);
 		    ra.geometry().execute(cv, ra.renderAtom, rm.isNonUniformScale,
 					  rm.useAlpha, rm.alpha,
@@ -68,6 +70,7 @@ class DefaultRenderMethod implements RenderMethod {
 		}
 		else {
 		    cv.raIsVisible = false;
+		    cv.culledAtomCount++;
 		}
 		cv.ra = ra.renderAtom;
 	    }
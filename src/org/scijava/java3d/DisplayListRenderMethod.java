@@ -90,9 +90,11 @@ class DisplayListRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!r.renderAtom.isCulled(rm.renderBin) &&
+		    r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
+		    cv.renderedAtomCount++;
 		    cv.callDisplayList(cv.ctx,
 				       ((GeometryArrayRetained)r.geometry()).dlistId,
 				       rm.isNonUniformScale);
@@ -100,6 +102,7 @@ class DisplayListRenderMethod implements RenderMethod {
 		}
 		else {
 		    cv.raIsVisible = false;
+		    cv.culledAtomCount++;
 		}
 		cv.ra = r.renderAtom;
 	    }
@@ -136,15 +139,18 @@ class DisplayListRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!r.renderAtom.isCulled(rm.renderBin) &&
+		    r.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
+		    cv.renderedAtomCount++;
 		    cv.callDisplayList(cv.ctx, r.renderAtom.dlistIds[r.index],
 				       rm.isNonUniformScale);
 		    isVisible = true;
 		}
 		else {
 		    cv.raIsVisible = false;
+		    cv.culledAtomCount++;
 		}
 		cv.ra = r.renderAtom;
 	    }
@@ -39,6 +39,7 @@ import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.ServiceLoader;
+import java.util.concurrent.RecursiveAction;
 
 import org.scijava.vecmath.Point3d;
 import org.scijava.vecmath.Point3f;
@@ -265,11 +266,79 @@ private static class IntVector {
     }
 
 
+    /**
+     * Triangulates the glyphs of a range of characters ahead of their use
+     * by Text3D objects or getGlyphGeometry.  The glyphs are triangulated
+     * concurrently on several threads, and kept by this Font3D and by the
+     * glyph cache shared by the Font3D objects with the same Font,
+     * tessellation tolerance and extrusion.
+     *
+     * @param first the first character of the range
+     * @param last the last character of the range, included
+     *
+     * @exception IllegalArgumentException if last is less than first
+     *
+     * @since Java 3D 1.6
+     */
+    public void prepareGlyphs(char first, char last) {
+	if (last < first) {
+	    throw new IllegalArgumentException(J3dI18N.getString("Font3D0"));
+	}
+	GlyphTask task = new GlyphTask(first, last + 1);
+	if (last - first < GlyphTask.BATCH_SIZE) {
+	    task.compute();
+	} else {
+	    ImageComponentRetained.getWorkerPool().invoke(task);
+	}
+    }
+
+    /**
+     * Triangulates the glyphs of the characters from start to end,
+     * excluded, splitting the range until it has no more than BATCH_SIZE
+     * characters.
+     */
+    private class GlyphTask extends RecursiveAction {
+	static final int BATCH_SIZE = 8;
+
+	private final int start, end;
+
+	GlyphTask(int start, int end) {
+	    this.start = start;
+	    this.end = end;
+	}
+
+	@Override
+	protected void compute() {
+	    if (end - start > BATCH_SIZE) {
+		int mid = (start + end) >>> 1;
+		invokeAll(new GlyphTask(start, mid), new GlyphTask(mid, end));
+		return;
+	    }
+	    char code[] = new char[1];
+	    for (int i = start; i < end; i++) {
+		code[0] = (char)i;
+		if (geomHash.get(code[0]) == null) {
+		    triangulateGlyphs(font.createGlyphVector(frc, code), code[0]);
+		}
+	    }
+	}
+    }
+
   // Triangulate glyph with 'unicode' if not already done.
     GeometryArrayRetained triangulateGlyphs(GlyphVector gv, char c) {
 	Character ch = new Character(c);
 	GeometryArrayRetained geo = geomHash.get(ch);
 
+	// Look for the glyph of a Font3D like this one
+	GlyphCache.FontKey key = null;
+	if ((geo == null) && GlyphCache.isEnabled()) {
+	    key = new GlyphCache.FontKey(this);
+	    geo = GlyphCache.get(key, c);
+	    if (geo != null) {
+		geomHash.put(ch, geo);
+	    }
+	}
+
 	if (geo == null) {
 	  // Font Y-axis is downwards, so send affine transform to flip it.
 	    Rectangle2D bnd = gv.getVisualBounds();
@@ -940,6 +1009,9 @@ private static class IntVector {
 		}// if shape
 	    }// if fontExtrusion
 	    geo = (GeometryArrayRetained) triAry.retained;
+	    if (key != null) {
+		geo = GlyphCache.put(key, c, geo);
+	    }
 	    geomHash.put(ch, geo);
 	}
 
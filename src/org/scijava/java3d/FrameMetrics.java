@@ -0,0 +1,261 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * The FrameMetrics object is an immutable snapshot of the work done by
+ * Java 3D for one frame of a View.  It holds the time, in nanoseconds,
+ * spent in each stage of the frame and a set of counters.  All values
+ * cover the period since the previous frame of the same View completed.
+ * <p>
+ * The structures that are shared by all views of a virtual universe,
+ * such as the transform and geometry structures, are reported to every
+ * View of that universe.  The render and swap times and the render atom
+ * and state change counters are summed over the canvases of the View.
+ * <p>
+ * Frame metrics are only collected for a View whose frame metrics
+ * have been enabled.
+ *
+ * @see View#setFrameMetricsEnable
+ * @see View#getLastFrameMetrics
+ * @see FrameMetricsListener
+ *
+ * @since Java 3D 1.6
+ */
+public final class FrameMetrics {
+
+    /**
+     * The stages of a frame for which time is measured.
+     *
+     * @since Java 3D 1.6
+     */
+    public static enum Stage {
+	/**
+	 * Execution of the behaviors by the behavior scheduler.
+	 */
+	BEHAVIOR_SCHEDULER,
+	/**
+	 * Message processing of the behavior structure.
+	 */
+	BEHAVIOR_STRUCTURE,
+	/**
+	 * Message processing of the transform structure.
+	 */
+	TRANSFORM_STRUCTURE,
+	/**
+	 * Message processing of the geometry structure.
+	 */
+	GEOMETRY_STRUCTURE,
+	/**
+	 * Message processing of the rendering environment structure.
+	 */
+	RENDERING_ENVIRONMENT_STRUCTURE,
+	/**
+	 * Message processing of the rendering attributes structure,
+	 * which is shared by all virtual universes.
+	 */
+	RENDERING_ATTRIBUTES_STRUCTURE,
+	/**
+	 * Message processing of the sound structure.
+	 */
+	SOUND_STRUCTURE,
+	/**
+	 * Message processing of the sound scheduler of the View.
+	 */
+	SOUND_SCHEDULER,
+	/**
+	 * Update of the render bin of the View, including view frustum
+	 * culling against the geometry structure.
+	 */
+	RENDER_BIN,
+	/**
+	 * Rendering of the canvases of the View.
+	 */
+	RENDER,
+	/**
+	 * Buffer swaps of the canvases of the View.
+	 */
+	SWAP
+    }
+
+    /**
+     * The counters reported for a frame.
+     *
+     * @since Java 3D 1.6
+     */
+    public static enum Counter {
+	/**
+	 * Number of messages processed by the structures of the View.
+	 */
+	MESSAGES,
+	/**
+	 * Number of messages still waiting in the message queues of the
+	 * structures of the View when the frame completed.
+	 */
+	PENDING_MESSAGES,
+	/**
+	 * Number of render atoms drawn.
+	 */
+	RENDER_ATOMS,
+	/**
+	 * Number of render atoms culled against the view frustum of a
+	 * canvas while rendering.
+	 */
+	CULLED_RENDER_ATOMS,
+	/**
+	 * Number of render state changes, that is updates of the light,
+	 * environment, attribute, shader, texture or render molecule
+	 * state sent to the rendering pipeline.
+	 */
+	STATE_CHANGES,
+	/**
+	 * Number of times the bounding hierarchy of the geometry of a
+	 * locale was refit to the changed bounds of its leaves.
+	 */
+	BHTREE_REFITS,
+	/**
+	 * Number of times the bounding hierarchy of the geometry of a
+	 * locale was rebuilt because its refits had degraded it.
+	 */
+	BHTREE_REBUILDS,
+	/**
+	 * Number of geometry atoms found visible by culling the bounding
+	 * hierarchy against the view frustum, that is the atoms the render
+	 * bin processed for the frame.  It is zero for a frame where the
+	 * render bin did not have to find the visible atoms again.
+	 */
+	VISIBLE_GEOMETRY_ATOMS,
+	/**
+	 * Number of geometry atoms found hidden behind the occluders, for
+	 * a view with occlusion culling enabled.  The atoms of a hidden
+	 * group of the bounding hierarchy are only counted while the
+	 * frame metrics are enabled.
+	 */
+	OCCLUDED_GEOMETRY_ATOMS,
+	/**
+	 * Number of calls to the rendering pipeline.  This and the
+	 * following counters are only counted by the recording pipeline,
+	 * selected with <code>-Dj3d.rend=recording</code>; they are zero
+	 * for the other pipelines.
+	 */
+	PIPELINE_CALLS,
+	/**
+	 * Number of calls to the rendering pipeline that set render state,
+	 * such as attributes, lights, matrices and shader uniforms.
+	 */
+	PIPELINE_STATE_CALLS,
+	/**
+	 * Number of draw calls sent to the rendering pipeline.
+	 */
+	DRAW_CALLS,
+	/**
+	 * Number of vertices, or of indices for indexed geometry,
+	 * submitted with the draw calls.
+	 */
+	VERTICES,
+	/**
+	 * Number of texture image uploads.
+	 */
+	TEXTURE_UPLOADS,
+	/**
+	 * Number of vertex buffer object uploads.
+	 */
+	VERTEX_BUFFER_UPLOADS
+    }
+
+    private final long frameNumber;
+    private final long frameTime;
+    private final long[] stageTimes;
+    private final long[] counters;
+
+    FrameMetrics(long frameNumber, long frameTime,
+		 long[] stageTimes, long[] counters) {
+	this.frameNumber = frameNumber;
+	this.frameTime = frameTime;
+	this.stageTimes = stageTimes;
+	this.counters = counters;
+    }
+
+    /**
+     * Returns the frame number of the frame, as returned by
+     * <code>View.getFrameNumber</code> when the frame completed.
+     *
+     * @return the frame number
+     */
+    public long getFrameNumber() {
+	return frameNumber;
+    }
+
+    /**
+     * Returns the time, in nanoseconds, between the completion of the
+     * previous frame of the View and the completion of this frame.
+     *
+     * @return the frame time in nanoseconds
+     */
+    public long getFrameTime() {
+	return frameTime;
+    }
+
+    /**
+     * Returns the time, in nanoseconds, spent in the specified stage.
+     *
+     * @param stage the stage
+     * @return the time spent in the stage in nanoseconds
+     */
+    public long getStageTime(Stage stage) {
+	return stageTimes[stage.ordinal()];
+    }
+
+    /**
+     * Returns the value of the specified counter.
+     *
+     * @param counter the counter
+     * @return the value of the counter
+     */
+    public long getCounter(Counter counter) {
+	return counters[counter.ordinal()];
+    }
+
+    /**
+     * Returns a string representation of this frame metrics object.
+     *
+     * @return a string representation of this object
+     */
+    @Override
+    public String toString() {
+	StringBuffer strBuf = new StringBuffer();
+	strBuf.append("FrameMetrics[frame = ").
+		append(frameNumber).
+		append(", frameTime = ").
+		append((double)frameTime / 1000000.0).
+		append(" msec");
+	Stage[] stages = Stage.values();
+	for (int i = 0; i < stages.length; i++) {
+	    strBuf.append(", ").
+		    append(stages[i]).
+		    append(" = ").
+		    append((double)stageTimes[i] / 1000000.0).
+		    append(" msec");
+	}
+	Counter[] counts = Counter.values();
+	for (int i = 0; i < counts.length; i++) {
+	    strBuf.append(", ").
+		    append(counts[i]).
+		    append(" = ").
+		    append(counters[i]);
+	}
+	strBuf.append("]");
+	return strBuf.toString();
+    }
+}
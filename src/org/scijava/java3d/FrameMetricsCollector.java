@@ -0,0 +1,151 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+/**
+ * Builds the FrameMetrics of a View.  The structures, the behavior
+ * scheduler and the canvases keep running totals of their times and
+ * counts; at the end of each frame of the View, MasterControl calls
+ * collect, which sums the totals that belong to the View and reports the
+ * difference to the totals of the previous frame.  With the recording
+ * pipeline, the contexts of the canvases also keep totals of the pipeline
+ * calls.
+ * <p>
+ * collect is only called from MasterControl.runMonitor once all threads
+ * of the frame are done, and notifyListeners from the MasterControl
+ * thread after runMonitor returns.
+ */
+class FrameMetricsCollector {
+
+    private static final int NUM_STAGES = FrameMetrics.Stage.values().length;
+    private static final int NUM_COUNTERS = FrameMetrics.Counter.values().length;
+
+    // Totals at the end of the current and of the previous frame
+    private final long[] stageTotals = new long[NUM_STAGES];
+    private final long[] counterTotals = new long[NUM_COUNTERS];
+    private final long[] lastStageTotals = new long[NUM_STAGES];
+    private final long[] lastCounterTotals = new long[NUM_COUNTERS];
+
+    private boolean started = false;
+    private long lastFrameTime = 0L;
+
+    // Metrics of the last frame, not yet passed to the listeners
+    private FrameMetrics pendingMetrics = null;
+
+    void collect(View view, J3dStructure renderingAttributesStructure) {
+	Arrays.fill(stageTotals, 0L);
+	Arrays.fill(counterTotals, 0L);
+
+	VirtualUniverse univ = view.universe;
+	if (univ != null) {
+	    if (univ.behaviorScheduler != null) {
+		stageTotals[FrameMetrics.Stage.BEHAVIOR_SCHEDULER.ordinal()] =
+		    univ.behaviorScheduler.processTime;
+	    }
+	    addStructure(FrameMetrics.Stage.BEHAVIOR_STRUCTURE,
+			 univ.behaviorStructure);
+	    addStructure(FrameMetrics.Stage.TRANSFORM_STRUCTURE,
+			 univ.transformStructure);
+	    addStructure(FrameMetrics.Stage.GEOMETRY_STRUCTURE,
+			 univ.geometryStructure);
+	    if (univ.geometryStructure != null) {
+		counterTotals[FrameMetrics.Counter.BHTREE_REFITS.ordinal()] =
+		    univ.geometryStructure.bhTreeRefits;
+		counterTotals[FrameMetrics.Counter.BHTREE_REBUILDS.ordinal()] =
+		    univ.geometryStructure.bhTreeRebuilds;
+	    }
+	    addStructure(FrameMetrics.Stage.RENDERING_ENVIRONMENT_STRUCTURE,
+			 univ.renderingEnvironmentStructure);
+	    addStructure(FrameMetrics.Stage.SOUND_STRUCTURE,
+			 univ.soundStructure);
+	}
+	addStructure(FrameMetrics.Stage.RENDERING_ATTRIBUTES_STRUCTURE,
+		     renderingAttributesStructure);
+	addStructure(FrameMetrics.Stage.SOUND_SCHEDULER, view.soundScheduler);
+	addStructure(FrameMetrics.Stage.RENDER_BIN, view.renderBin);
+	if (view.renderBin != null) {
+	    counterTotals[FrameMetrics.Counter.VISIBLE_GEOMETRY_ATOMS.ordinal()] =
+		view.renderBin.visibleAtomCount;
+	    counterTotals[FrameMetrics.Counter.OCCLUDED_GEOMETRY_ATOMS.ordinal()] =
+		view.renderBin.occludedAtomCount;
+	}
+
+	Canvas3D[] canvases = view.getCanvases();
+	if (canvases != null) {
+	    for (int i = 0; i < canvases.length; i++) {
+		Canvas3D cv = canvases[i];
+		stageTotals[FrameMetrics.Stage.RENDER.ordinal()] += cv.renderTime;
+		stageTotals[FrameMetrics.Stage.SWAP.ordinal()] += cv.swapTime;
+		counterTotals[FrameMetrics.Counter.RENDER_ATOMS.ordinal()] +=
+		    cv.renderedAtomCount;
+		counterTotals[FrameMetrics.Counter.CULLED_RENDER_ATOMS.ordinal()] +=
+		    cv.culledAtomCount;
+		counterTotals[FrameMetrics.Counter.STATE_CHANGES.ordinal()] +=
+		    cv.stateChangeCount;
+		if (cv.ctx instanceof RecordingPipeline.RecordingContext) {
+		    ((RecordingPipeline.RecordingContext)cv.ctx).addCounters(counterTotals);
+		}
+	    }
+	}
+
+	long currentTime = System.nanoTime();
+
+	if (started) {
+	    // Totals can go down when a canvas is removed from the view
+	    long[] stageTimes = new long[NUM_STAGES];
+	    for (int i = 0; i < NUM_STAGES; i++) {
+		stageTimes[i] = Math.max(stageTotals[i] - lastStageTotals[i], 0L);
+	    }
+	    long[] counters = new long[NUM_COUNTERS];
+	    for (int i = 0; i < NUM_COUNTERS; i++) {
+		counters[i] = Math.max(counterTotals[i] - lastCounterTotals[i], 0L);
+	    }
+	    // The number of pending messages is a level, not a total
+	    int pending = FrameMetrics.Counter.PENDING_MESSAGES.ordinal();
+	    counters[pending] = counterTotals[pending];
+
+	    FrameMetrics metrics = new FrameMetrics(view.frameNumber,
+						    currentTime - lastFrameTime,
+						    stageTimes, counters);
+	    view.lastFrameMetrics = metrics;
+	    pendingMetrics = metrics;
+	}
+
+	System.arraycopy(stageTotals, 0, lastStageTotals, 0, NUM_STAGES);
+	System.arraycopy(counterTotals, 0, lastCounterTotals, 0, NUM_COUNTERS);
+	lastFrameTime = currentTime;
+	started = true;
+    }
+
+    private void addStructure(FrameMetrics.Stage stage, J3dStructure structure) {
+	if (structure == null) {
+	    return;
+	}
+	stageTotals[stage.ordinal()] += structure.processTime;
+	counterTotals[FrameMetrics.Counter.MESSAGES.ordinal()] +=
+	    structure.processedMessages;
+	counterTotals[FrameMetrics.Counter.PENDING_MESSAGES.ordinal()] +=
+	    structure.messageQueue.size();
+    }
+
+    void notifyListeners(View view) {
+	FrameMetrics metrics = pendingMetrics;
+	pendingMetrics = null;
+	if (metrics != null) {
+	    view.notifyFrameMetricsListeners(metrics);
+	}
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * Listener interface for monitoring the frame metrics of a View.
+ * <p>
+ * The listener is invoked from the Java 3D master control thread
+ * after each frame of the View completes, so it must return quickly.
+ * It may forward the metrics to a monitoring system, for instance by
+ * committing them as Java Flight Recorder events.
+ *
+ * @see View#addFrameMetricsListener
+ * @see FrameMetrics
+ *
+ * @since Java 3D 1.6
+ */
+public interface FrameMetricsListener {
+    /**
+     * Invoked when a frame of the View has completed.
+     *
+     * @param view the View that rendered the frame
+     * @param metrics the metrics of the frame
+     */
+    public void frameCompleted(View view, FrameMetrics metrics);
+}
@@ -0,0 +1,283 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+import org.scijava.vecmath.Vector4d;
+
+/**
+ * The view frustum planes of the canvases of a View, in virtual world
+ * coordinates, against which BHTree.select culls the nodes of the
+ * bounding hierarchy.  A node is visible if it intersects any of the
+ * frusta, one per canvas and eye.
+ * <p>
+ * The planes a node still has to be tested against are given by a mask,
+ * 6 bits per frustum, which is passed down the hierarchy: a node whose
+ * parent is fully on the inner side of a plane is not tested against it
+ * again, and a frustum that culled the parent is left out.  Each node
+ * also remembers the last plane that culled it, which is tested first
+ * the next frame since the view moves little between frames.
+ * <p>
+ * With the small feature culling size of the View set, nodes whose
+ * bounds project to fewer pixels than that size on every canvas are
+ * culled as well, with their whole subtree since the bounds of the
+ * children are smaller and no nearer to the eyes.
+ * <p>
+ * With occlusion culling, nodes hidden behind the occluders in the depth
+ * buffer of the View are culled too.  The buffer is in the coordinates of
+ * the locale of the View, so it is dropped when the culler is moved into
+ * another locale.
+ */
+class FrustumCuller {
+
+    // Frusta tested with plane masks, 6 bits each in an int
+    static final int MAX_FRUSTA = 5;
+
+    // Returned by classify for a node fully inside one of the frusta
+    static final int INSIDE = -1;
+
+    // Plane equations a, b, c, d, 4 per plane, 6 planes per frustum.  A
+    // point is on the inner side of a plane when ax + by + cz + d >= 0.
+    private final double[] planes = new double[4 * 6 * MAX_FRUSTA];
+    private int count = 0;
+
+    // Eye of each frustum, and the scale from a size, divided by its
+    // distance to the eye unless the projection is parallel, to pixels
+    private final double[] eyes = new double[3 * MAX_FRUSTA];
+    private final double[] pixelScales = new double[MAX_FRUSTA];
+    private boolean parallel = false;
+
+    // Size in pixels below which nodes are culled, 0 if they are not
+    private double minPixelSize = 0.0;
+
+    // Depth buffer of the occluders, null without occlusion culling
+    private OcclusionBuffer occlusionBuffer = null;
+
+    void clear(double minPixelSize, boolean parallel) {
+	count = 0;
+	this.minPixelSize = minPixelSize;
+	this.parallel = parallel;
+	occlusionBuffer = null;
+    }
+
+    void setOcclusionBuffer(OcclusionBuffer buffer) {
+	occlusionBuffer = buffer;
+    }
+
+    /**
+     * Adds the 6 planes of a frustum, its eye and the scale to pixels on
+     * its canvas.  A scale of 0 turns the small feature culling off.
+     * Returns false if there are already MAX_FRUSTA frusta.
+     */
+    boolean add(Vector4d[] frustumPlanes, Point3d eye, double pixelScale) {
+	if (count == MAX_FRUSTA) {
+	    return false;
+	}
+	eyes[3 * count] = eye.x;
+	eyes[3 * count + 1] = eye.y;
+	eyes[3 * count + 2] = eye.z;
+	pixelScales[count] = pixelScale;
+	if (pixelScale <= 0.0) {
+	    minPixelSize = 0.0;
+	}
+	int off = 24 * count;
+	for (int i = 0; i < 6; i++) {
+	    Vector4d p = frustumPlanes[i];
+	    planes[off++] = p.x;
+	    planes[off++] = p.y;
+	    planes[off++] = p.z;
+	    planes[off++] = p.w;
+	}
+	count++;
+	return true;
+    }
+
+    /**
+     * Sets the frusta to those of another culler moved by t, as
+     * GeometryStructure moves the view frustum box into another locale.
+     */
+    void setTranslated(FrustumCuller culler, Vector3d t) {
+	count = culler.count;
+	minPixelSize = culler.minPixelSize;
+	parallel = culler.parallel;
+	occlusionBuffer = null;
+	for (int i = 0; i < count; i++) {
+	    eyes[3 * i] = culler.eyes[3 * i] + t.x;
+	    eyes[3 * i + 1] = culler.eyes[3 * i + 1] + t.y;
+	    eyes[3 * i + 2] = culler.eyes[3 * i + 2] + t.z;
+	    pixelScales[i] = culler.pixelScales[i];
+	}
+	for (int i = 0; i < 4 * 6 * count; i += 4) {
+	    double a = culler.planes[i];
+	    double b = culler.planes[i + 1];
+	    double c = culler.planes[i + 2];
+	    planes[i] = a;
+	    planes[i + 1] = b;
+	    planes[i + 2] = c;
+	    planes[i + 3] = culler.planes[i + 3] - (a * t.x + b * t.y + c * t.z);
+	}
+    }
+
+    boolean isEmpty() {
+	return count == 0;
+    }
+
+    boolean isSmallFeatureCulling() {
+	return minPixelSize > 0.0;
+    }
+
+    /**
+     * Returns the mask of all the planes.
+     */
+    int getMask() {
+	return (1 << (6 * count)) - 1;
+    }
+
+    /**
+     * Classifies the bounds of a node against the planes of the mask.
+     * Returns INSIDE if the bounds are fully inside one of the frusta,
+     * 0 if they are outside all of them, or else the mask of the planes
+     * they straddle, in the frusta they may intersect.
+     */
+    int classify(BHNode node, int mask) {
+	BoundingBox box = node.bHull;
+	double lx = box.lower.x, ly = box.lower.y, lz = box.lower.z;
+	double ux = box.upper.x, uy = box.upper.y, uz = box.upper.z;
+
+	// Plane that culled the node last time
+	int hint = node.cullPlane;
+	if ((hint >= 0) && ((mask & (1 << hint)) != 0) &&
+		isOutside(4 * hint, lx, ly, lz, ux, uy, uz)) {
+	    mask &= ~(0x3f << (6 * (hint / 6)));
+	    if (mask == 0) {
+		return 0;
+	    }
+	}
+
+	for (int f = 0; f < count; f++) {
+	    int shift = 6 * f;
+	    int bits = (mask >>> shift) & 0x3f;
+	    if (bits == 0) {
+		continue;
+	    }
+	    for (int p = 0; p < 6; p++) {
+		int bit = 1 << p;
+		if ((bits & bit) == 0) {
+		    continue;
+		}
+		int i = 4 * (shift + p);
+		double a = planes[i], b = planes[i + 1];
+		double c = planes[i + 2], d = planes[i + 3];
+		// Corner farthest along the normal
+		double dist = a * (a >= 0.0 ? ux : lx) +
+		    b * (b >= 0.0 ? uy : ly) +
+		    c * (c >= 0.0 ? uz : lz) + d;
+		if (dist < 0.0) {
+		    node.cullPlane = (byte)(shift + p);
+		    bits = 0;
+		    break;
+		}
+		// Corner nearest along the normal
+		dist = a * (a >= 0.0 ? lx : ux) +
+		    b * (b >= 0.0 ? ly : uy) +
+		    c * (c >= 0.0 ? lz : uz) + d;
+		if (dist >= 0.0) {
+		    bits &= ~bit;
+		    if (bits == 0) {
+			return INSIDE;
+		    }
+		}
+	    }
+	    mask = (mask & ~(0x3f << shift)) | (bits << shift);
+	}
+	return mask;
+    }
+
+    /**
+     * Returns the largest number of pixels a unit size at the point
+     * covers on the canvases, used to choose LODSwitch levels.  Returns
+     * infinity if the pixel scales are not known.
+     */
+    double getPixelsPerUnit(double x, double y, double z) {
+	double max = 0.0;
+	for (int f = 0; f < count; f++) {
+	    double scale = pixelScales[f];
+	    if (scale <= 0.0) {
+		return Double.POSITIVE_INFINITY;
+	    }
+	    if (!parallel) {
+		double dx = x - eyes[3 * f];
+		double dy = y - eyes[3 * f + 1];
+		double dz = z - eyes[3 * f + 2];
+		scale /= Math.sqrt(dx * dx + dy * dy + dz * dz);
+	    }
+	    if (scale > max) {
+		max = scale;
+	    }
+	}
+	return max;
+    }
+
+    /**
+     * Returns true if the bounds of the node project to fewer than
+     * minPixelSize pixels on every canvas.  The diagonal of the bounds
+     * is taken as their size, at the distance of their nearest point.
+     */
+    boolean isTooSmall(BHNode node) {
+	if ((minPixelSize <= 0.0) || (count == 0)) {
+	    return false;
+	}
+	BoundingBox box = node.bHull;
+	double dx = box.upper.x - box.lower.x;
+	double dy = box.upper.y - box.lower.y;
+	double dz = box.upper.z - box.lower.z;
+	double size2 = dx * dx + dy * dy + dz * dz;
+	double min2 = minPixelSize * minPixelSize;
+
+	for (int f = 0; f < count; f++) {
+	    double pixels2 = size2 * pixelScales[f] * pixelScales[f];
+	    double dist2 = 1.0;
+	    if (!parallel) {
+		double ex = eyes[3 * f], ey = eyes[3 * f + 1], ez = eyes[3 * f + 2];
+		dx = Math.max(Math.max(box.lower.x - ex, ex - box.upper.x), 0.0);
+		dy = Math.max(Math.max(box.lower.y - ey, ey - box.upper.y), 0.0);
+		dz = Math.max(Math.max(box.lower.z - ez, ez - box.upper.z), 0.0);
+		dist2 = dx * dx + dy * dy + dz * dz;
+	    }
+	    // Kept if not comparable, for unbounded nodes
+	    if (!(pixels2 < min2 * dist2)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Returns true if the bounds of the node are hidden behind the
+     * occluders.
+     */
+    boolean isOccluded(BHNode node) {
+	return (occlusionBuffer != null) && occlusionBuffer.isOccluded(node.bHull);
+    }
+
+    private boolean isOutside(int i, double lx, double ly, double lz,
+			      double ux, double uy, double uz) {
+	double a = planes[i], b = planes[i + 1];
+	double c = planes[i + 2], d = planes[i + 3];
+	return (a * (a >= 0.0 ? ux : lx) +
+		b * (b >= 0.0 ? uy : ly) +
+		c * (c >= 0.0 ? uz : lz) + d) < 0.0;
+    }
+}
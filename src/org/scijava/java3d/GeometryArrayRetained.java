@@ -330,6 +330,25 @@ private HashMap<RenderBin, HashSet<RenderAtomListInfo>> dlistUsers = null;
     int dlistId = -1;
     Integer dlistObj = null;
 
+    // Vertex buffer object id, the same in every canvas context that
+    // creates a buffer for this geometry, see executeVertexBuffer
+    int vboId = -1;
+    Integer vboObj = null;
+
+    // each bit corresponds to a canvas that created a vertex buffer
+    // object for this geometry (vboCreationMask) and whose buffer holds
+    // the current vertex data (vboCurrentMask)
+    int vboCreationMask = 0;
+    int vboCurrentMask = 0;
+
+    // Vertex range last sent to the vertex buffer objects
+    private int vboStartVertex = 0;
+    private int vboVertexCount = 0;
+
+    // Set when the geometry is no longer used; the renderers then free
+    // its vertex buffer objects
+    volatile boolean vboReleased = false;
+
     // A list of pre-defined bits to indicate which component
     // in this Texture object changed.
     //    static final int DLIST_CREATE_CHANGED      = 0x01;
@@ -360,6 +379,13 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
     static final double EPS = 1.0e-13;
 
+    // Lazily built hierarchy over the triangles of this geometry, used to
+    // cull triangles when picking large meshes. It is refit on the next
+    // pick after the coordinates or indices change.
+    private TrianglePickTree pickTree = null;
+    private volatile boolean pickTreeDirty = false;
+    private final Object pickTreeLock = new Object();
+
     GeometryArrayRetained() {
 	dirtyFlag = INDEX_CHANGED|VERTEX_CHANGED;
         lastAlpha[0] = 1.0f;
@@ -369,6 +395,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
     @Override
     void setLive(boolean inBackgroundGroup, int refCount) {
 	dirtyFlag = VERTEX_CHANGED|INDEX_CHANGED;
+	vboReleased = false;
         isEditable = !isWriteStatic();
         super.doSetLive(inBackgroundGroup, refCount);
 	super.markAsLive();
@@ -411,6 +438,14 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 
 	if (this.refCount <= 0) {
 	    isShared = false;
+	    // Data may change while not live without any notification
+	    synchronized (pickTreeLock) {
+		pickTree = null;
+	    }
+	    releaseVertexBuffers();
+	    if (mirrorGeometry != null) {
+		((GeometryArrayRetained)mirrorGeometry).releaseVertexBuffers();
+	    }
 	}
     }
 
@@ -2185,6 +2220,117 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
     }
 
 
+    // Resets the dirty flag once the by-copy vertex data has been sent
+    // to a canvas; the vertex buffer objects of the other canvases are
+    // then out of date. Called with the geometry locked.
+    void clearDirtyFlag() {
+	if ((dirtyFlag & VERTEX_CHANGED) != 0) {
+	    vboCurrentMask = 0;
+	}
+	dirtyFlag = 0;
+    }
+
+    // Returns true if this geometry can be rendered from a vertex buffer
+    // object of the canvas
+    boolean isVertexBufferRenderable(Canvas3D cv, boolean updateAlpha,
+				     boolean ignoreVertexColors) {
+	return ((vertexFormat & GeometryArray.BY_REFERENCE) == 0) &&
+	    !(updateAlpha && !ignoreVertexColors) &&
+	    ((cv.extensionsSupported & Canvas3D.VERTEX_BUFFER_OBJECT) != 0);
+    }
+
+    /**
+     * Renders this geometry from its vertex buffer object in the canvas
+     * context, after creating or updating the buffer as needed.  Returns
+     * false, without rendering anything, if the geometry can't be
+     * rendered from a vertex buffer object; execute must be used then.
+     */
+    boolean executeVertexBuffer(Canvas3D cv, boolean isNonUniformScale,
+				boolean updateAlpha, boolean ignoreVertexColors) {
+	if (!isVertexBufferRenderable(cv, updateAlpha, ignoreVertexColors)) {
+	    return false;
+	}
+
+	updateVertexBuffer(cv, initialVertexIndex, validVertexCount);
+
+	Pipeline.getPipeline().executeVertexBuffer(cv.ctx,
+		this, geoType, isNonUniformScale,
+		ignoreVertexColors,
+		initialVertexIndex,
+		validVertexCount,
+		((vertexFormat & GeometryArray.COLOR) != 0)?(vertexFormat|GeometryArray.COLOR_4):vertexFormat,
+		texCoordSetCount, texCoordSetMap,
+		(texCoordSetMap == null) ? 0 : texCoordSetMap.length,
+		texCoordSetMapOffset,
+		cv.numActiveTexUnit,
+		vertexAttrCount, vertexAttrSizes,
+		vboId);
+	return true;
+    }
+
+    // Makes the vertex buffer object of the canvas hold the current data
+    // of the vertices [startVertex, startVertex + vertexCount). The buffer
+    // is created with the whole vertexData array; after that only the
+    // vertex range is replaced, and only when the data changed.
+    void updateVertexBuffer(Canvas3D cv, int startVertex, int vertexCount) {
+	int bit = cv.canvasBit;
+
+	synchronized (this) {
+	    if (startVertex != vboStartVertex ||
+		vertexCount != vboVertexCount) {
+		vboCurrentMask = 0;
+		vboStartVertex = startVertex;
+		vboVertexCount = vertexCount;
+	    }
+	    clearDirtyFlag();
+
+	    if ((vboCurrentMask & bit) != 0) {
+		return;
+	    }
+
+	    if (vboId == -1) {
+		vboObj = VirtualUniverse.mc.getVertexBufferId();
+		vboId = vboObj.intValue();
+	    }
+
+	    if ((vboCreationMask & bit) == 0) {
+		Pipeline.getPipeline().createVertexBuffer(cv.ctx, vboId,
+			vertexData, vertexData.length);
+		vboCreationMask |= bit;
+		cv.vertexBufferResourceList.add(this);
+	    } else {
+		Pipeline.getPipeline().updateVertexBuffer(cv.ctx, vboId,
+			vertexData, startVertex * stride, vertexCount * stride);
+	    }
+	    vboCurrentMask |= bit;
+	}
+    }
+
+    // Called by the renderer of a canvas that deletes its vertex buffer
+    // object. Returns the id of the buffer to delete.
+    synchronized int freeVertexBuffer(int canvasBit) {
+	int id = vboId;
+	vboCreationMask &= ~canvasBit;
+	vboCurrentMask &= ~canvasBit;
+	if (vboCreationMask == 0 && vboId != -1) {
+	    VirtualUniverse.mc.freeVertexBufferId(vboObj);
+	    vboId = -1;
+	    vboObj = null;
+	}
+	return id;
+    }
+
+    // Marks the vertex buffer objects of this geometry as no longer used
+    void releaseVertexBuffers() {
+	synchronized (this) {
+	    if (vboCreationMask == 0) {
+		return;
+	    }
+	    vboReleased = true;
+	}
+	VirtualUniverse.mc.vertexBufferReleased();
+    }
+
     // pass < 0  implies underlying library supports multiTexture, so
     // 		 use the multiTexture extension to send all texture units
     //		 data in one pass
@@ -2229,7 +2375,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 		// geomLock is get in MasterControl when
 		// RenderBin render the geometry. So it is safe
 		// just to set the dirty flag here
-		dirtyFlag = 0;
+		clearDirtyFlag();
 	    }
 
 	    Pipeline.getPipeline().execute(cv.ctx,
@@ -3444,6 +3590,10 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 	J3dMessage[] m;
 	int i, j, k, numShapeMessages, numMorphMessages;
 
+	if (coordinatesChanged) {
+	    pickTreeDirty = true;
+	}
+
 	synchronized(liveStateLock) {
 	    if (source != null && source.isLive()) {
 		// System.err.println("In GeometryArrayRetained - ");
@@ -3490,7 +3640,7 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
 			    gaList.add(Shape3DRetained.getGeomAtom(s));
 			}
 
-			m[k] = new J3dMessage();
+			m[k] = MessagePool.getMessage();
 
 			m[k].type = J3dMessage.GEOMETRY_CHANGED;
 			// Who to send this message to ?
@@ -7610,6 +7760,142 @@ ArrayList<ArrayList<MorphRetained>> morphUserLists = null;
     }
 
 
+    /**
+     * Returns the number of triangles picking visits in this geometry,
+     * or 0 if it is not picked as a list of triangles.
+     */
+    int getPickTriangleCount() {
+	return 0;
+    }
+
+    /**
+     * Returns the coordinate indices of the triangles picking visits in
+     * this geometry, three per triangle, in the order of the linear
+     * intersect loop.
+     */
+    int[] getPickTriangleIndices() {
+	return null;
+    }
+
+    /**
+     * Returns the pick tree of this geometry, building or refitting it as
+     * needed, or null if the pick shape should take the linear path.
+     */
+    TrianglePickTree getTrianglePickTree(PickShape pickShape) {
+	if (!VirtualUniverse.mc.usePickTree ||
+	    source == null || !source.isLive() ||
+	    !TrianglePickTree.isSupported(pickShape)) {
+	    return null;
+	}
+
+	int count = getPickTriangleCount();
+	if (count < VirtualUniverse.mc.pickTreeThreshold) {
+	    return null;
+	}
+
+	synchronized (pickTreeLock) {
+	    if (pickTree != null && !pickTreeDirty &&
+		pickTree.triangleCount == count) {
+		return pickTree;
+	    }
+
+	    // Clear the flag first so that a change made while we read
+	    // the data causes another refit
+	    pickTreeDirty = false;
+	    int[] indices = getPickTriangleIndices();
+	    if (pickTree != null && pickTree.triangleCount == count) {
+		pickTree = pickTree.refit(this, indices);
+	    } else {
+		pickTree = TrianglePickTree.build(this, indices);
+	    }
+	    return pickTree;
+	}
+    }
+
+    /**
+     * Intersects the pick shape with the triangles of the pick tree that
+     * it may reach. The candidates are visited in the same order as in
+     * the linear loops of the subclasses, so the closest point and the
+     * stored intersection data are the same.
+     */
+    boolean intersectPickTree(TrianglePickTree tree, PickShape pickShape,
+			      PickInfo pickInfo, int flags, Point3d iPnt,
+			      GeometryRetained geom, int geomIndex) {
+	int[] tris = tree.select(pickShape);
+	if (tris == null) {
+	    return false;
+	}
+
+	Point3d pnts[] = new Point3d[3];
+	double sdist[] = new double[1];
+	double minDist = Double.MAX_VALUE;
+	double x = 0, y = 0, z = 0;
+	int[] vtxIndexArr = new int[3];
+	int[] indices = tree.vertexIndices;
+	int pickType = pickShape.getPickType();
+
+	pnts[0] = new Point3d();
+	pnts[1] = new Point3d();
+	pnts[2] = new Point3d();
+
+	for (int k = 0; k < tris.length; k++) {
+	    int i = tris[k] * 3;
+	    for (int j = 0; j < 3; j++) {
+		vtxIndexArr[j] = indices[i + j];
+		getVertexData(indices[i + j], pnts[j]);
+	    }
+
+	    boolean hit;
+	    switch (pickType) {
+	    case PickShape.PICKRAY:
+		hit = intersectRay(pnts, (PickRay) pickShape, sdist, iPnt);
+		break;
+	    case PickShape.PICKSEGMENT:
+		PickSegment pickSegment = (PickSegment) pickShape;
+		hit = intersectSegment(pnts, pickSegment.start,
+				       pickSegment.end, sdist, iPnt);
+		break;
+	    case PickShape.PICKCYLINDER:
+		hit = intersectCylinder(pnts, (PickCylinder) pickShape,
+					sdist, iPnt);
+		break;
+	    case PickShape.PICKCONE:
+		hit = intersectCone(pnts, (PickCone) pickShape, sdist, iPnt);
+		break;
+	    default:
+		throw new RuntimeException ("PickShape not supported for intersection");
+	    }
+
+	    if (hit) {
+		if (flags == 0) {
+		    return true;
+		}
+		if (sdist[0] < minDist) {
+		    minDist = sdist[0];
+		    x = iPnt.x;
+		    y = iPnt.y;
+		    z = iPnt.z;
+		    if((flags & PickInfo.CLOSEST_GEOM_INFO) != 0) {
+			storeInterestData(pickInfo, flags, geom, geomIndex,
+					  vtxIndexArr, iPnt, sdist[0]);
+		    }
+		}
+		if((flags & PickInfo.ALL_GEOM_INFO) != 0) {
+		    storeInterestData(pickInfo, flags, geom, geomIndex,
+				      vtxIndexArr, iPnt, sdist[0]);
+		}
+	    }
+	}
+
+	if (minDist < Double.MAX_VALUE) {
+	    iPnt.x = x;
+	    iPnt.y = y;
+	    iPnt.z = z;
+	    return true;
+	}
+	return false;
+    }
+
     /**
      * Return true if triangle or quad intersects with ray and the
      * distance is stored in dist[0] and the intersect point in iPnt
@@ -10687,6 +10973,7 @@ int numDlistUsers(RenderBin renderBin) {
 	geomLock.getLock();
 	if (this instanceof IndexedGeometryArrayRetained) {
 	    if (mirrorGeometry != null) {
+		((GeometryArrayRetained)mirrorGeometry).releaseVertexBuffers();
 		mirrorGeometry =
 		    ((IndexedGeometryArrayRetained)this).cloneNonIndexedGeometry();
 	    }
@@ -28,6 +28,7 @@ package org.scijava.java3d;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.logging.Level;
 
 import org.scijava.vecmath.Vector3d;
 
@@ -83,9 +84,20 @@ class GeometryStructure extends J3dStructure {
     private int bhNodeCount, bhNodeMax;
     private int bhNodeBlockSize = 50;
 
+    // Number of BHTree refits and rebuilds, read by the frame metrics
+    long bhTreeRefits = 0;
+    long bhTreeRebuilds = 0;
+
     // Support for multi-locale.
     private Vector3d localeTrans = new Vector3d();
 
+    // The geometry atoms of the occluder shapes, for the occlusion
+    // culling of the render bins.  The array is only replaced, so that
+    // the render bins can read it without locking.
+    private ArrayList<GeometryAtom> occluderList = new ArrayList<GeometryAtom>();
+    GeometryAtom[] occluders = new GeometryAtom[0];
+    private boolean occludersChanged = false;
+
 
     //The lists of wakeupCriterion object currently in collision.
     WakeupIndexedList collideEntryList;
@@ -104,6 +116,12 @@ class GeometryStructure extends J3dStructure {
 
     private boolean transformMsg = false;
 
+    // Broad phase of processCollisionDetection, and the criteria it
+    // found must be tested
+    CollisionSweep collisionSweep = new CollisionSweep();
+    private boolean[] collisionTests = new boolean[0];
+    private double[] collisionBox = new double[6];
+
     /**
      *  Constructor.
      */
@@ -147,6 +165,7 @@ class GeometryStructure extends J3dStructure {
 		    break;
 		case J3dMessage.SWITCH_CHANGED:
 		    processSwitchChanged(m);
+		    collisionSweep.setAllChanged();
 		    // may need to process dirty switched-on transform
 		    if (universe.transformStructure.getLazyUpdate()) {
 			transformMsg = true;
@@ -155,13 +174,16 @@ class GeometryStructure extends J3dStructure {
 		case J3dMessage.INSERT_NODES:
 		    insertNodes((Object[])m.args[0]);
 		    reEvaluateWakeupCollisionGAs = true;
+		    collisionSweep.setAllChanged();
 		    break;
 		case J3dMessage.REMOVE_NODES:
 		    removeNodes(m);
 		    reEvaluateWakeupCollisionGAs = true;
+		    collisionSweep.setAllChanged();
 		    break;
 		case J3dMessage.SHAPE3D_CHANGED: {
 		    int comp = ((Integer)m.args[1]).intValue();
+		    collisionSweep.setAllChanged();
 		    if (comp == Shape3DRetained.GEOMETRY_CHANGED) {
 			m.args[0] = m.args[2];
 			removeNodes(m);
@@ -177,6 +199,7 @@ class GeometryStructure extends J3dStructure {
 		case J3dMessage.TEXT3D_DATA_CHANGED:
 		    removeNodes(m);
 		    insertNodes((Object[])m.args[1]);
+		    collisionSweep.setAllChanged();
 		    break;
 		case J3dMessage.TEXT3D_TRANSFORM_CHANGED:
 		    processBoundsChanged((Object []) m.args[0], false);
@@ -189,6 +212,7 @@ class GeometryStructure extends J3dStructure {
 		    else if (comp == MorphRetained.APPEARANCE_CHANGED) {
 			processVisibleChanged(m.args[2],
 					      ((GeometryAtom[]) m.args[3]));
+			collisionSweep.setAllChanged();
 		    }
 		    break;
 		}
@@ -204,6 +228,7 @@ class GeometryStructure extends J3dStructure {
 		case J3dMessage.RENDERINGATTRIBUTES_CHANGED:
 		    processVisibleChanged(m.args[2],
 					  ((GeometryAtom[]) m.args[3]));
+		    collisionSweep.setAllChanged();
 		    break;
 		}
 
@@ -211,6 +236,11 @@ class GeometryStructure extends J3dStructure {
 		m.decRefcount();
 	    }
 
+	    if (occludersChanged) {
+		occluders = occluderList.toArray(new GeometryAtom[occluderList.size()]);
+		occludersChanged = false;
+	    }
+
 	    if (transformMsg) {
 		targets = universe.transformStructure.getTargetList();
 		lock.writeLock();
@@ -334,6 +364,10 @@ class GeometryStructure extends J3dStructure {
 		    bhLeafNode.computeBoundingHull();
 		    // System.err.println("bhLeafNode.bHull is " + bhLeafNode.bHull);
 		    addToBhNodeArr(bhLeafNode);
+		    if (geomAtom.source.occluder) {
+			occluderList.add(geomAtom);
+			occludersChanged = true;
+		    }
 		}
 	    } else if (node instanceof GroupRetained) {
 		synchronized (node) {
@@ -388,6 +422,9 @@ class GeometryStructure extends J3dStructure {
 			// Dereference BHLeafNode in GeometryAtom.
 			geomAtom.bhLeafNode = null;
 		    }
+		    if (!occluderList.isEmpty() && occluderList.remove(geomAtom)) {
+			occludersChanged = true;
+		    }
 
 		}
 	    } else if (node instanceof GroupRetained) {
@@ -466,6 +503,24 @@ class GeometryStructure extends J3dStructure {
     }
 
 
+    // Refits the tree to the bounds of the leaves in bhNodeArr, which may
+    // rebuild it
+    private void boundsChanged(BHTree bhTree) {
+	bhTreeRefits++;
+	if (bhTree.boundsChanged(bhNodeArr, bhNodeCount)) {
+	    bhTreeRebuilds++;
+	    if (MasterControl.isStatsLoggable(Level.FINE)) {
+		MasterControl.getStatsLogger().fine(bhTree.getTreeStatistics());
+	    }
+	}
+
+	if (VirtualUniverse.mc.collisionBroadPhase) {
+	    for (int i = 0; i < bhNodeCount; i++) {
+		collisionSweep.addRegion(bhNodeArr[i].bHull);
+	    }
+	}
+    }
+
     private void processBoundsChanged(Object[] nodes, boolean transformChanged) {
 
 	int index;
@@ -503,7 +558,7 @@ class GeometryStructure extends J3dStructure {
 	index = getBHTreeIndex(((BHLeafNode)bhNodeArr[0]).getLocale());
 
 	if (index >= 0) {
-	    bhTreeArr[index].boundsChanged(bhNodeArr, bhNodeCount);
+	    boundsChanged(bhTreeArr[index]);
 	}
 
         // Issue 353: must clear array after we are done with it
@@ -566,8 +621,7 @@ class GeometryStructure extends J3dStructure {
 	index = getBHTreeIndex(((BHLeafNode)bhNodeArr[0]).getLocale());
 
 	if (index >= 0) {
-	    bhTreeArr[index].boundsChanged(bhNodeArr, bhNodeCount);
-
+	    boundsChanged(bhTreeArr[index]);
 	}
 
         // Issue 353: must clear array after we are done with it
@@ -579,9 +633,12 @@ class GeometryStructure extends J3dStructure {
     // sub-trees.
     // bhTrees mustn't be null.
     // Return true if bhTree's root in encompass by frustumBBox.
+    // The trees are also culled against the planes of frustumCuller, if
+    // it is not null.
 
     boolean getVisibleBHTrees(RenderBin rBin,
 			      BoundingBox frustumBBox,
+			      FrustumCuller frustumCuller,
 			      Locale locale, long referenceTime,
 			      boolean stateChanged,
 			      int visibilityPolicy) {
@@ -610,6 +667,7 @@ class GeometryStructure extends J3dStructure {
 	    // One locale case - Lets make the simple case fast.
 	    synchronized(visLock) {
 		unviInFB = bhTreeArr[0].getVisibleBHTrees(rBin, bhTrees, frustumBBox,
+							  frustumCuller,
 							  referenceTime,
 							  stateChanged,
 							  visibilityPolicy, true);
@@ -626,6 +684,11 @@ class GeometryStructure extends J3dStructure {
 				 " view's locale is " + locale + "\n");
 
 	    BoundingBox localeFrustumBBox = new BoundingBox();
+	    FrustumCuller localeFrustumCuller = null;
+	    FrustumCuller culler;
+	    if (frustumCuller != null) {
+		localeFrustumCuller = new FrustumCuller();
+	    }
 
 	    synchronized(visLock) {
 
@@ -654,13 +717,20 @@ class GeometryStructure extends J3dStructure {
 			localeFrustumBBox.upper.x = frustumBBox.upper.x + localeTrans.x;
 			localeFrustumBBox.upper.y = frustumBBox.upper.y + localeTrans.y;
 			localeFrustumBBox.upper.z = frustumBBox.upper.z + localeTrans.z;
+			if (frustumCuller != null) {
+			    localeFrustumCuller.setTranslated(frustumCuller,
+							      localeTrans);
+			}
+			culler = localeFrustumCuller;
 		    }
 		    else {
 			frustumBBox.copy(localeFrustumBBox);
+			culler = frustumCuller;
 		    }
 
 		    if(!(bhTreeArr[j].getVisibleBHTrees(rBin, bhTrees,
 							localeFrustumBBox,
+							culler,
 							referenceTime,
 							stateChanged,
 							visibilityPolicy,
@@ -732,6 +802,21 @@ class GeometryStructure extends J3dStructure {
 
     }
 
+    // The pick tests the geometry with the lock held, as the collision
+    // queries do
+    void pickClosest(Locale locale, PickShape shape, PickInfo.ClosestPick pick) {
+
+	lock.readLock();
+	try {
+	    int i = getBHTreeIndex(locale);
+	    if (i >= 0) {
+		bhTreeArr[i].selectClosest(shape, pick);
+	    }
+	} finally {
+	    lock.readUnlock();
+	}
+    }
+
 
     void addWakeupOnCollision(WakeupOnCollisionEntry w) {
 
@@ -740,22 +825,30 @@ class GeometryStructure extends J3dStructure {
 	// Cleanup, since collideEntryList did not remove
 	// its condition in removeWakeupOnCollision
 	synchronized (collideListLock) {
-	    WakeupOnCollisionEntry collideEntryArr[] =
-		(WakeupOnCollisionEntry []) collideEntryList.toArray();
-	    WakeupOnCollisionEntry wentry;
-	    for (int i=collideEntryList.arraySize()-1; i>=0; i--) {
-		wentry = collideEntryArr[i];
-		if ((wentry.behav == w.behav) &&
-		    (wentry.geometryAtoms == w.geometryAtoms)) {
-		    collideEntryList.remove(i);
-		    needTrigger = false;
-		    break;
+	    // A condition that is rearmed is usually the one found
+	    int idx = collideEntryList.indexOf(w);
+	    if (idx >= 0) {
+		collideEntryList.remove(idx);
+		needTrigger = false;
+	    } else {
+		WakeupOnCollisionEntry collideEntryArr[] =
+		    (WakeupOnCollisionEntry []) collideEntryList.toArray();
+		WakeupOnCollisionEntry wentry;
+		for (int i=collideEntryList.arraySize()-1; i>=0; i--) {
+		    wentry = collideEntryArr[i];
+		    if ((wentry.behav == w.behav) &&
+			(wentry.geometryAtoms == w.geometryAtoms)) {
+			collideEntryList.remove(i);
+			needTrigger = false;
+			break;
+		    }
 		}
 	    }
 	}
 
 	// add to wakeup list
 	wakeupOnCollisionEntry.add(w);
+	CollisionSweep.invalidateBox(w.collisionBox);
 	w.updateCollisionBounds(false);
 	// check for collision and triggered event
 	BHLeafInterface target = collide(w.behav.locale,
@@ -784,22 +877,30 @@ class GeometryStructure extends J3dStructure {
 	boolean needTrigger = true;
 
 	synchronized (collideListLock) {
-	    WakeupOnCollisionExit collideExitArr[] =
-		(WakeupOnCollisionExit []) collideExitList.toArray();
-	    WakeupOnCollisionExit wexit;
-	    for (int i=collideExitList.arraySize()-1; i>=0; i--) {
-		wexit = collideExitArr[i];
-		if ((wexit.behav == w.behav) &&
-		    (wexit.geometryAtoms == w.geometryAtoms)) {
-		    collideExitList.remove(i);
-		    needTrigger = false;
-		    break;
+	    // A condition that is rearmed is usually the one found
+	    int idx = collideExitList.indexOf(w);
+	    if (idx >= 0) {
+		collideExitList.remove(idx);
+		needTrigger = false;
+	    } else {
+		WakeupOnCollisionExit collideExitArr[] =
+		    (WakeupOnCollisionExit []) collideExitList.toArray();
+		WakeupOnCollisionExit wexit;
+		for (int i=collideExitList.arraySize()-1; i>=0; i--) {
+		    wexit = collideExitArr[i];
+		    if ((wexit.behav == w.behav) &&
+			(wexit.geometryAtoms == w.geometryAtoms)) {
+			collideExitList.remove(i);
+			needTrigger = false;
+			break;
+		    }
 		}
 	    }
 	}
 
 	// add condition
 	wakeupOnCollisionExit.add(w);
+	CollisionSweep.invalidateBox(w.collisionBox);
 	w.updateCollisionBounds(false);
 	BHLeafInterface target = collide(w.behav.locale,
 					 w.accuracyMode,
@@ -845,6 +946,7 @@ class GeometryStructure extends J3dStructure {
 
     void addWakeupOnCollision(WakeupOnCollisionMovement w) {
 	wakeupOnCollisionMovement.add(w);
+	CollisionSweep.invalidateBox(w.collisionBox);
 	w.updateCollisionBounds(false);
 	BHLeafInterface target = collide(w.behav.locale,
 					 w.accuracyMode,
@@ -881,20 +983,81 @@ class GeometryStructure extends J3dStructure {
 
     /**
      * This method test all wakeupOnCollision list and trigger the
-     * condition if collision occurs.
+     * condition if collision occurs.  Unless j3d.collisionBroadPhase
+     * is false, a condition is only tested against the BHTree if it
+     * collided last time, if its bounds changed, or if leaves that
+     * moved since intersect its bounds.
      */
     void processCollisionDetection() {
 	int i, idx;
 	BHLeafInterface target;
 
-	// handle WakeupOnCollisionEntry
 	WakeupOnCollisionEntry wentry;
 	WakeupOnCollisionEntry wentryArr[] = (WakeupOnCollisionEntry [])
                                        wakeupOnCollisionEntry.toArray();
+	int numEntry = wakeupOnCollisionEntry.arraySize();
+	WakeupOnCollisionMovement wmove;
+	WakeupOnCollisionMovement wmoveArr[] = (WakeupOnCollisionMovement [])
+                                       wakeupOnCollisionMovement.toArray();
+	int numMove = wakeupOnCollisionMovement.arraySize();
+	WakeupOnCollisionExit wexit;
+	WakeupOnCollisionExit wexitArr[] = (WakeupOnCollisionExit [])
+                                       wakeupOnCollisionExit.toArray();
+	int numExit = wakeupOnCollisionExit.arraySize();
 
-	for (i = wakeupOnCollisionEntry.arraySize()-1; i >=0; i--) {
+	boolean testAll = !VirtualUniverse.mc.collisionBroadPhase ||
+	    reEvaluateWakeupCollisionGAs || collisionSweep.isAllChanged();
+
+	if (collisionTests.length < numEntry + numMove + numExit) {
+	    collisionTests = new boolean[numEntry + numMove + numExit];
+	}
+
+	// Broad phase, the conditions are numbered entries first, then
+	// movements, then exits
+	for (i = 0; i < numEntry; i++) {
 	    wentry = wentryArr[i];
 	    wentry.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    collisionTests[i] =
+		needCollisionTest(wentry.collisionBox,
+				  getCollisionBounds(wentry.geometryAtoms,
+						     wentry.vwcBounds,
+						     wentry.boundingLeaf,
+						     wentry.armingNode),
+				  testAll || collideEntryList.contains(wentry),
+				  i);
+	}
+	for (i = 0; i < numMove; i++) {
+	    wmove = wmoveArr[i];
+	    wmove.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    collisionTests[numEntry + i] =
+		needCollisionTest(wmove.collisionBox,
+				  getCollisionBounds(wmove.geometryAtoms,
+						     wmove.vwcBounds,
+						     wmove.boundingLeaf,
+						     wmove.armingNode),
+				  testAll || collideMovementList.contains(wmove),
+				  numEntry + i);
+	}
+	for (i = 0; i < numExit; i++) {
+	    wexit = wexitArr[i];
+	    wexit.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
+	    collisionTests[numEntry + numMove + i] =
+		needCollisionTest(wexit.collisionBox,
+				  getCollisionBounds(wexit.geometryAtoms,
+						     wexit.vwcBounds,
+						     wexit.boundingLeaf,
+						     wexit.armingNode),
+				  testAll || collideExitList.contains(wexit),
+				  numEntry + numMove + i);
+	}
+	collisionSweep.sweep(collisionTests);
+
+	// handle WakeupOnCollisionEntry
+	for (i = numEntry-1; i >=0; i--) {
+	    if (!collisionTests[i]) {
+		continue;
+	    }
+	    wentry = wentryArr[i];
 	    target = collide(wentry.behav.locale,
 			     wentry.accuracyMode,
 			     wentry.geometryAtoms,
@@ -918,14 +1081,11 @@ class GeometryStructure extends J3dStructure {
 	}
 
 	// handle WakeupOnCollisionMovement
-
-	WakeupOnCollisionMovement wmove;
-	WakeupOnCollisionMovement wmoveArr[] = (WakeupOnCollisionMovement [])
-                                       wakeupOnCollisionMovement.toArray();
-
-	for (i = wakeupOnCollisionMovement.arraySize()-1; i >=0; i--) {
+	for (i = numMove-1; i >=0; i--) {
+	    if (!collisionTests[numEntry + i]) {
+		continue;
+	    }
 	    wmove = wmoveArr[i];
-	    wmove.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
 	    target = collide(wmove.behav.locale,
 			     wmove.accuracyMode,
 			     wmove.geometryAtoms,
@@ -954,14 +1114,11 @@ class GeometryStructure extends J3dStructure {
 
 
 	// Finally, handle WakeupOnCollisionExit
-
-	WakeupOnCollisionExit wexit;
-	WakeupOnCollisionExit wexitArr[] = (WakeupOnCollisionExit [])
-                                       wakeupOnCollisionExit.toArray();
-
-	for (i = wakeupOnCollisionExit.arraySize()-1; i >=0; i--) {
+	for (i = numExit-1; i >=0; i--) {
+	    if (!collisionTests[numEntry + numMove + i]) {
+		continue;
+	    }
 	    wexit = wexitArr[i];
-	    wexit.updateCollisionBounds(reEvaluateWakeupCollisionGAs);
 	    target = collide(wexit.behav.locale,
 			     wexit.accuracyMode,
 			     wexit.geometryAtoms,
@@ -983,6 +1140,53 @@ class GeometryStructure extends J3dStructure {
 	    }
 	}
 
+	Arrays.fill(collisionTests, 0, numEntry + numMove + numExit, false);
+    }
+
+    /**
+     * Returns the bounds that collide tests first for a condition, no
+     * leaf can collide with the condition unless it intersects them.
+     */
+    private Bounds getCollisionBounds(UnorderList geomAtoms,
+				      Bounds bound,
+				      BoundingLeafRetained boundingLeaf,
+				      NodeRetained armingNode) {
+	if (geomAtoms != null) {
+	    if ((bound != null) && (armingNode instanceof GroupRetained)) {
+		return bound;
+	    }
+	    if (geomAtoms.arraySize() < 1) {
+		return null;
+	    }
+	    return ((GeometryAtom) geomAtoms.get(0)).source.vwcBounds;
+	}
+	if ((bound == null) && (boundingLeaf != null)) {
+	    return boundingLeaf.transformedRegion;
+	}
+	return bound;
+    }
+
+    /**
+     * Updates the box of a condition to its current bounds. Returns true
+     * if the condition must be tested, because test is set or its box
+     * changed; otherwise adds its box to the broad phase with the given
+     * id.
+     */
+    private boolean needCollisionTest(double[] box, Bounds bounds,
+				      boolean test, int id) {
+	collisionSweep.getBox(bounds, collisionBox, 0);
+	boolean changed = false;
+	for (int i = 0; i < 6; i++) {
+	    if (box[i] != collisionBox[i]) {
+		box[i] = collisionBox[i];
+		changed = true;
+	    }
+	}
+	if (test || changed) {
+	    return true;
+	}
+	collisionSweep.addBox(box, 0, id);
+	return false;
     }
 
 
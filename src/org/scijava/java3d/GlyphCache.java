@@ -0,0 +1,223 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.awt.Font;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the triangulated glyphs of all the Font3D objects, so that a
+ * new Font3D with the same Font, tessellation tolerance and extrusion as
+ * a previous one does not triangulate its glyphs again.  The glyphs are
+ * only read once triangulated, so they are shared by the Font3D objects.
+ * <p>
+ * The glyphs are held by soft references, and the cache keeps at most
+ * glyphCacheSize glyphs (-Dj3d.glyphCacheSize, 0 disables the cache); the
+ * oldest glyphs are dropped first.  Lookups do not lock.
+ */
+class GlyphCache {
+
+    private static final ConcurrentHashMap<GlyphKey, GlyphRef> glyphs =
+	new ConcurrentHashMap<GlyphKey, GlyphRef>();
+
+    // Keys in the order they were added, for the eviction
+    private static final ConcurrentLinkedQueue<GlyphKey> order =
+	new ConcurrentLinkedQueue<GlyphKey>();
+    private static final AtomicInteger size = new AtomicInteger();
+
+    // Glyphs collected by the GC
+    private static final ReferenceQueue<GeometryArrayRetained> collected =
+	new ReferenceQueue<GeometryArrayRetained>();
+
+    // Lookups and misses since the last getStatistics
+    private static final AtomicLong lookups = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private GlyphCache() {
+    }
+
+    static boolean isEnabled() {
+	return VirtualUniverse.mc.glyphCacheSize > 0;
+    }
+
+    /**
+     * Returns the glyph of the character for the font, or null if it is
+     * not in the cache.
+     */
+    static GeometryArrayRetained get(FontKey font, char c) {
+	lookups.incrementAndGet();
+	GlyphRef ref = glyphs.get(new GlyphKey(font, c));
+	GeometryArrayRetained geo = (ref != null) ? ref.get() : null;
+	if (geo == null) {
+	    misses.incrementAndGet();
+	}
+	return geo;
+    }
+
+    /**
+     * Adds the glyph of the character for the font.  Returns the glyph in
+     * the cache, which is another one if a thread added it first.
+     */
+    static GeometryArrayRetained put(FontKey font, char c,
+	    GeometryArrayRetained geo) {
+	removeCollected();
+
+	GlyphKey key = new GlyphKey(font, c);
+	GlyphRef ref = new GlyphRef(key, geo);
+	while (true) {
+	    GlyphRef prev = glyphs.putIfAbsent(key, ref);
+	    if (prev == null) {
+		break;
+	    }
+	    GeometryArrayRetained prevGeo = prev.get();
+	    if (prevGeo != null) {
+		return prevGeo;
+	    }
+	    // Collected but not yet removed
+	    if (glyphs.replace(key, prev, ref)) {
+		return geo;
+	    }
+	}
+
+	order.add(key);
+	int n = size.incrementAndGet();
+	while (n > VirtualUniverse.mc.glyphCacheSize) {
+	    GlyphKey oldest = order.poll();
+	    if (oldest == null) {
+		break;
+	    }
+	    if (glyphs.remove(oldest) != null) {
+		n = size.decrementAndGet();
+	    }
+	}
+	return geo;
+    }
+
+    private static void removeCollected() {
+	GlyphRef ref;
+	while ((ref = (GlyphRef)collected.poll()) != null) {
+	    if (glyphs.remove(ref.key, ref)) {
+		order.remove(ref.key);
+		size.decrementAndGet();
+	    }
+	}
+    }
+
+    /**
+     * Returns the number of glyph lookups since the last call and the
+     * percentage of those found, and the number of glyphs in the cache.
+     */
+    static String getStatistics() {
+	long l = lookups.getAndSet(0L);
+	long m = misses.getAndSet(0L);
+	StringBuffer strBuf = new StringBuffer();
+	strBuf.append("GlyphCache [").
+		append(l).
+		append("] = ").
+		append(l > 0 ? 100.0 * (l - m) / l : 0.0).
+		append(" % hits, ").
+		append(Math.max(size.get(), 0)).
+		append(" glyphs");
+	return strBuf.toString();
+    }
+
+    /**
+     * What the glyphs of a Font3D depend on: its Font, its tessellation
+     * tolerance and the points and depth of its extrusion when the key
+     * is created.
+     */
+    static final class FontKey {
+	private final Font font;
+	private final double tessellationTolerance;
+	private final float[] extrusion;
+	private final int hash;
+
+	FontKey(Font3D font3D) {
+	    font = font3D.font;
+	    tessellationTolerance = font3D.tessellationTolerance;
+	    FontExtrusion fe = font3D.fontExtrusion;
+	    if (fe == null) {
+		extrusion = null;
+	    } else if (fe.shape == null) {
+		extrusion = new float[] { fe.length };
+	    } else {
+		extrusion = new float[1 + 2 * fe.pnts.length];
+		extrusion[0] = fe.length;
+		for (int i = 0; i < fe.pnts.length; i++) {
+		    extrusion[1 + 2 * i] = fe.pnts[i].x;
+		    extrusion[2 + 2 * i] = fe.pnts[i].y;
+		}
+	    }
+	    long bits = Double.doubleToLongBits(tessellationTolerance);
+	    hash = 31 * (31 * font.hashCode() + (int)(bits ^ (bits >>> 32))) +
+		Arrays.hashCode(extrusion);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof FontKey)) {
+		return false;
+	    }
+	    FontKey key = (FontKey)obj;
+	    return (hash == key.hash) &&
+		(tessellationTolerance == key.tessellationTolerance) &&
+		font.equals(key.font) &&
+		Arrays.equals(extrusion, key.extrusion);
+	}
+
+	@Override
+	public int hashCode() {
+	    return hash;
+	}
+    }
+
+    private static final class GlyphKey {
+	final FontKey font;
+	final char c;
+
+	GlyphKey(FontKey font, char c) {
+	    this.font = font;
+	    this.c = c;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof GlyphKey)) {
+		return false;
+	    }
+	    GlyphKey key = (GlyphKey)obj;
+	    return (c == key.c) && font.equals(key.font);
+	}
+
+	@Override
+	public int hashCode() {
+	    return 31 * font.hashCode() + c;
+	}
+    }
+
+    private static final class GlyphRef extends SoftReference<GeometryArrayRetained> {
+	final GlyphKey key;
+
+	GlyphRef(GlyphKey key, GeometryArrayRetained geo) {
+	    super(geo, collected);
+	    this.key = key;
+	}
+    }
+}
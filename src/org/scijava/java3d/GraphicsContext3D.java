@@ -295,7 +295,8 @@ public class GraphicsContext3D extends Object   {
     static final int DRAWANDFLUSH2D	= 24;
     static final int SET_MODELCLIP	= 25;
     static final int DISPOSE2D		= 26;
-    static final int NCOMMANDS		= 27; // needs to be incremented
+    static final int EXECUTE		= 27;
+    static final int NCOMMANDS		= 28; // needs to be incremented
 					      // when a new command is to be
 					      // added to the list
 
@@ -368,15 +369,48 @@ public class GraphicsContext3D extends Object   {
             }
             appearance = defaultAppearance;
         } else {
-            // Check whether any ImageComponent2D referred to by
-            // the new appearance is being used as an off-screen buffer and throw
-            // IllegalSharingException if it is.
-            TextureRetained texRetained;
-            ImageComponent[] images;
-            AppearanceRetained appRetained = (AppearanceRetained)appearance.retained;
-            if(appRetained.texture != null) {
-                assert (appRetained.texUnitState == null);
-                texRetained = appRetained.texture;
+            checkAppearance(appearance);
+        }
+
+        uAppearance = appearance;
+        if ((canvas3d.view == null) ||
+	    (canvas3d.view.universe == null) ||
+	    (!canvas3d.view.active) ||
+	    (Thread.currentThread() == canvas3d.screen.renderer)) {
+            doSetAppearance(appearance);
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
+            sendRenderMessage(false, GraphicsContext3D.SET_APPEARANCE, appearance, null);
+        } else {
+            sendRenderMessage(true, GraphicsContext3D.SET_APPEARANCE, appearance, null);
+        }
+    }
+
+    // Check whether any ImageComponent2D referred to by
+    // the appearance is being used as an off-screen buffer and throw
+    // IllegalSharingException if it is.  Also used by CommandBuffer.
+    static void checkAppearance(Appearance appearance) {
+        TextureRetained texRetained;
+        ImageComponent[] images;
+        AppearanceRetained appRetained = (AppearanceRetained)appearance.retained;
+        if(appRetained.texture != null) {
+            assert (appRetained.texUnitState == null);
+            texRetained = appRetained.texture;
+            images = texRetained.getImages();
+            if(images != null) {
+                for(int i=0; i<images.length; i++) {
+                    if(images[i] != null) {
+                        ImageComponentRetained imageRetained = (ImageComponentRetained) images[i].retained;
+                        // Do illegal sharing check
+                        if(imageRetained.getUsedByOffScreen()) {
+                            throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D30"));
+                        }
+                    }
+                }
+            }
+        }
+        else if(appRetained.texUnitState != null) {
+            for(int j=0; j<appRetained.texUnitState.length; j++) {
+                texRetained = appRetained.texUnitState[j].texture;
                 images = texRetained.getImages();
                 if(images != null) {
                     for(int i=0; i<images.length; i++) {
@@ -390,36 +424,6 @@ public class GraphicsContext3D extends Object   {
                     }
                 }
             }
-            else if(appRetained.texUnitState != null) {
-                for(int j=0; j<appRetained.texUnitState.length; j++) {
-                    texRetained = appRetained.texUnitState[j].texture;
-                    images = texRetained.getImages();
-                    if(images != null) {
-                        for(int i=0; i<images.length; i++) {
-                            if(images[i] != null) {
-                                ImageComponentRetained imageRetained = (ImageComponentRetained) images[i].retained;
-                                // Do illegal sharing check
-                                if(imageRetained.getUsedByOffScreen()) {
-                                    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D30"));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        uAppearance = appearance;
-        if ((canvas3d.view == null) ||
-	    (canvas3d.view.universe == null) ||
-	    (!canvas3d.view.active) ||
-	    (Thread.currentThread() == canvas3d.screen.renderer)) {
-            doSetAppearance(appearance);
-        } else if (Thread.currentThread() ==
-		   canvas3d.view.universe.behaviorScheduler) {
-            sendRenderMessage(false, GraphicsContext3D.SET_APPEARANCE, appearance, null);
-        } else {
-            sendRenderMessage(true, GraphicsContext3D.SET_APPEARANCE, appearance, null);
         }
     }
 
@@ -660,6 +664,23 @@ public class GraphicsContext3D extends Object   {
      */
     public void setBackground(Background background) {
 
+        checkBackground(background);
+
+        uBackground = background;
+        if ((canvas3d.view == null) ||
+	    (canvas3d.view.universe == null) ||
+	    (!canvas3d.view.active) ||
+	    (Thread.currentThread() == canvas3d.screen.renderer)) {
+            doSetBackground(background);
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
+            sendRenderMessage(false, GraphicsContext3D.SET_BACKGROUND, background, null);
+        } else {
+            sendRenderMessage(true, GraphicsContext3D.SET_BACKGROUND, background, null);
+        }
+    }
+
+    // Also used by CommandBuffer
+    static void checkBackground(Background background) {
         if (background.isLive()) {
            throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D11"));
         }
@@ -675,19 +696,6 @@ public class GraphicsContext3D extends Object   {
         if (((BackgroundRetained)background.retained).geometryBranch != null) {
            throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D22"));
         }
-
-        uBackground = background;
-        if ((canvas3d.view == null) ||
-	    (canvas3d.view.universe == null) ||
-	    (!canvas3d.view.active) ||
-	    (Thread.currentThread() == canvas3d.screen.renderer)) {
-            doSetBackground(background);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
-            sendRenderMessage(false, GraphicsContext3D.SET_BACKGROUND, background, null);
-        } else {
-            sendRenderMessage(true, GraphicsContext3D.SET_BACKGROUND, background, null);
-        }
     }
 
     void doSetBackground(Background background) {
@@ -737,8 +745,7 @@ public class GraphicsContext3D extends Object   {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetFog(fog);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_FOG, fog, null);
         } else {
             sendRenderMessage(true, GraphicsContext3D.SET_FOG, fog, null);
@@ -797,8 +804,7 @@ public class GraphicsContext3D extends Object   {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetModelClip(modelClip);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_MODELCLIP,
 					modelClip, null);
         } else {
@@ -864,8 +870,7 @@ public class GraphicsContext3D extends Object   {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetLight(light, index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_LIGHT, light,
 			new Integer(index));
         } else {
@@ -907,8 +912,7 @@ public class GraphicsContext3D extends Object   {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doInsertLight(light, index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.INSERT_LIGHT, light,
 			new Integer(index));
         } else {
@@ -935,8 +939,7 @@ public class GraphicsContext3D extends Object   {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doRemoveLight(index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.REMOVE_LIGHT,
 			new Integer(index), null);
         } else {
@@ -995,8 +998,7 @@ public Enumeration<Light> getAllLights() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doAddLight(light);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.ADD_LIGHT, light, null);
         } else {
             sendRenderMessage(true, GraphicsContext3D.ADD_LIGHT, light, null);
@@ -1096,8 +1098,7 @@ public int numLights() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetHiRes(hiRes);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_HI_RES, hiRes, null);
         } else {
             sendRenderMessage(true, GraphicsContext3D.SET_HI_RES, hiRes, null);
@@ -1137,8 +1138,7 @@ public int numLights() {
 	else {
 	    Transform3D uModelTransform = new Transform3D(t);
 	    //Transform3D uModelTransform = t;
-	    if (Thread.currentThread() ==
-		canvas3d.view.universe.behaviorScheduler) {
+	    if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
 		sendRenderMessage(false, GraphicsContext3D.SET_MODEL_TRANSFORM,
 				  uModelTransform, null);
 	    } else {
@@ -1170,7 +1170,7 @@ public int numLights() {
             doMultiplyModelTransform(t);
         } else {
 	    Transform3D tt = new Transform3D(t);
-	    if (Thread.currentThread() == canvas3d.view.universe.behaviorScheduler) {
+	    if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
 		sendRenderMessage(false, GraphicsContext3D.MULTIPLY_MODEL_TRANSFORM,
 				  tt, null);
 	    } else {
@@ -1221,8 +1221,7 @@ public int numLights() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetSound(sound, index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_SOUND, sound,
 			new Integer(index));
         } else {
@@ -1271,8 +1270,7 @@ public int numLights() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doInsertSound(sound, index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.INSERT_SOUND, sound,
 			new Integer(index));
         } else {
@@ -1299,8 +1297,7 @@ public int numLights() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doRemoveSound(index);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.REMOVE_SOUND,
 				new Integer(index), null);
         } else {
@@ -1362,8 +1359,7 @@ public Enumeration<Sound> getAllSounds() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doAddSound(sound);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.ADD_SOUND, sound, null);
         } else {
             sendRenderMessage(true, GraphicsContext3D.ADD_SOUND, sound, null);
@@ -1453,8 +1449,7 @@ public int numSounds() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetAuralAttributes(attributes);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_AURAL_ATTRIBUTES,
 				attributes, null);
         } else {
@@ -1497,8 +1492,7 @@ public int numSounds() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetBufferOverride(bufferOverride);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_BUFFER_OVERRIDE,
 			new Boolean(bufferOverride), null);
         } else {
@@ -1549,8 +1543,7 @@ public int numSounds() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetFrontBufferRendering(frontBufferRendering);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_FRONT_BUFFER_RENDERING,
 				new Boolean(frontBufferRendering), null);
         } else {
@@ -1616,8 +1609,7 @@ public int numSounds() {
 	    (!canvas3d.view.active) ||
             (Thread.currentThread() == canvas3d.screen.renderer)) {
             doSetStereoMode(stereoMode);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.SET_STEREO_MODE,
 			stereoModes[stereoMode], null);
         } else {
@@ -1660,8 +1652,7 @@ public int numSounds() {
 	    return;
         } else if (Thread.currentThread() == canvas3d.screen.renderer) {
             doClear();
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
             sendRenderMessage(false, GraphicsContext3D.CLEAR, null, null);
         } else {
             sendRenderMessage(true, GraphicsContext3D.CLEAR, null, null);
@@ -2053,7 +2044,7 @@ public int numSounds() {
 			// Change the source geometry dirtyFlag
 			// drawGeo.execute() will change the
 			// destination geometry dirtyFlag only.
-			geoRetained.dirtyFlag = 0;
+			geoRetained.clearDirtyFlag();
 		    }
 		    drawGeo = (GeometryRetained)geoRetained.mirrorGeometry;
 	        } else {
@@ -2108,18 +2099,7 @@ public int numSounds() {
      * Canvas3D as an off-screen buffer.
      */
     public void draw(Geometry geometry) {
-        // do illegalSharing check
-        if((geometry != null) && (geometry instanceof Raster)) {
-            RasterRetained rasRetained = (RasterRetained) geometry.retained;
-            ImageComponent2D image = rasRetained.getImage();
-            if(image != null) {
-                ImageComponentRetained imageRetained = (ImageComponentRetained) image.retained;
-                // Do illegal sharing check
-                if(imageRetained.getUsedByOffScreen()) {
-                    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D32"));
-                }
-            }
-        }
+        checkGeometry(geometry);
 
         if ((canvas3d.view == null) || (canvas3d.view.universe == null) ||
 		(!canvas3d.view.active)) {
@@ -2127,8 +2107,7 @@ public int numSounds() {
         } else if (Thread.currentThread() == canvas3d.screen.renderer) {
             doDraw(geometry);
         } else {
-	    if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+	    if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
                 sendRenderMessage(false, GraphicsContext3D.DRAW,
 						geometry, null);
             } else {
@@ -2138,6 +2117,22 @@ public int numSounds() {
 	}
     }
 
+    // Also used by CommandBuffer
+    static void checkGeometry(Geometry geometry) {
+        // do illegalSharing check
+        if((geometry != null) && (geometry instanceof Raster)) {
+            RasterRetained rasRetained = (RasterRetained) geometry.retained;
+            ImageComponent2D image = rasRetained.getImage();
+            if(image != null) {
+                ImageComponentRetained imageRetained = (ImageComponentRetained) image.retained;
+                // Do illegal sharing check
+                if(imageRetained.getUsedByOffScreen()) {
+                    throw new IllegalSharingException(J3dI18N.getString("GraphicsContext3D32"));
+                }
+            }
+        }
+    }
+
     /**
      * Draw the specified Shape3D leaf node object.  This is
      * a convenience method that is identical to calling the
@@ -2164,6 +2159,106 @@ public int numSounds() {
 	draw(shape.getGeometry());
     }
 
+    /**
+     * Executes the operations recorded in the specified CommandBuffer, in
+     * order, as if the corresponding methods of this graphics context
+     * were called.  Outside of the renderer thread, the operations are
+     * sent to the renderer in a single message, rather than one message
+     * per operation.  The CommandBuffer may be recorded again or reset
+     * as soon as this method returns, and may be executed again, for
+     * instance every frame, without being recorded again.
+     *
+     * @param commands the CommandBuffer to execute
+     *
+     * @see CommandBuffer
+     *
+     * @since Java 3D 1.6
+     */
+    public void execute(CommandBuffer commands) {
+	if (commands.size == 0) {
+	    return;
+	}
+
+	// Update the state returned by the get methods, as the set
+	// methods do
+	for (int i = 0; i < commands.size; i++) {
+	    switch (commands.commands[i]) {
+	    case SET_APPEARANCE:
+		Appearance app = (Appearance)commands.args[i];
+		if (app == null) {
+		    if (defaultAppearance == null) {
+			defaultAppearance = new Appearance();
+		    }
+		    app = defaultAppearance;
+		}
+		uAppearance = app;
+		break;
+	    case SET_BACKGROUND:
+		uBackground = (Background)commands.args[i];
+		break;
+	    case SET_FOG:
+		uFog = (Fog)commands.args[i];
+		break;
+	    case SET_MODELCLIP:
+		uModelClip = (ModelClip)commands.args[i];
+		break;
+	    }
+	}
+
+        if ((canvas3d.view == null) ||
+	    (canvas3d.view.universe == null) ||
+	    (!canvas3d.view.active)) {
+	    // Only set the state, as clear and draw do nothing
+	    doExecute(commands, false);
+        } else if (Thread.currentThread() == canvas3d.screen.renderer) {
+            doExecute(commands, true);
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
+            sendRenderMessage(false, GraphicsContext3D.EXECUTE,
+				commands.copy(), null);
+        } else {
+            sendRenderMessage(true, GraphicsContext3D.EXECUTE,
+				commands.copy(), null);
+        }
+    }
+
+    void doExecute(CommandBuffer commands, boolean render) {
+	int[] cmds = commands.commands;
+	Object[] args = commands.args;
+	for (int i = 0; i < commands.size; i++) {
+	    switch (cmds[i]) {
+	    case SET_APPEARANCE:
+		Appearance app = (Appearance)args[i];
+		doSetAppearance((app != null) ? app : defaultAppearance);
+		break;
+	    case SET_BACKGROUND:
+		doSetBackground((Background)args[i]);
+		break;
+	    case SET_FOG:
+		doSetFog((Fog)args[i]);
+		break;
+	    case SET_MODELCLIP:
+		doSetModelClip((ModelClip)args[i]);
+		break;
+	    case SET_MODEL_TRANSFORM:
+		doSetModelTransform((Transform3D)args[i]);
+		break;
+	    case MULTIPLY_MODEL_TRANSFORM:
+		doMultiplyModelTransform((Transform3D)args[i]);
+		break;
+	    case CLEAR:
+		if (render) {
+		    doClear();
+		}
+		break;
+	    case DRAW:
+		if (render) {
+		    doDraw((Geometry)args[i]);
+		}
+		break;
+	    }
+	}
+    }
+
     /**
      * Read an image from the frame buffer and copy it into the
      * ImageComponent and/or DepthComponent
@@ -2229,8 +2324,7 @@ public int numSounds() {
             return;
         } else if (Thread.currentThread() == canvas3d.screen.renderer) {
             doReadRaster(raster);
-        } else if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+        } else if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
 	    readRasterReady = false;
             sendRenderMessage(false, GraphicsContext3D.READ_RASTER, raster, null);
 	    while (!readRasterReady) {
@@ -2394,8 +2488,7 @@ public int numSounds() {
         } else  {
 	    Boolean waitArg = (wait ? Boolean.TRUE : Boolean.FALSE);
 
-	    if (Thread.currentThread() ==
-                        canvas3d.view.universe.behaviorScheduler) {
+	    if (BehaviorScheduler.inBehaviorThread(canvas3d.view.universe)) {
                 sendRenderMessage(false, GraphicsContext3D.FLUSH, waitArg,
 					null);
 	    } else {
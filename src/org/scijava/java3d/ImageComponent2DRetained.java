@@ -99,6 +99,8 @@ class ImageComponent2DRetained extends ImageComponentRetained {
             // notify all the users of the change
             sendMessage(IMAGE_CHANGED, null);
         }
+
+        updateMipMapUsers(null);
     }
 
      /**
@@ -176,6 +178,8 @@ class ImageComponent2DRetained extends ImageComponentRetained {
             // notify all the users of the change
             sendMessage(IMAGE_CHANGED, null);
         }
+
+        updateMipMapUsers(null);
     }
 
     void setSubImage(RenderedImage image, int width, int height,
@@ -214,22 +218,24 @@ class ImageComponent2DRetained extends ImageComponentRetained {
         }
         geomLock.unLock();
 
+        ImageComponentUpdateInfo info;
+
+        info =  new ImageComponentUpdateInfo();
+        info.x = dstX;
+        info.y = dstY;
+        info.z = 0;
+        info.width = width;
+        info.height = height;
+
         if (source.isLive()) {
 
             // send a SUBIMAGE_CHANGED message in order to
             // notify all the users of the change
 
-            ImageComponentUpdateInfo info;
-
-            info =  new ImageComponentUpdateInfo();
-            info.x = dstX;
-            info.y = dstY;
-	    info.z = 0;
-            info.width = width;
-            info.height = height;
-
             sendMessage(SUBIMAGE_CHANGED, info);
         }
+
+        updateMipMapUsers(info);
     }
 
     /**
@@ -310,23 +316,24 @@ class ImageComponent2DRetained extends ImageComponentRetained {
         }
 	geomLock.unLock();
 
+	ImageComponentUpdateInfo info;
+
+	info =  new ImageComponentUpdateInfo();
+	info.x = x;
+	info.y = y;
+	info.z = 0;
+	info.width = width;
+	info.height = height;
 
 	if (source.isLive()) {
 
             // send a SUBIMAGE_CHANGED message in order to
 	    // notify all the users of the change
 
-	    ImageComponentUpdateInfo info;
-
-	    info =  new ImageComponentUpdateInfo();
-	    info.x = x;
-	    info.y = y;
-	    info.z = 0;
-	    info.width = width;
-	    info.height = height;
-
             sendMessage(SUBIMAGE_CHANGED, info);
 	}
+
+	updateMipMapUsers(info);
     }
 
     @Override
@@ -98,6 +98,14 @@ class ImageComponent3DRetained extends ImageComponentRetained {
             // notify all the users of the change
             sendMessage(IMAGE_CHANGED, null);
         }
+
+        ImageComponentUpdateInfo info = new ImageComponentUpdateInfo();
+        info.x = 0;
+        info.y = 0;
+        info.z = index;
+        info.width = width;
+        info.height = height;
+        updateMipMapUsers(info);
     }
 
     /**
@@ -306,22 +314,24 @@ class ImageComponent3DRetained extends ImageComponentRetained {
         geomLock.unLock();
 
 
+        ImageComponentUpdateInfo info;
+
+        info = new ImageComponentUpdateInfo();
+        info.x = x;
+        info.y = y;
+        info.z = index;
+        info.width = width;
+        info.height = height;
+
         if (source.isLive()) {
 
             // send a SUBIMAGE_CHANGED message in order to
             // notify all the users of the change
 
-            ImageComponentUpdateInfo info;
-
-            info = new ImageComponentUpdateInfo();
-            info.x = x;
-            info.y = y;
-	    info.z = index;
-            info.width = width;
-            info.height = height;
-
             sendMessage(SUBIMAGE_CHANGED, info);
         }
+
+        updateMipMapUsers(info);
     }
 
     void setSubImage(int index, RenderedImage image, int width, int height,
@@ -362,21 +372,23 @@ class ImageComponent3DRetained extends ImageComponentRetained {
         geomLock.unLock();
 
 
+        ImageComponentUpdateInfo info;
+
+        info = new ImageComponentUpdateInfo();
+        info.x = dstX;
+        info.y = dstY;
+        info.z = index;
+        info.width = width;
+        info.height = height;
+
         if (source.isLive()) {
 
             // send a SUBIMAGE_CHANGED message in order to
             // notify all the users of the change
 
-            ImageComponentUpdateInfo info;
-
-            info = new ImageComponentUpdateInfo();
-            info.x = dstX;
-            info.y = dstY;
-	    info.z = index;
-            info.width = width;
-            info.height = height;
-
             sendMessage(SUBIMAGE_CHANGED, info);
         }
+
+        updateMipMapUsers(info);
     }
 }
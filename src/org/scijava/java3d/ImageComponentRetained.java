@@ -38,11 +38,15 @@ import java.awt.image.DataBufferInt;
 import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 
 
@@ -151,6 +155,10 @@ abstract class ImageComponentRetained extends NodeComponentRetained {
 // of any changes of this ImageComponent.
 private ArrayList<NodeComponentRetained> userList = new ArrayList<NodeComponentRetained>();
 
+    // Textures that generate their mipmap levels from this image, when it
+    // is their base level
+    private ArrayList<TextureRetained> mipMapUsers = null;
+
     /**
      * Retrieves the width of this image component object.
      * @return the width of this image component object
@@ -1291,12 +1299,20 @@ private ArrayList<NodeComponentRetained> userList = new ArrayList<NodeComponentR
             dstBytesPerRow = - 1 * dstBytesPerRow;
         }
 
+        byte[] dstBuffer = data.getAsByteArray();
+
+        if (copyStandardImageToImageData(bi, srcX, srcY, dstBegin, dstBytesPerRow,
+                copyWidth, copyHeight, dstBuffer)) {
+            if((imageData == data) && (imageDataPowerOfTwo != null)) {
+                updateImageDataPowerOfTwo(depthIndex);
+            }
+            return;
+        }
+
         WritableRaster ras = bi.getRaster();
         ColorModel cm = bi.getColorModel();
         Object pixel = getDataElementBuffer(ras);
 
-        byte[] dstBuffer = data.getAsByteArray();
-
         switch(numberOfComponents) {
             case 4: {
                 for (row = rowBegin, h = 0;
@@ -1364,6 +1380,266 @@ private ArrayList<NodeComponentRetained> userList = new ArrayList<NodeComponentR
         }
     }
 
+    // Copies a region of a BufferedImage of type INT_RGB, INT_ARGB, INT_BGR,
+    // 3BYTE_BGR or 4BYTE_ABGR to the byte components of the ImageData a row
+    // at a time, reading the pixels straight from the data buffer instead
+    // of going through the ColorModel for each of them.  Large regions are
+    // split into bands of rows copied concurrently.  Returns false, without
+    // copying anything, for the other images.
+    private boolean copyStandardImageToImageData(BufferedImage bi, int srcX, int srcY,
+            int dstBegin, int dstBytesPerRow, int copyWidth, int copyHeight,
+            byte[] dstBuffer) {
+
+        WritableRaster ras = bi.getRaster();
+        DataBuffer db = ras.getDataBuffer();
+        SampleModel sm = ras.getSampleModel();
+        int x = srcX - ras.getSampleModelTranslateX();
+        int y = srcY - ras.getSampleModelTranslateY();
+        RowCopyTask task;
+
+        switch (bi.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_BGR: {
+                if (!(sm instanceof SinglePixelPackedSampleModel) ||
+                        !(db instanceof DataBufferInt) ||
+                        (db.getNumBanks() != 1)) {
+                    return false;
+                }
+                SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel)sm;
+                int[] bitOffsets = sppsm.getBitOffsets();
+                task = new RowCopyTask(((DataBufferInt)db).getData(), null,
+                        db.getOffset() + sppsm.getOffset(x, y),
+                        sppsm.getScanlineStride(), 1,
+                        bitOffsets[0], bitOffsets[1], bitOffsets[2],
+                        (bitOffsets.length > 3) ? bitOffsets[3] : -1,
+                        numberOfComponents, dstBuffer, dstBegin, dstBytesPerRow,
+                        copyWidth, 0, copyHeight);
+            }
+            break;
+
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                if (!(sm instanceof PixelInterleavedSampleModel) ||
+                        !(db instanceof DataBufferByte) ||
+                        (db.getNumBanks() != 1)) {
+                    return false;
+                }
+                PixelInterleavedSampleModel pism = (PixelInterleavedSampleModel)sm;
+                int begin = db.getOffset() + y * pism.getScanlineStride() +
+                        x * pism.getPixelStride();
+                int[] bandOffsets = pism.getBandOffsets();
+                task = new RowCopyTask(null, ((DataBufferByte)db).getData(),
+                        begin, pism.getScanlineStride(), pism.getPixelStride(),
+                        bandOffsets[0], bandOffsets[1], bandOffsets[2],
+                        (bandOffsets.length > 3) ? bandOffsets[3] : -1,
+                        numberOfComponents, dstBuffer, dstBegin, dstBytesPerRow,
+                        copyWidth, 0, copyHeight);
+            }
+            break;
+
+            default:
+                return false;
+        }
+
+        if (VirtualUniverse.mc.parallelImageCopy &&
+                (VirtualUniverse.mc.imageThreads > 1) &&
+                ((long)copyWidth * copyHeight >= 2 * IMAGE_SIZE_512X512)) {
+            getWorkerPool().invoke(task);
+        } else {
+            task.copyRows(0, copyHeight);
+        }
+        return true;
+    }
+
+    private static ForkJoinPool workerPool = null;
+
+    // Also used by MipMapGenerator and Font3D.prepareGlyphs
+    static synchronized ForkJoinPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new ForkJoinPool(VirtualUniverse.mc.imageThreads,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        return new ImageWorker(pool);
+                    }
+                }, null, false);
+        }
+        return workerPool;
+    }
+
+    /**
+     * Worker thread that copies the rows of large images, filters their
+     * mipmap levels, or triangulates glyphs.
+     */
+    private static class ImageWorker extends ForkJoinWorkerThread {
+        ImageWorker(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            // The pool index is only assigned once the worker is registered
+            setName("J3D-ImageWorker-" + getPoolIndex());
+        }
+    }
+
+    /**
+     * Copies a range of rows of an int packed or byte interleaved raster
+     * to byte components, R, G, B, A for 4 components, R, G, B for 3, R, A
+     * for 2 and R for 1.  The red, green, blue and alpha values are the
+     * bit offsets of the samples in the int pixels, or the offsets of the
+     * samples in the byte pixels; a negative alpha means an opaque image.
+     * Splits itself in halves until it has no more than 512x512 pixels.
+     */
+    private static class RowCopyTask extends RecursiveAction {
+        private final int[] srcInts;
+        private final byte[] srcBytes;
+        private final int srcBegin, srcRowStride, srcPixelStride;
+        private final int red, green, blue, alpha;
+        private final int numComponents;
+        private final byte[] dst;
+        private final int dstBegin, dstRowStride;
+        private final int width, rowStart, rowEnd;
+
+        RowCopyTask(int[] srcInts, byte[] srcBytes, int srcBegin,
+                int srcRowStride, int srcPixelStride,
+                int red, int green, int blue, int alpha, int numComponents,
+                byte[] dst, int dstBegin, int dstRowStride,
+                int width, int rowStart, int rowEnd) {
+            this.srcInts = srcInts;
+            this.srcBytes = srcBytes;
+            this.srcBegin = srcBegin;
+            this.srcRowStride = srcRowStride;
+            this.srcPixelStride = srcPixelStride;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            this.alpha = alpha;
+            this.numComponents = numComponents;
+            this.dst = dst;
+            this.dstBegin = dstBegin;
+            this.dstRowStride = dstRowStride;
+            this.width = width;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        private RowCopyTask subTask(int start, int end) {
+            return new RowCopyTask(srcInts, srcBytes, srcBegin, srcRowStride,
+                    srcPixelStride, red, green, blue, alpha, numComponents,
+                    dst, dstBegin, dstRowStride, width, start, end);
+        }
+
+        @Override
+        protected void compute() {
+            int rows = rowEnd - rowStart;
+            if ((rows < 2) || ((long)rows * width <= IMAGE_SIZE_512X512)) {
+                copyRows(rowStart, rowEnd);
+                return;
+            }
+            int mid = rowStart + rows / 2;
+            invokeAll(subTask(rowStart, mid), subTask(mid, rowEnd));
+        }
+
+        void copyRows(int start, int end) {
+            for (int row = start; row < end; row++) {
+                if (srcInts != null) {
+                    copyIntRow(srcBegin + row * srcRowStride,
+                            dstBegin + row * dstRowStride);
+                } else {
+                    copyByteRow(srcBegin + row * srcRowStride,
+                            dstBegin + row * dstRowStride);
+                }
+            }
+        }
+
+        private void copyIntRow(int i, int j) {
+            final int[] src = srcInts;
+            final int end = i + width;
+            switch (numComponents) {
+                case 4:
+                    if (alpha < 0) {
+                        for (; i < end; i++) {
+                            int p = src[i];
+                            dst[j++] = (byte)(p >> red);
+                            dst[j++] = (byte)(p >> green);
+                            dst[j++] = (byte)(p >> blue);
+                            dst[j++] = (byte)0xff;
+                        }
+                    } else {
+                        for (; i < end; i++) {
+                            int p = src[i];
+                            dst[j++] = (byte)(p >> red);
+                            dst[j++] = (byte)(p >> green);
+                            dst[j++] = (byte)(p >> blue);
+                            dst[j++] = (byte)(p >>> alpha);
+                        }
+                    }
+                    break;
+                case 3:
+                    for (; i < end; i++) {
+                        int p = src[i];
+                        dst[j++] = (byte)(p >> red);
+                        dst[j++] = (byte)(p >> green);
+                        dst[j++] = (byte)(p >> blue);
+                    }
+                    break;
+                case 2:
+                    for (; i < end; i++) {
+                        int p = src[i];
+                        dst[j++] = (byte)(p >> red);
+                        dst[j++] = (alpha < 0) ? (byte)0xff : (byte)(p >>> alpha);
+                    }
+                    break;
+                case 1:
+                    for (; i < end; i++) {
+                        dst[j++] = (byte)(src[i] >> red);
+                    }
+                    break;
+                default:
+                    assert false;
+            }
+        }
+
+        private void copyByteRow(int i, int j) {
+            final byte[] src = srcBytes;
+            final int stride = srcPixelStride;
+            final int end = i + width * stride;
+            switch (numComponents) {
+                case 4:
+                    for (; i < end; i += stride) {
+                        dst[j++] = src[i + red];
+                        dst[j++] = src[i + green];
+                        dst[j++] = src[i + blue];
+                        dst[j++] = (alpha < 0) ? (byte)0xff : src[i + alpha];
+                    }
+                    break;
+                case 3:
+                    for (; i < end; i += stride) {
+                        dst[j++] = src[i + red];
+                        dst[j++] = src[i + green];
+                        dst[j++] = src[i + blue];
+                    }
+                    break;
+                case 2:
+                    for (; i < end; i += stride) {
+                        dst[j++] = src[i + red];
+                        dst[j++] = (alpha < 0) ? (byte)0xff : src[i + alpha];
+                    }
+                    break;
+                case 1:
+                    for (; i < end; i += stride) {
+                        dst[j++] = src[i + red];
+                    }
+                    break;
+                default:
+                    assert false;
+            }
+        }
+    }
+
     void copyUnsupportedImageToImageData(RenderedImage ri, int srcX, int srcY,
             int dstX, int dstY, int depthIndex, int copyWidth, int copyHeight, ImageData data) {
 
@@ -2142,6 +2418,69 @@ private ArrayList<NodeComponentRetained> userList = new ArrayList<NodeComponentR
         }
     }
 
+    synchronized void addMipMapUser(TextureRetained texture) {
+        if (mipMapUsers == null) {
+            mipMapUsers = new ArrayList<TextureRetained>();
+        }
+        if (!mipMapUsers.contains(texture)) {
+            mipMapUsers.add(texture);
+        }
+    }
+
+    synchronized void removeMipMapUser(TextureRetained texture) {
+        if (mipMapUsers != null) {
+            mipMapUsers.remove(texture);
+        }
+    }
+
+    /**
+     * Regenerates the mipmap levels of the textures that generate them
+     * from this image, over the region of the image described by info or
+     * over the whole image if info is null.  Called once the image data
+     * is updated, live or not.
+     */
+    void updateMipMapUsers(ImageComponentUpdateInfo info) {
+        TextureRetained[] users;
+        synchronized (this) {
+            if ((mipMapUsers == null) || mipMapUsers.isEmpty()) {
+                return;
+            }
+            users = mipMapUsers.toArray(new TextureRetained[mipMapUsers.size()]);
+        }
+        for (int i = 0; i < users.length; i++) {
+            users[i].updateMipMaps(this, info);
+        }
+    }
+
+    /**
+     * Sets up this by-copy image to hold a mipmap level generated from
+     * the image data of base, in the same internal format.
+     */
+    void initMipMapLevel(ImageComponentRetained base) {
+        geomLock.getLock();
+        imageClass = ImageComponent.ImageClass.BUFFERED_IMAGE;
+        imageType = base.imageType;
+        imageTypeIsSupported = true;
+        abgrSupported = base.abgrSupported;
+        imageFormatType = base.imageFormatType;
+        unitsPerPixel = base.unitsPerPixel;
+        imageData = createRenderedImageDataObject(null);
+        geomLock.unLock();
+    }
+
+    /**
+     * Returns true if this mipmap level has the size and the internal
+     * format to be generated from the image data of base.
+     */
+    boolean isMipMapLevelOf(ImageComponentRetained base,
+            int width, int height, int depth) {
+        return (imageData != null) &&
+            (this.width == width) && (this.height == height) &&
+            (this.depth == depth) &&
+            (imageFormatType == base.imageFormatType) &&
+            (unitsPerPixel == base.unitsPerPixel);
+    }
+
     /*
      *
      * @exception IllegalSharingException if this image is
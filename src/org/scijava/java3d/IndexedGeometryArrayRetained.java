@@ -1154,6 +1154,42 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
     }
 
 
+    @Override
+    boolean executeVertexBuffer(Canvas3D cv, boolean isNonUniformScale,
+				boolean updateAlpha, boolean ignoreVertexColors) {
+	if (mirrorGeometry != null) {
+	    return ((GeometryArrayRetained)mirrorGeometry).executeVertexBuffer(cv,
+			isNonUniformScale, updateAlpha, ignoreVertexColors);
+	}
+
+	if (!isVertexBufferRenderable(cv, updateAlpha, ignoreVertexColors)) {
+	    return false;
+	}
+
+        // Check if index array is null; if yes, don't draw anything
+        if (indexCoord == null) {
+            return true;
+        }
+
+	// Vertex Count is maxCoordIndex + 1
+	updateVertexBuffer(cv, 0, maxCoordIndex + 1);
+
+	Pipeline.getPipeline().executeIndexedVertexBuffer(cv.ctx,
+		this, geoType, isNonUniformScale,
+		ignoreVertexColors,
+		initialIndexIndex,
+		validIndexCount,
+		maxCoordIndex + 1,
+		((vertexFormat & GeometryArray.COLOR) != 0)?(vertexFormat|GeometryArray.COLOR_4):vertexFormat,
+		vertexAttrCount, vertexAttrSizes,
+		texCoordSetCount, texCoordSetMap,
+		(texCoordSetMap == null) ? 0 : texCoordSetMap.length,
+		texCoordSetMapOffset,
+		cv.numActiveTexUnit,
+		vboId, indexCoord);
+	return true;
+    }
+
     @Override
     void execute(Canvas3D cv, RenderAtom ra, boolean isNonUniformScale,
 		 boolean updateAlpha, float alpha,
@@ -1203,7 +1239,7 @@ abstract class IndexedGeometryArrayRetained extends GeometryArrayRetained {
 		    // geomLock is get in MasterControl when
 		    // RenderBin render the geometry. So it is safe
 		    // just to set the dirty flag here
-		    dirtyFlag = 0;
+		    clearDirtyFlag();
                 }
 
                 Pipeline.getPipeline().executeIndexedGeometry(cv.ctx,
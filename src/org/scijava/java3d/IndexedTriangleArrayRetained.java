@@ -40,9 +40,28 @@ class IndexedTriangleArrayRetained extends IndexedGeometryArrayRetained {
 	this.geoType = GEO_TYPE_INDEXED_TRI_SET;
     }
 
+    @Override
+    int getPickTriangleCount() {
+	return validIndexCount / 3;
+    }
+
+    @Override
+    int[] getPickTriangleIndices() {
+	int[] indices = new int[getPickTriangleCount() * 3];
+	System.arraycopy(indexCoord, initialIndexIndex, indices, 0,
+			 indices.length);
+	return indices;
+    }
+
     @Override
     boolean intersect(PickShape pickShape, PickInfo pickInfo, int flags, Point3d iPnt,
                       GeometryRetained geom, int geomIndex) {
+	TrianglePickTree tree = getTrianglePickTree(pickShape);
+	if (tree != null) {
+	    return intersectPickTree(tree, pickShape, pickInfo, flags, iPnt,
+				     geom, geomIndex);
+	}
+
         Point3d pnts[] = new Point3d[3];
         double sdist[] = new double[1];
         double minDist = Double.MAX_VALUE;
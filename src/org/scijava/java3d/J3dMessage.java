@@ -104,6 +104,7 @@ class J3dMessage extends Object {
     static final int SHADER_APPEARANCE_CHANGED 	    = 65;
     static final int ALLOCATE_CANVASID              = 66;
     static final int FREE_CANVASID                  = 67;
+    static final int FLUSH_OFFSCREEN_FRAMES         = 68;
 
     /**
      * This is the time snapshot at which this change occured
@@ -144,6 +145,12 @@ class J3dMessage extends Object {
 
     Object[] args = new Object[MAX_ARGS];
 
+    /**
+     * The MessagePool stripe this message was taken from, -1 if it
+     * was not taken from the pool
+     */
+    int poolStripe = -1;
+
     /**
      * This constructor does nothing
      */
@@ -162,6 +169,16 @@ class J3dMessage extends Object {
 	args[5] = null;
     }
 
+    /**
+     * Resets the fields of a message taken from the MessagePool, whose
+     * args were cleared when it was freed.
+     */
+    final synchronized void reset() {
+	time = -1;
+	threads = 0;
+	type = -1;
+    }
+
     /**
      * This increments the reference count for this message
      */
@@ -171,11 +188,13 @@ class J3dMessage extends Object {
 
     /**
      * This decrements the reference count for this message.  If it goes
-     * to 0, the message is put on the MasterControl freelist.
+     * to 0, the message is put back to the MessagePool if it was taken
+     * from it.
      */
     final synchronized void decRefcount() {
 	if (--refcount == 0) {
 	    clear();
+	    MessagePool.freeMessage(this);
         }
     }
 
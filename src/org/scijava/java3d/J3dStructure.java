@@ -36,7 +36,7 @@ abstract class J3dStructure extends Object {
     /**
      * This is the list of messages to be processed by this structure
      */
-    UnorderList messageList = new UnorderList(5, J3dMessage.class);
+    final MessageQueue messageQueue = new MessageQueue();
 
     /**
      * This is the update Thread for this structure
@@ -63,6 +63,14 @@ abstract class J3dStructure extends Object {
      * number of messages for this snapshot of time
      */
     int nMessage = 0;
+
+    /**
+     * Total time in nanoseconds spent in processMessages and total
+     * number of messages processed, kept for the frame metrics of the
+     * views while MasterControl.collectFrameMetrics is set
+     */
+    long processTime = 0L;
+    long processedMessages = 0L;
     J3dMessage[] msgList = new J3dMessage[5];
 
     /**
@@ -93,7 +101,7 @@ abstract class J3dStructure extends Object {
 	    message.time = -1;
 	}
 	message.incRefcount();
-	messageList.add(message);
+	messageQueue.add(message);
     }
 
 
@@ -101,23 +109,16 @@ abstract class J3dStructure extends Object {
      * This returns whether or not there are any pending messages
      */
     final J3dMessage[] getMessages(long referenceTime) {
-	int sz, n = 0;
-
-	synchronized (messageList) {
-	    if ((sz = messageList.size()) > 0) {
-		J3dMessage mess[] = (J3dMessage []) messageList.toArray(false);
-		for (n = 0; n < sz; n++) {
-		    if (mess[n].time > referenceTime) {
-			break;
-		    }
-		}
-		if (n > 0) {
-		    if (msgList.length < n) {
-			msgList = new J3dMessage[n];
-		    }
-		    messageList.shift(msgList, n);
-		}
+	int n = 0;
+	J3dMessage m;
+
+	while ((m = messageQueue.poll(referenceTime)) != null) {
+	    if (n == msgList.length) {
+		J3dMessage[] newList = new J3dMessage[2 * n];
+		System.arraycopy(msgList, 0, newList, 0, n);
+		msgList = newList;
 	    }
+	    msgList[n++] = m;
 	}
 
 	nMessage = n;
@@ -125,19 +126,12 @@ abstract class J3dStructure extends Object {
     }
 
     final void clearMessages() {
-	synchronized (messageList) {
-            int nmessage = messageList.size();
-	    if (nmessage > 0) {
-		J3dMessage mess[] = (J3dMessage []) messageList.toArray(false);
-		for (int i = nmessage-1; i >=0; i--) {
-		    mess[i].decRefcount();
-		}
-		messageList.clear();
-	    }
-	    nMessage = 0;
-	    msgList = new J3dMessage[5];
+	J3dMessage m;
+	while ((m = messageQueue.poll(Long.MAX_VALUE)) != null) {
+	    m.decRefcount();
 	}
-
+	nMessage = 0;
+	msgList = new J3dMessage[5];
     }
 
     int  getNumMessage() {
@@ -51,6 +51,11 @@ class JoglContext implements Context {
   // Only used when GLSL shader library is active
   private int        glslVertexAttrOffset;
 
+  // Pixel buffer objects of the off-screen readback slots, and their
+  // sizes in bytes
+  private int[]  readbackBuffers = new int[0];
+  private long[] readbackSizes = new long[0];
+
   JoglContext(GLContext context) {
     this.context = context;
   }
@@ -75,6 +80,11 @@ void vertexAttrPointer(GL gl, int index, int size, int type, int stride, Buffer
 	                                     type, false, stride, pointer);
 }
 
+void vertexAttrPointer(GL gl, int index, int size, int type, int stride, long pointerOffset) {
+	gl.getGL2().glVertexAttribPointerARB(index + glslVertexAttrOffset, size,
+	                                     type, false, stride, pointerOffset);
+}
+
 void enableVertexAttrArray(GL gl, int index) {
 	gl.getGL2().glEnableVertexAttribArrayARB(index + glslVertexAttrOffset);
 }
@@ -106,4 +116,12 @@ void vertexAttr4fv(GL gl, int index, FloatBuffer buf) {
   // Only used when GLSL shaders are in use
   int  getGLSLVertexAttrOffset()           { return glslVertexAttrOffset;   }
   void setGLSLVertexAttrOffset(int offset) { glslVertexAttrOffset = offset; }
+
+  // Used for the asynchronous read back of off-screen buffers
+  int[]  getReadbackBuffers() { return readbackBuffers; }
+  long[] getReadbackSizes()   { return readbackSizes;   }
+  void   setReadbackBuffers(int[] buffers, long[] sizes) {
+    readbackBuffers = buffers;
+    readbackSizes = sizes;
+  }
 }
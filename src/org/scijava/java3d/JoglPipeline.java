@@ -40,6 +40,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -163,6 +164,85 @@ class JoglPipeline extends Pipeline {
                 varray, null, carray, cDirty);
     }
 
+    // used for GeometryArrays by Copy whose vertex data is in the vertex
+    // buffer object "id"
+    @Override
+    void executeVertexBuffer(Context absCtx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetMapOffset,
+            int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int id) {
+        if (VERBOSE) System.err.println("JoglPipeline.executeVertexBuffer()");
+        JoglContext ctx = (JoglContext) absCtx;
+        GL2 gl = context(ctx).getGL().getGL2();
+
+        // Enable normalize for non-uniform scale (which rescale can't handle)
+        if (isNonUniformScale) {
+            gl.glEnable(GL2.GL_NORMALIZE);
+        }
+
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, id);
+        setVertexBufferPointers(ctx, gl, vformat, ignoreVertexColors, startVIndex,
+                texCoordSetCount, texCoordSetMapLen, texCoordSetMapOffset,
+                numActiveTexUnitState, vertexAttrCount, vertexAttrSizes);
+        // The client arrays of the other render paths need the buffer unbound
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+        if (geo_type == GeometryRetained.GEO_TYPE_TRI_STRIP_SET ||
+                geo_type == GeometryRetained.GEO_TYPE_TRI_FAN_SET   ||
+                geo_type == GeometryRetained.GEO_TYPE_LINE_STRIP_SET) {
+            int[] sarray = ((GeometryStripArrayRetained) geo).stripVertexCounts;
+            int[] start_array = ((GeometryStripArrayRetained) geo).stripStartOffsetIndices;
+            int primType = 0;
+
+            switch (geo_type) {
+                case GeometryRetained.GEO_TYPE_TRI_STRIP_SET:
+                    primType = GL.GL_TRIANGLE_STRIP;
+                    break;
+                case GeometryRetained.GEO_TYPE_TRI_FAN_SET:
+                    primType = GL.GL_TRIANGLE_FAN;
+                    break;
+                case GeometryRetained.GEO_TYPE_LINE_STRIP_SET:
+                    primType = GL.GL_LINE_STRIP;
+                    break;
+            }
+
+            if (gl.isExtensionAvailable("GL_EXT_multi_draw_arrays")) {
+                gl.glMultiDrawArrays(primType, start_array, 0, sarray, 0, sarray.length);
+            } else {
+                for (int i = 0; i < sarray.length; i++) {
+                    gl.glDrawArrays(primType, start_array[i], sarray[i]);
+                }
+            }
+        } else {
+            switch (geo_type){
+                case GeometryRetained.GEO_TYPE_QUAD_SET : gl.glDrawArrays(GL2.GL_QUADS,     0, vcount); break;
+                case GeometryRetained.GEO_TYPE_TRI_SET  : gl.glDrawArrays(GL.GL_TRIANGLES, 0, vcount); break;
+                case GeometryRetained.GEO_TYPE_POINT_SET: gl.glDrawArrays(GL.GL_POINTS,    0, vcount); break;
+                case GeometryRetained.GEO_TYPE_LINE_SET : gl.glDrawArrays(GL.GL_LINES,     0, vcount); break;
+            }
+        }
+
+        /* clean up if we turned on normalize */
+        if (isNonUniformScale) {
+            gl.glDisable(GL2.GL_NORMALIZE);
+        }
+
+        if ((vformat & GeometryArray.VERTEX_ATTRIBUTES) != 0) {
+            resetVertexAttrs(gl, ctx, vertexAttrCount);
+        }
+
+        if ((vformat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+            resetTexture(gl, ctx);
+        }
+    }
+
     // used by GeometryArray by Reference with java arrays
     @Override
     void executeVA(Context ctx,
@@ -1155,6 +1235,84 @@ class JoglPipeline extends Pipeline {
         clientActiveTextureUnit(gl, 0);
     }
 
+    // Sets the array pointers for by-copy vertex data stored in the
+    // vertex buffer object bound to GL_ARRAY_BUFFER, starting at vertex
+    // startVIndex. The layout is the one of GeometryArrayRetained.vertexData:
+    // vertex attributes, texture coordinates, color, normal, coordinate.
+    private void setVertexBufferPointers(JoglContext ctx, GL2 gl,
+            int vformat, boolean ignoreVertexColors, int startVIndex,
+            int texCoordSetCount, int texCoordSetMapLen,
+            int[] texCoordSetMapOffset, int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes) {
+        int vAttrStride = 0;
+        int texSize = 0;
+        int colorSize = 0;
+
+        if ((vformat & GeometryArray.VERTEX_ATTRIBUTES) != 0) {
+            for (int i = 0; i < vertexAttrCount; i++) {
+                vAttrStride += vertexAttrSizes[i];
+            }
+        }
+        if ((vformat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+            if ((vformat & GeometryArray.TEXTURE_COORDINATE_2) != 0) {
+                texSize = 2;
+            } else if ((vformat & GeometryArray.TEXTURE_COORDINATE_3) != 0) {
+                texSize = 3;
+            } else if ((vformat & GeometryArray.TEXTURE_COORDINATE_4) != 0) {
+                texSize = 4;
+            }
+        }
+        if ((vformat & GeometryArray.COLOR) != 0) {
+            colorSize = ((vformat & GeometryArray.WITH_ALPHA) != 0) ? 4 : 3;
+        }
+
+        int texCoordoff = vAttrStride;
+        int coloroff = texCoordoff + texSize * texCoordSetCount;
+        int normoff = coloroff + colorSize;
+        int coordoff = normoff + (((vformat & GeometryArray.NORMALS) != 0) ? 3 : 0);
+        int stride = coordoff + (((vformat & GeometryArray.COORDINATES) != 0) ? 3 : 0);
+
+        int bstride = stride * Buffers.SIZEOF_FLOAT;
+        long start = (long) startVIndex * bstride;
+
+        if ((vformat & GeometryArray.NORMALS) != 0) {
+            gl.glNormalPointer(GL.GL_FLOAT, bstride,
+                    start + normoff * Buffers.SIZEOF_FLOAT);
+        }
+        if (!ignoreVertexColors && (vformat & GeometryArray.COLOR) != 0) {
+            gl.glColorPointer(colorSize, GL.GL_FLOAT, bstride,
+                    start + coloroff * Buffers.SIZEOF_FLOAT);
+        }
+        if ((vformat & GeometryArray.COORDINATES) != 0) {
+            gl.glVertexPointer(3, GL.GL_FLOAT, bstride,
+                    start + coordoff * Buffers.SIZEOF_FLOAT);
+        }
+
+        if ((vformat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+            for (int i = 0; i < numActiveTexUnitState; i++) {
+                if ((i < texCoordSetMapLen) &&
+                        (texCoordSetMapOffset[i] != -1)) {
+                    clientActiveTextureUnit(gl, i);
+                    gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+                    gl.glTexCoordPointer(texSize, GL.GL_FLOAT, bstride,
+                            start + (texCoordoff + texCoordSetMapOffset[i]) * Buffers.SIZEOF_FLOAT);
+                } else {
+                    disableTexCoordPointer(gl, i);
+                }
+            }
+        }
+
+        if ((vformat & GeometryArray.VERTEX_ATTRIBUTES) != 0) {
+            int vAttrOffset = 0;
+            for (int i = 0; i < vertexAttrCount; i++) {
+                ctx.enableVertexAttrArray(gl, i);
+                ctx.vertexAttrPointer(gl, i, vertexAttrSizes[i], GL.GL_FLOAT,
+                        bstride, start + vAttrOffset * Buffers.SIZEOF_FLOAT);
+                vAttrOffset += vertexAttrSizes[i];
+            }
+        }
+    }
+
     private void
             executeGeometryArray(Context absCtx,
             GeometryArrayRetained geo, int geo_type,
@@ -1697,6 +1855,95 @@ class JoglPipeline extends Pipeline {
                 cdirty, indexCoord);
     }
 
+    // by-copy, vertex data in the vertex buffer object "id"
+    @Override
+    void executeIndexedVertexBuffer(Context absCtx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetMapOffset,
+            int numActiveTexUnitState,
+            int id,
+            int[] indexCoord) {
+        if (VERBOSE) System.err.println("JoglPipeline.executeIndexedVertexBuffer()");
+        JoglContext ctx = (JoglContext) absCtx;
+        GL2 gl = context(ctx).getGL().getGL2();
+
+        // Enable normalize for non-uniform scale (which rescale can't handle)
+        if (isNonUniformScale) {
+            gl.glEnable(GL2.GL_NORMALIZE);
+        }
+
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, id);
+        setVertexBufferPointers(ctx, gl, vformat, ignoreVertexColors, 0,
+                texCoordSetCount, texCoordSetMapLen, texCoordSetMapOffset,
+                numActiveTexUnitState, vertexAttrCount, vertexAttrSizes);
+        // The client arrays of the other render paths need the buffer unbound
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+        // The indices stay in client memory
+        IntBuffer indicesBuffer = IntBuffer.wrap(indexCoord);
+        if (geo_type == GeometryRetained.GEO_TYPE_INDEXED_TRI_STRIP_SET ||
+                geo_type == GeometryRetained.GEO_TYPE_INDEXED_TRI_FAN_SET   ||
+                geo_type == GeometryRetained.GEO_TYPE_INDEXED_LINE_STRIP_SET) {
+            int[] sarray = ((IndexedGeometryStripArrayRetained) geo).stripIndexCounts;
+            int primType = 0;
+
+            switch (geo_type) {
+                case GeometryRetained.GEO_TYPE_INDEXED_TRI_STRIP_SET :
+                    primType = GL.GL_TRIANGLE_STRIP;
+                    break;
+                case GeometryRetained.GEO_TYPE_INDEXED_TRI_FAN_SET :
+                    primType = GL.GL_TRIANGLE_FAN;
+                    break;
+                case GeometryRetained.GEO_TYPE_INDEXED_LINE_STRIP_SET:
+                    primType = GL.GL_LINE_STRIP;
+                    break;
+            }
+
+            lockArray(gl, vertexCount);
+
+            int offset = initialIndexIndex;
+            for (int i = 0; i < sarray.length; i++) {
+                indicesBuffer.position(offset);
+                int count = sarray[i];
+                gl.glDrawElements(primType, count, GL.GL_UNSIGNED_INT, indicesBuffer);
+                offset += count;
+            }
+        } else {
+            lockArray(gl, vertexCount);
+
+            indicesBuffer.position(initialIndexIndex);
+            switch (geo_type){
+                case GeometryRetained.GEO_TYPE_INDEXED_QUAD_SET : gl.glDrawElements(GL2.GL_QUADS,     indexCount, GL.GL_UNSIGNED_INT, indicesBuffer); break;
+                case GeometryRetained.GEO_TYPE_INDEXED_TRI_SET  : gl.glDrawElements(GL.GL_TRIANGLES, indexCount, GL.GL_UNSIGNED_INT, indicesBuffer); break;
+                case GeometryRetained.GEO_TYPE_INDEXED_POINT_SET: gl.glDrawElements(GL.GL_POINTS,    indexCount, GL.GL_UNSIGNED_INT, indicesBuffer); break;
+                case GeometryRetained.GEO_TYPE_INDEXED_LINE_SET : gl.glDrawElements(GL.GL_LINES,     indexCount, GL.GL_UNSIGNED_INT, indicesBuffer); break;
+            }
+        }
+
+        unlockArray(gl);
+
+        if ((vformat & GeometryArray.VERTEX_ATTRIBUTES) != 0) {
+            resetVertexAttrs(gl, ctx, vertexAttrCount);
+        }
+
+        if ((vformat & GeometryArray.TEXTURE_COORDINATE) != 0) {
+            resetTexture(gl, ctx);
+        }
+
+        // clean up if we turned on normalize
+        if (isNonUniformScale) {
+            gl.glDisable(GL2.GL_NORMALIZE);
+        }
+    }
+
     // interleaved, by reference, nio buffer
     @Override
     void executeIndexedGeometryBuffer(Context ctx,
@@ -6648,6 +6895,90 @@ class JoglPipeline extends Pipeline {
     void readOffScreenBuffer(Canvas3D cv, Context ctx, int format, int dataType, Object data, int width, int height) {
         if (VERBOSE) System.err.println("JoglPipeline.readOffScreenBuffer()");
 
+        readOffScreenPixels(cv, ctx, format, dataType, data, width, height);
+    }
+
+    @Override
+    void startOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int dataType, int width, int height) {
+        if (VERBOSE) System.err.println("JoglPipeline.startOffScreenReadback()");
+
+        JoglContext jctx = (JoglContext) ctx;
+        GL2 gl = context(ctx).getGL().getGL2();
+
+        int pixelSize = 4;
+        if (((dataType == ImageComponentRetained.IMAGE_DATA_TYPE_BYTE_ARRAY) ||
+                (dataType == ImageComponentRetained.IMAGE_DATA_TYPE_BYTE_BUFFER)) &&
+                ((format == ImageComponentRetained.TYPE_BYTE_BGR) ||
+                (format == ImageComponentRetained.TYPE_BYTE_RGB))) {
+            pixelSize = 3;
+        }
+        long size = (long) width * height * pixelSize;
+
+        int[] buffers = jctx.getReadbackBuffers();
+        long[] sizes = jctx.getReadbackSizes();
+        if (slot >= buffers.length) {
+            int[] newBuffers = Arrays.copyOf(buffers, slot + 1);
+            gl.glGenBuffers(newBuffers.length - buffers.length, newBuffers, buffers.length);
+            buffers = newBuffers;
+            sizes = Arrays.copyOf(sizes, slot + 1);
+            jctx.setReadbackBuffers(buffers, sizes);
+        }
+
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, buffers[slot]);
+        if (sizes[slot] != size) {
+            gl.glBufferData(GL2.GL_PIXEL_PACK_BUFFER, size, null, GL2.GL_STREAM_READ);
+            sizes[slot] = size;
+        }
+        // Queued after the rendering, returns without waiting for it
+        readOffScreenPixels(cv, ctx, format, dataType, null, width, height);
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    @Override
+    void finishOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int dataType, Object data, int width, int height) {
+        if (VERBOSE) System.err.println("JoglPipeline.finishOffScreenReadback()");
+
+        JoglContext jctx = (JoglContext) ctx;
+        GL2 gl = context(ctx).getGL().getGL2();
+
+        int[] buffers = jctx.getReadbackBuffers();
+        if (slot >= buffers.length) {
+            // Not started in this context
+            return;
+        }
+
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, buffers[slot]);
+        // Waits for the read back if it is not complete yet
+        ByteBuffer pixels = gl.glMapBuffer(GL2.GL_PIXEL_PACK_BUFFER, GL2.GL_READ_ONLY);
+        if (pixels != null) {
+            pixels.order(ByteOrder.nativeOrder());
+            if (data instanceof byte[]) {
+                byte[] bytes = (byte[]) data;
+                pixels.get(bytes, 0, Math.min(bytes.length, pixels.remaining()));
+            } else if (data instanceof int[]) {
+                int[] ints = (int[]) data;
+                IntBuffer intPixels = pixels.asIntBuffer();
+                intPixels.get(ints, 0, Math.min(ints.length, intPixels.remaining()));
+            } else if (data instanceof ByteBuffer) {
+                ByteBuffer buf = ((ByteBuffer) data).duplicate();
+                buf.clear();
+                pixels.limit(Math.min(pixels.limit(), buf.remaining()));
+                buf.put(pixels);
+            } else {
+                IntBuffer buf = ((IntBuffer) data).duplicate();
+                buf.clear();
+                IntBuffer intPixels = pixels.asIntBuffer();
+                intPixels.limit(Math.min(intPixels.limit(), buf.remaining()));
+                buf.put(intPixels);
+            }
+            gl.glUnmapBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+        }
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    // Reads the image from the offscreen buffer into data or, if data is
+    // null, into the bound pixel pack buffer
+    private void readOffScreenPixels(Canvas3D cv, Context ctx, int format, int dataType, Object data, int width, int height) {
     	GLDrawable 				glDrawable  = ((JoglDrawable)cv.drawable).getGLDrawable();
         GLCapabilitiesImmutable chosenCaps  = glDrawable.getChosenGLCapabilities();
         GLFBODrawable 			fboDrawable = null;
@@ -6715,7 +7046,16 @@ class JoglPipeline extends Pipeline {
                     throw new AssertionError("illegal format " + format);
             }
 
-            gl.glReadPixels(0, 0, width, height, type, GL.GL_UNSIGNED_BYTE, ByteBuffer.wrap((byte[]) data));
+            if (data instanceof ByteBuffer) {
+                // NioImageBuffer, read into directly
+                ByteBuffer buf = ((ByteBuffer) data).duplicate();
+                buf.rewind();
+                gl.glReadPixels(0, 0, width, height, type, GL.GL_UNSIGNED_BYTE, buf);
+            } else if (data != null) {
+                gl.glReadPixels(0, 0, width, height, type, GL.GL_UNSIGNED_BYTE, ByteBuffer.wrap((byte[]) data));
+            } else {
+                gl.glReadPixels(0, 0, width, height, type, GL.GL_UNSIGNED_BYTE, 0L);
+            }
 
         }
         else if ((dataType == ImageComponentRetained.IMAGE_DATA_TYPE_INT_ARRAY) ||
@@ -6756,7 +7096,16 @@ class JoglPipeline extends Pipeline {
                 gl.glPixelTransferf(GL2.GL_ALPHA_BIAS, 1.0f);
             }
 
-            gl.glReadPixels(0, 0, width, height, type, intType, IntBuffer.wrap((int[]) data));
+            if (data instanceof IntBuffer) {
+                // NioImageBuffer, read into directly
+                IntBuffer buf = ((IntBuffer) data).duplicate();
+                buf.rewind();
+                gl.glReadPixels(0, 0, width, height, type, intType, buf);
+            } else if (data != null) {
+                gl.glReadPixels(0, 0, width, height, type, intType, IntBuffer.wrap((int[]) data));
+            } else {
+                gl.glReadPixels(0, 0, width, height, type, intType, 0L);
+            }
 
 	    /* Restore Alpha scale and bias */
 	    if(forceAlphaToOne) {
@@ -7644,6 +7993,46 @@ static boolean hasFBObjectSizeChanged(JoglDrawable jdraw, int width, int height)
         }
     }
 
+    @Override
+    void createVertexBuffer(Context ctx, int id, float[] data, int length) {
+        if (VERBOSE) System.err.println("JoglPipeline.createVertexBuffer()");
+
+        GL gl = context(ctx).getGL();
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, id);
+        gl.glBufferData(GL.GL_ARRAY_BUFFER,
+                (long) length * Buffers.SIZEOF_FLOAT,
+                FloatBuffer.wrap(data, 0, length), GL.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    void updateVertexBuffer(Context ctx, int id, float[] data, int offset, int length) {
+        if (VERBOSE) System.err.println("JoglPipeline.updateVertexBuffer()");
+
+        GL gl = context(ctx).getGL();
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, id);
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER,
+                (long) offset * Buffers.SIZEOF_FLOAT,
+                (long) length * Buffers.SIZEOF_FLOAT,
+                FloatBuffer.wrap(data, offset, length));
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    void freeVertexBuffer(Context ctx, int id) {
+        if (VERBOSE) System.err.println("JoglPipeline.freeVertexBuffer()");
+
+        GL gl = context(ctx).getGL();
+
+        if (id > 0) {
+            int[] tmp = new int[1];
+            tmp[0] = id;
+            gl.glDeleteBuffers(1, tmp, 0);
+        } else {
+            System.err.println("tried to delete vertex buffer with id <= 0");
+        }
+    }
+
 	@Override
 	int generateTexID(Context ctx) {
 		if (VERBOSE) System.err.println("JoglPipeline.generateTexID()");
@@ -8160,6 +8549,17 @@ static boolean hasFBObjectSizeChanged(JoglDrawable jdraw, int width, int height)
             ctx.setHasMultisample(true);
         }
 
+        // Setup vertex buffer objects, core since OpenGL 1.5
+        if (gl.isExtensionAvailable("GL_VERSION_1_5")) {
+            cv.extensionsSupported |= Canvas3D.VERTEX_BUFFER_OBJECT;
+        }
+
+        // Setup pixel buffer objects, core since OpenGL 2.1
+        if (gl.isExtensionAvailable("GL_VERSION_2_1") ||
+                gl.isExtensionAvailable("GL_ARB_pixel_buffer_object")) {
+            cv.extensionsSupported |= Canvas3D.PIXEL_BUFFER_OBJECT;
+        }
+
         if ((cv.extensionsSupported & Canvas3D.MULTISAMPLE) != 0 &&
                 !VirtualUniverse.mc.implicitAntialiasing) {
             gl.glDisable(GL.GL_MULTISAMPLE);
@@ -0,0 +1,282 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.BitSet;
+
+/**
+ * The LODSwitch node is a Switch node whose children are levels of
+ * detail of the same object, one of which Java 3D draws for each View.
+ * Unlike an LOD behavior, which changes the child of a Switch node from
+ * a behavior, the level is chosen by Java 3D while it finds the visible
+ * objects of the View, without any behavior or message.
+ * <p>
+ * Each level has a geometric error, that is the largest distance, in the
+ * local coordinates of this node, between the level and the object it
+ * approximates.  error[0], for the first child, is usually 0, and the
+ * errors increase with the children.  The level drawn is the last child
+ * whose error, projected on the canvases of the View at the distance
+ * from the viewer to the origin of this node, covers no more than the
+ * pixel tolerance.  To avoid switching back and forth between two
+ * levels, a coarser level than the one drawn is only chosen once its
+ * projected error is below the pixel tolerance times (1 - hysteresis).
+ * <p>
+ * There should be one error per child; the children without an error are
+ * not drawn, and the errors without a child are ignored.  The children
+ * are always all selected as far as the Switch node is concerned
+ * (CHILD_ALL): <code>setWhichChild</code> and <code>setChildMask</code>
+ * are not supported, and the levels should not themselves contain Switch
+ * nodes.  The first child is drawn in compatibility mode, or with
+ * <code>-Dj3d.frustumPlaneCulling=false</code>.  Changes to the
+ * errors, tolerance or hysteresis of a live node are taken into account
+ * the next time Java 3D finds the visible objects of the View, for
+ * instance when the viewer moves.
+ *
+ * @see DistanceLOD
+ *
+ * @since Java 3D 1.6
+ */
+public class LODSwitch extends Switch {
+
+    // Array for setting default read capabilities
+    private static final int[] readCapabilities = {
+        ALLOW_SWITCH_READ
+    };
+
+    /**
+     * Constructs an LODSwitch node with no errors, a pixel tolerance
+     * of 1 and a hysteresis of 0.1.
+     */
+    public LODSwitch() {
+        // set default read capabilities
+        setDefaultReadCapabilities(readCapabilities);
+
+        ((SwitchRetained)this.retained).setWhichChild(CHILD_ALL, true);
+    }
+
+    /**
+     * Constructs an LODSwitch node with the specified errors, a pixel
+     * tolerance of 1 and a hysteresis of 0.1.
+     * @param errors the geometric error of each child
+     * @exception IllegalArgumentException if an error is negative
+     */
+    public LODSwitch(double[] errors) {
+        this();
+	((LODSwitchRetained)this.retained).setErrors(errors);
+    }
+
+    /**
+     * Creates the retained mode LODSwitchRetained object that this
+     * LODSwitch object will point to.
+     */
+    @Override
+    void createRetained() {
+	this.retained = new LODSwitchRetained();
+	this.retained.setSource(this);
+    }
+
+    /**
+     * This method is not supported, since the child drawn is chosen by
+     * Java 3D.
+     *
+     * @exception UnsupportedOperationException this method is not
+     * supported
+     */
+    @Override
+    public void setWhichChild(int child) {
+	throw new UnsupportedOperationException(J3dI18N.getString("LODSwitch5"));
+    }
+
+    /**
+     * This method is not supported, since the child drawn is chosen by
+     * Java 3D.
+     *
+     * @exception UnsupportedOperationException this method is not
+     * supported
+     */
+    @Override
+    public void setChildMask(BitSet childMask) {
+	throw new UnsupportedOperationException(J3dI18N.getString("LODSwitch5"));
+    }
+
+    /**
+     * Sets the geometric error of each child.
+     * @param errors the geometric error of each child, in the local
+     * coordinates of this node
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     * @exception IllegalArgumentException if an error is negative
+     */
+    public void setErrors(double[] errors) {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_WRITE))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch0"));
+
+	((LODSwitchRetained)this.retained).setErrors(errors);
+    }
+
+    /**
+     * Returns the number of geometric errors.
+     * @return the number of geometric errors
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     */
+    public int numErrors() {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_READ))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch1"));
+
+	return ((LODSwitchRetained)this.retained).numErrors();
+    }
+
+    /**
+     * Returns the geometric error of a child.
+     * @param index the index of the child
+     * @return the geometric error of the child
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     */
+    public double getError(int index) {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_READ))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch1"));
+
+	return ((LODSwitchRetained)this.retained).getError(index);
+    }
+
+    /**
+     * Sets the pixel tolerance, that is the number of pixels the error
+     * of the level drawn may cover.  The default tolerance is 1.
+     * @param pixels the new pixel tolerance
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     * @exception IllegalArgumentException if the tolerance is negative
+     */
+    public void setPixelTolerance(float pixels) {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_WRITE))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch0"));
+
+	if (!(pixels >= 0.0f))
+	    throw new IllegalArgumentException(J3dI18N.getString("LODSwitch2"));
+
+	((LODSwitchRetained)this.retained).pixelTolerance = pixels;
+    }
+
+    /**
+     * Retrieves the pixel tolerance.
+     * @return the pixel tolerance
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     */
+    public float getPixelTolerance() {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_READ))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch1"));
+
+	return ((LODSwitchRetained)this.retained).pixelTolerance;
+    }
+
+    /**
+     * Sets the hysteresis, the fraction of the pixel tolerance below
+     * which the projected error of a coarser level than the one drawn
+     * must be for that level to be chosen.  The default hysteresis is
+     * 0.1.
+     * @param hysteresis the new hysteresis, from 0 (included) to 1
+     * (excluded)
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     * @exception IllegalArgumentException if the hysteresis is out of
+     * range
+     */
+    public void setHysteresis(float hysteresis) {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_WRITE))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch0"));
+
+	if (!((hysteresis >= 0.0f) && (hysteresis < 1.0f)))
+	    throw new IllegalArgumentException(J3dI18N.getString("LODSwitch3"));
+
+	((LODSwitchRetained)this.retained).hysteresis = hysteresis;
+    }
+
+    /**
+     * Retrieves the hysteresis.
+     * @return the hysteresis
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     */
+    public float getHysteresis() {
+	if (isLiveOrCompiled())
+	    if(!this.getCapability(ALLOW_SWITCH_READ))
+		throw new CapabilityNotSetException(J3dI18N.getString("LODSwitch1"));
+
+	return ((LODSwitchRetained)this.retained).hysteresis;
+    }
+
+    /**
+     * Used to create a new instance of the node.  This routine is called
+     * by <code>cloneTree</code> to duplicate the current node.
+     * @param forceDuplicate when set to <code>true</code>, causes the
+     *  <code>duplicateOnCloneTree</code> flag to be ignored.  When
+     *  <code>false</code>, the value of each node's
+     *  <code>duplicateOnCloneTree</code> variable determines whether
+     *  NodeComponent data is duplicated or copied.
+     *
+     * @see Node#cloneTree
+     * @see Node#cloneNode
+     * @see Node#duplicateNode
+     * @see NodeComponent#setDuplicateOnCloneTree
+     */
+    @Override
+    public Node cloneNode(boolean forceDuplicate) {
+        LODSwitch s = new LODSwitch();
+        s.duplicateNode(this, forceDuplicate);
+        return s;
+    }
+
+   /**
+     * Copies all LODSwitch information from
+     * <code>originalNode</code> into
+     * the current node.  This method is called from the
+     * <code>cloneNode</code> method which is, in turn, called by the
+     * <code>cloneTree</code> method.<P>
+     *
+     * @param originalNode the original node to duplicate.
+     * @param forceDuplicate when set to <code>true</code>, causes the
+     *  <code>duplicateOnCloneTree</code> flag to be ignored.  When
+     *  <code>false</code>, the value of each node's
+     *  <code>duplicateOnCloneTree</code> variable determines whether
+     *  NodeComponent data is duplicated or copied.
+     *
+     * @exception RestrictedAccessException if this object is part of a live
+     *  or compiled scenegraph.
+     *
+     * @see Group#cloneNode
+     * @see Node#duplicateNode
+     * @see Node#cloneTree
+     * @see NodeComponent#setDuplicateOnCloneTree
+     */
+    @Override
+    void duplicateAttributes(Node originalNode, boolean forceDuplicate) {
+        super.duplicateAttributes(originalNode, forceDuplicate);
+
+        LODSwitchRetained attr = (LODSwitchRetained) originalNode.retained;
+	LODSwitchRetained rt = (LODSwitchRetained) retained;
+
+	rt.setErrors(attr.errors);
+	rt.pixelTolerance = attr.pixelTolerance;
+	rt.hysteresis = attr.hysteresis;
+    }
+}
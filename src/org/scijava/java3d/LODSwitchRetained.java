@@ -0,0 +1,158 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+import org.scijava.vecmath.Point3d;
+
+/**
+ * The retained LODSwitch node.  The level of each View is chosen by
+ * BHTree.select, from the RenderBin thread of the View, the first time it
+ * reaches geometry of this node during a visibility query; the render
+ * molecules of the other levels are skipped by the renderer.
+ */
+class LODSwitchRetained extends SwitchRetained {
+
+    // Geometric error of each child, in local coordinates
+    double[] errors = new double[0];
+
+    float pixelTolerance = 1.0f;
+    float hysteresis = 0.1f;
+
+    // Origin and scale of the local coordinates, once compile merged the
+    // transforms above this node
+    private Point3d position = new Point3d();
+    private double errorScale = 1.0;
+
+    // Time of the visibility query and level chosen, for each View by
+    // View.viewIndex, -1 if not chosen yet.  The array is only replaced,
+    // when it is grown, so that it can be read without locking.
+    private volatile long[] viewLevels = new long[0];
+
+    void setErrors(double[] errors) {
+	for (int i = 0; i < errors.length; i++) {
+	    if (!(errors[i] >= 0.0))
+		throw new IllegalArgumentException(J3dI18N.getString("LODSwitch4"));
+	}
+	this.errors = errors.clone();
+    }
+
+    int numErrors() {
+	return errors.length;
+    }
+
+    double getError(int index) {
+	return errors[index];
+    }
+
+    /**
+     * Returns the level chosen for the view during the visibility query
+     * at referenceTime, choosing it the first time.  The culler holds
+     * the eyes of the canvases of the view, in the coordinates of the
+     * locale of this node.
+     */
+    int getLevel(View view, FrustumCuller culler, long referenceTime) {
+	int index = 2 * view.viewIndex;
+	long[] levels = viewLevels;
+	if (index + 1 >= levels.length) {
+	    levels = growViewLevels(index + 2);
+	}
+	if (levels[index] != referenceTime) {
+	    levels[index + 1] = selectLevel((int)levels[index + 1], culler);
+	    levels[index] = referenceTime;
+	}
+	return (int)levels[index + 1];
+    }
+
+    /**
+     * Returns true if the child is the level chosen for the view, or if
+     * no level was chosen yet.  Used by the renderer.
+     */
+    boolean isLevelSelected(View view, int child) {
+	int index = 2 * view.viewIndex;
+	long[] levels = viewLevels;
+	if ((index < 0) || (index + 1 >= levels.length) ||
+	    (levels[index + 1] < 0)) {
+	    return true;
+	}
+	return levels[index + 1] == child;
+    }
+
+    private synchronized long[] growViewLevels(int length) {
+	long[] levels = viewLevels;
+	if (levels.length < length) {
+	    int oldLength = levels.length;
+	    levels = Arrays.copyOf(levels, Math.max(length, 2 * oldLength));
+	    Arrays.fill(levels, oldLength, levels.length, -1L);
+	    viewLevels = levels;
+	}
+	return levels;
+    }
+
+    private int selectLevel(int current, FrustumCuller culler) {
+	double[] e = errors;
+	// Only the levels with both a child and an error can be chosen
+	int last = Math.min(e.length, numChildren()) - 1;
+	if ((culler == null) || (last < 1) || (localToVworld == null)) {
+	    return 0;
+	}
+
+	Transform3D t =
+	    localToVworld[0][localToVworldIndex[0][NodeRetained.LAST_LOCAL_TO_VWORLD]];
+	double[] m = t.mat;
+	double x = m[0] * position.x + m[1] * position.y + m[2] * position.z + m[3];
+	double y = m[4] * position.x + m[5] * position.y + m[6] * position.z + m[7];
+	double z = m[8] * position.x + m[9] * position.y + m[10] * position.z + m[11];
+
+	// Largest scale of the transform, as Transform3D.getDistanceScale
+	// but without its cache, which is not thread safe
+	double scale = Math.max(m[0] * m[0] + m[4] * m[4] + m[8] * m[8],
+				m[1] * m[1] + m[5] * m[5] + m[9] * m[9]);
+	scale = Math.max(scale, m[2] * m[2] + m[6] * m[6] + m[10] * m[10]);
+	double pixelsPerError = Math.sqrt(scale) * errorScale *
+	    culler.getPixelsPerUnit(x, y, z);
+
+	for (int i = last; i > 0; i--) {
+	    double tolerance = pixelTolerance;
+	    if ((current >= 0) && (i > current)) {
+		tolerance *= 1.0 - hysteresis;
+	    }
+	    if (e[i] * pixelsPerError <= tolerance) {
+		return i;
+	    }
+	}
+	return 0;
+    }
+
+    @Override
+    void setLive(SetLiveState s) {
+	super.setLive(s);
+	universe.lodSwitchCount++;
+    }
+
+    @Override
+    synchronized void clearLive(SetLiveState s) {
+	universe.lodSwitchCount--;
+	super.clearLive(s);
+	viewLevels = new long[0];
+    }
+
+    @Override
+    void mergeTransform(TransformGroupRetained xform) {
+	super.mergeTransform(xform);
+	xform.transform.transform(position);
+	errorScale *= xform.transform.getScale();
+    }
+}
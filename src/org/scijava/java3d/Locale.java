@@ -963,6 +963,13 @@ Vector<BranchGroup> branchGroups = new Vector<BranchGroup>();
      */
     public PickInfo pickClosest( int mode, int flags, PickShape pickShape ) {
 
+        // Best first down the BHTree, instead of picking and sorting all
+        if ((pickShape instanceof PickRay) ||
+            (pickShape instanceof PickSegment)) {
+            validateModeFlagAndPickShape(mode, flags, pickShape);
+            return PickInfo.pickClosest(this, this, mode, flags, pickShape);
+        }
+
         PickInfo[] pickInfoArr = null;
 
         pickInfoArr = pickAllSorted( mode, flags, pickShape );
@@ -462,6 +462,88 @@ class MasterControl {
     // issue 544
     boolean useBoxForGroupBounds = false;
 
+    // Set by -Dj3d.pickTree property. When true, triangle geometry with
+    // at least pickTreeThreshold triangles (-Dj3d.pickTreeThreshold) is
+    // picked through a cached hierarchy over its triangles instead of
+    // testing every triangle.
+    boolean usePickTree = true;
+    int pickTreeThreshold = 64;
+
+    // Set by -Dj3d.bhTreeRebuild property. When true, the geometry
+    // structure tracks the SAH cost of its BHTrees as their bounds are
+    // refit and rebuilds a tree once the cost exceeds the cost it had when
+    // built by bhTreeRebuildThreshold percent (-Dj3d.bhTreeRebuildThreshold).
+    boolean bhTreeRebuild = true;
+    int bhTreeRebuildThreshold = 150;
+
+    // Set by -Dj3d.collisionBroadPhase property. When true, the geometry
+    // structure only tests the collision wakeup criteria that collided,
+    // whose bounds changed, or that leaves which moved intersect.
+    boolean collisionBroadPhase = true;
+
+    // Set by -Dj3d.parallelBehaviors property. When true, the behavior
+    // scheduler runs the triggered behaviors of a scheduling interval that
+    // are marked thread-safe concurrently on behaviorThreads worker
+    // threads (-Dj3d.behaviorThreads, 0 means one per processor).
+    boolean parallelBehaviors = false;
+    int behaviorThreads = 0;
+
+    // Set by -Dj3d.parallelTransforms property. When true, the transform
+    // structure updates the localToVworld of the disjoint subtrees under
+    // the changed TransformGroups concurrently on transformThreads worker
+    // threads (-Dj3d.transformThreads, 0 means one per processor).
+    boolean parallelTransforms = false;
+    int transformThreads = 0;
+
+    // Set by -Dj3d.messagePool property. When true, the transform and
+    // geometry change messages are taken from the MessagePool and go back
+    // to it once processed, instead of being left to the GC.
+    boolean messagePool = true;
+
+    // Set by -Dj3d.environmentIndex property. When true, the rendering
+    // environment structure finds the lights, fogs, model clips and
+    // alternate appearances influencing a shape through a spatial index
+    // of their regions, instead of testing every region.
+    boolean environmentIndex = true;
+
+    // Set by -Dj3d.parallelImageCopy property. When true, the image
+    // components convert the rows of large images of a format the
+    // pipeline does not support, and filter the generated mipmap levels
+    // of large textures, concurrently on imageThreads worker threads
+    // (-Dj3d.imageThreads, 0 means one per processor).
+    boolean parallelImageCopy = true;
+    int imageThreads = 0;
+
+    // Set by -Dj3d.glyphCacheSize property. Maximum number of triangulated
+    // glyphs kept by the GlyphCache shared by the Font3D objects, 0
+    // disables the cache.
+    int glyphCacheSize = 4096;
+
+    // Set by -Dj3d.frustumPlaneCulling property. When true, the render
+    // bins cull the bounding hierarchy against the planes of the view
+    // frusta, and not only against their bounding box.
+    boolean frustumPlaneCulling = true;
+
+    // Set by -Dj3d.occlusionBufferSize property. Width in pixels of the
+    // depth buffer the occluders are drawn into, for the views with
+    // occlusion culling enabled. 0 disables occlusion culling.
+    int occlusionBufferSize = 128;
+
+    // Set once frame metrics are enabled on any View.  While set, the
+    // structure update threads, the behavior scheduler and the renderers
+    // measure the time they spend for the frame metrics of the views.
+    boolean collectFrameMetrics = false;
+
+    // Set by -Dj3d.vbo property. When true, by-copy geometry that is not
+    // rendered through a display list is uploaded once into a vertex
+    // buffer object per canvas; changes of the vertex data replace the
+    // buffer contents in place instead of sending the arrays every frame.
+    boolean useVertexBuffers = false;
+
+    // Incremented each time a geometry array with vertex buffer objects
+    // is released, so that the renderers look for buffers to free
+    volatile int vertexBufferReleaseCount = 0;
+
     /**
      * Constructs a new MasterControl object.  Note that there is
      * exatly one MasterControl object, created statically by
@@ -648,6 +730,138 @@ class MasterControl {
                 useBoxForGroupBounds,
                 "Use of BoundingBox for group geometric bounds");
 
+        usePickTree =
+                getBooleanProperty("j3d.pickTree",
+                usePickTree,
+                "Triangle hierarchy for picking");
+
+	final int defaultPickTreeThreshold = pickTreeThreshold;
+	Integer pickThreshold = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.pickTreeThreshold",
+					defaultPickTreeThreshold);
+		}
+	});
+	pickTreeThreshold = Math.max(pickThreshold.intValue(), 1);
+
+        bhTreeRebuild =
+                getBooleanProperty("j3d.bhTreeRebuild",
+                bhTreeRebuild,
+                "BHTree rebuild on SAH cost");
+
+	final int defaultBhTreeRebuildThreshold = bhTreeRebuildThreshold;
+	Integer rebuildThreshold = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.bhTreeRebuildThreshold",
+					defaultBhTreeRebuildThreshold);
+		}
+	});
+	bhTreeRebuildThreshold = Math.max(rebuildThreshold.intValue(), 100);
+
+        useVertexBuffers =
+                getBooleanProperty("j3d.vbo",
+                useVertexBuffers,
+                "Vertex buffer objects");
+
+        collisionBroadPhase =
+                getBooleanProperty("j3d.collisionBroadPhase",
+                collisionBroadPhase,
+                "Collision broad phase");
+
+        parallelBehaviors =
+                getBooleanProperty("j3d.parallelBehaviors",
+                parallelBehaviors,
+                "Parallel execution of thread-safe behaviors");
+
+	final int defaultBehaviorThreads = behaviorThreads;
+	Integer behThreads = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.behaviorThreads",
+					defaultBehaviorThreads);
+		}
+	});
+	behaviorThreads = behThreads.intValue();
+	if (behaviorThreads <= 0) {
+	    behaviorThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+        parallelTransforms =
+                getBooleanProperty("j3d.parallelTransforms",
+                parallelTransforms,
+                "Parallel localToVworld updates");
+
+	final int defaultTransformThreads = transformThreads;
+	Integer tfThreads = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.transformThreads",
+					defaultTransformThreads);
+		}
+	});
+	transformThreads = tfThreads.intValue();
+	if (transformThreads <= 0) {
+	    transformThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+        messagePool = getBooleanProperty("j3d.messagePool",
+                messagePool,
+                "J3dMessage pooling");
+
+        environmentIndex = getBooleanProperty("j3d.environmentIndex",
+                environmentIndex,
+                "spatial index of environment node regions");
+
+        parallelImageCopy = getBooleanProperty("j3d.parallelImageCopy",
+                parallelImageCopy,
+                "Parallel image format conversion");
+
+        frustumPlaneCulling = getBooleanProperty("j3d.frustumPlaneCulling",
+                frustumPlaneCulling,
+                "view frustum plane culling of the bounding hierarchy");
+
+	final int defaultImageThreads = imageThreads;
+	Integer imgThreads = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.imageThreads",
+					defaultImageThreads);
+		}
+	});
+	imageThreads = imgThreads.intValue();
+	if (imageThreads <= 0) {
+	    imageThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+	final int defaultGlyphCacheSize = glyphCacheSize;
+	Integer glyphCache = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.glyphCacheSize",
+					defaultGlyphCacheSize);
+		}
+	});
+	glyphCacheSize = glyphCache.intValue();
+
+	final int defaultOcclusionBufferSize = occlusionBufferSize;
+	Integer occlusionBuffer = java.security.AccessController.doPrivileged(
+	new java.security.PrivilegedAction<Integer>() {
+		@Override
+		public Integer run() {
+			return Integer.getInteger("j3d.occlusionBufferSize",
+					defaultOcclusionBufferSize);
+		}
+	});
+	occlusionBufferSize = occlusionBuffer.intValue();
+
         // Check for obsolete properties
         String[] obsoleteProps = {
             "j3d.backgroundtexture",
@@ -828,11 +1042,22 @@ private static String getProperty(final String prop) {
             pipelineType = Pipeline.Type.JOGL;
         } else if (rendStr.equals("noop")) {
             pipelineType = Pipeline.Type.NOOP;
+        } else if (rendStr.equals("recording")) {
+            pipelineType = Pipeline.Type.RECORDING;
         } else {
             System.err.println("Java 3D: Unrecognized renderer: " + rendStr);
             // Use default pipeline
         }
 
+        // The JOGL pipeline cannot run in headless mode, so we will throw
+        // a HeadlessException if isHeadless() is true. This avoids a
+        // cryptic error message from the pipeline. The noop and recording
+        // pipelines render nothing and may be used headless.
+        if (pipelineType == Pipeline.Type.JOGL &&
+            java.awt.GraphicsEnvironment.isHeadless()) {
+            throw new java.awt.HeadlessException();
+        }
+
         // Construct the singleton Pipeline instance
 		Pipeline.createPipeline(pipelineType);
 
@@ -926,6 +1151,21 @@ private static String getProperty(final String prop) {
 	FreeListManager.freeObject(FreeListManager.DISPLAYLIST, id);
     }
 
+    /**
+     * This returns the a unused vertex buffer id
+     */
+    Integer getVertexBufferId() {
+        return (Integer) FreeListManager.getObject(FreeListManager.VERTEXBUFFER);
+    }
+
+    void freeVertexBufferId(Integer id) {
+	FreeListManager.freeObject(FreeListManager.VERTEXBUFFER, id);
+    }
+
+    synchronized void vertexBufferReleased() {
+	vertexBufferReleaseCount++;
+    }
+
     int getCanvasId() {
         int i;
 
@@ -1250,6 +1490,7 @@ private static String getProperty(final String prop) {
 
 	    if (message.getRefcount() == 0) {
 		message.clear();
+		MessagePool.freeMessage(message);
 	    }
 	  }
     }
@@ -1690,34 +1931,25 @@ private static String getProperty(final String prop) {
 	    }
 
 
-	    UnorderList mlist = structure.messageList;
-	    // Note that message is add at the end of array
-	    synchronized (mlist) {
-		int size = mlist.size();
-		if (size > 0) {
-		    J3dMessage mess[] = (J3dMessage []) mlist.toArray(false);
-		    J3dMessage m;
-		    int i = 0;
-
-		    while (i < size) {
-			m = mess[i];
-			if ((v == null) || (m.view == v) ||
-			    ((m.view == null) && !otherViewExist)) {
-			    if (m.type == J3dMessage.INSERT_NODES) {
-				// There is another View register request
-				// immediately following, so no need
-				// to remove message.
-				break;
-			    }
-			    // Some other thread may still using this
-			    // message so we should not directly
-			    // add this message to free lists
-			    m.decRefcount();
-			    mlist.removeOrdered(i);
-			    size--;
-			} else {
-			    i++;
-			}
+	    // Note that message is add at the end of the queue.  A
+	    // message taken by the update thread meanwhile is not removed.
+	    MessageQueue queue = structure.messageQueue;
+	    J3dMessage mess[] = queue.toArray();
+	    for (int i = 0; i < mess.length; i++) {
+		J3dMessage m = mess[i];
+		if ((v == null) || (m.view == v) ||
+		    ((m.view == null) && !otherViewExist)) {
+		    if (m.type == J3dMessage.INSERT_NODES) {
+			// There is another View register request
+			// immediately following, so no need
+			// to remove message.
+			break;
+		    }
+		    // Some other thread may still using this
+		    // message so we should not directly
+		    // add this message to free lists
+		    if (queue.remove(m)) {
+			m.decRefcount();
 		    }
 		}
 	    }
@@ -2034,7 +2266,7 @@ private static String getProperty(final String prop) {
 		renderingAttributesStructure.updateThread.finish();
 		renderingAttributesStructure.updateThread = null;
 	    }
-	    renderingAttributesStructure.messageList.clear();
+	    renderingAttributesStructure.messageQueue.clear();
 	    renderingAttributesStructure.objList = new ArrayList<J3dMessage>();
 	    renderingAttributesStructure = new RenderingAttributesStructure();
 	    if (timerThread != null) {
@@ -2281,7 +2513,11 @@ private static String getProperty(final String prop) {
      */
     RenderMethod getVertexArrayRenderMethod() {
 	if (vertexArrayRenderMethod == null) {
-	    vertexArrayRenderMethod = new VertexArrayRenderMethod();
+	    if (useVertexBuffers) {
+		vertexArrayRenderMethod = new VertexBufferRenderMethod();
+	    } else {
+		vertexArrayRenderMethod = new VertexArrayRenderMethod();
+	    }
 	}
 	return vertexArrayRenderMethod;
     }
@@ -2879,6 +3115,28 @@ private static String getProperty(final String prop) {
         }
     }
 
+    // Pass FlushOffScreenFrames to the Renderer thread for execution
+    void sendFlushOffScreenFrames(Canvas3D c) {
+        synchronized (mcThreadLock) {
+            // Issue 364: create master control thread if needed
+            createMasterControlThread();
+            assert mcThread != null;
+
+            Renderer rdr = createRenderer(c.graphicsConfiguration);
+            J3dMessage createMessage = new J3dMessage();
+            createMessage.threads = J3dThread.RENDER_THREAD;
+            createMessage.type = J3dMessage.FLUSH_OFFSCREEN_FRAMES;
+            createMessage.universe = null;
+            createMessage.view = null;
+            createMessage.args[0] = c;
+            rdr.rendererStructure.addMessage(createMessage);
+            synchronized (requestObjList) {
+                setWorkForRequestRenderer();
+                pendingRequest = true;
+            }
+        }
+    }
+
 
     /**
      * This is the MasterControl work method for Java 3D
@@ -2927,6 +3185,17 @@ private static String getProperty(final String prop) {
 	runMonitor(RUN_THREADS, stateWorkThreads, renderWorkThreads,
 		   requestRenderWorkThreads, null);
 
+	if (collectFrameMetrics) {
+	    // Notify the frame metrics listeners outside of runMonitor
+	    v = (View []) views.toArray(false);
+	    for (int i=views.size()-1; i>=0; i--) {
+		FrameMetricsCollector fmc = v[i].frameMetricsCollector;
+		if (fmc != null) {
+		    fmc.notifyListeners(v[i]);
+		}
+	    }
+	}
+
 	if (renderOnceList.size() > 0) {
 	    clearRenderOnceList();
 	}
@@ -3381,6 +3650,10 @@ private static String getProperty(final String prop) {
 				View v = timestampUpdateList.get(k);
 				v.setFrameTimingValues();
 				v.universe.behaviorStructure.incElapsedFrames();
+				FrameMetricsCollector fmc = v.frameMetricsCollector;
+				if (fmc != null) {
+				    fmc.collect(v, renderingAttributesStructure);
+				}
 			}
 		    timestampUpdateList.clear();
 		    updateMirrorObjects();
@@ -3691,9 +3964,16 @@ private static String getProperty(final String prop) {
     static enum TimeType {
         TOTAL_FRAME,
         RENDER,
+        SWAP,
         BEHAVIOR,
-        // TRANSFORM_UPDATE,
-        // ...
+        BEHAVIOR_STRUCTURE,
+        TRANSFORM_STRUCTURE,
+        GEOMETRY_STRUCTURE,
+        RENDERING_ENVIRONMENT_STRUCTURE,
+        RENDERING_ATTRIBUTES_STRUCTURE,
+        SOUND_STRUCTURE,
+        SOUND_SCHEDULER,
+        RENDER_BIN,
     }
 
     private long[] statTimes = new long[TimeType.values().length];
@@ -3740,6 +4020,12 @@ private static String getProperty(final String prop) {
                     }
                 }
             }
+            strBuf.append("    ").
+                    append(MessagePool.getStatistics()).
+                    append("\n");
+            strBuf.append("    ").
+                    append(GlyphCache.getStatistics()).
+                    append("\n");
             getStatsLogger().info(strBuf.toString());
             frameCycleTick = 0;
         }
@@ -0,0 +1,139 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * Pool of J3dMessages.  A message taken from the pool with getMessage goes
+ * back to it once its refcount drops to 0, that is once every structure
+ * it was sent to has processed it.  Only the senders whose message is
+ * never used after MasterControl.processMessage, and whose consumers
+ * release it with decRefcount, take their messages from the pool.
+ * <p>
+ * The pool is split into stripes, chosen by the id of the thread that
+ * takes the message, so that threads sending messages at the same time
+ * rarely contend for a lock.  A message goes back to the stripe it was
+ * taken from, which keeps each stripe supplied with the messages of its
+ * own senders.
+ */
+class MessagePool {
+
+    // Must be a power of 2
+    private static final int NUM_STRIPES = 8;
+
+    // Messages kept per stripe, those freed beyond are left to the GC
+    private static final int MAX_STRIPE_SIZE = 256;
+
+    private static final Stripe[] stripes = new Stripe[NUM_STRIPES];
+    static {
+	for (int i = 0; i < NUM_STRIPES; i++) {
+	    stripes[i] = new Stripe();
+	}
+    }
+
+    private static class Stripe {
+	final J3dMessage[] messages = new J3dMessage[MAX_STRIPE_SIZE];
+	int size = 0;
+
+	// Messages taken, taken from the pool and freed; only the hits and
+	// the taken counts are reset by getStatistics
+	long gets = 0L;
+	long hits = 0L;
+	long totalGets = 0L;
+	long frees = 0L;
+    }
+
+    /**
+     * Returns a message with no args, from the pool if it is enabled and
+     * not empty.
+     */
+    static J3dMessage getMessage() {
+	if (!VirtualUniverse.mc.messagePool) {
+	    return new J3dMessage();
+	}
+
+	int index = (int)Thread.currentThread().getId() & (NUM_STRIPES - 1);
+	Stripe stripe = stripes[index];
+	J3dMessage m = null;
+	synchronized (stripe) {
+	    stripe.gets++;
+	    stripe.totalGets++;
+	    if (stripe.size > 0) {
+		m = stripe.messages[--stripe.size];
+		stripe.messages[stripe.size] = null;
+		stripe.hits++;
+	    }
+	}
+
+	if (m == null) {
+	    m = new J3dMessage();
+	} else {
+	    m.reset();
+	}
+	m.poolStripe = index;
+	return m;
+    }
+
+    /**
+     * Puts a message whose refcount dropped to 0 back to the pool, if it
+     * was taken from it.  Called with the lock of the message held.
+     */
+    static void freeMessage(J3dMessage m) {
+	int index = m.poolStripe;
+	if (index < 0) {
+	    return;
+	}
+	// Not pooled until taken again, in case of an extra decRefcount
+	m.poolStripe = -1;
+
+	Stripe stripe = stripes[index];
+	synchronized (stripe) {
+	    stripe.frees++;
+	    if (stripe.size < MAX_STRIPE_SIZE) {
+		stripe.messages[stripe.size++] = m;
+	    }
+	}
+    }
+
+    /**
+     * Returns the hit rate of the pool since the last call, and the number
+     * of pooled messages that are still in use.
+     */
+    static String getStatistics() {
+	long gets = 0L, hits = 0L, live = 0L;
+	int size = 0;
+	for (int i = 0; i < NUM_STRIPES; i++) {
+	    Stripe stripe = stripes[i];
+	    synchronized (stripe) {
+		gets += stripe.gets;
+		hits += stripe.hits;
+		live += stripe.totalGets - stripe.frees;
+		size += stripe.size;
+		stripe.gets = 0L;
+		stripe.hits = 0L;
+	    }
+	}
+
+	StringBuffer strBuf = new StringBuffer();
+	strBuf.append("MessagePool [").
+		append(gets).
+		append("] = ").
+		append(gets > 0 ? 100.0 * hits / gets : 0.0).
+		append(" % hits, ").
+		append(live).
+		append(" live, ").
+		append(size).
+		append(" pooled");
+	return strBuf.toString();
+    }
+}
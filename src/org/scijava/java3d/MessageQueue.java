@@ -0,0 +1,152 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free queue of the messages of a J3dStructure, with many producers
+ * and one consumer.  The producers link a new node after the tail they
+ * swap in; the consumer takes the messages from the head, up to the first
+ * one whose time is past the reference time, without shifting the others.
+ * <p>
+ * MasterControl.sendMessage adds the messages under its timeLock in the
+ * order of their time, so the queue is ordered by time as well.  The
+ * consumer is the update thread of the structure, or MasterControl while
+ * that thread is not running; a message is taken from its node with a
+ * compare and set, so that it is never taken twice.
+ */
+class MessageQueue {
+
+    private static final class Node {
+	volatile J3dMessage message;
+	volatile Node next;
+
+	Node(J3dMessage message) {
+	    this.message = message;
+	}
+    }
+
+    private static final AtomicReferenceFieldUpdater<Node, J3dMessage> messageUpdater =
+	AtomicReferenceFieldUpdater.newUpdater(Node.class, J3dMessage.class, "message");
+
+    // Last node whose message was taken, only moved by the consumer
+    private volatile Node head;
+
+    // Last node added, swapped by the producers
+    private final AtomicReference<Node> tail;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    MessageQueue() {
+	head = new Node(null);
+	tail = new AtomicReference<Node>(head);
+    }
+
+    /**
+     * Adds a message at the end of the queue.
+     */
+    void add(J3dMessage message) {
+	Node node = new Node(message);
+	size.incrementAndGet();
+	Node prev = tail.getAndSet(node);
+	// Until this is set, the consumer sees the queue ending at prev
+	prev.next = node;
+    }
+
+    /**
+     * Removes and returns the first message if its time is not after
+     * referenceTime, or returns null.
+     */
+    J3dMessage poll(long referenceTime) {
+	Node h = head;
+	Node next;
+	while ((next = h.next) != null) {
+	    J3dMessage m = next.message;
+	    if (m != null) {
+		if (m.time > referenceTime) {
+		    break;
+		}
+		if (messageUpdater.compareAndSet(next, m, null)) {
+		    head = next;
+		    size.decrementAndGet();
+		    return m;
+		}
+	    }
+	    // Removed, skip it
+	    h = next;
+	    head = h;
+	}
+	return null;
+    }
+
+    /**
+     * Removes the first occurence of the message, leaving an empty node
+     * that poll skips.  Only called by the consumer.
+     */
+    boolean remove(J3dMessage message) {
+	for (Node n = head.next; n != null; n = n.next) {
+	    if ((n.message == message) &&
+		messageUpdater.compareAndSet(n, message, null)) {
+		size.decrementAndGet();
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Returns the messages of the queue, in order.  Only called by the
+     * consumer.
+     */
+    J3dMessage[] toArray() {
+	J3dMessage[] messages = new J3dMessage[Math.max(size.get(), 0)];
+	int n = 0;
+	for (Node node = head.next; node != null; node = node.next) {
+	    J3dMessage m = node.message;
+	    if (m != null) {
+		if (n == messages.length) {
+		    J3dMessage[] newMessages = new J3dMessage[2 * n + 1];
+		    System.arraycopy(messages, 0, newMessages, 0, n);
+		    messages = newMessages;
+		}
+		messages[n++] = m;
+	    }
+	}
+	if (n < messages.length) {
+	    J3dMessage[] newMessages = new J3dMessage[n];
+	    System.arraycopy(messages, 0, newMessages, 0, n);
+	    messages = newMessages;
+	}
+	return messages;
+    }
+
+    /**
+     * Removes all the messages.  Only called by the consumer.
+     */
+    void clear() {
+	while (poll(Long.MAX_VALUE) != null) {
+	}
+    }
+
+    /**
+     * Returns the number of messages, which may be off while messages are
+     * being added.
+     */
+    int size() {
+	return Math.max(size.get(), 0);
+    }
+}
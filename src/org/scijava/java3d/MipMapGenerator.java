@@ -0,0 +1,403 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Filters a mipmap level of a texture from the previous level, with a box
+ * or a Lanczos filter.  The images are filtered in their internal format:
+ * each byte of the pixels, or of the int pixels, is filtered on its own,
+ * so the level gets the same layout as the previous one.  The filter is
+ * separable; the level is filtered along x, then y, then z.
+ * <p>
+ * Regions are given in the coordinates of the image data, whose rows are
+ * flipped when the image is not y-up, as {x0, y0, z0, x1, y1, z1} with
+ * the upper bounds excluded.  Large regions are split into blocks of rows
+ * filtered concurrently on the worker pool of the image components.
+ */
+class MipMapGenerator {
+
+    // Radius of the Lanczos kernel, in texels of the level generated
+    private static final int LANCZOS_RADIUS = 2;
+
+    // Maximum number of texels filtered at once
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final Object src, dst;
+    private final int srcWidth, srcHeight;
+    private final int dstWidth, dstHeight;
+
+    // Bytes per pixel of byte images, 4 for int images
+    private final int channels;
+    private final boolean intPixels;
+
+    private final Axis xAxis, yAxis, zAxis;
+
+    /**
+     * Creates a generator of the level dst from the level src, whose
+     * images must have the same internal format.
+     */
+    MipMapGenerator(int filter, ImageComponentRetained src,
+	    ImageComponentRetained dst) {
+	this.src = src.imageData.get();
+	this.dst = dst.imageData.get();
+	srcWidth = src.width;
+	srcHeight = src.height;
+	dstWidth = dst.width;
+	dstHeight = dst.height;
+
+	intPixels = (this.src instanceof int[]) || (this.src instanceof IntBuffer);
+	channels = intPixels ? 4 : src.getUnitsPerPixel();
+
+	xAxis = new Axis(filter, src.width, dst.width);
+	yAxis = new Axis(filter, src.height, dst.height);
+	zAxis = new Axis(filter, src.depth, dst.depth);
+    }
+
+    /**
+     * Returns the region of the level that depends on the region of the
+     * previous level, or null if it is empty.
+     */
+    int[] getAffectedRegion(int[] region) {
+	int[] affected = new int[6];
+	if (!xAxis.getAffected(region[0], region[3], affected, 0) ||
+		!yAxis.getAffected(region[1], region[4], affected, 1) ||
+		!zAxis.getAffected(region[2], region[5], affected, 2)) {
+	    return null;
+	}
+	return affected;
+    }
+
+    /**
+     * Filters the region of the level.
+     */
+    void generate(int[] region) {
+	BlockTask task = new BlockTask(region[0], region[3], region[1],
+		region[4], region[2], region[5], false);
+	long size = (long)(region[3] - region[0]) * (region[4] - region[1]) *
+	    (region[5] - region[2]);
+	if (VirtualUniverse.mc.parallelImageCopy &&
+		(VirtualUniverse.mc.imageThreads > 1) &&
+		(size >= 2 * ImageComponentRetained.IMAGE_SIZE_512X512)) {
+	    task.parallel = true;
+	    ImageComponentRetained.getWorkerPool().invoke(task);
+	} else {
+	    task.compute();
+	}
+    }
+
+    /**
+     * Filters a block of the level, splitting it in halves along z, then y,
+     * until it has no more than BLOCK_SIZE texels.
+     */
+    private class BlockTask extends RecursiveAction {
+	private final int x0, x1, y0, y1, z0, z1;
+	boolean parallel;
+
+	BlockTask(int x0, int x1, int y0, int y1, int z0, int z1,
+		boolean parallel) {
+	    this.x0 = x0;
+	    this.x1 = x1;
+	    this.y0 = y0;
+	    this.y1 = y1;
+	    this.z0 = z0;
+	    this.z1 = z1;
+	    this.parallel = parallel;
+	}
+
+	@Override
+	protected void compute() {
+	    long size = (long)(x1 - x0) * (y1 - y0) * (z1 - z0);
+	    BlockTask t1, t2;
+	    if ((size <= BLOCK_SIZE) || ((z1 - z0 < 2) && (y1 - y0 < 2))) {
+		filterBlock(x0, x1, y0, y1, z0, z1);
+		return;
+	    } else if (z1 - z0 >= 2) {
+		int mid = (z0 + z1) >>> 1;
+		t1 = new BlockTask(x0, x1, y0, y1, z0, mid, parallel);
+		t2 = new BlockTask(x0, x1, y0, y1, mid, z1, parallel);
+	    } else {
+		int mid = (y0 + y1) >>> 1;
+		t1 = new BlockTask(x0, x1, y0, mid, z0, z1, parallel);
+		t2 = new BlockTask(x0, x1, mid, y1, z0, z1, parallel);
+	    }
+	    if (parallel) {
+		invokeAll(t1, t2);
+	    } else {
+		t1.compute();
+		t2.compute();
+	    }
+	}
+    }
+
+    private void filterBlock(int x0, int x1, int y0, int y1, int z0, int z1) {
+	int w = x1 - x0;
+	int sxMin = xAxis.getFirstTap(x0, x1);
+	int sxMax = xAxis.getLastTap(x0, x1);
+	int syMin = yAxis.getFirstTap(y0, y1);
+	int syMax = yAxis.getLastTap(y0, y1);
+	int szMin = zAxis.getFirstTap(z0, z1);
+	int szMax = zAxis.getLastTap(z0, z1);
+	int ny = syMax - syMin + 1;
+	int nz = szMax - szMin + 1;
+	int rowSize = w * channels;
+
+	// Filter the rows of the previous level along x
+	float[] row = new float[(sxMax - sxMin + 1) * channels];
+	float[] tmpX = new float[nz * ny * rowSize];
+	for (int sz = szMin; sz <= szMax; sz++) {
+	    for (int sy = syMin; sy <= syMax; sy++) {
+		unpackRow(((sz * srcHeight) + sy) * srcWidth + sxMin,
+			sxMax - sxMin + 1, row);
+		int off = ((sz - szMin) * ny + (sy - syMin)) * rowSize;
+		for (int x = x0; x < x1; x++) {
+		    int t = x * xAxis.maxTaps;
+		    int n = xAxis.count[x];
+		    for (int k = 0; k < n; k++, t++) {
+			float wk = xAxis.weights[t];
+			int s = (xAxis.taps[t] - sxMin) * channels;
+			for (int c = 0; c < channels; c++) {
+			    tmpX[off + c] += wk * row[s + c];
+			}
+		    }
+		    off += channels;
+		}
+	    }
+	}
+
+	// Then along y
+	int nh = y1 - y0;
+	float[] tmpY = new float[nz * nh * rowSize];
+	for (int sz = 0; sz < nz; sz++) {
+	    for (int y = y0; y < y1; y++) {
+		int off = (sz * nh + (y - y0)) * rowSize;
+		int t = y * yAxis.maxTaps;
+		int n = yAxis.count[y];
+		for (int k = 0; k < n; k++, t++) {
+		    float wk = yAxis.weights[t];
+		    int s = (sz * ny + (yAxis.taps[t] - syMin)) * rowSize;
+		    for (int i = 0; i < rowSize; i++) {
+			tmpY[off + i] += wk * tmpX[s + i];
+		    }
+		}
+	    }
+	}
+
+	// Then along z, into the level
+	float[] out = new float[rowSize];
+	for (int z = z0; z < z1; z++) {
+	    for (int y = y0; y < y1; y++) {
+		Arrays.fill(out, 0.0f);
+		int t = z * zAxis.maxTaps;
+		int n = zAxis.count[z];
+		for (int k = 0; k < n; k++, t++) {
+		    float wk = zAxis.weights[t];
+		    int s = ((zAxis.taps[t] - szMin) * nh + (y - y0)) * rowSize;
+		    for (int i = 0; i < rowSize; i++) {
+			out[i] += wk * tmpY[s + i];
+		    }
+		}
+		packRow(out, ((z * dstHeight) + y) * dstWidth + x0, w);
+	    }
+	}
+    }
+
+    // Reads n pixels of the previous level from the pixel index, one
+    // float per channel
+    private void unpackRow(int index, int n, float[] row) {
+	int j = 0;
+	if (src instanceof byte[]) {
+	    byte[] b = (byte[])src;
+	    int end = (index + n) * channels;
+	    for (int i = index * channels; i < end; i++) {
+		row[j++] = b[i] & 0xff;
+	    }
+	} else if (src instanceof ByteBuffer) {
+	    ByteBuffer b = (ByteBuffer)src;
+	    int end = (index + n) * channels;
+	    for (int i = index * channels; i < end; i++) {
+		row[j++] = b.get(i) & 0xff;
+	    }
+	} else if (src instanceof int[]) {
+	    int[] a = (int[])src;
+	    for (int i = index; i < index + n; i++) {
+		int p = a[i];
+		row[j++] = p & 0xff;
+		row[j++] = (p >> 8) & 0xff;
+		row[j++] = (p >> 16) & 0xff;
+		row[j++] = p >>> 24;
+	    }
+	} else {
+	    IntBuffer a = (IntBuffer)src;
+	    for (int i = index; i < index + n; i++) {
+		int p = a.get(i);
+		row[j++] = p & 0xff;
+		row[j++] = (p >> 8) & 0xff;
+		row[j++] = (p >> 16) & 0xff;
+		row[j++] = p >>> 24;
+	    }
+	}
+    }
+
+    // Writes n pixels of the level from the pixel index
+    private void packRow(float[] row, int index, int n) {
+	int j = 0;
+	if (intPixels) {
+	    int[] a = (int[])dst;
+	    for (int i = index; i < index + n; i++) {
+		a[i] = toByte(row[j]) | (toByte(row[j + 1]) << 8) |
+		    (toByte(row[j + 2]) << 16) | (toByte(row[j + 3]) << 24);
+		j += 4;
+	    }
+	} else {
+	    byte[] b = (byte[])dst;
+	    int end = (index + n) * channels;
+	    for (int i = index * channels; i < end; i++) {
+		b[i] = (byte)toByte(row[j++]);
+	    }
+	}
+    }
+
+    private static int toByte(float v) {
+	int i = (int)(v + 0.5f);
+	return (i < 0) ? 0 : ((i > 255) ? 255 : i);
+    }
+
+    /**
+     * Taps and weights of the filter along one axis, for each texel of the
+     * level.  The taps are clamped to the edge of the previous level.
+     */
+    private static class Axis {
+	final int maxTaps;
+	final int[] count;
+	final int[] taps;
+	final float[] weights;
+
+	Axis(int filter, int srcSize, int dstSize) {
+	    float scale = (float)srcSize / dstSize;
+	    if (srcSize == dstSize) {
+		maxTaps = 1;
+	    } else if (filter == Texture.MIPMAP_GENERATION_LANCZOS) {
+		maxTaps = 2 * (int)Math.ceil(LANCZOS_RADIUS * scale) + 1;
+	    } else {
+		maxTaps = (int)Math.ceil(scale);
+	    }
+	    count = new int[dstSize];
+	    taps = new int[dstSize * maxTaps];
+	    weights = new float[dstSize * maxTaps];
+
+	    for (int i = 0; i < dstSize; i++) {
+		int t = i * maxTaps;
+		int n = 0;
+		if (srcSize == dstSize) {
+		    taps[t] = i;
+		    weights[t] = 1.0f;
+		    n = 1;
+		} else if (filter == Texture.MIPMAP_GENERATION_LANCZOS) {
+		    float center = (i + 0.5f) * scale;
+		    float radius = LANCZOS_RADIUS * scale;
+		    int s0 = (int)Math.floor(center - radius - 0.5f) + 1;
+		    int s1 = (int)Math.ceil(center + radius - 0.5f) - 1;
+		    float sum = 0.0f;
+		    for (int s = s0; (s <= s1) && (n < maxTaps); s++) {
+			float wk = lanczos((s + 0.5f - center) / scale);
+			taps[t + n] = Math.min(Math.max(s, 0), srcSize - 1);
+			weights[t + n] = wk;
+			sum += wk;
+			n++;
+		    }
+		    for (int k = 0; k < n; k++) {
+			weights[t + k] /= sum;
+		    }
+		} else {
+		    int s0 = (int)(i * scale);
+		    int s1 = Math.min((int)((i + 1) * scale), srcSize);
+		    if (s1 <= s0) {
+			s1 = s0 + 1;
+		    }
+		    for (int s = s0; (s < s1) && (n < maxTaps); s++) {
+			taps[t + n] = s;
+			n++;
+		    }
+		    for (int k = 0; k < n; k++) {
+			weights[t + k] = 1.0f / n;
+		    }
+		}
+		count[i] = n;
+	    }
+	}
+
+	private static float lanczos(float x) {
+	    if (x == 0.0f) {
+		return 1.0f;
+	    }
+	    if ((x <= -LANCZOS_RADIUS) || (x >= LANCZOS_RADIUS)) {
+		return 0.0f;
+	    }
+	    double px = Math.PI * x;
+	    return (float)(LANCZOS_RADIUS * Math.sin(px) *
+		    Math.sin(px / LANCZOS_RADIUS) / (px * px));
+	}
+
+	// Stores in range the texels whose taps meet [from, to), returns
+	// false if there are none
+	boolean getAffected(int from, int to, int[] range, int axis) {
+	    int first = -1, last = -1;
+	    for (int i = 0; i < count.length; i++) {
+		int t = i * maxTaps;
+		for (int k = 0; k < count[i]; k++) {
+		    if ((taps[t + k] >= from) && (taps[t + k] < to)) {
+			if (first < 0) {
+			    first = i;
+			}
+			last = i;
+			break;
+		    }
+		}
+	    }
+	    if (first < 0) {
+		return false;
+	    }
+	    range[axis] = first;
+	    range[axis + 3] = last + 1;
+	    return true;
+	}
+
+	int getFirstTap(int from, int to) {
+	    int first = Integer.MAX_VALUE;
+	    for (int i = from; i < to; i++) {
+		int t = i * maxTaps;
+		for (int k = 0; k < count[i]; k++) {
+		    first = Math.min(first, taps[t + k]);
+		}
+	    }
+	    return first;
+	}
+
+	int getLastTap(int from, int to) {
+	    int last = -1;
+	    for (int i = from; i < to; i++) {
+		int t = i * maxTaps;
+		for (int k = 0; k < count[i]; k++) {
+		    last = Math.max(last, taps[t + k]);
+		}
+	    }
+	    return last;
+	}
+    }
+}
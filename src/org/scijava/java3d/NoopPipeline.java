@@ -50,7 +50,8 @@ class NoopPipeline extends Pipeline {
     void initialize(Pipeline.Type pipelineType) {
         super.initialize(pipelineType);
 
-        assert pipelineType == Pipeline.Type.NOOP;
+        assert pipelineType == Pipeline.Type.NOOP ||
+            pipelineType == Pipeline.Type.RECORDING;
     }
 
     // ---------------------------------------------------------------------
@@ -75,6 +76,22 @@ class NoopPipeline extends Pipeline {
             float[] varray, float[] cdata, int cdirty) {
     }
 
+    // used for GeometryArrays by Copy whose vertex data is in the vertex
+    // buffer object "id"
+    @Override
+    void executeVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int id) {
+    }
+
     // used by GeometryArray by Reference with java arrays
     @Override
     void executeVA(Context ctx,
@@ -204,6 +221,24 @@ class NoopPipeline extends Pipeline {
             int[] indexCoord) {
     }
 
+    // by-copy, vertex data in the vertex buffer object "id"
+    @Override
+    void executeIndexedVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int id,
+            int[] indexCoord) {
+    }
+
     // interleaved, by reference, nio buffer
     @Override
     void executeIndexedGeometryBuffer(Context ctx,
@@ -1044,10 +1079,11 @@ class NoopPipeline extends Pipeline {
             boolean offScreen, int width, int height) {
     }
 
-    // This is the native for creating offscreen buffer
+    // This is the native for creating offscreen buffer. Offscreen canvases
+    // render into a dummy drawable, no GL context is needed
     @Override
     Drawable createOffScreenBuffer(Canvas3D cv, Context ctx, int width, int height) {
-        return null;
+        return new NoopDrawingSurfaceObject.NoopDrawable();
     }
 
     @Override
@@ -1059,6 +1095,14 @@ class NoopPipeline extends Pipeline {
     void readOffScreenBuffer(Canvas3D cv, Context ctx, int format, int type, Object data, int width, int height) {
     }
 
+    @Override
+    void startOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int type, int width, int height) {
+    }
+
+    @Override
+    void finishOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int type, Object data, int width, int height) {
+    }
+
 // The native method for swapBuffers
 @Override
 void swapBuffers(Canvas3D cv, Context ctx, Drawable drawable) {}
@@ -1300,6 +1344,18 @@ void swapBuffers(Canvas3D cv, Context ctx, Drawable drawable) {}
     }
     @Override
     void freeTexture(Context ctx, int id) {
+    }
+
+    @Override
+    void createVertexBuffer(Context ctx, int id, float[] data, int length) {
+    }
+
+    @Override
+    void updateVertexBuffer(Context ctx, int id, float[] data, int offset, int length) {
+    }
+
+    @Override
+    void freeVertexBuffer(Context ctx, int id) {
     }
 
 	@Override
@@ -1358,13 +1414,20 @@ void swapBuffers(Canvas3D cv, Context ctx, Drawable drawable) {}
         return gconfig;
     }
 
-    // Get best graphics config from pipeline
+    // Get best graphics config from pipeline. Without a screen device, use
+    // the configuration passed in, for instance the one of a BufferedImage,
+    // so that offscreen canvases can be created in a headless environment
     @Override
     GraphicsConfiguration getBestConfiguration(GraphicsConfigTemplate3D gct,
             GraphicsConfiguration[] gc) {
 
-        GraphicsConfiguration gc1 = GraphicsEnvironment.getLocalGraphicsEnvironment().
-                getDefaultScreenDevice().getDefaultConfiguration();
+        GraphicsConfiguration gc1;
+        if (GraphicsEnvironment.isHeadless()) {
+            gc1 = gc[0];
+        } else {
+            gc1 = GraphicsEnvironment.getLocalGraphicsEnvironment().
+                    getDefaultScreenDevice().getDefaultConfiguration();
+        }
         // We need to cache the GraphicsTemplate3D
 	synchronized (Canvas3D.graphicsConfigTable) {
 	    if (Canvas3D.graphicsConfigTable.get(gc1) == null) {
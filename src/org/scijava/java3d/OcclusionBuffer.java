@@ -0,0 +1,487 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+import org.scijava.vecmath.Point3d;
+
+/**
+ * A low resolution depth buffer of the occluder shapes of a View, drawn
+ * on the CPU by the RenderBin before it finds the visible objects, and
+ * against which BHTree.select culls the nodes of the bounding hierarchy
+ * hidden behind the occluders.
+ * <p>
+ * A pixel holds a depth only if the whole pixel is inside an occluder
+ * polygon, and that depth is the farthest depth of the polygon over the
+ * pixel, so that no part of the scene seen through a gap between the
+ * occluders is ever hidden.  The polygons are the quads, and the pairs of
+ * consecutive triangles sharing an edge, that are convex, and the other
+ * triangles, so that the pixels along the diagonals of the quads of a
+ * mesh are covered as well.  Each level of the depth pyramid holds the
+ * farthest depth of 2x2 texels of the level below, so a box is hidden if
+ * its nearest depth is behind the texels of the level where the pixels
+ * its screen rectangle touches span at most 2x2 texels.
+ * <p>
+ * Depths are the clip coordinates z / w, negated so that they grow away
+ * from the eye, which are linear in screen space for both perspective and
+ * parallel projections.  Triangles and boxes that reach in front of the
+ * near clip plane are not used.
+ */
+class OcclusionBuffer {
+
+    // Margin by which a box must be behind the occluders, so that the
+    // rounding of the transforms never hides an occluder by itself
+    private static final double DEPTH_EPSILON = 1.0e-9;
+
+    private int width = 0;
+    private int height = 0;
+
+    // Levels of the pyramid, level 0 being the buffer itself.  Pixels not
+    // covered by an occluder hold infinity.
+    private double[][] levels = new double[0][];
+    private int[] levelWidths = new int[0];
+    private int levelCount = 0;
+
+    // Whether an occluder covered any pixel since clear
+    private boolean empty = true;
+
+    // Virtual world to clip coordinates, and local to clip coordinates of
+    // the occluder being drawn
+    private final double[] vworldToCc = new double[16];
+    private final Transform3D localToCc = new Transform3D();
+
+    // Screen coordinates and depth of the vertices of the triangle kept to
+    // be merged with the next one, in 0 to 2, and of the next one, in 3
+    // to 5
+    private final double[] xs = new double[6];
+    private final double[] ys = new double[6];
+    private final double[] ds = new double[6];
+    private boolean pending = false;
+    private final Point3d point = new Point3d();
+
+    // Vertices and edge functions of the convex polygon being drawn
+    private final double[] pxs = new double[4];
+    private final double[] pys = new double[4];
+    private final double[] pds = new double[4];
+    private final double[] edgeA = new double[4];
+    private final double[] edgeB = new double[4];
+    private final double[] edgeC = new double[4];
+    private final double[] edgeMargin = new double[4];
+
+    /**
+     * Clears the buffer for a canvas of the given size in pixels, whose
+     * projection from virtual world coordinates is vworldToCc.  The buffer
+     * is size pixels wide, with the aspect ratio of the canvas.
+     */
+    void clear(Transform3D vworldToCc, int size,
+	       int canvasWidth, int canvasHeight) {
+	int w = Math.max(size, 1);
+	int h = w;
+	if ((canvasWidth > 0) && (canvasHeight > 0)) {
+	    h = Math.max((int)((long)w * canvasHeight / canvasWidth), 1);
+	}
+	if ((w != width) || (h != height)) {
+	    allocate(w, h);
+	}
+	Arrays.fill(levels[0], Double.POSITIVE_INFINITY);
+	System.arraycopy(vworldToCc.mat, 0, this.vworldToCc, 0, 16);
+	empty = true;
+    }
+
+    private void allocate(int w, int h) {
+	width = w;
+	height = h;
+	int n = 1;
+	while ((w >> (n - 1)) > 1 || (h >> (n - 1)) > 1) {
+	    n++;
+	}
+	levels = new double[n][];
+	levelWidths = new int[n];
+	for (int k = 0; k < n; k++) {
+	    int lw = Math.max(((w - 1) >> k) + 1, 1);
+	    int lh = Math.max(((h - 1) >> k) + 1, 1);
+	    levels[k] = new double[lw * lh];
+	    levelWidths[k] = lw;
+	}
+	levelCount = n;
+    }
+
+    /**
+     * Draws the triangles of the geometry of an occluder shape, whose
+     * local to virtual world transform is localToVworld.  Only the
+     * TriangleArray, QuadArray and IndexedTriangleArray geometries are
+     * drawn; the others do not occlude anything.
+     */
+    void addOccluder(GeometryRetained geo, Transform3D localToVworld) {
+	if (!(geo instanceof GeometryArrayRetained)) {
+	    return;
+	}
+	GeometryArrayRetained ga = (GeometryArrayRetained)geo;
+	if ((ga.vertexFormat & GeometryArray.COORDINATES) == 0) {
+	    return;
+	}
+
+	localToCc.set(vworldToCc);
+	localToCc.mul(localToVworld);
+
+	if (ga instanceof TriangleArrayRetained) {
+	    int i = ((ga.vertexFormat & GeometryArray.BY_REFERENCE) == 0 ?
+		     ga.initialVertexIndex : ga.initialCoordIndex);
+	    for (; i + 2 < ga.validVertexCount; i += 3) {
+		addTriangle(ga, i, i + 1, i + 2);
+	    }
+	    flushTriangle();
+	} else if (ga instanceof QuadArrayRetained) {
+	    int i = ((ga.vertexFormat & GeometryArray.BY_REFERENCE) == 0 ?
+		     ga.initialVertexIndex : ga.initialCoordIndex);
+	    for (; i + 3 < ga.validVertexCount; i += 4) {
+		drawQuad(ga, i, i + 1, i + 2, i + 3);
+	    }
+	} else if (ga instanceof IndexedTriangleArrayRetained) {
+	    IndexedTriangleArrayRetained ita = (IndexedTriangleArrayRetained)ga;
+	    int[] indices = ita.indexCoord;
+	    int end = ita.initialIndexIndex + ita.validIndexCount;
+	    for (int i = ita.initialIndexIndex; i + 2 < end; i += 3) {
+		addTriangle(ga, indices[i], indices[i + 1], indices[i + 2]);
+	    }
+	    flushTriangle();
+	}
+    }
+
+    // Draws the previous triangle, merged with this one when they form a
+    // convex quad, and keeps this one otherwise
+    private void addTriangle(GeometryArrayRetained ga, int i0, int i1, int i2) {
+	if (!project(ga, i0, 3) || !project(ga, i1, 4) || !project(ga, i2, 5)) {
+	    flushTriangle();
+	    return;
+	}
+	if (pending && mergeTriangles()) {
+	    pending = false;
+	    return;
+	}
+	flushTriangle();
+	System.arraycopy(xs, 3, xs, 0, 3);
+	System.arraycopy(ys, 3, ys, 0, 3);
+	System.arraycopy(ds, 3, ds, 0, 3);
+	pending = true;
+    }
+
+    private void flushTriangle() {
+	if (pending) {
+	    setVertex(0, 0);
+	    setVertex(1, 1);
+	    setVertex(2, 2);
+	    drawPolygon(3);
+	    pending = false;
+	}
+    }
+
+    // Draws the kept triangle and the next one as a single quad if they
+    // share an edge and the quad is convex
+    private boolean mergeTriangles() {
+	for (int j = 0; j < 3; j++) {
+	    int a = j, b = (j + 1) % 3, c = (j + 2) % 3;
+	    for (int k = 3; k < 6; k++) {
+		int k1 = (k == 5) ? 3 : k + 1;
+		int d = (k1 == 5) ? 3 : k1 + 1;
+		// The shared edge is opposite to c and d
+		if ((sameVertex(a, k1) && sameVertex(b, k)) ||
+		    (sameVertex(a, k) && sameVertex(b, k1))) {
+		    setVertex(0, a);
+		    setVertex(1, d);
+		    setVertex(2, b);
+		    setVertex(3, c);
+		    if (isConvex(4)) {
+			drawPolygon(4);
+			return true;
+		    }
+		    return false;
+		}
+	    }
+	}
+	return false;
+    }
+
+    private boolean sameVertex(int i, int j) {
+	return (xs[i] == xs[j]) && (ys[i] == ys[j]) && (ds[i] == ds[j]);
+    }
+
+    private void drawQuad(GeometryArrayRetained ga,
+			  int i0, int i1, int i2, int i3) {
+	if (!project(ga, i0, 0) || !project(ga, i1, 1) ||
+	    !project(ga, i2, 2) || !project(ga, i3, 3)) {
+	    return;
+	}
+	for (int i = 0; i < 4; i++) {
+	    setVertex(i, i);
+	}
+	if (isConvex(4)) {
+	    drawPolygon(4);
+	} else {
+	    setVertex(0, 0);
+	    setVertex(1, 1);
+	    setVertex(2, 2);
+	    drawPolygon(3);
+	    setVertex(0, 0);
+	    setVertex(1, 2);
+	    setVertex(2, 3);
+	    drawPolygon(3);
+	}
+    }
+
+    private void setVertex(int i, int k) {
+	pxs[i] = xs[k];
+	pys[i] = ys[k];
+	pds[i] = ds[k];
+    }
+
+    // Returns true if the polygon turns the same way at each vertex
+    private boolean isConvex(int n) {
+	boolean left = false, right = false;
+	for (int i = 0; i < n; i++) {
+	    int j = (i + 1) % n, k = (i + 2) % n;
+	    double cross = (pxs[j] - pxs[i]) * (pys[k] - pys[j]) -
+		(pxs[k] - pxs[j]) * (pys[j] - pys[i]);
+	    if (cross > 0.0) {
+		left = true;
+	    } else if (cross < 0.0) {
+		right = true;
+	    } else if (cross != 0.0) {
+		return false;
+	    }
+	}
+	return !(left && right);
+    }
+
+    // Draws the convex polygon of n vertices, 3 or 4, in pxs, pys and pds
+    private void drawPolygon(int n) {
+	// Both faces occlude; make the polygon counterclockwise, keeping the
+	// first vertex so that the fan of triangles stays the same
+	double area = 0.0;
+	for (int i = 0; i < n; i++) {
+	    int j = (i + 1) % n;
+	    area += pxs[i] * pys[j] - pxs[j] * pys[i];
+	}
+	if (area < 0.0) {
+	    for (int i = 1, j = n - 1; i < j; i++, j--) {
+		double t = pxs[i]; pxs[i] = pxs[j]; pxs[j] = t;
+		t = pys[i]; pys[i] = pys[j]; pys[j] = t;
+		t = pds[i]; pds[i] = pds[j]; pds[j] = t;
+	    }
+	    area = -area;
+	}
+	if (!(area > 0.0)) {
+	    return;
+	}
+
+	// Pixels that may be inside the polygon
+	double minX = pxs[0], maxX = pxs[0], minY = pys[0], maxY = pys[0];
+	for (int i = 1; i < n; i++) {
+	    minX = Math.min(minX, pxs[i]);
+	    maxX = Math.max(maxX, pxs[i]);
+	    minY = Math.min(minY, pys[i]);
+	    maxY = Math.max(maxY, pys[i]);
+	}
+	int x0 = Math.max((int)Math.floor(minX), 0);
+	int x1 = Math.min((int)Math.ceil(maxX), width) - 1;
+	int y0 = Math.max((int)Math.floor(minY), 0);
+	int y1 = Math.min((int)Math.ceil(maxY), height) - 1;
+	if ((x0 > x1) || (y0 > y1)) {
+	    return;
+	}
+
+	// Edge functions a x + b y + c, positive inside.  The whole pixel is
+	// inside an edge when the function at its center is at least the
+	// largest change of the function over half a pixel.
+	for (int i = 0; i < n; i++) {
+	    int j = (i + 1) % n;
+	    edgeA[i] = pys[i] - pys[j];
+	    edgeB[i] = pxs[j] - pxs[i];
+	    edgeC[i] = pxs[i] * pys[j] - pxs[j] * pys[i];
+	    edgeMargin[i] = 0.5 * (Math.abs(edgeA[i]) + Math.abs(edgeB[i]));
+	}
+
+	// Depth planes of the triangles 0 1 2 and 0 2 3 of the polygon, and
+	// their largest change over half a pixel.  The depth of a pixel is
+	// the farthest of the triangles over the pixel, which bounds the
+	// depth of a non-planar quad as well.
+	double ddx0 = 0.0, ddy0 = 0.0, dm0 = 0.0, dMax0 = 0.0;
+	double ddx1 = 0.0, ddy1 = 0.0, dm1 = 0.0, dMax1 = 0.0;
+	double x = pxs[0], y = pys[0], d = pds[0];
+	double a0 = (pxs[1] - x) * (pys[2] - y) - (pxs[2] - x) * (pys[1] - y);
+	double a1 = 0.0;
+	if (a0 > 0.0) {
+	    ddx0 = ((pds[1] - d) * (pys[2] - y) - (pds[2] - d) * (pys[1] - y)) / a0;
+	    ddy0 = ((pds[2] - d) * (pxs[1] - x) - (pds[1] - d) * (pxs[2] - x)) / a0;
+	    dm0 = 0.5 * (Math.abs(ddx0) + Math.abs(ddy0));
+	    dMax0 = Math.max(d, Math.max(pds[1], pds[2]));
+	}
+	if (n == 4) {
+	    a1 = (pxs[2] - x) * (pys[3] - y) - (pxs[3] - x) * (pys[2] - y);
+	    if (a1 > 0.0) {
+		ddx1 = ((pds[2] - d) * (pys[3] - y) - (pds[3] - d) * (pys[2] - y)) / a1;
+		ddy1 = ((pds[3] - d) * (pxs[2] - x) - (pds[2] - d) * (pxs[3] - x)) / a1;
+		dm1 = 0.5 * (Math.abs(ddx1) + Math.abs(ddy1));
+		dMax1 = Math.max(d, Math.max(pds[2], pds[3]));
+	    }
+	}
+
+	double[] buffer = levels[0];
+	for (int py = y0; py <= y1; py++) {
+	    double cy = py + 0.5;
+	    int index = py * width + x0;
+	    pixels:
+	    for (int px = x0; px <= x1; px++, index++) {
+		double cx = px + 0.5;
+		for (int i = 0; i < n; i++) {
+		    if (!(edgeA[i] * cx + edgeB[i] * cy + edgeC[i] >=
+			  edgeMargin[i])) {
+			continue pixels;
+		    }
+		}
+		double depth = Double.NEGATIVE_INFINITY;
+		if (a0 > 0.0) {
+		    depth = Math.min(d + ddx0 * (cx - x) + ddy0 * (cy - y) + dm0,
+				     dMax0);
+		}
+		if (a1 > 0.0) {
+		    depth = Math.max(depth,
+				     Math.min(d + ddx1 * (cx - x) +
+					      ddy1 * (cy - y) + dm1, dMax1));
+		}
+		if (depth < buffer[index]) {
+		    buffer[index] = depth;
+		    empty = false;
+		}
+	    }
+	}
+    }
+
+    // Projects a vertex of the geometry into xs, ys and ds.  Returns false
+    // if it is behind the eye or in front of the near clip plane.
+    private boolean project(GeometryArrayRetained ga, int vertex, int k) {
+	ga.getVertexData(vertex, point);
+	double[] m = localToCc.mat;
+	double px = point.x, py = point.y, pz = point.z;
+	double w = m[12] * px + m[13] * py + m[14] * pz + m[15];
+	double z = m[8] * px + m[9] * py + m[10] * pz + m[11];
+	if (!(w > 0.0) || (z > w)) {
+	    return false;
+	}
+	xs[k] = ((m[0] * px + m[1] * py + m[2] * pz + m[3]) / w + 1.0) * 0.5 * width;
+	ys[k] = ((m[4] * px + m[5] * py + m[6] * pz + m[7]) / w + 1.0) * 0.5 * height;
+	ds[k] = -z / w;
+	return true;
+    }
+
+    /**
+     * Builds the levels of the pyramid once the occluders are drawn.
+     */
+    void buildPyramid() {
+	if (empty) {
+	    return;
+	}
+	for (int k = 1; k < levelCount; k++) {
+	    double[] src = levels[k - 1];
+	    double[] dst = levels[k];
+	    int sw = levelWidths[k - 1];
+	    int sh = src.length / sw;
+	    int dw = levelWidths[k];
+	    int dh = dst.length / dw;
+	    for (int y = 0; y < dh; y++) {
+		int sy0 = 2 * y;
+		int sy1 = Math.min(sy0 + 1, sh - 1);
+		for (int x = 0; x < dw; x++) {
+		    int sx0 = 2 * x;
+		    int sx1 = Math.min(sx0 + 1, sw - 1);
+		    dst[y * dw + x] =
+			Math.max(Math.max(src[sy0 * sw + sx0], src[sy0 * sw + sx1]),
+				 Math.max(src[sy1 * sw + sx0], src[sy1 * sw + sx1]));
+		}
+	    }
+	}
+    }
+
+    boolean isEmpty() {
+	return empty;
+    }
+
+    /**
+     * Returns true if the box, in virtual world coordinates, is hidden
+     * behind the occluders.  Returns false for boxes that reach in front
+     * of the near clip plane, or that are not on the canvas.
+     */
+    boolean isOccluded(BoundingBox box) {
+	if (empty) {
+	    return false;
+	}
+
+	double[] m = vworldToCc;
+	double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+	double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+	double minD = Double.POSITIVE_INFINITY;
+	for (int i = 0; i < 8; i++) {
+	    double px = ((i & 1) == 0) ? box.lower.x : box.upper.x;
+	    double py = ((i & 2) == 0) ? box.lower.y : box.upper.y;
+	    double pz = ((i & 4) == 0) ? box.lower.z : box.upper.z;
+	    double w = m[12] * px + m[13] * py + m[14] * pz + m[15];
+	    double z = m[8] * px + m[9] * py + m[10] * pz + m[11];
+	    // Also false for unbounded boxes, whose corners are not finite
+	    if (!(w > 0.0) || !(z <= w)) {
+		return false;
+	    }
+	    double x = (m[0] * px + m[1] * py + m[2] * pz + m[3]) / w;
+	    double y = (m[4] * px + m[5] * py + m[6] * pz + m[7]) / w;
+	    double d = -z / w;
+	    if (x < minX) minX = x;
+	    if (x > maxX) maxX = x;
+	    if (y < minY) minY = y;
+	    if (y > maxY) maxY = y;
+	    if (d < minD) minD = d;
+	}
+
+	// Pixels the box may cover, on the canvas
+	minX = (minX + 1.0) * 0.5 * width;
+	maxX = (maxX + 1.0) * 0.5 * width;
+	minY = (minY + 1.0) * 0.5 * height;
+	maxY = (maxY + 1.0) * 0.5 * height;
+	if (!(maxX >= 0.0) || !(minX < width) ||
+	    !(maxY >= 0.0) || !(minY < height)) {
+	    return false;
+	}
+	int x0 = Math.max((int)Math.floor(minX), 0);
+	int x1 = Math.min((int)Math.floor(maxX), width - 1);
+	int y0 = Math.max((int)Math.floor(minY), 0);
+	int y1 = Math.min((int)Math.floor(maxY), height - 1);
+
+	// Level where the rectangle spans at most 2x2 texels
+	int k = 0;
+	while (((x1 >> k) - (x0 >> k) > 1) || ((y1 >> k) - (y0 >> k) > 1)) {
+	    k++;
+	}
+
+	double[] level = levels[k];
+	int lw = levelWidths[k];
+	double depth = minD - DEPTH_EPSILON;
+	for (int y = y0 >> k; y <= (y1 >> k); y++) {
+	    for (int x = x0 >> k; x <= (x1 >> k); x++) {
+		if (!(level[y * lw + x] < depth)) {
+		    return false;
+		}
+	    }
+	}
+	return true;
+    }
+}
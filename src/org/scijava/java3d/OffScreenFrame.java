@@ -0,0 +1,81 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * The OffScreenFrame object describes a frame rendered into the ring of
+ * off-screen buffers of a Canvas3D, once its image has been read back.
+ * It holds the ImageComponent2D of the ring that received the image, the
+ * number of the frame and the time its rendering completed.
+ * <p>
+ * The image of frame <i>k</i> is the buffer at index <i>k</i> modulo
+ * the number of buffers of the ring; it is overwritten when the frame
+ * that uses the same buffer is read back.
+ *
+ * @see Canvas3D#setOffScreenBuffers
+ * @see OffScreenFrameListener
+ *
+ * @since Java 3D 1.6
+ */
+public final class OffScreenFrame {
+
+    private final ImageComponent2D image;
+    private final long frameNumber;
+    private final long time;
+
+    // Readback slot, and image format and data type the frame is read
+    // back with
+    final int slot;
+    final int format;
+    final int dataType;
+
+    OffScreenFrame(ImageComponent2D image, long frameNumber, long time,
+		   int slot, int format, int dataType) {
+	this.image = image;
+	this.frameNumber = frameNumber;
+	this.time = time;
+	this.slot = slot;
+	this.format = format;
+	this.dataType = dataType;
+    }
+
+    /**
+     * Retrieves the off-screen buffer holding the image of this frame.
+     *
+     * @return the ImageComponent2D of the ring that received the image
+     */
+    public ImageComponent2D getImage() {
+	return image;
+    }
+
+    /**
+     * Retrieves the number of this frame.  Frames are numbered from 0
+     * each time the ring of off-screen buffers is set.
+     *
+     * @return the number of this frame
+     */
+    public long getFrameNumber() {
+	return frameNumber;
+    }
+
+    /**
+     * Retrieves the time the rendering of this frame completed, before
+     * its image was read back, as returned by System.nanoTime.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getTime() {
+	return time;
+    }
+}
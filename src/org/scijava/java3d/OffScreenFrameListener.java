@@ -0,0 +1,38 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * Listener interface for receiving the frames rendered into the ring of
+ * off-screen buffers of a Canvas3D.
+ * <p>
+ * The listener is invoked from the Java 3D renderer thread, in the order
+ * of the frames, once the image of a frame has been read back, so it must
+ * return quickly.  It may, for instance, copy the image or hand the frame
+ * to a queue drained by the application.
+ *
+ * @see Canvas3D#setOffScreenFrameListener
+ * @see OffScreenFrame
+ *
+ * @since Java 3D 1.6
+ */
+public interface OffScreenFrameListener {
+    /**
+     * Invoked when the image of a frame has been read back.
+     *
+     * @param canvas the off-screen Canvas3D that rendered the frame
+     * @param frame the frame
+     */
+    public void frameCompleted(Canvas3D canvas, OffScreenFrame frame);
+}
@@ -975,6 +975,79 @@ static ArrayList<NodeRetained> initSceneGraphPath(NodeRetained nodeR) {
 
     }
 
+    /**
+     * Returns the PickInfo of the item closest to the start point of a
+     * PickRay or PickSegment, or null if none is hit.  The geometry
+     * atoms are picked one at a time by BHTree.selectClosest, in the
+     * order of their bounds along the shape, until the closest hit is
+     * nearer than the bounds left, rather than all picked and sorted.
+     */
+    static PickInfo pickClosest(Object node, Locale locale, int mode,
+				int flags, PickShape pickShape) {
+
+	ClosestPick pick = new ClosestPick(node, mode, flags, pickShape);
+	locale.universe.geometryStructure.pickClosest(locale, pickShape, pick);
+	return pick.pickInfo;
+    }
+
+    /**
+     * The closest hit so far of a best first pick.
+     */
+    static final class ClosestPick {
+
+	private final Object node;
+	private final int mode;
+	private final int flags;
+	private final PickShape pickShape;
+	private final GeometryAtom[] geomAtoms = new GeometryAtom[1];
+	private final Point4d pickPos = new Point4d();
+
+	PickInfo pickInfo = null;
+	private double distance = Double.POSITIVE_INFINITY;
+
+	ClosestPick(Object node, int mode, int flags, PickShape pickShape) {
+	    this.node = node;
+	    this.mode = mode;
+	    // Need to have closestDistance set
+	    this.flags = (mode == PICK_GEOMETRY) ?
+		(flags | CLOSEST_DISTANCE) : flags;
+	    this.pickShape = pickShape;
+	}
+
+	/**
+	 * Picks the geometry atom, and returns the distance of its hit, or
+	 * infinity if it is not hit.  With PICK_BOUNDS, the distance is
+	 * the one pickAllSorted sorts the atoms by.
+	 */
+	double test(GeometryAtom geomAtom) {
+	    geomAtoms[0] = geomAtom;
+	    PickInfo[] pickInfoArr =
+		pick(node, geomAtoms, mode, flags, pickShape, PICK_ALL);
+	    if (pickInfoArr == null) {
+		return Double.POSITIVE_INFINITY;
+	    }
+
+	    PickInfo closest = pickInfoArr[0];
+	    double d;
+	    if (mode == PICK_GEOMETRY) {
+		for (int i = 1; i < pickInfoArr.length; i++) {
+		    if (pickInfoArr[i].closestDistance < closest.closestDistance) {
+			closest = pickInfoArr[i];
+		    }
+		}
+		d = closest.closestDistance;
+	    } else {
+		pickShape.intersect(geomAtom.source.vwcBounds, pickPos);
+		d = pickPos.w;
+	    }
+	    if (d < distance) {
+		distance = d;
+		pickInfo = closest;
+	    }
+	    return d;
+	}
+    }
+
     /**
      * The IntersectionInfo object holds extra information about an intersection
      * of a PickShape with a Node as part of a PickInfo. Information such as
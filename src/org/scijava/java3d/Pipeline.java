@@ -43,6 +43,9 @@ abstract class Pipeline {
 
         // No-op rendering pipeline
         NOOP,
+
+        // No-op rendering pipeline that counts and records the calls
+        RECORDING,
     }
 
     // Singleton pipeline instance
@@ -74,6 +77,8 @@ public Pipeline run() {
 			return (Pipeline)Class.forName("org.scijava.java3d.JoglPipeline").newInstance();
 		case NOOP:
 			return (Pipeline)Class.forName("org.scijava.java3d.NoopPipeline").newInstance();
+		case RECORDING:
+			return (Pipeline)Class.forName("org.scijava.java3d.RecordingPipeline").newInstance();
 		}
 	} catch (Exception e) {
 		throw new RuntimeException(e);
@@ -131,6 +136,8 @@ public Pipeline run() {
             return "JOGL";
         case NOOP:
             return "NOOP";
+        case RECORDING:
+            return "RECORDING";
         default:
             // Should not get here
             throw new AssertionError("missing case statement");
@@ -145,6 +152,7 @@ public Pipeline run() {
         case JOGL:
             return "OpenGL";
         case NOOP:
+        case RECORDING:
             return "None";
         default:
             // Should not get here
@@ -172,6 +180,20 @@ public Pipeline run() {
             int vertexAttrCount, int[] vertexAttrSizes,
             float[] varray, float[] cdata, int cdirty);
 
+    // used for GeometryArrays by Copy whose vertex data is in the vertex
+    // buffer object "id"
+    abstract void executeVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int id);
+
     // used by GeometryArray by Reference with java arrays
     abstract void executeVA(Context ctx,
             GeometryArrayRetained geo, int geo_type,
@@ -308,6 +330,22 @@ public Pipeline run() {
             int cdirty,
             int[] indexCoord);
 
+    // by-copy, vertex data in the vertex buffer object "id"
+    abstract void executeIndexedVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int id,
+            int[] indexCoord);
+
     // interleaved, by reference, nio buffer
     abstract void executeIndexedGeometryBuffer(Context ctx,
             GeometryArrayRetained geo, int geo_type,
@@ -956,6 +994,14 @@ public Pipeline run() {
     // This is the native for reading the image from the offscreen buffer
     abstract void readOffScreenBuffer(Canvas3D cv, Context ctx, int format, int type, Object data, int width, int height);
 
+    // Starts reading the image from the offscreen buffer into the pixel
+    // buffer object of the readback slot "slot", without waiting for it
+    abstract void startOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int type, int width, int height);
+
+    // Copies the image read into the pixel buffer object of the readback
+    // slot "slot" into data
+    abstract void finishOffScreenReadback(Canvas3D cv, Context ctx, int slot, int format, int type, Object data, int width, int height);
+
     // The native method for swapBuffers
     abstract void swapBuffers(Canvas3D cv, Context ctx, Drawable drawable);
 
@@ -1106,6 +1152,13 @@ public Pipeline run() {
     abstract void freeDisplayList(Context ctx, int id);
     abstract void freeTexture(Context ctx, int id);
 
+    // used for vertex buffer objects; create allocates the storage of
+    // buffer "id" and fills it with the first "length" floats of data,
+    // update replaces "length" floats starting at "offset"
+    abstract void createVertexBuffer(Context ctx, int id, float[] data, int length);
+    abstract void updateVertexBuffer(Context ctx, int id, float[] data, int offset, int length);
+    abstract void freeVertexBuffer(Context ctx, int id);
+
     abstract int generateTexID(Context ctx);
     abstract void texturemapping(Context ctx,
             int px, int py,
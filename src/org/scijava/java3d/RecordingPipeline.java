@@ -0,0 +1,1774 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.logging.Level;
+
+/**
+ * Concrete implementation of Pipeline class for the recording rendering
+ * pipeline, selected with -Dj3d.rend=recording.  Like the noop pipeline
+ * it renders nothing, but it counts every call made with a context:
+ * state changes, draw calls, vertices submitted, texture uploads and
+ * vertex buffer uploads.  The running totals are kept in the
+ * RecordingContext of each canvas and are reported per frame in the
+ * FrameMetrics of the View.  When the stats logger is enabled at level
+ * FINEST, the calls of each frame are also recorded and logged at the
+ * end of the frame.
+ * <p>
+ * As with the noop pipeline, offscreen canvases render into a dummy
+ * drawable, so the pipeline can drive offscreen rendering without a GL
+ * context, for instance in benchmarks.  In a headless environment an
+ * offscreen canvas is created with the GraphicsConfiguration of a
+ * BufferedImage.
+ * <p>
+ * Calls that don't take a context, such as the graphics configuration
+ * queries, are not tied to a frame and are not counted.
+ */
+class RecordingPipeline extends NoopPipeline {
+
+    // Kinds of calls
+    static final int CALL = 0;
+    static final int STATE = 1;
+    static final int DRAW = 2;
+    static final int TEXTURE_UPLOAD = 3;
+    static final int VERTEX_BUFFER_UPLOAD = 4;
+    static final int NUM_KINDS = 5;
+
+    /**
+     * Constructor for singleton RecordingPipeline instance
+     */
+    protected RecordingPipeline() {
+    }
+
+    /**
+     * Initialize the pipeline
+     */
+    @Override
+    void initialize(Pipeline.Type pipelineType) {
+        super.initialize(pipelineType);
+
+        assert pipelineType == Pipeline.Type.RECORDING;
+    }
+
+    private static void record(Context ctx, int kind, String name) {
+        record(ctx, kind, name, -1);
+    }
+
+    private static void record(Context ctx, int kind, String name,
+            int vertexCount) {
+        if (ctx instanceof RecordingContext) {
+            ((RecordingContext)ctx).record(kind, name, vertexCount);
+        }
+    }
+
+    private static void endFrame(Context ctx) {
+        if (ctx instanceof RecordingContext) {
+            ((RecordingContext)ctx).endFrame();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // GeometryArrayRetained methods
+    //
+
+    @Override
+    void execute(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean useAlpha,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            float[] varray, float[] cdata, int cdirty) {
+        record(ctx, DRAW, "execute", vcount);
+        super.execute(ctx, geo, geo_type, isNonUniformScale, useAlpha,
+                ignoreVertexColors, startVIndex, vcount, vformat,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetOffset, numActiveTexUnitState, vertexAttrCount,
+                vertexAttrSizes, varray, cdata, cdirty);
+    }
+
+    @Override
+    void executeVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int id) {
+        record(ctx, DRAW, "executeVertexBuffer", vcount);
+        super.executeVertexBuffer(ctx, geo, geo_type, isNonUniformScale,
+                ignoreVertexColors, startVIndex, vcount, vformat,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetOffset, numActiveTexUnitState, vertexAttrCount,
+                vertexAttrSizes, id);
+    }
+
+    @Override
+    void executeVA(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int vcount,
+            int vformat,
+            int vdefined,
+            int coordIndex, float[] vfcoords, double[] vdcoords,
+            int colorIndex, float[] cfdata, byte[] cbdata,
+            int normalIndex, float[] ndata,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int[] vertexAttrIndex, float[][] vertexAttrData,
+            int texcoordmaplength,
+            int[] texcoordoffset,
+            int numActiveTexUnitState,
+            int[] texIndex, int texstride, Object[] texCoords,
+            int cdirty) {
+        record(ctx, DRAW, "executeVA", vcount);
+        super.executeVA(ctx, geo, geo_type, isNonUniformScale,
+                ignoreVertexColors, vcount, vformat, vdefined, coordIndex,
+                vfcoords, vdcoords, colorIndex, cfdata, cbdata, normalIndex,
+                ndata, vertexAttrCount, vertexAttrSizes, vertexAttrIndex,
+                vertexAttrData, texcoordmaplength, texcoordoffset,
+                numActiveTexUnitState, texIndex, texstride, texCoords, cdirty);
+    }
+
+    @Override
+    void executeVABuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int vcount,
+            int vformat,
+            int vdefined,
+            int coordIndex,
+            Buffer vcoords,
+            int colorIndex,
+            Buffer cdataBuffer,
+            float[] cfdata, byte[] cbdata,
+            int normalIndex, FloatBuffer ndata,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int[] vertexAttrIndex, FloatBuffer[] vertexAttrData,
+            int texcoordmaplength,
+            int[] texcoordoffset,
+            int numActiveTexUnitState,
+            int[] texIndex, int texstride, Object[] texCoords,
+            int cdirty) {
+        record(ctx, DRAW, "executeVABuffer", vcount);
+        super.executeVABuffer(ctx, geo, geo_type, isNonUniformScale,
+                ignoreVertexColors, vcount, vformat, vdefined, coordIndex,
+                vcoords, colorIndex, cdataBuffer, cfdata, cbdata, normalIndex,
+                ndata, vertexAttrCount, vertexAttrSizes, vertexAttrIndex,
+                vertexAttrData, texcoordmaplength, texcoordoffset,
+                numActiveTexUnitState, texIndex, texstride, texCoords, cdirty);
+    }
+
+    @Override
+    void executeInterleavedBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean useAlpha,
+            boolean ignoreVertexColors,
+            int startVIndex, int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            FloatBuffer varray, float[] cdata, int cdirty) {
+        record(ctx, DRAW, "executeInterleavedBuffer", vcount);
+        super.executeInterleavedBuffer(ctx, geo, geo_type, isNonUniformScale,
+                useAlpha, ignoreVertexColors, startVIndex, vcount, vformat,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetOffset, numActiveTexUnitState, varray, cdata,
+                cdirty);
+    }
+
+    @Override
+    void setVertexFormat(Context ctx, GeometryArrayRetained geo,
+            int vformat, boolean useAlpha, boolean ignoreVertexColors) {
+        record(ctx, STATE, "setVertexFormat");
+        super.setVertexFormat(ctx, geo, vformat, useAlpha, ignoreVertexColors);
+    }
+
+    @Override
+    void buildGA(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale, boolean updateAlpha,
+            float alpha,
+            boolean ignoreVertexColors,
+            int startVIndex,
+            int vcount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen, int[] texCoordSetMapOffset,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            double[] xform, double[] nxform,
+            float[] varray) {
+        record(ctx, DRAW, "buildGA", vcount);
+        super.buildGA(ctx, geo, geo_type, isNonUniformScale, updateAlpha, alpha,
+                ignoreVertexColors, startVIndex, vcount, vformat,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetMapOffset, vertexAttrCount, vertexAttrSizes, xform,
+                nxform, varray);
+    }
+
+    @Override
+    void buildGAForByRef(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,  boolean updateAlpha,
+            float alpha,
+            boolean ignoreVertexColors,
+            int vcount,
+            int vformat,
+            int vdefined,
+            int coordIndex, float[] vfcoords, double[] vdcoords,
+            int colorIndex, float[] cfdata, byte[] cbdata,
+            int normalIndex, float[] ndata,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int[] vertexAttrIndex, float[][] vertexAttrData,
+            int texcoordmaplength,
+            int[] texcoordoffset,
+            int[] texIndex, int texstride, Object[] texCoords,
+            double[] xform, double[] nxform) {
+        record(ctx, DRAW, "buildGAForByRef", vcount);
+        super.buildGAForByRef(ctx, geo, geo_type, isNonUniformScale,
+                updateAlpha, alpha, ignoreVertexColors, vcount, vformat,
+                vdefined, coordIndex, vfcoords, vdcoords, colorIndex, cfdata,
+                cbdata, normalIndex, ndata, vertexAttrCount, vertexAttrSizes,
+                vertexAttrIndex, vertexAttrData, texcoordmaplength,
+                texcoordoffset, texIndex, texstride, texCoords, xform, nxform);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // IndexedGeometryArrayRetained methods
+    //
+
+    @Override
+    void executeIndexedGeometry(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean useAlpha,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            float[] varray, float[] cdata,
+            int cdirty,
+            int[] indexCoord) {
+        record(ctx, DRAW, "executeIndexedGeometry", indexCount);
+        super.executeIndexedGeometry(ctx, geo, geo_type, isNonUniformScale,
+                useAlpha, ignoreVertexColors, initialIndexIndex, indexCount,
+                vertexCount, vformat, vertexAttrCount, vertexAttrSizes,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetOffset, numActiveTexUnitState, varray, cdata, cdirty,
+                indexCoord);
+    }
+
+    @Override
+    void executeIndexedVertexBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            int id,
+            int[] indexCoord) {
+        record(ctx, DRAW, "executeIndexedVertexBuffer", indexCount);
+        super.executeIndexedVertexBuffer(ctx, geo, geo_type, isNonUniformScale,
+                ignoreVertexColors, initialIndexIndex, indexCount, vertexCount,
+                vformat, vertexAttrCount, vertexAttrSizes, texCoordSetCount,
+                texCoordSetMap, texCoordSetMapLen, texCoordSetOffset,
+                numActiveTexUnitState, id, indexCoord);
+    }
+
+    @Override
+    void executeIndexedGeometryBuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean useAlpha,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int indexCount,
+            int vertexCount, int vformat,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetOffset,
+            int numActiveTexUnitState,
+            FloatBuffer varray, float[] cdata,
+            int cdirty,
+            int[] indexCoord) {
+        record(ctx, DRAW, "executeIndexedGeometryBuffer", indexCount);
+        super.executeIndexedGeometryBuffer(ctx, geo, geo_type,
+                isNonUniformScale, useAlpha, ignoreVertexColors,
+                initialIndexIndex, indexCount, vertexCount, vformat,
+                texCoordSetCount, texCoordSetMap, texCoordSetMapLen,
+                texCoordSetOffset, numActiveTexUnitState, varray, cdata, cdirty,
+                indexCoord);
+    }
+
+    @Override
+    void executeIndexedGeometryVA(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int validIndexCount,
+            int vertexCount,
+            int vformat,
+            int vdefined,
+            float[] vfcoords, double[] vdcoords,
+            float[] cfdata, byte[] cbdata,
+            float[] ndata,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            float[][] vertexAttrData,
+            int texcoordmaplength,
+            int[] texcoordoffset,
+            int numActiveTexUnitState,
+            int texstride, Object[] texCoords,
+            int cdirty,
+            int[] indexCoord) {
+        record(ctx, DRAW, "executeIndexedGeometryVA", validIndexCount);
+        super.executeIndexedGeometryVA(ctx, geo, geo_type, isNonUniformScale,
+                ignoreVertexColors, initialIndexIndex, validIndexCount,
+                vertexCount, vformat, vdefined, vfcoords, vdcoords, cfdata,
+                cbdata, ndata, vertexAttrCount, vertexAttrSizes, vertexAttrData,
+                texcoordmaplength, texcoordoffset, numActiveTexUnitState,
+                texstride, texCoords, cdirty, indexCoord);
+    }
+
+    @Override
+    void executeIndexedGeometryVABuffer(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int validIndexCount,
+            int vertexCount,
+            int vformat,
+            int vdefined,
+            Buffer vcoords,
+            Buffer cdataBuffer,
+            float[] cfdata, byte[] cbdata,
+            FloatBuffer normal,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            FloatBuffer[] vertexAttrData,
+            int texcoordmaplength,
+            int[] texcoordoffset,
+            int numActiveTexUnitState,
+            int texstride, Object[] texCoords,
+            int cdirty,
+            int[] indexCoord) {
+        record(ctx, DRAW, "executeIndexedGeometryVABuffer", validIndexCount);
+        super.executeIndexedGeometryVABuffer(ctx, geo, geo_type,
+                isNonUniformScale, ignoreVertexColors, initialIndexIndex,
+                validIndexCount, vertexCount, vformat, vdefined, vcoords,
+                cdataBuffer, cfdata, cbdata, normal, vertexAttrCount,
+                vertexAttrSizes, vertexAttrData, texcoordmaplength,
+                texcoordoffset, numActiveTexUnitState, texstride, texCoords,
+                cdirty, indexCoord);
+    }
+
+    @Override
+    void buildIndexedGeometry(Context ctx,
+            GeometryArrayRetained geo, int geo_type,
+            boolean isNonUniformScale, boolean updateAlpha,
+            float alpha,
+            boolean ignoreVertexColors,
+            int initialIndexIndex,
+            int validIndexCount,
+            int vertexCount,
+            int vformat,
+            int vertexAttrCount, int[] vertexAttrSizes,
+            int texCoordSetCount, int[] texCoordSetMap,
+            int texCoordSetMapLen,
+            int[] texCoordSetMapOffset,
+            double[] xform, double[] nxform,
+            float[] varray, int[] indexCoord) {
+        record(ctx, DRAW, "buildIndexedGeometry", validIndexCount);
+        super.buildIndexedGeometry(ctx, geo, geo_type, isNonUniformScale,
+                updateAlpha, alpha, ignoreVertexColors, initialIndexIndex,
+                validIndexCount, vertexCount, vformat, vertexAttrCount,
+                vertexAttrSizes, texCoordSetCount, texCoordSetMap,
+                texCoordSetMapLen, texCoordSetMapOffset, xform, nxform, varray,
+                indexCoord);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // GraphicsContext3D methods
+    //
+
+    @Override
+    void readRaster(Context ctx,
+            int type, int xSrcOffset, int ySrcOffset,
+            int width, int height, int hCanvas,
+            int imageDataType,
+            int imageFormat,
+            Object imageBuffer,
+            int depthFormat,
+            Object depthBuffer) {
+        record(ctx, CALL, "readRaster");
+        super.readRaster(ctx, type, xSrcOffset, ySrcOffset, width, height,
+                hCanvas, imageDataType, imageFormat, imageBuffer, depthFormat,
+                depthBuffer);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // GLSLShaderProgramRetained methods
+    //
+
+    @Override
+    ShaderError setGLSLUniform1i(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int value) {
+        record(ctx, STATE, "setGLSLUniform1i");
+        return super.setGLSLUniform1i(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform1f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float value) {
+        record(ctx, STATE, "setGLSLUniform1f");
+        return super.setGLSLUniform1f(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform2i(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform2i");
+        return super.setGLSLUniform2i(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform2f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform2f");
+        return super.setGLSLUniform2f(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform3i(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform3i");
+        return super.setGLSLUniform3i(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform3f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform3f");
+        return super.setGLSLUniform3f(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform4i(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform4i");
+        return super.setGLSLUniform4i(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform4f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform4f");
+        return super.setGLSLUniform4f(ctx, shaderProgramId, uniformLocation,
+                value);
+    }
+
+    @Override
+    ShaderError setGLSLUniformMatrix3f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniformMatrix3f");
+        return super.setGLSLUniformMatrix3f(ctx, shaderProgramId,
+                uniformLocation, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniformMatrix4f(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniformMatrix4f");
+        return super.setGLSLUniformMatrix4f(ctx, shaderProgramId,
+                uniformLocation, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform1iArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform1iArray");
+        return super.setGLSLUniform1iArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform1fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform1fArray");
+        return super.setGLSLUniform1fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform2iArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform2iArray");
+        return super.setGLSLUniform2iArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform2fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform2fArray");
+        return super.setGLSLUniform2fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform3iArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform3iArray");
+        return super.setGLSLUniform3iArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform3fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform3fArray");
+        return super.setGLSLUniform3fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform4iArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            int[] value) {
+        record(ctx, STATE, "setGLSLUniform4iArray");
+        return super.setGLSLUniform4iArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniform4fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniform4fArray");
+        return super.setGLSLUniform4fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniformMatrix3fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniformMatrix3fArray");
+        return super.setGLSLUniformMatrix3fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError setGLSLUniformMatrix4fArray(Context ctx,
+            ShaderProgramId shaderProgramId,
+            ShaderAttrLoc uniformLocation,
+            int numElements,
+            float[] value) {
+        record(ctx, STATE, "setGLSLUniformMatrix4fArray");
+        return super.setGLSLUniformMatrix4fArray(ctx, shaderProgramId,
+                uniformLocation, numElements, value);
+    }
+
+    @Override
+    ShaderError createGLSLShader(Context ctx, int shaderType, ShaderId[] shaderId) {
+        record(ctx, CALL, "createGLSLShader");
+        return super.createGLSLShader(ctx, shaderType, shaderId);
+    }
+
+    @Override
+    ShaderError destroyGLSLShader(Context ctx, ShaderId shaderId) {
+        record(ctx, CALL, "destroyGLSLShader");
+        return super.destroyGLSLShader(ctx, shaderId);
+    }
+
+    @Override
+    ShaderError compileGLSLShader(Context ctx, ShaderId shaderId, String program) {
+        record(ctx, CALL, "compileGLSLShader");
+        return super.compileGLSLShader(ctx, shaderId, program);
+    }
+
+    @Override
+    ShaderError createGLSLShaderProgram(Context ctx, ShaderProgramId[] shaderProgramId) {
+        record(ctx, CALL, "createGLSLShaderProgram");
+        return super.createGLSLShaderProgram(ctx, shaderProgramId);
+    }
+
+    @Override
+    ShaderError destroyGLSLShaderProgram(Context ctx, ShaderProgramId shaderProgramId) {
+        record(ctx, CALL, "destroyGLSLShaderProgram");
+        return super.destroyGLSLShaderProgram(ctx, shaderProgramId);
+    }
+
+    @Override
+    ShaderError linkGLSLShaderProgram(Context ctx, ShaderProgramId shaderProgramId,
+            ShaderId[] shaderIds) {
+        record(ctx, CALL, "linkGLSLShaderProgram");
+        return super.linkGLSLShaderProgram(ctx, shaderProgramId, shaderIds);
+    }
+
+    @Override
+    ShaderError bindGLSLVertexAttrName(Context ctx, ShaderProgramId shaderProgramId,
+            String attrName, int attrIndex) {
+        record(ctx, CALL, "bindGLSLVertexAttrName");
+        return super.bindGLSLVertexAttrName(ctx, shaderProgramId, attrName,
+                attrIndex);
+    }
+
+    @Override
+    void lookupGLSLShaderAttrNames(Context ctx, ShaderProgramId shaderProgramId,
+            int numAttrNames, String[] attrNames, ShaderAttrLoc[] locArr,
+            int[] typeArr, int[] sizeArr, boolean[] isArrayArr) {
+        record(ctx, CALL, "lookupGLSLShaderAttrNames");
+        super.lookupGLSLShaderAttrNames(ctx, shaderProgramId, numAttrNames,
+                attrNames, locArr, typeArr, sizeArr, isArrayArr);
+    }
+
+    @Override
+    ShaderError useGLSLShaderProgram(Context ctx, ShaderProgramId shaderProgramId) {
+        record(ctx, STATE, "useGLSLShaderProgram");
+        return super.useGLSLShaderProgram(ctx, shaderProgramId);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // ColoringAttributesRetained methods
+    //
+
+    @Override
+    void updateColoringAttributes(Context ctx,
+            float dRed, float dGreen, float dBlue,
+            float red, float green, float blue,
+            float alpha,
+            boolean lEnable,
+            int shadeModel) {
+        record(ctx, STATE, "updateColoringAttributes");
+        super.updateColoringAttributes(ctx, dRed, dGreen, dBlue, red, green,
+                blue, alpha, lEnable, shadeModel);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // DirectionalLightRetained methods
+    //
+
+    @Override
+    void updateDirectionalLight(Context ctx,
+            int lightSlot, float red, float green,
+            float blue, float x, float y, float z) {
+        record(ctx, STATE, "updateDirectionalLight");
+        super.updateDirectionalLight(ctx, lightSlot, red, green, blue, x, y, z);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // PointLightRetained methods
+    //
+
+    @Override
+    void updatePointLight(Context ctx,
+            int lightSlot, float red, float green,
+            float blue, float ax, float ay, float az,
+            float px, float py, float pz) {
+        record(ctx, STATE, "updatePointLight");
+        super.updatePointLight(ctx, lightSlot, red, green, blue, ax, ay, az, px,
+                py, pz);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // SpotLightRetained methods
+    //
+
+    @Override
+    void updateSpotLight(Context ctx,
+            int lightSlot, float red, float green,
+            float blue, float ax, float ay, float az,
+            float px, float py, float pz, float spreadAngle,
+            float concentration, float dx, float dy,
+            float dz) {
+        record(ctx, STATE, "updateSpotLight");
+        super.updateSpotLight(ctx, lightSlot, red, green, blue, ax, ay, az, px,
+                py, pz, spreadAngle, concentration, dx, dy, dz);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // ExponentialFogRetained methods
+    //
+
+    @Override
+    void updateExponentialFog(Context ctx,
+            float red, float green, float blue,
+            float density) {
+        record(ctx, STATE, "updateExponentialFog");
+        super.updateExponentialFog(ctx, red, green, blue, density);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // LinearFogRetained methods
+    //
+
+    @Override
+    void updateLinearFog(Context ctx,
+            float red, float green, float blue,
+            double fdist, double bdist) {
+        record(ctx, STATE, "updateLinearFog");
+        super.updateLinearFog(ctx, red, green, blue, fdist, bdist);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // LineAttributesRetained methods
+    //
+
+    @Override
+    void updateLineAttributes(Context ctx,
+            float lineWidth, int linePattern,
+            int linePatternMask,
+            int linePatternScaleFactor,
+            boolean lineAntialiasing) {
+        record(ctx, STATE, "updateLineAttributes");
+        super.updateLineAttributes(ctx, lineWidth, linePattern, linePatternMask,
+                linePatternScaleFactor, lineAntialiasing);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // MaterialRetained methods
+    //
+
+    @Override
+    void updateMaterial(Context ctx,
+            float red, float green, float blue, float alpha,
+            float ared, float agreen, float ablue,
+            float ered, float egreen, float eblue,
+            float dred, float dgreen, float dblue,
+            float sred, float sgreen, float sblue,
+            float shininess, int colorTarget, boolean enable) {
+        record(ctx, STATE, "updateMaterial");
+        super.updateMaterial(ctx, red, green, blue, alpha, ared, agreen, ablue,
+                ered, egreen, eblue, dred, dgreen, dblue, sred, sgreen, sblue,
+                shininess, colorTarget, enable);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // ModelClipRetained methods
+    //
+
+    @Override
+    void updateModelClip(Context ctx, int planeNum, boolean enableFlag,
+            double A, double B, double C, double D) {
+        record(ctx, STATE, "updateModelClip");
+        super.updateModelClip(ctx, planeNum, enableFlag, A, B, C, D);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // PointAttributesRetained methods
+    //
+
+    @Override
+    void updatePointAttributes(Context ctx, float pointSize, boolean pointAntialiasing) {
+        record(ctx, STATE, "updatePointAttributes");
+        super.updatePointAttributes(ctx, pointSize, pointAntialiasing);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // PolygonAttributesRetained methods
+    //
+
+    @Override
+    void updatePolygonAttributes(Context ctx,
+            int polygonMode, int cullFace,
+            boolean backFaceNormalFlip,
+            float polygonOffset,
+            float polygonOffsetFactor) {
+        record(ctx, STATE, "updatePolygonAttributes");
+        super.updatePolygonAttributes(ctx, polygonMode, cullFace,
+                backFaceNormalFlip, polygonOffset, polygonOffsetFactor);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // RenderingAttributesRetained methods
+    //
+
+    @Override
+    void updateRenderingAttributes(Context ctx,
+            boolean depthBufferWriteEnableOverride,
+            boolean depthBufferEnableOverride,
+            boolean depthBufferEnable,
+            boolean depthBufferWriteEnable,
+            int depthTestFunction,
+            float alphaTestValue, int alphaTestFunction,
+            boolean ignoreVertexColors,
+            boolean rasterOpEnable, int rasterOp,
+            boolean userStencilAvailable, boolean stencilEnable,
+            int stencilFailOp, int stencilZFailOp, int stencilZPassOp,
+            int stencilFunction, int stencilReferenceValue,
+            int stencilCompareMask, int stencilWriteMask ) {
+        record(ctx, STATE, "updateRenderingAttributes");
+        super.updateRenderingAttributes(ctx, depthBufferWriteEnableOverride,
+                depthBufferEnableOverride, depthBufferEnable,
+                depthBufferWriteEnable, depthTestFunction, alphaTestValue,
+                alphaTestFunction, ignoreVertexColors, rasterOpEnable, rasterOp,
+                userStencilAvailable, stencilEnable, stencilFailOp,
+                stencilZFailOp, stencilZPassOp, stencilFunction,
+                stencilReferenceValue, stencilCompareMask, stencilWriteMask);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // TexCoordGenerationRetained methods
+    //
+
+    @Override
+    void updateTexCoordGeneration(Context ctx,
+            boolean enable, int genMode, int format,
+            float planeSx, float planeSy, float planeSz, float planeSw,
+            float planeTx, float planeTy, float planeTz, float planeTw,
+            float planeRx, float planeRy, float planeRz, float planeRw,
+            float planeQx, float planeQy, float planeQz, float planeQw,
+            double[] trans) {
+        record(ctx, STATE, "updateTexCoordGeneration");
+        super.updateTexCoordGeneration(ctx, enable, genMode, format, planeSx,
+                planeSy, planeSz, planeSw, planeTx, planeTy, planeTz, planeTw,
+                planeRx, planeRy, planeRz, planeRw, planeQx, planeQy, planeQz,
+                planeQw, trans);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // TransparencyAttributesRetained methods
+    //
+
+    @Override
+    void updateTransparencyAttributes(Context ctx,
+            float alpha, int geometryType,
+            int polygonMode,
+            boolean lineAA, boolean pointAA,
+            int transparencyMode,
+            int srcBlendFunction,
+            int dstBlendFunction) {
+        record(ctx, STATE, "updateTransparencyAttributes");
+        super.updateTransparencyAttributes(ctx, alpha, geometryType,
+                polygonMode, lineAA, pointAA, transparencyMode,
+                srcBlendFunction, dstBlendFunction);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // TextureAttributesRetained methods
+    //
+
+    @Override
+    void updateTextureAttributes(Context ctx,
+            double[] transform, boolean isIdentity, int textureMode,
+            int perspCorrectionMode, float red,
+            float green, float blue, float alpha,
+            int textureFormat) {
+        record(ctx, STATE, "updateTextureAttributes");
+        super.updateTextureAttributes(ctx, transform, isIdentity, textureMode,
+                perspCorrectionMode, red, green, blue, alpha, textureFormat);
+    }
+
+    @Override
+    void updateRegisterCombiners(Context ctx,
+            double[] transform, boolean isIdentity, int textureMode,
+            int perspCorrectionMode, float red,
+            float green, float blue, float alpha,
+            int textureFormat,
+            int combineRgbMode, int combineAlphaMode,
+            int[] combineRgbSrc, int[] combineAlphaSrc,
+            int[] combineRgbFcn, int[] combineAlphaFcn,
+            int combineRgbScale, int combineAlphaScale) {
+        record(ctx, STATE, "updateRegisterCombiners");
+        super.updateRegisterCombiners(ctx, transform, isIdentity, textureMode,
+                perspCorrectionMode, red, green, blue, alpha, textureFormat,
+                combineRgbMode, combineAlphaMode, combineRgbSrc,
+                combineAlphaSrc, combineRgbFcn, combineAlphaFcn,
+                combineRgbScale, combineAlphaScale);
+    }
+
+    @Override
+    void updateTextureColorTable(Context ctx, int numComponents,
+            int colorTableSize,
+            int[] colorTable) {
+        record(ctx, STATE, "updateTextureColorTable");
+        super.updateTextureColorTable(ctx, numComponents, colorTableSize,
+                colorTable);
+    }
+
+    @Override
+    void updateCombiner(Context ctx,
+            int combineRgbMode, int combineAlphaMode,
+            int[] combineRgbSrc, int[] combineAlphaSrc,
+            int[] combineRgbFcn, int[] combineAlphaFcn,
+            int combineRgbScale, int combineAlphaScale) {
+        record(ctx, STATE, "updateCombiner");
+        super.updateCombiner(ctx, combineRgbMode, combineAlphaMode,
+                combineRgbSrc, combineAlphaSrc, combineRgbFcn, combineAlphaFcn,
+                combineRgbScale, combineAlphaScale);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // TextureUnitStateRetained methods
+    //
+
+    @Override
+    void updateTextureUnitState(Context ctx, int unitIndex, boolean enableFlag) {
+        record(ctx, STATE, "updateTextureUnitState");
+        super.updateTextureUnitState(ctx, unitIndex, enableFlag);
+    }
+
+    @Override
+    void bindTexture2D(Context ctx, int objectId, boolean enable) {
+        record(ctx, STATE, "bindTexture2D");
+        super.bindTexture2D(ctx, objectId, enable);
+    }
+
+    @Override
+    void updateTexture2DImage(Context ctx,
+            int numLevels, int level,
+            int textureFormat, int imageFormat,
+            int width, int height,
+            int boundaryWidth,
+            int imageDataType, Object data, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTexture2DImage");
+        super.updateTexture2DImage(ctx, numLevels, level, textureFormat,
+                imageFormat, width, height, boundaryWidth, imageDataType, data,
+                useAutoMipMap);
+    }
+
+    @Override
+    void updateTexture2DSubImage(Context ctx,
+            int level, int xoffset, int yoffset,
+            int textureFormat, int imageFormat,
+            int imgXOffset, int imgYOffset,
+            int tilew, int width, int height,
+            int imageDataType, Object data, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTexture2DSubImage");
+        super.updateTexture2DSubImage(ctx, level, xoffset, yoffset,
+                textureFormat, imageFormat, imgXOffset, imgYOffset, tilew,
+                width, height, imageDataType, data, useAutoMipMap);
+    }
+
+    @Override
+    void updateTexture2DLodRange(Context ctx,
+            int baseLevel, int maximumLevel,
+            float minimumLod, float maximumLod) {
+        record(ctx, STATE, "updateTexture2DLodRange");
+        super.updateTexture2DLodRange(ctx, baseLevel, maximumLevel, minimumLod,
+                maximumLod);
+    }
+
+    @Override
+    void updateTexture2DLodOffset(Context ctx,
+            float lodOffsetX, float lodOffsetY,
+            float lodOffsetZ) {
+        record(ctx, STATE, "updateTexture2DLodOffset");
+        super.updateTexture2DLodOffset(ctx, lodOffsetX, lodOffsetY, lodOffsetZ);
+    }
+
+    @Override
+    void updateTexture2DBoundary(Context ctx,
+            int boundaryModeS, int boundaryModeT,
+            float boundaryRed, float boundaryGreen,
+            float boundaryBlue, float boundaryAlpha) {
+        record(ctx, STATE, "updateTexture2DBoundary");
+        super.updateTexture2DBoundary(ctx, boundaryModeS, boundaryModeT,
+                boundaryRed, boundaryGreen, boundaryBlue, boundaryAlpha);
+    }
+
+    @Override
+    void updateTexture2DFilterModes(Context ctx,
+            int minFilter, int magFilter) {
+        record(ctx, STATE, "updateTexture2DFilterModes");
+        super.updateTexture2DFilterModes(ctx, minFilter, magFilter);
+    }
+
+    @Override
+    void updateTexture2DSharpenFunc(Context ctx,
+            int numSharpenTextureFuncPts,
+            float[] sharpenTextureFuncPts) {
+        record(ctx, STATE, "updateTexture2DSharpenFunc");
+        super.updateTexture2DSharpenFunc(ctx, numSharpenTextureFuncPts,
+                sharpenTextureFuncPts);
+    }
+
+    @Override
+    void updateTexture2DFilter4Func(Context ctx,
+            int numFilter4FuncPts,
+            float[] filter4FuncPts) {
+        record(ctx, STATE, "updateTexture2DFilter4Func");
+        super.updateTexture2DFilter4Func(ctx, numFilter4FuncPts,
+                filter4FuncPts);
+    }
+
+    @Override
+    void updateTexture2DAnisotropicFilter(Context ctx, float degree) {
+        record(ctx, STATE, "updateTexture2DAnisotropicFilter");
+        super.updateTexture2DAnisotropicFilter(ctx, degree);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // Texture3DRetained methods
+    //
+
+    @Override
+    void bindTexture3D(Context ctx, int objectId, boolean enable) {
+        record(ctx, STATE, "bindTexture3D");
+        super.bindTexture3D(ctx, objectId, enable);
+    }
+
+    @Override
+    void updateTexture3DImage(Context ctx,
+            int numLevels, int level,
+            int textureFormat, int imageFormat,
+            int width, int height, int depth,
+            int boundaryWidth,
+            int imageDataType, Object imageData, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTexture3DImage");
+        super.updateTexture3DImage(ctx, numLevels, level, textureFormat,
+                imageFormat, width, height, depth, boundaryWidth, imageDataType,
+                imageData, useAutoMipMap);
+    }
+
+    @Override
+    void updateTexture3DSubImage(Context ctx,
+            int level,
+            int xoffset, int yoffset, int zoffset,
+            int textureFormat, int imageFormat,
+            int imgXoffset, int imgYoffset, int imgZoffset,
+            int tilew, int tileh,
+            int width, int height, int depth,
+            int imageDataType, Object imageData, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTexture3DSubImage");
+        super.updateTexture3DSubImage(ctx, level, xoffset, yoffset, zoffset,
+                textureFormat, imageFormat, imgXoffset, imgYoffset, imgZoffset,
+                tilew, tileh, width, height, depth, imageDataType, imageData,
+                useAutoMipMap);
+    }
+
+    @Override
+    void updateTexture3DLodRange(Context ctx,
+            int baseLevel, int maximumLevel,
+            float minimumLod, float maximumLod) {
+        record(ctx, STATE, "updateTexture3DLodRange");
+        super.updateTexture3DLodRange(ctx, baseLevel, maximumLevel, minimumLod,
+                maximumLod);
+    }
+
+    @Override
+    void updateTexture3DLodOffset(Context ctx,
+            float lodOffsetX, float lodOffsetY,
+            float lodOffsetZ) {
+        record(ctx, STATE, "updateTexture3DLodOffset");
+        super.updateTexture3DLodOffset(ctx, lodOffsetX, lodOffsetY, lodOffsetZ);
+    }
+
+    @Override
+    void updateTexture3DBoundary(Context ctx,
+            int boundaryModeS, int boundaryModeT,
+            int boundaryModeR, float boundaryRed,
+            float boundaryGreen, float boundaryBlue,
+            float boundaryAlpha) {
+        record(ctx, STATE, "updateTexture3DBoundary");
+        super.updateTexture3DBoundary(ctx, boundaryModeS, boundaryModeT,
+                boundaryModeR, boundaryRed, boundaryGreen, boundaryBlue,
+                boundaryAlpha);
+    }
+
+    @Override
+    void updateTexture3DFilterModes(Context ctx,
+            int minFilter, int magFilter) {
+        record(ctx, STATE, "updateTexture3DFilterModes");
+        super.updateTexture3DFilterModes(ctx, minFilter, magFilter);
+    }
+
+    @Override
+    void updateTexture3DSharpenFunc(Context ctx,
+            int numSharpenTextureFuncPts,
+            float[] sharpenTextureFuncPts) {
+        record(ctx, STATE, "updateTexture3DSharpenFunc");
+        super.updateTexture3DSharpenFunc(ctx, numSharpenTextureFuncPts,
+                sharpenTextureFuncPts);
+    }
+
+    @Override
+    void updateTexture3DFilter4Func(Context ctx,
+            int numFilter4FuncPts,
+            float[] filter4FuncPts) {
+        record(ctx, STATE, "updateTexture3DFilter4Func");
+        super.updateTexture3DFilter4Func(ctx, numFilter4FuncPts,
+                filter4FuncPts);
+    }
+
+    @Override
+    void updateTexture3DAnisotropicFilter(Context ctx, float degree) {
+        record(ctx, STATE, "updateTexture3DAnisotropicFilter");
+        super.updateTexture3DAnisotropicFilter(ctx, degree);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // TextureCubeMapRetained methods
+    //
+
+    @Override
+    void bindTextureCubeMap(Context ctx, int objectId, boolean enable) {
+        record(ctx, STATE, "bindTextureCubeMap");
+        super.bindTextureCubeMap(ctx, objectId, enable);
+    }
+
+    @Override
+    void updateTextureCubeMapImage(Context ctx,
+            int face, int numLevels, int level,
+            int textureFormat, int imageFormat,
+            int width, int height,
+            int boundaryWidth,
+            int imageDataType, Object imageData, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTextureCubeMapImage");
+        super.updateTextureCubeMapImage(ctx, face, numLevels, level,
+                textureFormat, imageFormat, width, height, boundaryWidth,
+                imageDataType, imageData, useAutoMipMap);
+    }
+
+    @Override
+    void updateTextureCubeMapSubImage(Context ctx,
+            int face, int level, int xoffset, int yoffset,
+            int textureFormat, int imageFormat,
+            int imgXOffset, int imgYOffset,
+            int tilew, int width, int height,
+            int imageDataType, Object imageData, boolean useAutoMipMap) {
+        record(ctx, TEXTURE_UPLOAD, "updateTextureCubeMapSubImage");
+        super.updateTextureCubeMapSubImage(ctx, face, level, xoffset, yoffset,
+                textureFormat, imageFormat, imgXOffset, imgYOffset, tilew,
+                width, height, imageDataType, imageData, useAutoMipMap);
+    }
+
+    @Override
+    void updateTextureCubeMapLodRange(Context ctx,
+            int baseLevel, int maximumLevel,
+            float minimumLod, float maximumLod) {
+        record(ctx, STATE, "updateTextureCubeMapLodRange");
+        super.updateTextureCubeMapLodRange(ctx, baseLevel, maximumLevel,
+                minimumLod, maximumLod);
+    }
+
+    @Override
+    void updateTextureCubeMapLodOffset(Context ctx,
+            float lodOffsetX, float lodOffsetY,
+            float lodOffsetZ) {
+        record(ctx, STATE, "updateTextureCubeMapLodOffset");
+        super.updateTextureCubeMapLodOffset(ctx, lodOffsetX, lodOffsetY,
+                lodOffsetZ);
+    }
+
+    @Override
+    void updateTextureCubeMapBoundary(Context ctx,
+            int boundaryModeS, int boundaryModeT,
+            float boundaryRed, float boundaryGreen,
+            float boundaryBlue, float boundaryAlpha) {
+        record(ctx, STATE, "updateTextureCubeMapBoundary");
+        super.updateTextureCubeMapBoundary(ctx, boundaryModeS, boundaryModeT,
+                boundaryRed, boundaryGreen, boundaryBlue, boundaryAlpha);
+    }
+
+    @Override
+    void updateTextureCubeMapFilterModes(Context ctx,
+            int minFilter, int magFilter) {
+        record(ctx, STATE, "updateTextureCubeMapFilterModes");
+        super.updateTextureCubeMapFilterModes(ctx, minFilter, magFilter);
+    }
+
+    @Override
+    void updateTextureCubeMapSharpenFunc(Context ctx,
+            int numSharpenTextureFuncPts,
+            float[] sharpenTextureFuncPts) {
+        record(ctx, STATE, "updateTextureCubeMapSharpenFunc");
+        super.updateTextureCubeMapSharpenFunc(ctx, numSharpenTextureFuncPts,
+                sharpenTextureFuncPts);
+    }
+
+    @Override
+    void updateTextureCubeMapFilter4Func(Context ctx,
+            int numFilter4FuncPts,
+            float[] filter4FuncPts) {
+        record(ctx, STATE, "updateTextureCubeMapFilter4Func");
+        super.updateTextureCubeMapFilter4Func(ctx, numFilter4FuncPts,
+                filter4FuncPts);
+    }
+
+    @Override
+    void updateTextureCubeMapAnisotropicFilter(Context ctx, float degree) {
+        record(ctx, STATE, "updateTextureCubeMapAnisotropicFilter");
+        super.updateTextureCubeMapAnisotropicFilter(ctx, degree);
+    }
+
+    // ---------------------------------------------------------------------
+
+    //
+    // Canvas3D methods - native wrappers
+    //
+
+    // Each context keeps the counts of the calls made with it
+    @Override
+    Context createNewContext(Canvas3D cv, Drawable drawable,
+            Context shareCtx, boolean isSharedCtx,
+            boolean offScreen) {
+        return new RecordingContext(cv.getName(),
+                MasterControl.isStatsLoggable(Level.FINEST));
+    }
+
+    @Override
+    Drawable createOffScreenBuffer(Canvas3D cv, Context ctx, int width, int height) {
+        record(ctx, CALL, "createOffScreenBuffer");
+        return super.createOffScreenBuffer(cv, ctx, width, height);
+    }
+
+    @Override
+    void destroyOffScreenBuffer(Canvas3D cv, Context ctx, Drawable drawable) {
+        record(ctx, CALL, "destroyOffScreenBuffer");
+        super.destroyOffScreenBuffer(cv, ctx, drawable);
+    }
+
+    // Ends the frame of an offscreen canvas
+    @Override
+    void readOffScreenBuffer(Canvas3D cv, Context ctx, int format, int type, Object data, int width, int height) {
+        record(ctx, CALL, "readOffScreenBuffer");
+        super.readOffScreenBuffer(cv, ctx, format, type, data, width, height);
+        endFrame(ctx);
+    }
+
+    // Ends the frame of an on-screen canvas
+    @Override
+    void swapBuffers(Canvas3D cv, Context ctx, Drawable drawable) {
+        record(ctx, CALL, "swapBuffers");
+        super.swapBuffers(cv, ctx, drawable);
+        endFrame(ctx);
+    }
+
+    @Override
+    void updateMaterialColor(Context ctx, float r, float g, float b, float a) {
+        record(ctx, STATE, "updateMaterialColor");
+        super.updateMaterialColor(ctx, r, g, b, a);
+    }
+
+    @Override
+    void destroyContext(Drawable drawable, Context ctx) {
+        record(ctx, CALL, "destroyContext");
+        endFrame(ctx);
+        super.destroyContext(drawable, ctx);
+    }
+
+    @Override
+    void accum(Context ctx, float value) {
+        record(ctx, CALL, "accum");
+        super.accum(ctx, value);
+    }
+
+    @Override
+    void accumReturn(Context ctx) {
+        record(ctx, CALL, "accumReturn");
+        super.accumReturn(ctx);
+    }
+
+    @Override
+    void clearAccum(Context ctx) {
+        record(ctx, CALL, "clearAccum");
+        super.clearAccum(ctx);
+    }
+
+    @Override
+    int getNumCtxLights(Context ctx) {
+        record(ctx, CALL, "getNumCtxLights");
+        return super.getNumCtxLights(ctx);
+    }
+
+    @Override
+    boolean decal1stChildSetup(Context ctx) {
+        record(ctx, STATE, "decal1stChildSetup");
+        return super.decal1stChildSetup(ctx);
+    }
+
+    @Override
+    void decalNthChildSetup(Context ctx) {
+        record(ctx, STATE, "decalNthChildSetup");
+        super.decalNthChildSetup(ctx);
+    }
+
+    @Override
+    void decalReset(Context ctx, boolean depthBufferEnable) {
+        record(ctx, STATE, "decalReset");
+        super.decalReset(ctx, depthBufferEnable);
+    }
+
+    @Override
+    void ctxUpdateEyeLightingEnable(Context ctx, boolean localEyeLightingEnable) {
+        record(ctx, STATE, "ctxUpdateEyeLightingEnable");
+        super.ctxUpdateEyeLightingEnable(ctx, localEyeLightingEnable);
+    }
+
+    @Override
+    void setBlendColor(Context ctx, float red, float green,
+            float blue, float alpha) {
+        record(ctx, STATE, "setBlendColor");
+        super.setBlendColor(ctx, red, green, blue, alpha);
+    }
+
+    @Override
+    void setBlendFunc(Context ctx, int src, int dst) {
+        record(ctx, STATE, "setBlendFunc");
+        super.setBlendFunc(ctx, src, dst);
+    }
+
+    @Override
+    void setFogEnableFlag(Context ctx, boolean enableFlag) {
+        record(ctx, STATE, "setFogEnableFlag");
+        super.setFogEnableFlag(ctx, enableFlag);
+    }
+
+    @Override
+    void setFullSceneAntialiasing(Context ctx, boolean enable) {
+        record(ctx, STATE, "setFullSceneAntialiasing");
+        super.setFullSceneAntialiasing(ctx, enable);
+    }
+
+    @Override
+    void updateSeparateSpecularColorEnable(Context ctx, boolean control) {
+        record(ctx, STATE, "updateSeparateSpecularColorEnable");
+        super.updateSeparateSpecularColorEnable(ctx, control);
+    }
+
+    @Override
+    void setLightEnables(Context ctx, long enableMask, int maxLights) {
+        record(ctx, STATE, "setLightEnables");
+        super.setLightEnables(ctx, enableMask, maxLights);
+    }
+
+    @Override
+    void setSceneAmbient(Context ctx, float red, float green, float blue) {
+        record(ctx, STATE, "setSceneAmbient");
+        super.setSceneAmbient(ctx, red, green, blue);
+    }
+
+    @Override
+    void disableFog(Context ctx) {
+        record(ctx, STATE, "disableFog");
+        super.disableFog(ctx);
+    }
+
+    @Override
+    void disableModelClip(Context ctx) {
+        record(ctx, STATE, "disableModelClip");
+        super.disableModelClip(ctx);
+    }
+
+    @Override
+    void resetRenderingAttributes(Context ctx,
+            boolean depthBufferWriteEnableOverride,
+            boolean depthBufferEnableOverride) {
+        record(ctx, STATE, "resetRenderingAttributes");
+        super.resetRenderingAttributes(ctx, depthBufferWriteEnableOverride,
+                depthBufferEnableOverride);
+    }
+
+    @Override
+    void resetTextureNative(Context ctx, int texUnitIndex) {
+        record(ctx, STATE, "resetTextureNative");
+        super.resetTextureNative(ctx, texUnitIndex);
+    }
+
+    @Override
+    void activeTextureUnit(Context ctx, int texUnitIndex) {
+        record(ctx, STATE, "activeTextureUnit");
+        super.activeTextureUnit(ctx, texUnitIndex);
+    }
+
+    @Override
+    void resetTexCoordGeneration(Context ctx) {
+        record(ctx, STATE, "resetTexCoordGeneration");
+        super.resetTexCoordGeneration(ctx);
+    }
+
+    @Override
+    void resetTextureAttributes(Context ctx) {
+        record(ctx, STATE, "resetTextureAttributes");
+        super.resetTextureAttributes(ctx);
+    }
+
+    @Override
+    void resetPolygonAttributes(Context ctx) {
+        record(ctx, STATE, "resetPolygonAttributes");
+        super.resetPolygonAttributes(ctx);
+    }
+
+    @Override
+    void resetLineAttributes(Context ctx) {
+        record(ctx, STATE, "resetLineAttributes");
+        super.resetLineAttributes(ctx);
+    }
+
+    @Override
+    void resetPointAttributes(Context ctx) {
+        record(ctx, STATE, "resetPointAttributes");
+        super.resetPointAttributes(ctx);
+    }
+
+    @Override
+    void resetTransparency(Context ctx, int geometryType,
+            int polygonMode, boolean lineAA,
+            boolean pointAA) {
+        record(ctx, STATE, "resetTransparency");
+        super.resetTransparency(ctx, geometryType, polygonMode, lineAA,
+                pointAA);
+    }
+
+    @Override
+    void resetColoringAttributes(Context ctx,
+            float r, float g,
+            float b, float a,
+            boolean enableLight) {
+        record(ctx, STATE, "resetColoringAttributes");
+        super.resetColoringAttributes(ctx, r, g, b, a, enableLight);
+    }
+
+    @Override
+    void syncRender(Context ctx, boolean wait) {
+        record(ctx, CALL, "syncRender");
+        super.syncRender(ctx, wait);
+    }
+
+    @Override
+    boolean useCtx(Context ctx, Drawable drawable) {
+        record(ctx, CALL, "useCtx");
+        return super.useCtx(ctx, drawable);
+    }
+
+    @Override
+    void clear(Context ctx, float r, float g, float b, boolean clearStencil) {
+        record(ctx, CALL, "clear");
+        super.clear(ctx, r, g, b, clearStencil);
+    }
+
+    @Override
+    void textureFillBackground(Context ctx, float texMinU, float texMaxU, float texMinV, float texMaxV,
+            float mapMinX, float mapMaxX, float mapMinY, float mapMaxY, boolean useBiliearFilter) {
+        record(ctx, DRAW, "textureFillBackground");
+        super.textureFillBackground(ctx, texMinU, texMaxU, texMinV, texMaxV,
+                mapMinX, mapMaxX, mapMinY, mapMaxY, useBiliearFilter);
+    }
+
+    @Override
+    void textureFillRaster(Context ctx, float texMinU, float texMaxU, float texMinV, float texMaxV,
+            float mapMinX, float mapMaxX, float mapMinY, float mapMaxY, float mapZ, float alpha, boolean useBiliearFilter) {
+        record(ctx, DRAW, "textureFillRaster");
+        super.textureFillRaster(ctx, texMinU, texMaxU, texMinV, texMaxV,
+                mapMinX, mapMaxX, mapMinY, mapMaxY, mapZ, alpha,
+                useBiliearFilter);
+    }
+
+    @Override
+    void executeRasterDepth(Context ctx, float posX, float posY, float posZ,
+            int srcOffsetX, int srcOffsetY, int rasterWidth, int rasterHeight, int depthWidth, int depthHeight,
+            int depthType, Object depthData) {
+        record(ctx, DRAW, "executeRasterDepth");
+        super.executeRasterDepth(ctx, posX, posY, posZ, srcOffsetX, srcOffsetY,
+                rasterWidth, rasterHeight, depthWidth, depthHeight, depthType,
+                depthData);
+    }
+
+    @Override
+    void setModelViewMatrix(Context ctx, double[] viewMatrix, double[] modelMatrix) {
+        record(ctx, STATE, "setModelViewMatrix");
+        super.setModelViewMatrix(ctx, viewMatrix, modelMatrix);
+    }
+
+    @Override
+    void setProjectionMatrix(Context ctx, double[] projMatrix) {
+        record(ctx, STATE, "setProjectionMatrix");
+        super.setProjectionMatrix(ctx, projMatrix);
+    }
+
+    @Override
+    void setViewport(Context ctx, int x, int y, int width, int height) {
+        record(ctx, STATE, "setViewport");
+        super.setViewport(ctx, x, y, width, height);
+    }
+
+    @Override
+    void newDisplayList(Context ctx, int displayListId) {
+        record(ctx, CALL, "newDisplayList");
+        super.newDisplayList(ctx, displayListId);
+    }
+
+    @Override
+    void endDisplayList(Context ctx) {
+        record(ctx, CALL, "endDisplayList");
+        super.endDisplayList(ctx);
+    }
+
+    @Override
+    void callDisplayList(Context ctx, int id, boolean isNonUniformScale) {
+        record(ctx, DRAW, "callDisplayList");
+        super.callDisplayList(ctx, id, isNonUniformScale);
+    }
+
+    @Override
+    void freeDisplayList(Context ctx, int id) {
+        record(ctx, CALL, "freeDisplayList");
+        super.freeDisplayList(ctx, id);
+    }
+
+    @Override
+    void freeTexture(Context ctx, int id) {
+        record(ctx, CALL, "freeTexture");
+        super.freeTexture(ctx, id);
+    }
+
+    @Override
+    void createVertexBuffer(Context ctx, int id, float[] data, int length) {
+        record(ctx, VERTEX_BUFFER_UPLOAD, "createVertexBuffer");
+        super.createVertexBuffer(ctx, id, data, length);
+    }
+
+    @Override
+    void updateVertexBuffer(Context ctx, int id, float[] data, int offset, int length) {
+        record(ctx, VERTEX_BUFFER_UPLOAD, "updateVertexBuffer");
+        super.updateVertexBuffer(ctx, id, data, offset, length);
+    }
+
+    @Override
+    void freeVertexBuffer(Context ctx, int id) {
+        record(ctx, CALL, "freeVertexBuffer");
+        super.freeVertexBuffer(ctx, id);
+    }
+
+    @Override
+    int generateTexID(Context ctx) {
+        record(ctx, CALL, "generateTexID");
+        return super.generateTexID(ctx);
+    }
+
+    @Override
+    void texturemapping(Context ctx,
+            int px, int py,
+            int xmin, int ymin, int xmax, int ymax,
+            int texWidth, int texHeight,
+            int rasWidth,
+            int format, int objectId,
+            byte[] image,
+            int winWidth, int winHeight) {
+        record(ctx, TEXTURE_UPLOAD, "texturemapping");
+        super.texturemapping(ctx, px, py, xmin, ymin, xmax, ymax, texWidth,
+                texHeight, rasWidth, format, objectId, image, winWidth,
+                winHeight);
+    }
+
+    @Override
+    boolean initTexturemapping(Context ctx, int texWidth,
+            int texHeight, int objectId) {
+        record(ctx, CALL, "initTexturemapping");
+        return super.initTexturemapping(ctx, texWidth, texHeight, objectId);
+    }
+
+    @Override
+    void setRenderMode(Context ctx, int mode, boolean doubleBuffer) {
+        record(ctx, STATE, "setRenderMode");
+        super.setRenderMode(ctx, mode, doubleBuffer);
+    }
+
+    @Override
+    void setDepthBufferWriteEnable(Context ctx, boolean mode) {
+        record(ctx, STATE, "setDepthBufferWriteEnable");
+        super.setDepthBufferWriteEnable(ctx, mode);
+    }
+
+    /**
+     * Context of the recording pipeline.  The counts are running totals;
+     * they are only changed by the thread that renders with the context,
+     * and read by FrameMetricsCollector once all threads of a frame are
+     * done.
+     */
+    static class RecordingContext extends NoopContext {
+        private final String canvasName;
+
+        // Number of calls of each kind
+        private final long[] callCounts = new long[NUM_KINDS];
+        private long vertexCount = 0L;
+
+        // Calls of the current frame, null if the calls aren't recorded
+        private final ArrayList<String> frameCalls;
+
+        RecordingContext(String canvasName, boolean recordCalls) {
+            this.canvasName = canvasName;
+            frameCalls = recordCalls ? new ArrayList<String>() : null;
+        }
+
+        void record(int kind, String name, int count) {
+            callCounts[kind]++;
+            if (count > 0) {
+                vertexCount += count;
+            }
+            if (frameCalls != null) {
+                frameCalls.add(count >= 0 ? name + "(" + count + ")" : name);
+            }
+        }
+
+        void endFrame() {
+            if (frameCalls == null || frameCalls.isEmpty()) {
+                return;
+            }
+            StringBuilder strBuf = new StringBuilder();
+            strBuf.append("RecordingPipeline: ").
+                    append(frameCalls.size()).
+                    append(" calls for ").
+                    append(canvasName);
+            for (int i = 0; i < frameCalls.size(); i++) {
+                strBuf.append("\n    ").append(frameCalls.get(i));
+            }
+            MasterControl.getStatsLogger().finest(strBuf.toString());
+            frameCalls.clear();
+        }
+
+        /**
+         * Adds the counts of this context to the counter totals of
+         * FrameMetricsCollector.
+         */
+        void addCounters(long[] counterTotals) {
+            long calls = 0L;
+            for (int i = 0; i < NUM_KINDS; i++) {
+                calls += callCounts[i];
+            }
+            counterTotals[FrameMetrics.Counter.PIPELINE_CALLS.ordinal()] += calls;
+            counterTotals[FrameMetrics.Counter.PIPELINE_STATE_CALLS.ordinal()] +=
+                callCounts[STATE];
+            counterTotals[FrameMetrics.Counter.DRAW_CALLS.ordinal()] +=
+                callCounts[DRAW];
+            counterTotals[FrameMetrics.Counter.VERTICES.ordinal()] += vertexCount;
+            counterTotals[FrameMetrics.Counter.TEXTURE_UPLOADS.ordinal()] +=
+                callCounts[TEXTURE_UPLOAD];
+            counterTotals[FrameMetrics.Counter.VERTEX_BUFFER_UPLOADS.ordinal()] +=
+                callCounts[VERTEX_BUFFER_UPLOAD];
+        }
+    }
+}
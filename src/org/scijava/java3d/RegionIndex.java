@@ -0,0 +1,288 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy over the regions of influence of a list of
+ * environment nodes, such as the lights of RenderingEnvironmentStructure.
+ * A query with the bounds of a RenderAtom returns, in increasing order,
+ * the indices in the list of the nodes whose region may intersect them:
+ * the boxes around the regions are slightly enlarged, so the caller still
+ * tests the regions but does not miss any node a linear scan would find.
+ * <p>
+ * The index is built from the regions on the first query after
+ * invalidate.  Regions that are not finite are returned by every query.
+ * Callers must hold the lock that guards the list.
+ */
+class RegionIndex {
+
+    // Maximum number of regions in a leaf of the hierarchy
+    private static final int LEAF_SIZE = 4;
+
+    private boolean valid = false;
+
+    // Number of nodes of the list when the index was built
+    private int listSize = 0;
+
+    // Boxes of the regions, as lower x, y, z then upper x, y, z, at 6
+    // times their index in the list, and the indices of the finite ones,
+    // which the hierarchy reorders
+    private double[] boxes = new double[6 * 16];
+    private int[] ids = new int[16];
+    private int count = 0;
+
+    // Indices of the regions that are not finite
+    private int[] unbounded = new int[4];
+    private int unboundedCount = 0;
+
+    // Nodes of the hierarchy, a node is followed by its left child.  A
+    // leaf has ids[start .. start + size), an internal node has size 0 and
+    // the index of its right child in start.
+    private double[] nodeBoxes = new double[6 * 32];
+    private int[] nodeStart = new int[32];
+    private int[] nodeSize = new int[32];
+    private int nodeCount = 0;
+
+    // Result of the last query
+    private int[] results = new int[16];
+    private int resultCount = 0;
+
+    private final BoundingBox tmpBox = new BoundingBox();
+    private final double[] queryBox = new double[6];
+    private int[] stack = new int[64];
+
+    void invalidate() {
+	valid = false;
+    }
+
+    /**
+     * Returns true if the index was built for the current regions of a
+     * list of n nodes.
+     */
+    boolean isValid(int n) {
+	return valid && (listSize == n);
+    }
+
+    /**
+     * Builds the index from the regions of the n first nodes of a list.
+     * Null or empty regions intersect nothing and are left out.
+     */
+    void build(Bounds[] regions, int n) {
+	if (ids.length < n) {
+	    ids = new int[n];
+	    boxes = new double[6 * n];
+	}
+	count = 0;
+	unboundedCount = 0;
+	for (int i = 0; i < n; i++) {
+	    Bounds region = regions[i];
+	    if ((region == null) || region.isEmpty()) {
+		continue;
+	    }
+	    if (!getBox(region, boxes, 6 * i)) {
+		if (unboundedCount == unbounded.length) {
+		    unbounded = Arrays.copyOf(unbounded, 2 * unboundedCount);
+		}
+		unbounded[unboundedCount++] = i;
+		continue;
+	    }
+	    ids[count++] = i;
+	}
+
+	// A binary tree with count / LEAF_SIZE leaves at most
+	int maxNodes = 2 * Math.max(1, count);
+	if (nodeStart.length < maxNodes) {
+	    nodeStart = new int[maxNodes];
+	    nodeSize = new int[maxNodes];
+	    nodeBoxes = new double[6 * maxNodes];
+	}
+	nodeCount = 0;
+	if (count > 0) {
+	    buildNode(0, count);
+	}
+	if (results.length < n) {
+	    results = new int[n];
+	}
+	listSize = n;
+	valid = true;
+    }
+
+    private int buildNode(int start, int size) {
+	int node = nodeCount++;
+	int off = 6 * node;
+	nodeBoxes[off] = nodeBoxes[off + 1] = nodeBoxes[off + 2] =
+	    Double.POSITIVE_INFINITY;
+	nodeBoxes[off + 3] = nodeBoxes[off + 4] = nodeBoxes[off + 5] =
+	    Double.NEGATIVE_INFINITY;
+	for (int i = start; i < start + size; i++) {
+	    int b = 6 * ids[i];
+	    for (int k = 0; k < 3; k++) {
+		nodeBoxes[off + k] = Math.min(nodeBoxes[off + k], boxes[b + k]);
+		nodeBoxes[off + k + 3] = Math.max(nodeBoxes[off + k + 3], boxes[b + k + 3]);
+	    }
+	}
+
+	if (size <= LEAF_SIZE) {
+	    nodeStart[node] = start;
+	    nodeSize[node] = size;
+	    return node;
+	}
+
+	// Split at the median of the centers along the longest axis
+	int axis = 0;
+	double extent = nodeBoxes[off + 3] - nodeBoxes[off];
+	for (int k = 1; k < 3; k++) {
+	    double e = nodeBoxes[off + k + 3] - nodeBoxes[off + k];
+	    if (e > extent) {
+		extent = e;
+		axis = k;
+	    }
+	}
+	int half = size / 2;
+	select(start, start + size - 1, start + half, axis);
+
+	nodeSize[node] = 0;
+	buildNode(start, half);
+	nodeStart[node] = buildNode(start + half, size - half);
+	return node;
+    }
+
+    private double center(int i, int axis) {
+	int b = 6 * ids[i];
+	return boxes[b + axis] + boxes[b + axis + 3];
+    }
+
+    // Partially sorts ids[l .. r] so that ids[k] has the median center
+    private void select(int l, int r, int k, int axis) {
+	while (l < r) {
+	    double pivot = center((l + r) >>> 1, axis);
+	    int i = l;
+	    int j = r;
+	    do {
+		while (center(i, axis) < pivot) i++;
+		while (pivot < center(j, axis)) j--;
+		if (i <= j) {
+		    int tmp = ids[i];
+		    ids[i] = ids[j];
+		    ids[j] = tmp;
+		    i++;
+		    j--;
+		}
+	    } while (i <= j);
+	    if (k <= j) {
+		r = j;
+	    } else if (k >= i) {
+		l = i;
+	    } else {
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Finds the nodes whose region may intersect the bounds.  Returns
+     * their number, getResult returns their indices in increasing order.
+     */
+    int query(Bounds bounds) {
+	resultCount = 0;
+	if ((bounds == null) || bounds.isEmpty()) {
+	    return 0;
+	}
+
+	for (int i = 0; i < unboundedCount; i++) {
+	    results[resultCount++] = unbounded[i];
+	}
+
+	if ((nodeCount > 0) && getBox(bounds, queryBox, 0)) {
+	    int top = 0;
+	    stack[top++] = 0;
+	    while (top > 0) {
+		int node = stack[--top];
+		if (!overlap(nodeBoxes, 6 * node)) {
+		    continue;
+		}
+		int size = nodeSize[node];
+		if (size > 0) {
+		    int start = nodeStart[node];
+		    for (int i = start; i < start + size; i++) {
+			if (overlap(boxes, 6 * ids[i])) {
+			    results[resultCount++] = ids[i];
+			}
+		    }
+		} else {
+		    if (top + 2 > stack.length) {
+			stack = Arrays.copyOf(stack, 2 * stack.length);
+		    }
+		    stack[top++] = nodeStart[node];
+		    stack[top++] = node + 1;
+		}
+	    }
+	} else {
+	    // Bounds that are not finite may intersect all regions
+	    for (int i = 0; i < count; i++) {
+		results[resultCount++] = ids[i];
+	    }
+	}
+
+	Arrays.sort(results, 0, resultCount);
+	return resultCount;
+    }
+
+    int getResult(int i) {
+	return results[i];
+    }
+
+    private boolean overlap(double[] box, int off) {
+	return (box[off] <= queryBox[3]) && (box[off + 3] >= queryBox[0]) &&
+	    (box[off + 1] <= queryBox[4]) && (box[off + 4] >= queryBox[1]) &&
+	    (box[off + 2] <= queryBox[5]) && (box[off + 5] >= queryBox[2]);
+    }
+
+    /**
+     * Stores at offset off of box the box around the bounds, enlarged by
+     * a small margin for the rounding errors of the intersection tests.
+     * Returns false if the bounds are not finite.
+     */
+    private boolean getBox(Bounds bounds, double[] box, int off) {
+	BoundingBox bbox;
+	if (bounds instanceof BoundingBox) {
+	    bbox = (BoundingBox)bounds;
+	} else {
+	    tmpBox.set(bounds);
+	    bbox = tmpBox;
+	}
+	box[off]     = bbox.lower.x;
+	box[off + 1] = bbox.lower.y;
+	box[off + 2] = bbox.lower.z;
+	box[off + 3] = bbox.upper.x;
+	box[off + 4] = bbox.upper.y;
+	box[off + 5] = bbox.upper.z;
+
+	for (int k = 0; k < 3; k++) {
+	    double lower = box[off + k];
+	    double upper = box[off + k + 3];
+	    if (Double.isInfinite(lower) || Double.isNaN(lower) ||
+		Double.isInfinite(upper) || Double.isNaN(upper)) {
+		return false;
+	    }
+	    double margin = 1.0e-6 *
+		(1.0 + Math.max(Math.abs(lower), Math.abs(upper)));
+	    box[off + k] = lower - margin;
+	    box[off + k + 3] = upper + margin;
+	}
+	return true;
+    }
+}
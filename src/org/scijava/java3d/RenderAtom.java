@@ -239,6 +239,15 @@ class RenderAtom extends Object implements ObjectUpdate {
 	return ((dirtyMask & IN_RENDERBIN) != 0);
     }
 
+    /**
+     * Returns true if the last visibility query of the render bin culled
+     * small features or the atoms hidden behind the occluders, and did
+     * not find this atom visible.  Used by the render methods.
+     */
+    boolean isCulled(RenderBin rBin) {
+	return (rBin.cullTime >= 0) && (lastVisibleTime != rBin.cullTime);
+    }
+
     boolean hasSeparateLocaleVwcBounds() {
 	return ((dirtyMask & HAS_SEPARATE_LOCALE_VWC_BOUNDS) != 0);
     }
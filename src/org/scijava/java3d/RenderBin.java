@@ -150,6 +150,42 @@ ArrayList<RenderAtom> positionDirtyList = new ArrayList<RenderAtom>(5);
     BoundingBox viewFrustumBBox = new BoundingBox();
     BoundingBox canvasFrustumBBox = new BoundingBox();
 
+    /**
+     * The planes of the view frusta of the canvases, used to cull the
+     * bounding hierarchy when viewFrustumCulling is set.
+     */
+    FrustumCuller viewFrustumCuller = new FrustumCuller();
+    boolean viewFrustumCulling = false;
+    private Point3d cullEyeInVworld = new Point3d();
+
+    /**
+     * Number of geometry atoms found visible by the bounding hierarchy
+     * since the view was created, for the frame metrics.
+     */
+    long visibleAtomCount = 0;
+
+    /**
+     * The depth buffer of the occluders, used when occlusion culling is
+     * enabled on the view.
+     */
+    private OcclusionBuffer occlusionBuffer = null;
+    private Transform3D vworldToCc = new Transform3D();
+
+    /**
+     * The reference time of the last visibility query that culled small
+     * features or hidden atoms, -1 if it did not.  Such atoms may still
+     * be in the render bin, which only removes the atoms that are no
+     * longer visible when it is compacted, so the render methods skip
+     * the atoms this query did not find visible.
+     */
+    long cullTime = -1;
+
+    /**
+     * Number of geometry atoms found hidden behind the occluders since
+     * the view was created, for the frame metrics.
+     */
+    long occludedAtomCount = 0;
+
     /**
      * To ensure that vpcToVworld is valid (not null) for the first pass
      */
@@ -184,6 +220,10 @@ ArrayList<RenderAtom> positionDirtyList = new ArrayList<RenderAtom>(5);
 
     private Comparator<TransparencySortGeom> transparencySortComparator = null;
 
+    // Sorts long transparent lists in depthSortAll, keeps its scratch
+    // arrays between frames
+    private TransparentInfoSorter transparentInfoSorter = null;
+
 private ArrayList<TextureRetained> toBeAddedTextureResourceFreeList = new ArrayList<TextureRetained>(5);
 private ArrayList<Integer> displayListResourceFreeList = new ArrayList<Integer>(5);
 
@@ -1789,11 +1829,16 @@ private LinkedHashSet<RenderAtom> dirtyDepthSortRenderAtom = new LinkedHashSet<R
 	    // computeViewFrustumBox in VisibilityStructure.
 	    computeViewFrustumBBox(viewFrustumBBox);
 	    //	     System.err.println("viewFrustumBBox = " + this);
+	    boolean occlusion = computeOcclusionBuffer();
+	    cullTime = (occlusion || (viewFrustumCulling &&
+				      viewFrustumCuller.isSmallFeatureCulling())) ?
+		referenceTime : -1;
 
 	    ViewPlatform vp = view.getViewPlatform();
 	    if (vp != null) {
 		allEnComp = universe.geometryStructure.
 		    getVisibleBHTrees(this, viewFrustumBBox,
+				      viewFrustumCulling ? viewFrustumCuller : null,
 				      locale, referenceTime,
 				      visGAIsDirty || reactivateView || localeChanged ||
 				      ((view.viewCache.vcDirtyMask &
@@ -4289,6 +4334,11 @@ private void processOrderedGroupInserted(J3dMessage m) {
 	viewFrustumBBox.upper.y = Float.NEGATIVE_INFINITY;
 	viewFrustumBBox.upper.z = Float.NEGATIVE_INFINITY;
 
+	viewFrustumCuller.clear(view.viewCache.smallFeatureCullingSize,
+				(view.viewCache.projectionPolicy ==
+				 View.PARALLEL_PROJECTION));
+	viewFrustumCulling = VirtualUniverse.mc.frustumPlaneCulling;
+
 	Canvas3D canvases[] = view.getCanvases();
 	for (int i=0; i< canvases.length; i++) {
 	    Canvas3D canvas = canvases[i];
@@ -4303,6 +4353,31 @@ private void processOrderedGroupInserted(J3dMessage m) {
 
 	    canvas.updateViewCache(true, null, canvasFrustumBBox, false);
 
+	    // The planes are only computed along with the box.  With more
+	    // frusta than the culler holds, only the box is used.
+	    if (viewFrustumCulling &&
+		(canvasFrustumBBox.lower.x != Float.POSITIVE_INFINITY)) {
+		synchronized(canvas.cvLock) {
+		    CanvasViewCache cvc = canvas.canvasViewCacheFrustum;
+		    if (cvc == null) {
+			viewFrustumCulling = false;
+		    } else {
+			double scale = cvc.getPixelScale(false, cullEyeInVworld);
+			if (!viewFrustumCuller.add(cvc.getLeftFrustumPlanesInVworld(),
+						   cullEyeInVworld, scale)) {
+			    viewFrustumCulling = false;
+			}
+			else if (cvc.getUseStereo()) {
+			    scale = cvc.getPixelScale(true, cullEyeInVworld);
+			    if (!viewFrustumCuller.add(cvc.getRightFrustumPlanesInVworld(),
+						       cullEyeInVworld, scale)) {
+				viewFrustumCulling = false;
+			    }
+			}
+		    }
+		}
+	    }
+
 	    if(viewFrustumBBox.lower.x > canvasFrustumBBox.lower.x)
 		viewFrustumBBox.lower.x = canvasFrustumBBox.lower.x;
 	    if(viewFrustumBBox.lower.y > canvasFrustumBBox.lower.y)
@@ -4317,6 +4392,70 @@ private void processOrderedGroupInserted(J3dMessage m) {
 	    if(viewFrustumBBox.upper.z < canvasFrustumBBox.upper.z)
 		viewFrustumBBox.upper.z = canvasFrustumBBox.upper.z;
 	}
+
+	if (viewFrustumCuller.isEmpty()) {
+	    viewFrustumCulling = false;
+	}
+    }
+
+    /**
+     * Draws the occluders of the locale of the view into the occlusion
+     * buffer, and gives it to the view frustum culler.  Returns false if
+     * occlusion culling is not enabled, or not possible for this view:
+     * it needs the frustum culler, and a single canvas without stereo.
+     */
+    private boolean computeOcclusionBuffer() {
+	if (!view.viewCache.occlusionCullingEnable || !viewFrustumCulling ||
+	    (VirtualUniverse.mc.occlusionBufferSize <= 0)) {
+	    return false;
+	}
+	Canvas3D canvases[] = view.getCanvases();
+	GeometryAtom[] occluders = universe.geometryStructure.occluders;
+	if ((canvases.length != 1) || (occluders.length == 0)) {
+	    return false;
+	}
+
+	if (occlusionBuffer == null) {
+	    occlusionBuffer = new OcclusionBuffer();
+	}
+	Canvas3D canvas = canvases[0];
+	synchronized(canvas.cvLock) {
+	    CanvasViewCache cvc = canvas.canvasViewCacheFrustum;
+	    if ((cvc == null) || cvc.getUseStereo()) {
+		return false;
+	    }
+	    vworldToCc.mul(cvc.getLeftProjection(), cvc.getLeftVpcToEc());
+	    vworldToCc.mul(cvc.getVworldToVpc());
+	    occlusionBuffer.clear(vworldToCc,
+				  VirtualUniverse.mc.occlusionBufferSize,
+				  cvc.getCanvasWidth(), cvc.getCanvasHeight());
+	}
+
+	for (int i = 0; i < occluders.length; i++) {
+	    GeometryAtom ga = occluders[i];
+	    Shape3DRetained shape = ga.source;
+	    // Only the occluders drawn in this view, and not the levels
+	    // of an LODSwitch which may not be drawn
+	    if ((shape == null) || (shape.locale != locale) ||
+		!ga.isEnable(view.viewCache.visibilityPolicy) ||
+		((shape.viewList != null) && !shape.viewList.contains(view)) ||
+		(shape.closestSwitchParent instanceof LODSwitchRetained)) {
+		continue;
+	    }
+	    Transform3D localToVworld = shape.getCurrentLocalToVworld(0);
+	    for (int k = 0; k < ga.geometryArray.length; k++) {
+		if (ga.geometryArray[k] != null) {
+		    occlusionBuffer.addOccluder(ga.geometryArray[k],
+						localToVworld);
+		}
+	    }
+	}
+	if (occlusionBuffer.isEmpty()) {
+	    return false;
+	}
+	occlusionBuffer.buildPyramid();
+	viewFrustumCuller.setOcclusionBuffer(occlusionBuffer);
+	return true;
     }
 
 
@@ -6450,6 +6589,21 @@ void addGeometryDlist(RenderAtomListInfo ra) {
         transparencySortComparator = TransparencySortMap.getComparator(view);
 	TransparentRenderingInfo tinfo, previnfo, nextinfo;
 	double curZ;
+
+	// The insertion sort below is cheapest for the nearly sorted lists
+	// we usually get from one frame to the next, but O(n^2) when many
+	// objects change their order. Once it has done more than a few
+	// moves per entry, long lists are sorted in an array instead.
+	int size = 0;
+	for (tinfo = startinfo; tinfo != null; tinfo = tinfo.next) {
+	    size++;
+	}
+	long budget = Long.MAX_VALUE;
+	if (size >= TransparentInfoSorter.MIN_ARRAY_SORT) {
+	    budget = (long)size * TransparentInfoSorter.INSERTION_STEPS;
+	}
+	long steps = 0;
+
 	//	System.err.println("&&&&&&&&&&&depthSortAll");
 	// Do insertion sort
 	/*
@@ -6461,6 +6615,19 @@ void addGeometryDlist(RenderAtomListInfo ra) {
 	*/
 	tinfo = startinfo.next;
 	while (tinfo != null) {
+	    if (steps > budget) {
+		if (transparentInfoSorter == null) {
+		    transparentInfoSorter = new TransparentInfoSorter();
+		}
+		previnfo = transparentInfoSorter.sort(startinfo, size,
+						      transparencySortComparator);
+		if (previnfo != null) {
+		    return previnfo;
+		}
+		// Inconsistent comparator, keep on with the insertion sort
+		budget = Long.MAX_VALUE;
+	    }
+
 	    //	    System.err.println("====> Doing tinfo = "+tinfo);
 	    nextinfo = tinfo.next;
 	    curZ = tinfo.zVal;
@@ -6470,6 +6637,7 @@ void addGeometryDlist(RenderAtomListInfo ra) {
             if (transparencySortComparator==null) {
                 while (previnfo != null && previnfo.zVal < curZ) {
                     previnfo = previnfo.prev;
+                    steps++;
                 }
             } else {
 //                    System.err.println("Code Path 3 ");
@@ -6479,6 +6647,7 @@ void addGeometryDlist(RenderAtomListInfo ra) {
 //                        System.err.println("FAIL");
                 while (previnfo != null && transparencySortComparator.compare(previnfo,tinfo)<0) {
                     previnfo = previnfo.prev;
+                    steps++;
                 }
             }
 
@@ -1745,6 +1745,13 @@ class RenderMolecule extends IndexedObject implements ObjectUpdate, NodeComponen
     }
 
     final boolean isSwitchOn() {
+	// Only the level of an LODSwitch chosen for the view is drawn
+	if ((closestSwitchParent instanceof LODSwitchRetained) &&
+	    !((LODSwitchRetained)closestSwitchParent).
+	    isLevelSelected(renderBin.view, closestSwitchIndex)) {
+	    return false;
+	}
+
  	// The switchOn status of the entire RM can be determined
 	// by the switchOn status of any renderAtoms below.
         // This is possible because renderAtoms generated from a common
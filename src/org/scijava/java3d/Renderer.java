@@ -246,6 +246,12 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                         	// don't swap double buffered AuoOffScreenCanvas3D/JCanvas3D
                         	// manual offscreen rendering doesn't pass this code (opArg == SWAP)
                             if (cv.useDoubleBuffer && !cv.offScreen) {
+                                long startSwapTime = 0L;
+                                boolean timeSwap = VirtualUniverse.mc.collectFrameMetrics ||
+                                        MasterControl.isStatsLoggable(Level.INFO);
+                                if (timeSwap) {
+                                    startSwapTime = System.nanoTime();
+                                }
                                 synchronized (cv.drawingSurfaceObject) {
                                     if (cv.validCtx) {
                                         if (VirtualUniverse.mc.doDsiRenderLock) {
@@ -268,6 +274,13 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                                         }
                                     }
                                 }
+                                if (timeSwap) {
+                                    long deltaTime = System.nanoTime() - startSwapTime;
+                                    cv.swapTime += deltaTime;
+                                    if (MasterControl.isStatsLoggable(Level.INFO)) {
+                                        VirtualUniverse.mc.recordTime(MasterControl.TimeType.SWAP, deltaTime);
+                                    }
+                                }
                             }
                             cv.view.inCanvasCallback = true;
                             try {
@@ -586,6 +599,21 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 		    canvas.offScreenBufferPending = false;
 		    m[nmesg++].decRefcount();
 		    continue;
+		} else if (renderType == J3dMessage.FLUSH_OFFSCREEN_FRAMES) {
+		    // Finish the read back of the frames of the ring of
+		    // off-screen buffers, unless the context is gone
+		    if ((canvas.ctx != null) && (canvas.drawable != null)) {
+			canvas.makeCtxCurrent();
+			canvas.finishOffScreenReadbacks(0);
+			canvas.releaseCtx();
+		    } else {
+			canvas.discardOffScreenReadbacks();
+		    }
+
+		    canvas.offScreenFramesPending = false;
+		    m[nmesg++].decRefcount();
+		    canvas.notifyOffScreenFrames();
+		    continue;
 		} else if (renderType == J3dMessage.ALLOCATE_CANVASID) {
                     canvas.allocateCanvasId();
                 } else if (renderType == J3dMessage.FREE_CANVASID) {
@@ -739,6 +767,10 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 			canvas.graphicsContext3D.doSetModelClip(
 				(ModelClip)m[nmesg].args[2]);
 			break;
+		    case GraphicsContext3D.EXECUTE:
+			canvas.graphicsContext3D.doExecute(
+				(CommandBuffer)m[nmesg].args[2], true);
+			break;
                     default:
                         break;
                     }
@@ -759,7 +791,9 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 		    m[nmesg++].decRefcount();
 		} else { // retained mode rendering
                     long startRenderTime = 0L;
-                    if (MasterControl.isStatsLoggable(Level.INFO)) {
+                    boolean timeRender = VirtualUniverse.mc.collectFrameMetrics ||
+                            MasterControl.isStatsLoggable(Level.INFO);
+                    if (timeRender) {
                         // Instrumentation of Java 3D renderer
                         startRenderTime = System.nanoTime();
                     }
@@ -963,6 +997,7 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
 			} else {
 			    canvas.freeResourcesInFreeList(canvas.ctx);
 			}
+			canvas.freeReleasedVertexBuffers(canvas.ctx);
 
 			if (VirtualUniverse.mc.doDsiRenderLock) {
 			    canvas.drawingSurfaceObject.unLock();
@@ -1387,9 +1422,14 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                         // end offscreen rendering
                         if (canvas.offScreenRendering) {
 
-			    canvas.syncRender(canvas.ctx, true);
+			    // The asynchronous read back is queued after the
+			    // rendering, no need to wait for it to complete
+			    if (!canvas.isOffScreenReadbackAsync()) {
+				canvas.syncRender(canvas.ctx, true);
+			    }
                             canvas.endOffScreenRendering();
                             canvas.offScreenRendering = false;
+                            canvas.notifyOffScreenFrames();
 
                             // Issue 489 - don't call postSwap here for auto-offscreen,
                             // since it will be called later by the SWAP operation
@@ -1417,10 +1457,13 @@ ArrayList<TextureRetained> textureIDResourceTable = new ArrayList<TextureRetaine
                             }
                         }
 
-                        if (MasterControl.isStatsLoggable(Level.INFO)) {
+                        if (timeRender) {
                             // Instrumentation of Java 3D renderer
                             long deltaTime = System.nanoTime() - startRenderTime;
-                            VirtualUniverse.mc.recordTime(MasterControl.TimeType.RENDER, deltaTime);
+                            canvas.renderTime += deltaTime;
+                            if (MasterControl.isStatsLoggable(Level.INFO)) {
+                                VirtualUniverse.mc.recordTime(MasterControl.TimeType.RENDER, deltaTime);
+                            }
                         }
 
 		    } else { // if (renderBin != null)
@@ -119,6 +119,19 @@ private final ArrayList<Object[]> objFreeList = new ArrayList<Object[]>();
 
     LightRetained[] retlights = new LightRetained[5];
 
+    // Minimum number of nodes in a list for a RegionIndex to be used
+    private static final int MIN_INDEXED_REGIONS = 16;
+
+    // Spatial indices of the regions of the non view scoped lights, fogs,
+    // model clips and alternate appearances.  They are invalidated
+    // whenever this structure processes messages or updates its mirror
+    // objects, which is when the lists or the regions change, and rebuilt
+    // by the next query.
+    private final RegionIndex lightIndex = new RegionIndex();
+    private final RegionIndex fogIndex = new RegionIndex();
+    private final RegionIndex modelClipIndex = new RegionIndex();
+    private final RegionIndex altAppIndex = new RegionIndex();
+
     // variables used for processing transform messages
     boolean transformMsg = false;
     UpdateTargets targets = null;
@@ -160,6 +173,8 @@ void addObjArrayToFreeList(Object[] objs) {
 public void updateObject() {
 	int size;
 
+	invalidateRegionIndices();
+
 	size = objList.size();
 	for (int i = 0; i < size; i++) {
 		Object[] args = objList.get(i);
@@ -186,6 +201,8 @@ public void updateObject() {
 	    return;
 	}
 
+	invalidateRegionIndices();
+
 	for (int i=0; i < nMsg; i++) {
 	    m = messages[i];
 
@@ -682,14 +699,16 @@ public void updateObject() {
 		int numLights = 0;
 		if (ra.geometryAtom.source.inBackgroundGroup) {
 			globalLights = ra.geometryAtom.source.geometryBackground.lights;
-			numLights = processLights(globalLights, ra, numLights);
+			numLights = processLights(globalLights, null, ra, numLights);
 		}
 		else {
 			if ((globalLights = viewScopedLights.get(view)) != null) {
-				numLights = processLights(globalLights, ra, numLights);
+				numLights = processLights(globalLights, null, ra, numLights);
 			}
 			// now process the common lights
-			numLights = processLights(nonViewScopedLights, ra, numLights);
+			numLights = processLights(nonViewScopedLights,
+				getRegionIndex(lightIndex, nonViewScopedLights),
+				ra, numLights);
 		}
 
 	    boolean newLights = false;
@@ -721,15 +740,22 @@ public void updateObject() {
     }
 
 // Called while holding the retlights lock
-private int processLights(ArrayList<LightRetained> globalLights, RenderAtom ra, int numLights) {
+private int processLights(ArrayList<LightRetained> globalLights, RegionIndex index,
+			  RenderAtom ra, int numLights) {
 	LightRetained[] shapeScopedLt;
         Bounds bounds;
 	int i, j, n;
         bounds = ra.localeVwcBounds;
 	int size = globalLights.size();
 
+	// Only the lights whose region may intersect the bounds
+	if (index != null) {
+	    size = index.query(bounds);
+	}
+
 	if (size > 0) {
-	    for (i=0; i<size; i++) {
+	    for (int c=0; c<size; c++) {
+		i = (index != null) ? index.getResult(c) : c;
 			LightRetained light = globalLights.get(i);
 		//		System.err.println("vwcBounds = "+bounds);
 		//		System.err.println("light.region = "+light.region);
@@ -786,7 +812,7 @@ FogRetained getInfluencingFog(RenderAtom ra, View view) {
 	    ArrayList<FogRetained> globalFogs;
 		if (ra.geometryAtom.source.inBackgroundGroup) {
 			globalFogs = ra.geometryAtom.source.geometryBackground.fogs;
-			nfogs = processFogs(globalFogs, ra, nfogs);
+			nfogs = processFogs(globalFogs, null, ra, nfogs);
 			// If background, then nfogs > 1, take the first one
 			if (nfogs >= 1)
 				fog = intersectedFogs[0];
@@ -794,10 +820,12 @@ FogRetained getInfluencingFog(RenderAtom ra, View view) {
 		}
 		else {
 			if ((globalFogs = viewScopedFogs.get(view)) != null) {
-				nfogs = processFogs(globalFogs, ra, nfogs);
+				nfogs = processFogs(globalFogs, null, ra, nfogs);
 			}
 		// now process the common fogs
-		nfogs = processFogs(nonViewScopedFogs, ra, nfogs);
+		nfogs = processFogs(nonViewScopedFogs,
+				    getRegionIndex(fogIndex, nonViewScopedFogs),
+				    ra, nfogs);
 
 
 		if (nfogs == 1)
@@ -818,15 +846,22 @@ FogRetained getInfluencingFog(RenderAtom ra, View view) {
     }
 
     // Called while holding lockObj lock
-    int processFogs(ArrayList<FogRetained> globalFogs, RenderAtom ra, int numFogs) {
+    int processFogs(ArrayList<FogRetained> globalFogs, RegionIndex index,
+		    RenderAtom ra, int numFogs) {
 	int size = globalFogs.size();
 	FogRetained fog;
 	int i, k, n;
         Bounds bounds = ra.localeVwcBounds;
 	FogRetained[] shapeScopedFog;
 
-	if (globalFogs.size() > 0) {
-	    for (i = 0 ; i < size; i++) {
+	// Only the fogs whose region may intersect the bounds
+	if (index != null) {
+	    size = index.query(bounds);
+	}
+
+	if (size > 0) {
+	    for (int c = 0 ; c < size; c++) {
+		i = (index != null) ? index.getResult(c) : c;
 		fog = globalFogs.get(i);
 		// Note : There is no enable check for fog
 		if (fog.region != null && fog.switchState.currentSwitchOn &&
@@ -870,10 +905,12 @@ ModelClipRetained getInfluencingModelClip(RenderAtom ra, View view) {
 
 		ArrayList<ModelClipRetained> globalModelClips = viewScopedModelClips.get(view);
 		if (globalModelClips  != null)
-			nModelClips = processModelClips(globalModelClips, ra, nModelClips);
+			nModelClips = processModelClips(globalModelClips, null, ra, nModelClips);
 
 		// now process the common clips
-		nModelClips = processModelClips(nonViewScopedModelClips, ra, nModelClips);
+		nModelClips = processModelClips(nonViewScopedModelClips,
+				getRegionIndex(modelClipIndex, nonViewScopedModelClips),
+				ra, nModelClips);
 
 		ModelClipRetained modelClip = null;
 		if (nModelClips == 1)
@@ -891,15 +928,22 @@ ModelClipRetained getInfluencingModelClip(RenderAtom ra, View view) {
 	}
 }
 
-int processModelClips(ArrayList<ModelClipRetained> globalModelClips, RenderAtom ra, int nModelClips) {
+int processModelClips(ArrayList<ModelClipRetained> globalModelClips, RegionIndex index,
+		      RenderAtom ra, int nModelClips) {
     	int size = globalModelClips.size();
 	int i, k, n;
 	ModelClipRetained modelClip;
         Bounds bounds = ra.localeVwcBounds;
 	ModelClipRetained[] shapeScopedModelClip;
 
+	// Only the model clips whose region may intersect the bounds
+	if (index != null) {
+	    size = index.query(bounds);
+	}
+
 	if (size > 0) {
-	    for (i = 0; i < size; i++) {
+	    for (int c = 0; c < size; c++) {
+		i = (index != null) ? index.getResult(c) : c;
 		modelClip = globalModelClips.get(i);
 		if (modelClip.enableFlag == true &&
 		    modelClip.region != null && modelClip.switchState.currentSwitchOn) {
@@ -1331,9 +1375,11 @@ int processClips(ArrayList<ClipRetained> globalClips, BoundingSphere bounds, int
 
 		ArrayList<AlternateAppearanceRetained> globalAltApps = viewScopedAltAppearances.get(view);
 		if (globalAltApps != null)
-			nAltApp = processAltApps(globalAltApps, ra, nAltApp);
+			nAltApp = processAltApps(globalAltApps, null, ra, nAltApp);
 
-		nAltApp = processAltApps(nonViewScopedAltAppearances, ra, nAltApp);
+		nAltApp = processAltApps(nonViewScopedAltAppearances,
+				getRegionIndex(altAppIndex, nonViewScopedAltAppearances),
+				ra, nAltApp);
 		AlternateAppearanceRetained altApp = null;
 	    if (nAltApp == 1)
 		altApp = intersectedAltApps[0];
@@ -1358,15 +1404,22 @@ int processClips(ArrayList<ClipRetained> globalClips, BoundingSphere bounds, int
     }
 
 // Called while holding lockObj lock
-int processAltApps(ArrayList<AlternateAppearanceRetained> globalAltApps, RenderAtom ra, int nAltApp) {
+int processAltApps(ArrayList<AlternateAppearanceRetained> globalAltApps, RegionIndex index,
+		   RenderAtom ra, int nAltApp) {
 	int size = globalAltApps.size();
 	Bounds bounds = ra.localeVwcBounds;
 	AlternateAppearanceRetained[] shapeScopedAltApp;
 
+	// Only the alternate appearances whose region may intersect the bounds
+	if (index != null) {
+		size = index.query(bounds);
+	}
+
 	if (size == 0)
 		return nAltApp;
 
-	for (int i = 0; i < size; i++) {
+	for (int c = 0; c < size; c++) {
+		int i = (index != null) ? index.getResult(c) : c;
 		AlternateAppearanceRetained altApp = globalAltApps.get(i);
 		// System.err.println("altApp.region = "+altApp.region+" altApp.switchState.currentSwitchOn = "+altApp.switchState.currentSwitchOn+" intersect = "+altApp.region.intersect(ra.geometryAtom.vwcBounds));
 		// System.err.println("altApp.isScoped = "+altApp.isScoped);
@@ -1399,6 +1452,43 @@ int processAltApps(ArrayList<AlternateAppearanceRetained> globalAltApps, RenderA
 	return nAltApp;
 }
 
+    private void invalidateRegionIndices() {
+	lightIndex.invalidate();
+	fogIndex.invalidate();
+	modelClipIndex.invalidate();
+	altAppIndex.invalidate();
+    }
+
+    // Returns the index of the regions of the list, built if needed, or
+    // null if the list is too small for the index to pay off.  Called
+    // while holding the lock of the list.
+    private RegionIndex getRegionIndex(RegionIndex index,
+				       ArrayList<? extends LeafRetained> list) {
+	int size = list.size();
+	if (!VirtualUniverse.mc.environmentIndex ||
+	    (size < MIN_INDEXED_REGIONS)) {
+	    return null;
+	}
+
+	if (!index.isValid(size)) {
+	    Bounds[] regions = new Bounds[size];
+	    for (int i = 0; i < size; i++) {
+		LeafRetained leaf = list.get(i);
+		if (leaf instanceof LightRetained) {
+		    regions[i] = ((LightRetained)leaf).region;
+		} else if (leaf instanceof FogRetained) {
+		    regions[i] = ((FogRetained)leaf).region;
+		} else if (leaf instanceof ModelClipRetained) {
+		    regions[i] = ((ModelClipRetained)leaf).region;
+		} else if (leaf instanceof AlternateAppearanceRetained) {
+		    regions[i] = ((AlternateAppearanceRetained)leaf).region;
+		}
+	    }
+	    index.build(regions, size);
+	}
+	return index;
+    }
+
     void initViewSpecificInfo(J3dMessage m) {
 	int[] keys = (int[])m.args[2];
 	ArrayList<ArrayList<View>> vlists = (ArrayList<ArrayList<View>>)m.args[1];
@@ -654,6 +654,40 @@ public class Shape3D extends Leaf {
 	return ((Shape3DRetained)this.retained).getAppearanceOverrideEnable();
     }
 
+    /**
+     * Sets a flag that indicates whether this node is an occluder.  When
+     * occlusion culling is enabled on a View, the objects hidden behind
+     * the occluders of the View are not drawn.  The occluders should be
+     * opaque shapes that hide large parts of the scene, such as walls or
+     * terrain; only their TriangleArray, QuadArray and
+     * IndexedTriangleArray geometry hides other objects.
+     * The default value is false.
+     *
+     * @param occluder true if this node hides the objects behind it
+     * @exception RestrictedAccessException if this object is part of a
+     * live or compiled scene graph
+     *
+     * @see View#setOcclusionCullingEnable
+     *
+     * @since Java 3D 1.6
+     */
+    public void setOccluder(boolean occluder) {
+	if (isLiveOrCompiled())
+	    throw new RestrictedAccessException(J3dI18N.getString("Shape3D10"));
+
+	((Shape3DRetained)this.retained).occluder = occluder;
+    }
+
+    /**
+     * Retrieves the occluder flag of this node.
+     * @return true if this node is an occluder; false otherwise
+     *
+     * @since Java 3D 1.6
+     */
+    public boolean getOccluder() {
+	return ((Shape3DRetained)this.retained).occluder;
+    }
+
     /**
      * Used to create a new instance of the node.  This routine is called
      * by <code>cloneTree</code> to duplicate the current node.
@@ -770,6 +804,7 @@ public class Shape3D extends Leaf {
 	}
 
 	rt.setCollisionBounds(attr.getCollisionBounds(id));
+	rt.occluder = attr.occluder;
     }
 
     /**
@@ -155,6 +155,10 @@ ArrayList<GeometryRetained> geometryList = null;
     // Whether the normal appearance is overrided by the alternate app
     boolean appearanceOverrideEnable = false;
 
+    // Whether this shape hides the objects behind it from the occlusion
+    // culling of the render bins
+    boolean occluder = false;
+
     // AlternateAppearance retained that is applicable to this
     // mirror shape when the override flag is true
     AppearanceRetained otherAppearance = null;
@@ -801,6 +805,7 @@ Enumeration getAllGeometries(int id) {
 
 
 	ms.appearanceOverrideEnable = appearanceOverrideEnable;
+	ms.occluder = occluder;
 
 	ms.geometryList = geometryList;
 
@@ -2561,6 +2566,7 @@ final static ArrayList<ArrayList<GeometryAtom>> getGeomAtomsList(ArrayList userL
 	if (this.appearance != shape.appearance ||
 	    // Scoping info should be same since they are under same group
 	    this.appearanceOverrideEnable != shape.appearanceOverrideEnable ||
+	    this.occluder != shape.occluder ||
 	    this.isPickable != shape.isPickable ||
 	    this.isCollidable != shape.isCollidable) {
 
@@ -26,6 +26,8 @@
 
 package org.scijava.java3d;
 
+import java.util.logging.Level;
+
 /**
  * The StructureUpdateThread is thread that passes messages to its structure
  */
@@ -36,6 +38,11 @@ class StructureUpdateThread extends J3dThread {
      */
     J3dStructure structure;
 
+    /**
+     * The stats logger time type of the structure
+     */
+    private MasterControl.TimeType timeType;
+
     /**
      * Some variables used to name threads correctly
      */
@@ -64,29 +71,37 @@ class StructureUpdateThread extends J3dThread {
 	switch (type) {
     	case J3dThread.UPDATE_GEOMETRY:
 	    setName("J3D-GeometryStructureUpdateThread-" + getInstanceNum(0));
+	    timeType = MasterControl.TimeType.GEOMETRY_STRUCTURE;
 	    break;
     	case J3dThread.UPDATE_RENDER:
 	    setName("J3D-RenderStructureUpdateThread-" + getInstanceNum(1));
+	    timeType = MasterControl.TimeType.RENDER_BIN;
 	    break;
     	case J3dThread.UPDATE_BEHAVIOR:
 	    setName("J3D-BehaviorStructureUpdateThread-" + getInstanceNum(2));
+	    timeType = MasterControl.TimeType.BEHAVIOR_STRUCTURE;
 	    break;
     	case J3dThread.UPDATE_SOUND:
 	    setName("J3D-SoundStructureUpdateThread-" + getInstanceNum(3));
+	    timeType = MasterControl.TimeType.SOUND_STRUCTURE;
 	    break;
     	case J3dThread.UPDATE_RENDERING_ATTRIBUTES:
 	    // Only one exists in Java3D system
 	    setName("J3D-RenderingAttributesStructureUpdateThread");
+	    timeType = MasterControl.TimeType.RENDERING_ATTRIBUTES_STRUCTURE;
 	    break;
     	case J3dThread.UPDATE_RENDERING_ENVIRONMENT:
 	    setName("J3D-RenderingEnvironmentStructureUpdateThread-"+
 		    getInstanceNum(4));
+	    timeType = MasterControl.TimeType.RENDERING_ENVIRONMENT_STRUCTURE;
 	    break;
 	case J3dThread.UPDATE_TRANSFORM:
 	    setName("J3D-TransformStructureUpdateThread-"+ getInstanceNum(5));
+	    timeType = MasterControl.TimeType.TRANSFORM_STRUCTURE;
 	    break;
         case J3dThread.SOUND_SCHEDULER:
             setName("J3D-SoundSchedulerUpdateThread-"+ getInstanceNum(6));
+            timeType = MasterControl.TimeType.SOUND_SCHEDULER;
             break;
 
 	}
@@ -95,6 +110,21 @@ class StructureUpdateThread extends J3dThread {
 
     @Override
     void doWork(long referenceTime) {
+	boolean statsLoggable = MasterControl.isStatsLoggable(Level.INFO);
+
+	if (!VirtualUniverse.mc.collectFrameMetrics && !statsLoggable) {
+	    structure.processMessages(referenceTime);
+	    return;
+	}
+
+	long startTime = System.nanoTime();
 	structure.processMessages(referenceTime);
+	long deltaTime = System.nanoTime() - startTime;
+
+	structure.processTime += deltaTime;
+	structure.processedMessages += structure.nMessage;
+	if (statsLoggable && timeType != null) {
+	    VirtualUniverse.mc.recordTime(timeType, deltaTime);
+	}
     }
 }
@@ -84,10 +84,12 @@ class Text3DRenderMethod implements RenderMethod {
 		}
 	    }
 	    else {
-		if (!VirtualUniverse.mc.viewFrustumCulling ||
-		    ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum)) {
+		if (!ra.renderAtom.isCulled(rm.renderBin) &&
+		    (!VirtualUniverse.mc.viewFrustumCulling ||
+		     ra.renderAtom.localeVwcBounds.intersect(cv.viewFrustum))) {
 		    cv.updateState(dirtyBits);
 		    cv.raIsVisible = true;
+		    cv.renderedAtomCount++;
 		    trans = ra.localToVworld;
 		    isNonUniformScale = !trans.isCongruent();
 
@@ -102,6 +104,7 @@ class Text3DRenderMethod implements RenderMethod {
 		}
 		else {
 		    cv.raIsVisible = false;
+		    cv.culledAtomCount++;
 		}
 		cv.ra = ra.renderAtom;
 	    }
@@ -510,6 +510,39 @@ public abstract class Texture extends NodeComponent {
      */
     public static final int MULTI_LEVEL_MIPMAP = 2;
 
+    /**
+     * Specifies that the mipmap levels of a MULTI_LEVEL_MIPMAP texture
+     * are set by the application.
+     *
+     * @see #setMipMapGeneration
+     *
+     * @since Java 3D 1.6
+     */
+    public static final int MIPMAP_GENERATION_NONE = 0;
+
+    /**
+     * Specifies that the mipmap levels of a MULTI_LEVEL_MIPMAP texture
+     * are generated from the base level with a box filter: each texel is
+     * the average of the 2x2, or 2x2x2, texels of the previous level it
+     * covers.
+     *
+     * @see #setMipMapGeneration
+     *
+     * @since Java 3D 1.6
+     */
+    public static final int MIPMAP_GENERATION_BOX = 1;
+
+    /**
+     * Specifies that the mipmap levels of a MULTI_LEVEL_MIPMAP texture
+     * are generated from the base level with a Lanczos filter of radius
+     * 2, which keeps more detail than the box filter but is slower.
+     *
+     * @see #setMipMapGeneration
+     *
+     * @since Java 3D 1.6
+     */
+    public static final int MIPMAP_GENERATION_LANCZOS = 2;
+
     // Texture format parameter values
 
     /**
@@ -936,6 +969,10 @@ public abstract class Texture extends NodeComponent {
      * @exception IllegalArgumentException if the image being set at this
      * level is not the correct size for this level.
      *
+     * @exception IllegalArgumentException if the image is not null,
+     * the level is not 0 and the mipmap levels of this texture are
+     * generated.
+     *
      * @exception IllegalSharingException if this Texture is live and
      * the specified image is being used by a Canvas3D as an off-screen buffer.
      *
@@ -1000,6 +1037,10 @@ public abstract class Texture extends NodeComponent {
      * of the image at a given level in the
      * <code>images</code> array is not the correct size.
      *
+     * @exception IllegalArgumentException if the mipmap levels of this
+     * texture are generated and an image other than <code>images[0]</code>
+     * is not null.
+     *
      * @exception IllegalSharingException if this Texture is live and
      * any of the specified images are being used by a Canvas3D as an
      * off-screen buffer.
@@ -1159,6 +1200,61 @@ public abstract class Texture extends NodeComponent {
 	return ((TextureRetained)this.retained).getMipMapMode();
     }
 
+    /**
+     * Sets the filter the mipmap levels of this texture are generated
+     * with.  When it is not <code>MIPMAP_GENERATION_NONE</code> and the
+     * mipmap mode is <code>MULTI_LEVEL_MIPMAP</code>, only the image of
+     * the base level, level 0, is set by the application: Java 3D
+     * generates the images of the other levels from it, each from the
+     * previous level.  They are generated again whenever the base level
+     * image changes, only over the region that changed when it is
+     * updated with <code>setSubImage</code> or <code>updateData</code>.
+     * Only the levels with at least 2 * 512 * 512 texels to filter, for a
+     * Texture3D as for a Texture2D, are filtered on several threads.
+     * <p>
+     * The generated images are by-copy ImageComponent objects, returned
+     * by <code>getImage</code>, that the application should not modify.
+     * They are only generated once the base level image has image data.
+     *
+     * @param filter the mipmap generation filter, one of:
+     * MIPMAP_GENERATION_NONE, MIPMAP_GENERATION_BOX or
+     * MIPMAP_GENERATION_LANCZOS.
+     *
+     * @exception RestrictedAccessException if the method is called
+     * when this object is part of live or compiled scene graph.
+     * @exception IllegalArgumentException if <code>filter</code>
+     * is not one of the above values.
+     *
+     * @see #setImage
+     *
+     * @since Java 3D 1.6
+     */
+    public void setMipMapGeneration(int filter) {
+	checkForLiveOrCompiled();
+	if ((filter != MIPMAP_GENERATION_NONE) &&
+	    (filter != MIPMAP_GENERATION_BOX) &&
+	    (filter != MIPMAP_GENERATION_LANCZOS)) {
+	    throw new IllegalArgumentException(J3dI18N.getString("Texture49"));
+	}
+	((TextureRetained)this.retained).initMipMapGeneration(filter);
+    }
+
+    /**
+     * Retrieves the filter the mipmap levels of this texture are
+     * generated with.
+     * @return the mipmap generation filter of this texture.
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and this object is part of live or compiled scene graph
+     *
+     * @since Java 3D 1.6
+     */
+    public int getMipMapGeneration() {
+        if (isLiveOrCompiled())
+            if(!this.getCapability(ALLOW_MIPMAP_MODE_READ))
+              throw new CapabilityNotSetException(J3dI18N.getString("Texture10"));
+	return ((TextureRetained)this.retained).getMipMapGeneration();
+    }
+
     /**
      * Enables or disables texture mapping for this
      * appearance component object.
@@ -1818,6 +1914,7 @@ public abstract class Texture extends NodeComponent {
       rt.initMinFilter(tex.getMinFilter());
       rt.initMagFilter(tex.getMagFilter());
       rt.initMipMapMode(tex.getMipMapMode());
+      rt.initMipMapGeneration(tex.getMipMapGeneration());
       rt.initEnable(tex.getEnable());
       rt.initAnisotropicFilterMode(tex.getAnisotropicFilterMode());
       rt.initAnisotropicFilterDegree(tex.getAnisotropicFilterDegree());
@@ -1839,6 +1936,10 @@ public abstract class Texture extends NodeComponent {
 
       // No API available to get the current level
       for (int i=tex.maxLevels-1; i>=0; i-- ) {
+	if ((i > 0) && tex.generatesMipMaps()) {
+	    // Generated from the base level
+	    continue;
+	}
 	ImageComponent image = (ImageComponent)
 	                       getNodeComponent(tex.getImage(i),
 						forceDuplicate,
@@ -45,6 +45,11 @@ class Texture3DRetained extends TextureRetained {
 	return this.depth;
     }
 
+    @Override
+    int getLevelDepth(int level) {
+	return Math.max(1, depth >> level);
+    }
+
     /**
      * Sets the boundary mode for the R coordinate in this texture object.
      * @param boundaryModeR the boundary mode for the R coordinate,
@@ -208,7 +213,7 @@ class Texture3DRetained extends TextureRetained {
         updateTextureImage(cv,
                 0, numLevels, level, format,
                 image.getImageFormatTypeIntValue(false),
-                image.width, image.height, depth,
+                image.width, image.height, image.depth,
                 boundaryWidth, image.getImageDataTypeIntValue(),
                 imageData.get());
     }
@@ -53,6 +53,10 @@ class TextureCubeMapRetained extends TextureRetained {
      */
     void initImage(int level, int face, ImageComponent image) {
 
+        if (!checkGeneratedLevel(level, image)) {
+            return;
+        }
+
         // Issue 172 : call checkImageSize even for non-live setImage calls
         checkImageSize(level, image);
 
@@ -89,11 +93,17 @@ class TextureCubeMapRetained extends TextureRetained {
          ((ImageComponent2DRetained)image.retained).setTextureRef();
         */
 
+	ImageComponentRetained oldImage = this.images[face][level];
+
 	if (image != null) {
 	    this.images[face][level] = (ImageComponentRetained)image.retained;
 	} else {
 	    this.images[face][level] = null;
 	}
+
+	if (level == 0) {
+	    baseImageChanged(face, oldImage);
+	}
     }
 
     final void setImage(int level, int face, ImageComponent image) {
@@ -146,7 +156,7 @@ class TextureCubeMapRetained extends TextureRetained {
 
 	ImageComponent [] imgs = new ImageComponent[images.length];
 	for (i = 0; i < images.length; i++) {
-	     imgs[i] = images[i];
+	     imgs[i] = getImage(i, face);
 	}
 
         Object args[] = new Object[2];
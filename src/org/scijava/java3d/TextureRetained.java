@@ -84,6 +84,7 @@ abstract class TextureRetained extends NodeComponentRetained {
     int 	objectId = -1;
 
     int		mipmapMode = Texture.BASE_LEVEL; // Type of mip-mapping
+    int		mipMapGeneration = Texture.MIPMAP_GENERATION_NONE;
     int		format = Texture.RGB;		// Texture format
     int		width = 1;			// Width in pixels (2**n)
     int		height = 1;			// Height in pixels (2**m)
@@ -97,6 +98,10 @@ abstract class TextureRetained extends NodeComponentRetained {
     // maximum number of mipmap levels that can be defined for this texture
     private int	     maxMipMapLevels = 0;
 
+    // Images of the levels generated from the base level of each face,
+    // null for those set by the application
+    private ImageComponentRetained generatedImages[][] = null;
+
     int 	numFaces = 1;		// For CubeMap, it is 6
     int		baseLevel = 0;
     int		maximumLevel = 0;
@@ -356,6 +361,10 @@ abstract class TextureRetained extends NodeComponentRetained {
      */
     void initImage(int level, ImageComponent image) {
 
+        if (!checkGeneratedLevel(level, image)) {
+            return;
+        }
+
         // Issue 172 : call checkImageSize even for non-live setImage calls
         checkImageSize(level, image);
 
@@ -387,12 +396,18 @@ abstract class TextureRetained extends NodeComponentRetained {
 	    }
 	}
 
+	ImageComponentRetained oldImage = this.images[0][level];
+
 	if (image != null) {
 	    this.images[0][level] = (ImageComponentRetained)image.retained;
 
 	} else {
 	    this.images[0][level] = null;
 	}
+
+	if (level == 0) {
+	    baseImageChanged(0, oldImage);
+	}
     }
 
     final void checkImageSize(int level, ImageComponent image) {
@@ -492,7 +507,7 @@ abstract class TextureRetained extends NodeComponentRetained {
 
 	ImageComponent [] imgs = new ImageComponent[images.length];
 	for (i = 0; i < images.length; i++) {
-	     imgs[i] = images[i];
+	     imgs[i] = getImage(i);
 	}
 
         Object arg[] = new Object[2];
@@ -602,6 +617,12 @@ abstract class TextureRetained extends NodeComponentRetained {
 	    }
 	}
 	images = newImages;
+
+	if (mipMapGeneration != Texture.MIPMAP_GENERATION_NONE) {
+	    for (int f = 0; f < numFaces; f++) {
+		baseImageChanged(f, images[f][0]);
+	    }
+	}
     }
 
     /**
@@ -613,6 +634,232 @@ abstract class TextureRetained extends NodeComponentRetained {
 	return this.mipmapMode;
     }
 
+    /**
+     * Sets the filter the mipmap levels are generated with from the base
+     * level, or MIPMAP_GENERATION_NONE if they are set by the application.
+     */
+    final void initMipMapGeneration(int filter) {
+	if (mipMapGeneration == filter) {
+	    return;
+	}
+	mipMapGeneration = filter;
+
+	for (int f = 0; f < numFaces; f++) {
+	    if (images[f][0] != null) {
+		if (filter == Texture.MIPMAP_GENERATION_NONE) {
+		    images[f][0].removeMipMapUser(this);
+		} else {
+		    // Regenerate all levels with the new filter
+		    baseImageChanged(f, images[f][0]);
+		}
+	    }
+	}
+	if (filter == Texture.MIPMAP_GENERATION_NONE) {
+	    // The levels generated so far are kept as if set by the
+	    // application
+	    generatedImages = null;
+	}
+    }
+
+    final int getMipMapGeneration() {
+	return mipMapGeneration;
+    }
+
+    final boolean generatesMipMaps() {
+	return (mipMapGeneration != Texture.MIPMAP_GENERATION_NONE) &&
+	    (maxLevels > 1);
+    }
+
+    /**
+     * Returns false if the level is generated from the base level, in
+     * which case the image set by the application must be null.
+     */
+    final boolean checkGeneratedLevel(int level, ImageComponent image) {
+	if ((level > 0) && generatesMipMaps()) {
+	    if (image != null) {
+		throw new IllegalArgumentException(
+			J3dI18N.getString("TextureRetained4"));
+	    }
+	    return false;
+	}
+	return true;
+    }
+
+    /**
+     * Called once the base level image of a face is set, to generate the
+     * other levels from it.
+     */
+    final void baseImageChanged(int face, ImageComponentRetained oldImage) {
+	ImageComponentRetained image = images[face][0];
+	if ((oldImage != null) && (oldImage != image)) {
+	    boolean used = false;
+	    for (int f = 0; f < numFaces; f++) {
+		used |= (images[f][0] == oldImage);
+	    }
+	    if (!used) {
+		oldImage.removeMipMapUser(this);
+	    }
+	}
+	if ((image != null) && generatesMipMaps()) {
+	    image.addMipMapUser(this);
+	    generateMipMaps(face, null);
+	}
+    }
+
+    /**
+     * Depth of the images of a level, 1 except for Texture3D.
+     */
+    int getLevelDepth(int level) {
+	return 1;
+    }
+
+    /**
+     * Regenerates the levels of the faces whose base level image is
+     * image over the region described by info, or over the whole image
+     * if info is null.  Called by the image once its data is updated.
+     */
+    void updateMipMaps(ImageComponentRetained image,
+			ImageComponentUpdateInfo info) {
+	if (!generatesMipMaps()) {
+	    return;
+	}
+	for (int f = 0; f < numFaces; f++) {
+	    if (images[f][0] != image) {
+		continue;
+	    }
+	    int[] region = null;
+	    if (info != null) {
+		// Rows of the image data, flipped if the image is not y-up
+		int y = image.isYUp() ? info.y :
+		    (image.height - info.y - info.height);
+		region = new int[] {info.x, y, info.z,
+				    info.x + info.width, y + info.height,
+				    info.z + 1};
+	    }
+	    generateMipMaps(f, region);
+	}
+    }
+
+    /**
+     * Generates the levels of a face from its base level image, over the
+     * levels of the region of the base level image data, or over all of
+     * them if region is null.  The images of the levels are created or
+     * recreated as needed; the others get a change message if live.
+     */
+    private void generateMipMaps(int face, int[] region) {
+	ImageComponentRetained base = images[face][0];
+	if ((base == null) || (base.imageData == null) ||
+		(base.imageData.get() == null)) {
+	    // Generated once the image has data
+	    return;
+	}
+
+	if ((generatedImages == null) ||
+		(generatedImages[0].length != maxLevels)) {
+	    generatedImages = new ImageComponentRetained[numFaces][maxLevels];
+	}
+
+	if (region == null) {
+	    region = new int[] {0, 0, 0, base.width, base.height, base.depth};
+	}
+
+	ImageComponentRetained prev = base;
+	for (int level = 1; level < maxLevels; level++) {
+	    int w = Math.max(1, width >> level) + 2 * boundaryWidth;
+	    int h = Math.max(1, height >> level) + 2 * boundaryWidth;
+	    int d = getLevelDepth(level);
+
+	    ImageComponentRetained image = generatedImages[face][level];
+	    boolean created = false;
+	    if ((image == null) || (images[face][level] != image) ||
+		    !image.isMipMapLevelOf(base, w, h, d)) {
+		image = createMipMapLevel(base, w, h, d);
+		generatedImages[face][level] = image;
+		created = true;
+	    }
+
+	    MipMapGenerator generator =
+		new MipMapGenerator(mipMapGeneration, prev, image);
+	    if (created) {
+		region = new int[] {0, 0, 0, w, h, d};
+	    } else {
+		region = generator.getAffectedRegion(region);
+		if (region == null) {
+		    return;
+		}
+	    }
+
+	    image.geomLock.getLock();
+	    generator.generate(region);
+	    image.geomLock.unLock();
+
+	    if (created) {
+		setGeneratedImage(face, level, image);
+	    } else if (image.source.isLive()) {
+		sendGeneratedImageChanged(image, region);
+	    }
+	    prev = image;
+	}
+    }
+
+    private ImageComponentRetained createMipMapLevel(
+		ImageComponentRetained base, int w, int h, int d) {
+	ImageComponent image;
+	if (base instanceof ImageComponent3DRetained) {
+	    image = new ImageComponent3D(base.getFormat(), w, h, d,
+					 false, base.isYUp());
+	} else {
+	    image = new ImageComponent2D(base.getFormat(), w, h,
+					 false, base.isYUp());
+	}
+	ImageComponentRetained level = (ImageComponentRetained)image.retained;
+	level.initMipMapLevel(base);
+	return level;
+    }
+
+    private void setGeneratedImage(int face, int level,
+		ImageComponentRetained image) {
+	boolean live = source.isLive();
+	if (live) {
+	    if (images[face][level] != null) {
+		images[face][level].clearLive(refCount);
+	    }
+	    image.setLive(inBackgroundGroup, refCount);
+	}
+	images[face][level] = image;
+
+	if (live) {
+	    Object arg[] = new Object[3];
+	    arg[0] = new Integer(level);
+	    arg[1] = image.source;
+	    arg[2] = new Integer(face);
+	    sendMessage(IMAGE_CHANGED, arg);
+	}
+    }
+
+    // Notifies the users of a generated image that a region of its data,
+    // in image data rows, changed
+    private void sendGeneratedImageChanged(ImageComponentRetained image,
+					   int[] region) {
+	if ((region[3] - region[0] == image.width) &&
+		(region[4] - region[1] == image.height) &&
+		(region[5] - region[2] == image.depth)) {
+	    image.sendMessage(ImageComponentRetained.IMAGE_CHANGED, null);
+	    return;
+	}
+
+	// The textures update a subimage slice by slice
+	for (int z = region[2]; z < region[5]; z++) {
+	    ImageComponentUpdateInfo info = new ImageComponentUpdateInfo();
+	    info.x = region[0];
+	    info.y = image.isYUp() ? region[1] : (image.height - region[4]);
+	    info.z = z;
+	    info.width = region[3] - region[0];
+	    info.height = region[4] - region[1];
+	    image.sendMessage(ImageComponentRetained.SUBIMAGE_CHANGED, info);
+	}
+    }
+
     /**
      * Enables or disables texture mapping for this
      * appearance component object.
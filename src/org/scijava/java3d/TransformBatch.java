@@ -0,0 +1,306 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * The TransformBatch object sets the transforms of many TransformGroup
+ * nodes at once.  Calling TransformGroup.setTransform on each node of a
+ * live scene graph sends one change message per call, each with a copy of
+ * the transform.  A TransformBatch instead records the transforms and, on
+ * commit, sets them all and sends a single change message per virtual
+ * universe, so that all the new transforms take effect in the same frame.
+ * <p>
+ * Each TransformGroup keeps its slot in the batch from one commit to the
+ * next, so an application that updates the same nodes every frame does
+ * not allocate per node.  Setting the transform of a node more than once
+ * before a commit only keeps the last transform.  The slots are released
+ * by clear.
+ * <p>
+ * The transforms are only set on the nodes by commit: until then,
+ * TransformGroup.getTransform returns the previous transform.  The nodes
+ * need the ALLOW_TRANSFORM_WRITE capability if they are live or compiled,
+ * which is checked when their transform is recorded.
+ * <p>
+ * A TransformBatch is not thread safe; it is meant to be used by one
+ * thread, such as a behavior or the application thread.
+ *
+ * @see TransformGroup#setTransform
+ *
+ * @since Java 3D 1.6
+ */
+public class TransformBatch {
+
+    private static final int INITIAL_SIZE = 16;
+
+    // Slot of each TransformGroupRetained
+    private final IdentityHashMap<TransformGroupRetained, Integer> slots =
+	new IdentityHashMap<TransformGroupRetained, Integer>();
+
+    // Nodes and row major matrices of the slots
+    private TransformGroupRetained[] groups =
+	new TransformGroupRetained[INITIAL_SIZE];
+    private double[] matrices = new double[16 * INITIAL_SIZE];
+    private int slotCount = 0;
+
+    // Slots with a transform to commit, in the order they were first set
+    private int[] pending = new int[INITIAL_SIZE];
+    private boolean[] isPending = new boolean[INITIAL_SIZE];
+    private int pendingCount = 0;
+
+    private final Transform3D tmpTrans = new Transform3D();
+    private final Transform3D tmpStatic = new Transform3D();
+    private final double[] tmpMatrix = new double[16];
+
+    /**
+     * Constructs an empty TransformBatch.
+     */
+    public TransformBatch() {
+    }
+
+    /**
+     * Records the transform of the specified TransformGroup, to be set by
+     * the next commit.
+     * @param group the TransformGroup whose transform is set
+     * @param t1 the transform to be copied
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and the TransformGroup is part of live or compiled scene graph
+     * @exception BadTransformException if the transform is not affine.
+     */
+    public void setTransform(TransformGroup group, Transform3D t1) {
+	int slot = getSlot(group);
+	if (!t1.isAffine()) {
+	    throw new BadTransformException(J3dI18N.getString("TransformGroup0"));
+	}
+	t1.get(tmpMatrix);
+	System.arraycopy(tmpMatrix, 0, matrices, 16 * slot, 16);
+	setPending(slot);
+    }
+
+    /**
+     * Records the transforms of the specified TransformGroups, to be set
+     * by the next commit.  The transform of groups[i] is transforms[i].
+     * @param groups the TransformGroups whose transforms are set
+     * @param transforms the transforms to be copied
+     * @exception IllegalArgumentException if the arrays have different
+     * lengths
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and a TransformGroup is part of live or compiled scene graph
+     * @exception BadTransformException if a transform is not affine.
+     */
+    public void setTransforms(TransformGroup[] groups, Transform3D[] transforms) {
+	if (groups.length != transforms.length) {
+	    throw new IllegalArgumentException(J3dI18N.getString("TransformBatch0"));
+	}
+	for (int i = 0; i < groups.length; i++) {
+	    setTransform(groups[i], transforms[i]);
+	}
+    }
+
+    /**
+     * Records the transforms of the specified TransformGroups, to be set
+     * by the next commit.  The transform of groups[i] is the row major
+     * 4x4 matrix at index 16*i of matrices, as with Transform3D.set(double[]).
+     * @param groups the TransformGroups whose transforms are set
+     * @param matrices the matrices, 16 per TransformGroup
+     * @exception IllegalArgumentException if matrices is shorter than
+     * 16 times the number of TransformGroups
+     * @exception CapabilityNotSetException if appropriate capability is
+     * not set and a TransformGroup is part of live or compiled scene graph
+     * @exception BadTransformException if a transform is not affine.
+     */
+    public void setTransforms(TransformGroup[] groups, double[] matrices) {
+	if (matrices.length < 16 * groups.length) {
+	    throw new IllegalArgumentException(J3dI18N.getString("TransformBatch1"));
+	}
+	for (int i = 0; i < groups.length; i++) {
+	    System.arraycopy(matrices, 16 * i, tmpMatrix, 0, 16);
+	    tmpTrans.set(tmpMatrix);
+	    setTransform(groups[i], tmpTrans);
+	}
+    }
+
+    /**
+     * Sets the recorded transforms on their TransformGroups and sends one
+     * change message per virtual universe for the live ones.  The batch
+     * is empty afterwards, but keeps the slots of the TransformGroups.
+     * @exception BadTransformException if a recorded transform is not
+     * congruent and its TransformGroup is above a ViewPlatform in a live
+     * scene graph, in which case no transform is set and the batch is left
+     * unchanged.
+     */
+    public void commit() {
+	if (pendingCount == 0) {
+	    return;
+	}
+
+	// Check all transforms before setting any
+	for (int i = 0; i < pendingCount; i++) {
+	    int slot = pending[i];
+	    TransformGroupRetained tg = groups[slot];
+	    if (tg.aboveAViewPlatform && tg.source.isLive()) {
+		getTransform(slot, tmpTrans);
+		if (!tmpTrans.isCongruent()) {
+		    throw new BadTransformException(J3dI18N.getString("ViewPlatformRetained0"));
+		}
+	    }
+	}
+
+	// Set the transforms, keeping the live nodes and the transforms
+	// the TransformStructure must apply in the pending slots
+	int liveCount = 0;
+	for (int i = 0; i < pendingCount; i++) {
+	    int slot = pending[i];
+	    isPending[slot] = false;
+	    getTransform(slot, tmpTrans);
+	    Transform3D trans = groups[slot].setBatchTransform(tmpTrans, tmpStatic);
+	    if (trans != null) {
+		if (trans != tmpTrans) {
+		    trans.get(tmpMatrix);
+		    System.arraycopy(tmpMatrix, 0, matrices, 16 * slot, 16);
+		}
+		pending[liveCount++] = slot;
+	    }
+	}
+	pendingCount = 0;
+
+	if (liveCount > 0) {
+	    sendMessages(liveCount);
+	}
+    }
+
+    /**
+     * Discards the recorded transforms and releases the slots of all
+     * TransformGroups.
+     */
+    public void clear() {
+	slots.clear();
+	for (int i = 0; i < slotCount; i++) {
+	    groups[i] = null;
+	    isPending[i] = false;
+	}
+	slotCount = 0;
+	pendingCount = 0;
+    }
+
+    private int getSlot(TransformGroup group) {
+	if (group.isLiveOrCompiled() &&
+	    !group.getCapability(TransformGroup.ALLOW_TRANSFORM_WRITE)) {
+	    throw new CapabilityNotSetException(J3dI18N.getString("TransformGroup1"));
+	}
+
+	TransformGroupRetained tg = (TransformGroupRetained)group.retained;
+	Integer slot = slots.get(tg);
+	if (slot != null) {
+	    return slot.intValue();
+	}
+
+	if (slotCount == groups.length) {
+	    int size = 2 * slotCount;
+	    TransformGroupRetained[] newGroups = new TransformGroupRetained[size];
+	    System.arraycopy(groups, 0, newGroups, 0, slotCount);
+	    groups = newGroups;
+	    double[] newMatrices = new double[16 * size];
+	    System.arraycopy(matrices, 0, newMatrices, 0, 16 * slotCount);
+	    matrices = newMatrices;
+	    int[] newPending = new int[size];
+	    System.arraycopy(pending, 0, newPending, 0, pendingCount);
+	    pending = newPending;
+	    boolean[] newIsPending = new boolean[size];
+	    System.arraycopy(isPending, 0, newIsPending, 0, slotCount);
+	    isPending = newIsPending;
+	}
+	groups[slotCount] = tg;
+	slots.put(tg, Integer.valueOf(slotCount));
+	return slotCount++;
+    }
+
+    private void setPending(int slot) {
+	if (!isPending[slot]) {
+	    isPending[slot] = true;
+	    pending[pendingCount++] = slot;
+	}
+    }
+
+    private void getTransform(int slot, Transform3D t) {
+	System.arraycopy(matrices, 16 * slot, tmpMatrix, 0, 16);
+	t.set(tmpMatrix);
+    }
+
+    // Sends the first count pending slots, one message per universe.  The
+    // message gets its own copy of the nodes and matrices, as it is only
+    // processed by the TransformStructure later on.
+    private void sendMessages(int count) {
+	VirtualUniverse universe = groups[pending[0]].universe;
+	boolean sameUniverse = true;
+	for (int i = 1; i < count; i++) {
+	    if (groups[pending[i]].universe != universe) {
+		sameUniverse = false;
+		break;
+	    }
+	}
+
+	if (sameUniverse) {
+	    VirtualUniverse.mc.processMessage(createMessage(universe, count));
+	    return;
+	}
+
+	ArrayList<VirtualUniverse> universes = new ArrayList<VirtualUniverse>();
+	for (int i = 0; i < count; i++) {
+	    VirtualUniverse u = groups[pending[i]].universe;
+	    if (!universes.contains(u)) {
+		universes.add(u);
+	    }
+	}
+	J3dMessage[] messages = new J3dMessage[universes.size()];
+	for (int i = 0; i < messages.length; i++) {
+	    messages[i] = createMessage(universes.get(i), count);
+	}
+	// Same time stamp, so all take effect in the same frame
+	VirtualUniverse.mc.processMessage(messages);
+    }
+
+    private J3dMessage createMessage(VirtualUniverse universe, int count) {
+	int n = 0;
+	for (int i = 0; i < count; i++) {
+	    if (groups[pending[i]].universe == universe) {
+		n++;
+	    }
+	}
+
+	TransformGroupRetained[] tgs = new TransformGroupRetained[n];
+	double[] trans = new double[16 * n];
+	int threads = 0;
+	n = 0;
+	for (int i = 0; i < count; i++) {
+	    TransformGroupRetained tg = groups[pending[i]];
+	    if (tg.universe == universe) {
+		tgs[n] = tg;
+		System.arraycopy(matrices, 16 * pending[i], trans, 16 * n, 16);
+		threads |= tg.targetThreads;
+		n++;
+	    }
+	}
+
+	J3dMessage tchangeMessage = MessagePool.getMessage();
+	tchangeMessage.type = J3dMessage.TRANSFORM_CHANGED;
+	tchangeMessage.threads = threads;
+	tchangeMessage.args[1] = tgs;
+	tchangeMessage.args[2] = trans;
+	tchangeMessage.universe = universe;
+	return tchangeMessage;
+    }
+}
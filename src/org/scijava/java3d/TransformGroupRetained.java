@@ -151,7 +151,7 @@ ArrayList<NodeRetained> childTransformLinks = new ArrayList<NodeRetained>(1);
 	      throw new BadTransformException(J3dI18N.getString("ViewPlatformRetained0"));
 	  }
 
-	  tchangeMessage = new J3dMessage();
+	  tchangeMessage = MessagePool.getMessage();
 	  tchangeMessage.type = J3dMessage.TRANSFORM_CHANGED;
 	  tchangeMessage.threads = targetThreads;
 	  tchangeMessage.args[1] = this;
@@ -164,6 +164,30 @@ ArrayList<NodeRetained> childTransformLinks = new ArrayList<NodeRetained>(1);
       dirtyBoundsCache();
   }
 
+    /**
+     * Sets the transform of this node for a TransformBatch, which sends
+     * the TRANSFORM_CHANGED message itself.  The caller has checked that
+     * the transform is congruent if the node is above a ViewPlatform.
+     * @param tmp a scratch transform, used when there is a static transform
+     * @return the transform merged with the static transform, which the
+     * TransformStructure must apply, or null if the node is not live
+     */
+    Transform3D setBatchTransform(Transform3D t1, Transform3D tmp) {
+	Transform3D trans = t1;
+	if (staticTransform != null) {
+	    tmp.mul(staticTransform.transform, t1);
+	    trans = tmp;
+	}
+	transform.setWithLock(trans);
+
+	if (transformChange != null) {
+	    notifyConditions();
+	}
+	dirtyBoundsCache();
+
+	return source.isLive() ? trans : null;
+    }
+
     /**
      * Copies the transform component of this TransformGroup into
      * the passed transform object.
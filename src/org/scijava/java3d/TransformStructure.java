@@ -30,6 +30,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A transform update is a object that manages TransformGroups
@@ -42,6 +45,9 @@ class TransformStructure extends J3dStructure implements ObjectUpdate {
      */
     private HashSet<TransformData> transformSet = new HashSet<TransformData>();
 
+    // Scratch matrix to read the transforms of a TransformBatch
+    private final double[] matrix = new double[16];
+
     private ArrayList objectList = new ArrayList();
 
     /**
@@ -80,6 +86,13 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     // true if already in MasterControl's update object list
     private boolean inUpdateObjectList = false;
 
+    // Pool of the threads that update the dirty subtrees, created on first
+    // use when j3d.parallelTransforms is set
+    private ForkJoinPool workerPool = null;
+
+    // The dirty TransformGroups that have no dirty ancestor
+    private TransformGroupRetained[] dirtyRoots = new TransformGroupRetained[0];
+
     /**
      * This constructor does nothing
      */
@@ -109,9 +122,20 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
 	    for (i = (nMsg-1); i >= 0; i--) {
 		m = messages[i];
 		if (m.type == J3dMessage.TRANSFORM_CHANGED) {
+		    if (m.args[1] instanceof TransformGroupRetained[]) {
+			// Message of a TransformBatch, with one TG per
+			// matrix of 16 doubles
+			TransformGroupRetained[] tgs =
+			    (TransformGroupRetained[])m.args[1];
+			double[] matrices = (double[])m.args[2];
+			for (int j = tgs.length - 1; j >= 0; j--) {
+			    transformSet.add(new TransformData(tgs[j], matrices, 16*j));
+			}
+		    } else {
 		    // Add the TG and associated transform. Since this is a
                     // set, duplicates will be culled.
                     transformSet.add(new TransformData((TransformGroupRetained)m.args[1], (Transform3D)m.args[2]));
+		    }
 		}
 	    }
 
@@ -216,7 +240,7 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             while(it.hasNext()) {
                 TransformData lData = it.next();
                 tg = lData.getTransformGroupRetained();
-                tg.currentTransform.set(lData.getTransform3D());
+                lData.getTransform(tg.currentTransform);
 
                 synchronized(tg) { // synchronized with tg.set/clearLive
                 if(tg.perPathData != null) {
@@ -294,9 +318,12 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             sortTransformGroups(tSize, tgs);
 
             // update lToVw and gather targets
-            for (i=0; i<tSize; i++) {
-                tgs[i].processChildLocalToVworld(dirtyTransformGroups, keySet,
-                                                targets, blUsers);
+            if (!VirtualUniverse.mc.parallelTransforms ||
+                !processChildLocalToVworldParallel(tSize, tgs)) {
+                for (i=0; i<tSize; i++) {
+                    tgs[i].processChildLocalToVworld(dirtyTransformGroups,
+                                                     keySet, targets, blUsers);
+                }
             }
 	    if (!inUpdateObjectList) {
                 VirtualUniverse.mc.addMirrorObject(this);
@@ -309,6 +336,147 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     }
 
 
+    /**
+     * Updates the localToVworld of the subtrees under the sorted dirty
+     * TransformGroups concurrently on the worker pool when
+     * j3d.parallelTransforms is set.  Only the dirty TransformGroups
+     * without a dirty ancestor are traversed, as the serial loop would
+     * skip the others once their ancestor has updated them, so their
+     * subtrees are disjoint except for the shared groups they link to,
+     * which are locked by the traversal.  Each task gathers into its own
+     * lists, which are then appended in the order of the dirty roots,
+     * giving the same lists as the serial loop.  Returns false, having
+     * done nothing, if the TransformGroups must be processed serially.
+     */
+    private boolean processChildLocalToVworldParallel(int size,
+                                        TransformGroupRetained[] tgs) {
+        if (dirtyRoots.length < size) {
+            dirtyRoots = new TransformGroupRetained[size];
+        }
+
+        int numRoots = 0;
+        for (int i=0; i<size; i++) {
+            TransformGroupRetained tg = tgs[i];
+            // The ancestors of a TransformGroup under a shared group
+            // depend on the path
+            if (tg.inSharedGroup) {
+                Arrays.fill(dirtyRoots, 0, numRoots, null);
+                return false;
+            }
+            if (!hasDirtyAncestor(tg)) {
+                dirtyRoots[numRoots++] = tg;
+            }
+        }
+
+        if (numRoots < 2) {
+            Arrays.fill(dirtyRoots, 0, numRoots, null);
+            return false;
+        }
+
+        int numTasks = Math.min(numRoots,
+                                4 * VirtualUniverse.mc.transformThreads);
+        UpdateTask[] tasks = new UpdateTask[numTasks];
+        for (int i=0; i<numTasks; i++) {
+            tasks[i] = new UpdateTask((int)((long)numRoots * i / numTasks),
+                                      (int)((long)numRoots * (i+1) / numTasks));
+        }
+        getWorkerPool().invoke(new InvokeAllTask(tasks));
+
+        for (int i=0; i<numTasks; i++) {
+            UpdateTask task = tasks[i];
+            dirtyTransformGroups.addAll(task.dirtyTransformGroups);
+            keySet.addAll(task.keySet);
+            targets.addTargets(task.targets);
+            blUsers.addAll(task.blUsers);
+        }
+        Arrays.fill(dirtyRoots, 0, numRoots, null);
+        return true;
+    }
+
+    // Returns true if a TransformGroup above tg will update it
+    private static boolean hasDirtyAncestor(TransformGroupRetained tg) {
+        GroupRetained parent = tg.parentTransformLink;
+        while (parent instanceof TransformGroupRetained) {
+            TransformGroupRetained ptg = (TransformGroupRetained)parent;
+            if (ptg.perPathData != null && ptg.perPathData[0].markedDirty) {
+                return true;
+            }
+            parent = ptg.parentTransformLink;
+        }
+        return false;
+    }
+
+    private ForkJoinPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new ForkJoinPool(VirtualUniverse.mc.transformThreads,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        return new TransformWorker(pool);
+                    }
+                }, null, false);
+        }
+        return workerPool;
+    }
+
+    /**
+     * Worker thread that updates dirty subtrees for this structure.
+     */
+    private static class TransformWorker extends ForkJoinWorkerThread {
+        TransformWorker(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            // The pool index is only assigned once the worker is registered
+            setName("J3D-TransformWorker-" + getPoolIndex());
+        }
+    }
+
+    /**
+     * Runs the given tasks and waits for all of them.
+     */
+    private static class InvokeAllTask extends RecursiveAction {
+        private final UpdateTask[] tasks;
+
+        InvokeAllTask(UpdateTask[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Updates the subtrees of a range of dirtyRoots, gathering the dirty
+     * TransformGroups, targets and bounding leaf users in its own lists.
+     */
+    private class UpdateTask extends RecursiveAction {
+        private final int start, end;
+        final ArrayList<TransformGroupRetained> dirtyTransformGroups =
+            new ArrayList<TransformGroupRetained>();
+        final ArrayList keySet = new ArrayList();
+        final UpdateTargets targets = new UpdateTargets();
+        final ArrayList blUsers = new ArrayList();
+
+        UpdateTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i=start; i<end; i++) {
+                dirtyRoots[i].processChildLocalToVworld(dirtyTransformGroups,
+                                                keySet, targets, blUsers);
+            }
+        }
+    }
+
     private void sortTransformGroups(int size, TransformGroupRetained[] tgs) {
         if (size < 7) {
             insertSort(size, tgs);
@@ -716,7 +884,12 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
     }
 
     @Override
-    void cleanup() {}
+    void cleanup() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+            workerPool = null;
+        }
+    }
 
     // Wrapper for a (TransformGroupRetained, Transform3D) pair
     // TransformGroupRetained is effectively used as the key in the
@@ -725,11 +898,21 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
         private TransformGroupRetained transformGroupRetained;
         private Transform3D transform3D;
 
+        // Row major matrix at offset of matrices, for a TransformBatch
+        private double[] matrices;
+        private int offset;
+
         TransformData( TransformGroupRetained tgr, Transform3D t3d )  {
             transformGroupRetained = tgr;
             transform3D = t3d;
         }
 
+        TransformData( TransformGroupRetained tgr, double[] matrices, int offset )  {
+            transformGroupRetained = tgr;
+            this.matrices = matrices;
+            this.offset = offset;
+        }
+
         // Hashcode and equals test only evaluate TransformGroupRetained
         @Override
         public int hashCode() {
@@ -750,8 +933,13 @@ private ArrayList<TransformGroupRetained> dirtyTransformGroups = new ArrayList<T
             return transformGroupRetained;
         }
 
-        Transform3D getTransform3D() {
-            return transform3D;
+        void getTransform(Transform3D t) {
+            if (transform3D != null) {
+                t.set(transform3D);
+            } else {
+                System.arraycopy(matrices, offset, matrix, 0, 16);
+                t.set(matrix);
+            }
         }
 
     }
@@ -0,0 +1,172 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorts a doubly linked list of TransparentRenderingInfo back to front.
+ * The list is copied into an array, sorted there and relinked. Without a
+ * TransparencySortMap comparator a stable LSD radix sort on zVal is used,
+ * otherwise a stable merge sort (TimSort) with the reversed comparator.
+ * Both give the same order as the insertion sort in
+ * RenderBin.depthSortAll, which is still used for short or nearly
+ * sorted lists.
+ * <p>
+ * The scratch arrays are kept between frames; a sorter is only used by
+ * the RenderBin that owns it.
+ */
+class TransparentInfoSorter {
+
+    // Lists shorter than this are left to the insertion sort
+    static final int MIN_ARRAY_SORT = 32;
+
+    // Average number of moves per entry the insertion sort may do on a
+    // long list before the list is sorted in an array instead
+    static final int INSERTION_STEPS = 32;
+
+    // Number of key bits sorted per radix pass
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX_SIZE = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX_SIZE - 1;
+
+    private TransparentRenderingInfo[] infos = new TransparentRenderingInfo[0];
+    private TransparentRenderingInfo[] infoTmp = new TransparentRenderingInfo[0];
+    private long[] keys = new long[0];
+    private long[] keyTmp = new long[0];
+    private final int[] counts = new int[RADIX_SIZE];
+
+    private Comparator<TransparencySortGeom> comparator = null;
+
+    // Sorts far to near: compare(b, a) of the user comparator
+    private final Comparator<TransparentRenderingInfo> reversed =
+	new Comparator<TransparentRenderingInfo>() {
+	    @Override
+	    public int compare(TransparentRenderingInfo a,
+			       TransparentRenderingInfo b) {
+		return comparator.compare(b, a);
+	    }
+	};
+
+    /**
+     * Sorts the list starting at startinfo and returns its new head.
+     * Returns null if the list could not be sorted with the comparator
+     * (it is inconsistent); the list is then left untouched.
+     */
+    TransparentRenderingInfo sort(TransparentRenderingInfo startinfo, int size,
+				  Comparator<TransparencySortGeom> comp) {
+	ensureCapacity(size);
+
+	int n = 0;
+	for (TransparentRenderingInfo t = startinfo; t != null; t = t.next) {
+	    infos[n++] = t;
+	}
+
+	try {
+	    if (comp == null) {
+		radixSort(n);
+	    } else {
+		comparator = comp;
+		try {
+		    Arrays.sort(infos, 0, n, reversed);
+		} catch (IllegalArgumentException e) {
+		    return null;
+		} finally {
+		    comparator = null;
+		}
+	    }
+
+	    TransparentRenderingInfo prev = null;
+	    for (int i = 0; i < n; i++) {
+		TransparentRenderingInfo t = infos[i];
+		t.prev = prev;
+		if (prev != null) {
+		    prev.next = t;
+		}
+		prev = t;
+	    }
+	    prev.next = null;
+	    return infos[0];
+	} finally {
+	    // Don't keep removed render atoms alive
+	    Arrays.fill(infos, 0, n, null);
+	}
+    }
+
+    private void ensureCapacity(int size) {
+	if (infos.length < size) {
+	    int len = Math.max(size, infos.length + (infos.length >> 1));
+	    infos = new TransparentRenderingInfo[len];
+	    infoTmp = new TransparentRenderingInfo[len];
+	    keys = new long[len];
+	    keyTmp = new long[len];
+	}
+    }
+
+    /**
+     * Stable sort of infos[0..n) by decreasing zVal.
+     */
+    private void radixSort(int n) {
+	long orBits = 0L, andBits = -1L;
+	for (int i = 0; i < n; i++) {
+	    // Map the double onto a long that sorts the same way, then
+	    // invert it so that an ascending sort puts far objects first
+	    long bits = Double.doubleToLongBits(infos[i].zVal);
+	    bits ^= (bits >> 63) | Long.MIN_VALUE;
+	    keys[i] = ~bits;
+	    orBits |= keys[i];
+	    andBits &= keys[i];
+	}
+
+	TransparentRenderingInfo[] src = infos, dst = infoTmp;
+	long[] srcKeys = keys, dstKeys = keyTmp;
+
+	for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+	    // Skip digits that are the same for every key
+	    if ((((orBits ^ andBits) >>> shift) & RADIX_MASK) == 0) {
+		continue;
+	    }
+
+	    Arrays.fill(counts, 0);
+	    for (int i = 0; i < n; i++) {
+		counts[(int)((srcKeys[i] >>> shift) & RADIX_MASK)]++;
+	    }
+	    int sum = 0;
+	    for (int d = 0; d < RADIX_SIZE; d++) {
+		int c = counts[d];
+		counts[d] = sum;
+		sum += c;
+	    }
+	    for (int i = 0; i < n; i++) {
+		int d = (int)((srcKeys[i] >>> shift) & RADIX_MASK);
+		int pos = counts[d]++;
+		dst[pos] = src[i];
+		dstKeys[pos] = srcKeys[i];
+	    }
+
+	    TransparentRenderingInfo[] t = src;
+	    src = dst;
+	    dst = t;
+	    long[] k = srcKeys;
+	    srcKeys = dstKeys;
+	    dstKeys = k;
+	}
+
+	if (src != infos) {
+	    System.arraycopy(src, 0, infos, 0, n);
+	}
+	Arrays.fill(infoTmp, 0, n, null);
+    }
+}
@@ -41,9 +41,33 @@ class TriangleArrayRetained extends GeometryArrayRetained {
 	this.geoType = GEO_TYPE_TRI_SET;
     }
 
+    @Override
+    int getPickTriangleCount() {
+	int start = ((vertexFormat & GeometryArray.BY_REFERENCE) == 0 ?
+		     initialVertexIndex : initialCoordIndex);
+	return (validVertexCount > start) ? (validVertexCount - start) / 3 : 0;
+    }
+
+    @Override
+    int[] getPickTriangleIndices() {
+	int start = ((vertexFormat & GeometryArray.BY_REFERENCE) == 0 ?
+		     initialVertexIndex : initialCoordIndex);
+	int[] indices = new int[getPickTriangleCount() * 3];
+	for (int i = 0; i < indices.length; i++) {
+	    indices[i] = start + i;
+	}
+	return indices;
+    }
+
     @Override
     boolean intersect(PickShape pickShape, PickInfo pickInfo, int flags, Point3d iPnt,
                       GeometryRetained geom, int geomIndex) {
+	TrianglePickTree tree = getTrianglePickTree(pickShape);
+	if (tree != null) {
+	    return intersectPickTree(tree, pickShape, pickInfo, flags, iPnt,
+				     geom, geomIndex);
+	}
+
  	Point3d pnts[] = new Point3d[3];
 	double sdist[] = new double[1];
 	double minDist = Double.MAX_VALUE;
@@ -0,0 +1,479 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+import java.util.Arrays;
+
+import org.scijava.vecmath.Point3d;
+import org.scijava.vecmath.Vector3d;
+
+/**
+ * A bounding volume hierarchy over the triangles of a GeometryArrayRetained.
+ * It is used by the pick code to find the few triangles a PickRay,
+ * PickSegment, PickCylinder or PickCone can reach, so that the exact
+ * intersection tests are only run on those.
+ * <p>
+ * A tree is immutable once built. When the coordinates of the geometry
+ * change, refit() returns a new tree which shares the node layout of this
+ * one but has new bounds, so readers on other threads are never disturbed.
+ */
+class TrianglePickTree {
+
+    // Maximum number of triangles in a leaf node
+    static final int LEAF_SIZE = 4;
+
+    // Maximum depth of the tree, median splits keep it near log2(n)
+    private static final int MAX_DEPTH = 64;
+
+    // Coordinate indices of the triangles, three per triangle
+    final int[] vertexIndices;
+
+    // Number of triangles in the tree
+    final int triangleCount;
+
+    // Triangle ids, leaf by leaf
+    private final int[] order;
+
+    // For an internal node, the index of its left child (the right
+    // child follows it); for a leaf, the offset of its first triangle
+    // in order[]
+    private final int[] nodeFirst;
+
+    // Number of triangles of a leaf node, 0 for an internal node
+    private final int[] nodeSize;
+
+    // Lower x,y,z followed by upper x,y,z for each node. Children are
+    // always stored after their parent.
+    private final double[] nodeBounds;
+
+    private final int nodeCount;
+
+    // Tolerance added around each node to absorb the epsilons used by
+    // the exact intersection tests
+    private final double pad;
+
+    private TrianglePickTree(int[] vertexIndices, int[] order, int[] nodeFirst,
+			     int[] nodeSize, double[] nodeBounds, int nodeCount,
+			     double pad) {
+	this.vertexIndices = vertexIndices;
+	this.triangleCount = vertexIndices.length / 3;
+	this.order = order;
+	this.nodeFirst = nodeFirst;
+	this.nodeSize = nodeSize;
+	this.nodeBounds = nodeBounds;
+	this.nodeCount = nodeCount;
+	this.pad = pad;
+    }
+
+    /**
+     * Returns true if the given pick shape can be culled with this tree.
+     */
+    static boolean isSupported(PickShape pickShape) {
+	switch (pickShape.getPickType()) {
+	case PickShape.PICKRAY:
+	case PickShape.PICKSEGMENT:
+	case PickShape.PICKCYLINDER:
+	    return true;
+	case PickShape.PICKCONE:
+	    double tan = Math.tan(((PickCone)pickShape).spreadAngle);
+	    return tan >= 0.0 && !Double.isInfinite(tan);
+	default:
+	    return false;
+	}
+    }
+
+    /**
+     * Builds a tree over the given triangles of the geometry.
+     * @param geo the geometry the vertices are read from
+     * @param vertexIndices coordinate indices, three per triangle
+     */
+    static TrianglePickTree build(GeometryArrayRetained geo, int[] vertexIndices) {
+	int numTris = vertexIndices.length / 3;
+	double[] triBounds = new double[numTris * 6];
+	computeTriangleBounds(geo, vertexIndices, triBounds);
+
+	int[] order = new int[numTris];
+	for (int i = 0; i < numTris; i++) {
+	    order[i] = i;
+	}
+
+	int maxNodes = Math.max(2 * numTris - 1, 1);
+	Builder b = new Builder(triBounds, order, maxNodes);
+	b.nodeCount = 1;
+	b.build(0, 0, numTris, 0);
+
+	int n = b.nodeCount;
+	return new TrianglePickTree(vertexIndices, order,
+				    Arrays.copyOf(b.nodeFirst, n),
+				    Arrays.copyOf(b.nodeSize, n),
+				    Arrays.copyOf(b.nodeBounds, n * 6), n,
+				    computePad(b.nodeBounds));
+    }
+
+    /**
+     * Returns a tree with the same layout as this one whose bounds are
+     * recomputed bottom-up from the current coordinates of the geometry.
+     * The caller must make sure the triangle count is unchanged.
+     */
+    TrianglePickTree refit(GeometryArrayRetained geo, int[] newVertexIndices) {
+	double[] triBounds = new double[triangleCount * 6];
+	computeTriangleBounds(geo, newVertexIndices, triBounds);
+
+	double[] bounds = new double[nodeCount * 6];
+	for (int node = nodeCount - 1; node >= 0; node--) {
+	    int b = node * 6;
+	    if (nodeSize[node] > 0) {
+		emptyBounds(bounds, b);
+		for (int k = nodeFirst[node], end = k + nodeSize[node]; k < end; k++) {
+		    union(bounds, b, triBounds, order[k] * 6);
+		}
+	    } else {
+		int left = nodeFirst[node];
+		System.arraycopy(bounds, left * 6, bounds, b, 6);
+		union(bounds, b, bounds, (left + 1) * 6);
+	    }
+	}
+
+	return new TrianglePickTree(newVertexIndices, order, nodeFirst, nodeSize,
+				    bounds, nodeCount, computePad(bounds));
+    }
+
+    /**
+     * Returns the ids of the triangles whose bounds may be reached by the
+     * pick shape, in increasing order, or null if none can be reached.
+     */
+    int[] select(PickShape pickShape) {
+	NodeTest test = NodeTest.create(pickShape, pad);
+
+	int[] stack = new int[MAX_DEPTH * 2];
+	int sp = 0;
+	int[] result = null;
+	int count = 0;
+
+	stack[sp++] = 0;
+	while (sp > 0) {
+	    int node = stack[--sp];
+	    if (!test.intersect(nodeBounds, node * 6)) {
+		continue;
+	    }
+	    int size = nodeSize[node];
+	    if (size > 0) {
+		if (result == null) {
+		    result = new int[16];
+		} else if (count + size > result.length) {
+		    result = Arrays.copyOf(result, Math.max(result.length * 2,
+							    count + size));
+		}
+		System.arraycopy(order, nodeFirst[node], result, count, size);
+		count += size;
+	    } else {
+		stack[sp++] = nodeFirst[node] + 1;
+		stack[sp++] = nodeFirst[node];
+	    }
+	}
+
+	if (count == 0) {
+	    return null;
+	}
+	result = Arrays.copyOf(result, count);
+	Arrays.sort(result);
+	return result;
+    }
+
+    int getNodeCount() {
+	return nodeCount;
+    }
+
+    private static void computeTriangleBounds(GeometryArrayRetained geo,
+					      int[] vertexIndices,
+					      double[] triBounds) {
+	Point3d pnt = new Point3d();
+	int numTris = vertexIndices.length / 3;
+	for (int t = 0; t < numTris; t++) {
+	    int b = t * 6;
+	    emptyBounds(triBounds, b);
+	    for (int j = 0; j < 3; j++) {
+		geo.getVertexData(vertexIndices[t * 3 + j], pnt);
+		if (pnt.x < triBounds[b])     triBounds[b]     = pnt.x;
+		if (pnt.y < triBounds[b + 1]) triBounds[b + 1] = pnt.y;
+		if (pnt.z < triBounds[b + 2]) triBounds[b + 2] = pnt.z;
+		if (pnt.x > triBounds[b + 3]) triBounds[b + 3] = pnt.x;
+		if (pnt.y > triBounds[b + 4]) triBounds[b + 4] = pnt.y;
+		if (pnt.z > triBounds[b + 5]) triBounds[b + 5] = pnt.z;
+	    }
+	}
+    }
+
+    private static double computePad(double[] bounds) {
+	double extent = 0.0;
+	for (int i = 0; i < 3; i++) {
+	    double d = bounds[i + 3] - bounds[i];
+	    if (d > extent) {
+		extent = d;
+	    }
+	}
+	// Covers both degenerate (flat) meshes and round-off in the
+	// exact tests
+	return extent * 1.0e-7 + GeometryArrayRetained.EPS;
+    }
+
+    static void emptyBounds(double[] bounds, int b) {
+	bounds[b]     = bounds[b + 1] = bounds[b + 2] =  Double.MAX_VALUE;
+	bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = -Double.MAX_VALUE;
+    }
+
+    static void union(double[] dst, int d, double[] src, int s) {
+	for (int i = 0; i < 3; i++) {
+	    if (src[s + i] < dst[d + i]) {
+		dst[d + i] = src[s + i];
+	    }
+	    if (src[s + i + 3] > dst[d + i + 3]) {
+		dst[d + i + 3] = src[s + i + 3];
+	    }
+	}
+    }
+
+    /**
+     * Top-down median split builder. The tree is built in place into
+     * preallocated node arrays, children always after their parent.
+     */
+    private static class Builder {
+	final double[] triBounds;
+	final int[] order;
+	final int[] nodeFirst;
+	final int[] nodeSize;
+	final double[] nodeBounds;
+	int nodeCount;
+
+	Builder(double[] triBounds, int[] order, int maxNodes) {
+	    this.triBounds = triBounds;
+	    this.order = order;
+	    this.nodeFirst = new int[maxNodes];
+	    this.nodeSize = new int[maxNodes];
+	    this.nodeBounds = new double[maxNodes * 6];
+	}
+
+	void build(int node, int start, int end, int depth) {
+	    int b = node * 6;
+	    emptyBounds(nodeBounds, b);
+	    double cminX = Double.MAX_VALUE, cminY = Double.MAX_VALUE, cminZ = Double.MAX_VALUE;
+	    double cmaxX = -Double.MAX_VALUE, cmaxY = -Double.MAX_VALUE, cmaxZ = -Double.MAX_VALUE;
+	    for (int k = start; k < end; k++) {
+		int t = order[k] * 6;
+		union(nodeBounds, b, triBounds, t);
+		double cx = triBounds[t] + triBounds[t + 3];
+		double cy = triBounds[t + 1] + triBounds[t + 4];
+		double cz = triBounds[t + 2] + triBounds[t + 5];
+		if (cx < cminX) cminX = cx;
+		if (cy < cminY) cminY = cy;
+		if (cz < cminZ) cminZ = cz;
+		if (cx > cmaxX) cmaxX = cx;
+		if (cy > cmaxY) cmaxY = cy;
+		if (cz > cmaxZ) cmaxZ = cz;
+	    }
+
+	    if (end - start <= LEAF_SIZE || depth >= MAX_DEPTH - 1) {
+		nodeFirst[node] = start;
+		nodeSize[node] = end - start;
+		return;
+	    }
+
+	    // Split at the median centroid along the longest axis
+	    double dx = cmaxX - cminX, dy = cmaxY - cminY, dz = cmaxZ - cminZ;
+	    int axis = (dx >= dy) ? ((dx >= dz) ? 0 : 2) : ((dy >= dz) ? 1 : 2);
+	    int mid = (start + end) >>> 1;
+	    select(start, end - 1, mid, axis);
+
+	    int left = nodeCount;
+	    nodeCount += 2;
+	    nodeFirst[node] = left;
+	    nodeSize[node] = 0;
+	    build(left, start, mid, depth + 1);
+	    build(left + 1, mid, end, depth + 1);
+	}
+
+	private double centroid(int k, int axis) {
+	    int t = order[k] * 6 + axis;
+	    return triBounds[t] + triBounds[t + 3];
+	}
+
+	// Partially sorts order[lo..hi] so that the element at k is the
+	// one a full sort along the axis would put there
+	private void select(int lo, int hi, int k, int axis) {
+	    while (hi > lo) {
+		double pivot = centroid((lo + hi) >>> 1, axis);
+		int i = lo, j = hi;
+		while (i <= j) {
+		    while (centroid(i, axis) < pivot) i++;
+		    while (centroid(j, axis) > pivot) j--;
+		    if (i <= j) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+			i++;
+			j--;
+		    }
+		}
+		if (k <= j) {
+		    hi = j;
+		} else if (k >= i) {
+		    lo = i;
+		} else {
+		    return;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Conservative test of a node box against one pick shape.
+     */
+    private static abstract class NodeTest {
+
+	static NodeTest create(PickShape pickShape, double pad) {
+	    switch (pickShape.getPickType()) {
+	    case PickShape.PICKRAY:
+		PickRay ray = (PickRay)pickShape;
+		return new SlabTest(ray.origin.x, ray.origin.y, ray.origin.z,
+				    ray.direction.x, ray.direction.y,
+				    ray.direction.z, Double.MAX_VALUE, pad);
+	    case PickShape.PICKSEGMENT:
+		PickSegment seg = (PickSegment)pickShape;
+		return new SlabTest(seg.start.x, seg.start.y, seg.start.z,
+				    seg.end.x - seg.start.x,
+				    seg.end.y - seg.start.y,
+				    seg.end.z - seg.start.z, 1.0, pad);
+	    case PickShape.PICKCYLINDER:
+		PickCylinder cyl = (PickCylinder)pickShape;
+		return new LineDistanceTest(cyl.origin, cyl.direction,
+					    cyl.radius, 0.0, pad);
+	    case PickShape.PICKCONE:
+		PickCone cone = (PickCone)pickShape;
+		return new LineDistanceTest(cone.origin, cone.direction, 0.0,
+					    Math.tan(cone.spreadAngle), pad);
+	    default:
+		throw new IllegalArgumentException();
+	    }
+	}
+
+	abstract boolean intersect(double[] bounds, int b);
+    }
+
+    /**
+     * Slab test of a parametric ray or segment p = o + t*d, 0 <= t <= tMax.
+     */
+    private static class SlabTest extends NodeTest {
+	final double ox, oy, oz, dx, dy, dz, tMax, pad;
+
+	SlabTest(double ox, double oy, double oz,
+		 double dx, double dy, double dz, double tMax, double pad) {
+	    this.ox = ox; this.oy = oy; this.oz = oz;
+	    this.dx = dx; this.dy = dy; this.dz = dz;
+	    this.tMax = tMax + GeometryArrayRetained.EPS;
+	    this.pad = pad;
+	}
+
+	@Override
+	boolean intersect(double[] bounds, int b) {
+	    double tNear = -GeometryArrayRetained.EPS;
+	    double tFar = tMax;
+	    for (int i = 0; i < 3; i++) {
+		double o = (i == 0) ? ox : ((i == 1) ? oy : oz);
+		double d = (i == 0) ? dx : ((i == 1) ? dy : dz);
+		double lo = bounds[b + i] - pad;
+		double hi = bounds[b + i + 3] + pad;
+		if (d == 0.0) {
+		    if (o < lo || o > hi) {
+			return false;
+		    }
+		    continue;
+		}
+		double t0 = (lo - o) / d;
+		double t1 = (hi - o) / d;
+		if (t0 > t1) {
+		    double tmp = t0;
+		    t0 = t1;
+		    t1 = tmp;
+		}
+		if (t0 > tNear) tNear = t0;
+		if (t1 < tFar) tFar = t1;
+		if (tNear > tFar) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+    }
+
+    /**
+     * Tests the bounding sphere of a node against the infinite line
+     * through a cylinder or cone axis, with a radius that grows by
+     * tanSpread per unit of distance along the axis.  The exact tests
+     * measure the distance to the ray or segment, never less than the
+     * distance to the line, and the cone radius at a point that is no
+     * farther along the axis than the sphere, so a triangle they hit is
+     * never culled.
+     */
+    private static class LineDistanceTest extends NodeTest {
+	// The exact tests compute squared distances from the pick origin,
+	// so their round-off grows as the square root of the precision
+	// times the distance from the origin
+	private static final double SLACK = 1.0e-6;
+
+	final double ox, oy, oz, ux, uy, uz, radius, tanSpread, pad;
+	final boolean degenerate;
+
+	LineDistanceTest(Point3d origin, Vector3d dir,
+			 double radius, double tanSpread, double pad) {
+	    double len = Math.sqrt(dir.x * dir.x + dir.y * dir.y + dir.z * dir.z);
+	    degenerate = !(len > 0.0);
+	    ox = origin.x; oy = origin.y; oz = origin.z;
+	    ux = degenerate ? 0.0 : dir.x / len;
+	    uy = degenerate ? 0.0 : dir.y / len;
+	    uz = degenerate ? 0.0 : dir.z / len;
+	    this.radius = Math.abs(radius);
+	    // The exact cone test squares the radius, so the sign of the
+	    // tangent does not matter
+	    this.tanSpread = Math.abs(tanSpread);
+	    this.pad = pad;
+	}
+
+	@Override
+	boolean intersect(double[] bounds, int b) {
+	    if (degenerate) {
+		return true;
+	    }
+	    double hx = (bounds[b + 3] - bounds[b]) * 0.5;
+	    double hy = (bounds[b + 4] - bounds[b + 1]) * 0.5;
+	    double hz = (bounds[b + 5] - bounds[b + 2]) * 0.5;
+	    double r = Math.sqrt(hx * hx + hy * hy + hz * hz) + pad;
+
+	    double vx = bounds[b] + hx - ox;
+	    double vy = bounds[b + 1] + hy - oy;
+	    double vz = bounds[b + 2] + hz - oz;
+	    double t = vx * ux + vy * uy + vz * uz;
+	    // Distance from the line as the length of the perpendicular
+	    // component, which does not cancel when the node is far away
+	    double wx = vx - t * ux;
+	    double wy = vy - t * uy;
+	    double wz = vz - t * uz;
+	    double dist = Math.sqrt(wx * wx + wy * wy + wz * wz);
+
+	    double reach = r + radius + tanSpread * (Math.abs(t) + r);
+	    reach += (Math.abs(t) + dist + r) * SLACK;
+	    // Kept if not comparable
+	    return !(dist > reach);
+	}
+    }
+}
@@ -100,6 +100,19 @@ class UpdateTargets {
         }
     }
 
+    // Appends the targets gathered in another UpdateTargets
+    void addTargets(UpdateTargets updateTargets) {
+        for(int i=0; i<Targets.MAX_NODELIST; i++) {
+            UnorderList list = updateTargets.targetList[i];
+            if (list != null && list.size() > 0) {
+                Object[] nodes = list.toArray(false);
+                for(int j=0; j<list.size(); j++) {
+                    addNode(nodes[j], i);
+                }
+            }
+        }
+    }
+
     void dump() {
         for(int i=0; i<Targets.MAX_NODELIST; i++) {
             if (targetList[i] != null) {
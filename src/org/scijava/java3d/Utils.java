@@ -128,7 +128,9 @@ static public double rayToSegment(Point3d rayorig, Vector3d raydir,
 
 	double tmp;
 
-	if (det >= ZERO_TOL) {
+	// The tolerance is relative to the lengths, so that short segments
+	// are not taken as parallel
+	if (det > ZERO_TOL * A * C) {
 		// ray and segment are not parallel
 		E = -segdir.dot(diff);// -Dot(seg.m,diff);
 		s = B * E - C * D;
@@ -150,7 +152,8 @@ static public double rayToSegment(Point3d rayorig, Vector3d raydir,
 				else { // region 1
 
 					t = 1;
-					if (D >= 0) {
+					tmp = B + D;
+					if (tmp >= 0) {
 						s = 0;
 						if (rayint != null) rayint.set(rayorig);
 						if (segint != null) segint.set(segend);
@@ -158,11 +161,11 @@ static public double rayToSegment(Point3d rayorig, Vector3d raydir,
 						return Math.abs(C + 2 * E + F);
 					}
 					else {
-						s = -D / A;
+						s = -tmp / A;
 						if (rayint != null) rayint.scaleAdd(s, raydir, rayorig);
 						if (segint != null) segint.set(segend);
 						if (param != null) { param[0] = s; param[1] = t; }
-						return Math.abs((D + 2 * B) * s + C + 2 * E + F);
+						return Math.abs(tmp * s + C + 2 * E + F);
 					}
 				}
 			}
@@ -302,7 +305,7 @@ static public double rayToSegment(Point3d rayorig, Vector3d raydir,
 		}
 		else {
 			// same direction vectors
-			E = segdir.dot(diff);// -Dot(seg.m,diff);
+			E = -segdir.dot(diff);// -Dot(seg.m,diff);
 			t = 1;
 			tmp = B + D;
 			if (tmp >= 0) {
@@ -0,0 +1,37 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Sun designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Sun in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ */
+package org.scijava.java3d;
+
+/**
+ * The VertexBufferRenderMethod renders by-copy geometry from vertex buffer
+ * objects.  The vertex data of a geometry is uploaded once per canvas and
+ * only sent again, in place, after it changed.  Geometry that can't be
+ * rendered that way (by-reference data, alpha updated per screen or no
+ * vertex buffer support in the canvas) is rendered like in
+ * VertexArrayRenderMethod.
+ */
+class VertexBufferRenderMethod extends VertexArrayRenderMethod {
+
+    @Override
+    void renderGeo(RenderAtomListInfo ra, RenderMolecule rm, Canvas3D cv) {
+	GeometryArrayRetained geo = (GeometryArrayRetained)ra.geometry();
+	boolean updateAlpha = rm.useAlpha &&
+	    ((geo.vertexFormat & GeometryArray.COLOR) != 0);
+
+	if (!geo.executeVertexBuffer(cv, rm.isNonUniformScale, updateAlpha,
+				     rm.textureBin.attributeBin.ignoreVertexColors)) {
+	    super.renderGeo(ra, rm, cv);
+	}
+    }
+}
@@ -731,6 +731,13 @@ private Vector<Canvas3D> canvases = new Vector<Canvas3D>(3);
     long startTime = 0;
     long stopTime = 0;
 
+    // Frame metrics of this view, see setFrameMetricsEnable.  The
+    // collector is only present while frame metrics are enabled.
+    volatile FrameMetricsCollector frameMetricsCollector = null;
+    volatile FrameMetrics lastFrameMetrics = null;
+    private ArrayList<FrameMetricsListener> frameMetricsListeners =
+	new ArrayList<FrameMetricsListener>();
+
     // User adjustable minimum frame cycle time
     long minFrameCycleTime;
 
@@ -910,6 +917,16 @@ private Vector<Canvas3D> canvases = new Vector<Canvas3D>(3);
      */
     int		visibilityPolicy = VISIBILITY_DRAW_VISIBLE;
 
+    /**
+     * Defines the small feature culling size, in pixels.
+     */
+    float	smallFeatureCullingSize = 0.0f;
+
+    /**
+     * Defines whether the objects hidden behind the occluders are culled.
+     */
+    boolean	occlusionCullingEnable = false;
+
     /**
      * Defines the transparency sorting policy.
      */
@@ -1945,6 +1962,125 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	return this.visibilityPolicy;
     }
 
+    /**
+     * Sets the small feature culling size for this view.  Objects whose
+     * bounds project to fewer than this number of pixels on every
+     * canvas of the view are not drawn.  Whole groups of small or
+     * distant objects are culled at once, as the bounding hierarchy of
+     * the scene is culled against the view frustum.  Larger sizes draw
+     * fewer objects, trading image quality for speed; a size of 0 turns
+     * small feature culling off.
+     * <p>
+     * The projected size of an object is estimated from the diagonal of
+     * its bounds, at the distance of their nearest point to the eye.
+     * Small feature culling is not done in compatibility mode, or with
+     * <code>-Dj3d.frustumPlaneCulling=false</code>.
+     * The default small feature culling size is 0.
+     *
+     * @param pixelSize the new small feature culling size, in pixels
+     *
+     * @exception IllegalArgumentException if pixelSize is negative.
+     *
+     * @since Java 3D 1.6
+     */
+    public void setSmallFeatureCullingSize(float pixelSize) {
+	if (!(pixelSize >= 0.0f))
+	    throw new IllegalArgumentException(J3dI18N.getString("View32"));
+
+	synchronized(this) {
+	    this.smallFeatureCullingSize = pixelSize;
+	}
+
+	// Let the RenderBin find the visible objects again
+	if (activeStatus && isRunning) {
+
+	    J3dMessage vpMessage = new J3dMessage();
+	    vpMessage.universe = universe;
+	    vpMessage.view = this;
+	    vpMessage.type = J3dMessage.UPDATE_VIEW;
+	    vpMessage.threads = J3dThread.UPDATE_RENDER;
+	    vpMessage.args[0] = this;
+	    synchronized(((ViewPlatformRetained)viewPlatform.retained).sphere) {
+		vpMessage.args[1] = new Float(((ViewPlatformRetained)viewPlatform.
+					       retained).sphere.radius);
+	    }
+	    vpMessage.args[2] = new Integer(OTHER_ATTRS_CHANGED);
+	    vpMessage.args[3] = new Integer(transparencySortingPolicy);
+	    VirtualUniverse.mc.processMessage(vpMessage);
+	}
+    }
+
+    /**
+     * Retrieves the small feature culling size for this view.
+     * @return the small feature culling size, in pixels
+     *
+     * @since Java 3D 1.6
+     */
+    public float getSmallFeatureCullingSize() {
+	return this.smallFeatureCullingSize;
+    }
+
+    /**
+     * Enables or disables occlusion culling for this view.  When enabled,
+     * the Shape3D nodes set as occluders are drawn into a low resolution
+     * depth buffer, on the CPU, each time the visible objects of the view
+     * are found, and the objects hidden behind them are not drawn.  Whole
+     * groups of hidden objects are culled at once, as the bounding
+     * hierarchy of the scene is culled against the view frustum.
+     * <p>
+     * The culling is conservative: an object is only culled when its
+     * bounds are entirely behind the occluders, and objects seen through
+     * gaps between the occluders, however narrow, are drawn.  Since only
+     * the pixels of the depth buffer entirely covered by an occluder
+     * hide other objects, large occluders made of few quads or
+     * triangles hide the most.  It is only done for views
+     * with a single canvas without stereo, for the occluders in the
+     * locale of the view, and not with
+     * <code>-Dj3d.frustumPlaneCulling=false</code>.  The width of the
+     * depth buffer, 128 pixels by default, is set by the
+     * <code>j3d.occlusionBufferSize</code> property.
+     * The default value is false.
+     *
+     * @param flag true to enable occlusion culling
+     *
+     * @see Shape3D#setOccluder
+     *
+     * @since Java 3D 1.6
+     */
+    public void setOcclusionCullingEnable(boolean flag) {
+	synchronized(this) {
+	    this.occlusionCullingEnable = flag;
+	}
+
+	// Let the RenderBin find the visible objects again
+	if (activeStatus && isRunning) {
+
+	    J3dMessage vpMessage = new J3dMessage();
+	    vpMessage.universe = universe;
+	    vpMessage.view = this;
+	    vpMessage.type = J3dMessage.UPDATE_VIEW;
+	    vpMessage.threads = J3dThread.UPDATE_RENDER;
+	    vpMessage.args[0] = this;
+	    synchronized(((ViewPlatformRetained)viewPlatform.retained).sphere) {
+		vpMessage.args[1] = new Float(((ViewPlatformRetained)viewPlatform.
+					       retained).sphere.radius);
+	    }
+	    vpMessage.args[2] = new Integer(OTHER_ATTRS_CHANGED);
+	    vpMessage.args[3] = new Integer(transparencySortingPolicy);
+	    VirtualUniverse.mc.processMessage(vpMessage);
+	}
+    }
+
+    /**
+     * Retrieves the occlusion culling enable flag for this view.
+     * @return true if occlusion culling is enabled; false otherwise
+     *
+     * @since Java 3D 1.6
+     */
+    public boolean getOcclusionCullingEnable() {
+	return this.occlusionCullingEnable;
+    }
+
     /**
      * Sets the transparency sorting policy for this view.  This attribute
      * is one of:
@@ -2545,6 +2681,133 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	}
     }
 
+    /**
+     * Enables or disables the collection of frame metrics for this view.
+     * When enabled, Java 3D measures the time spent in each stage of
+     * every frame of this view and counts the messages, render atoms
+     * and render state changes of the frame.  The metrics of the most
+     * recently completed frame are available through
+     * <code>getLastFrameMetrics</code>, and are passed to the frame
+     * metrics listeners of this view.  The first frame metrics are
+     * reported for the second frame that completes after frame metrics
+     * are enabled.  Frame metrics are disabled by default.
+     *
+     * @param enable true to enable the collection of frame metrics,
+     * false to disable it
+     *
+     * @see FrameMetrics
+     *
+     * @since Java 3D 1.6
+     */
+    public void setFrameMetricsEnable(boolean enable) {
+	if (enable) {
+	    if (frameMetricsCollector == null) {
+		VirtualUniverse.mc.collectFrameMetrics = true;
+		frameMetricsCollector = new FrameMetricsCollector();
+	    }
+	} else {
+	    frameMetricsCollector = null;
+	    lastFrameMetrics = null;
+	}
+    }
+
+    /**
+     * Retrieves the flag that indicates whether frame metrics are
+     * collected for this view.
+     *
+     * @return true if frame metrics are collected, false otherwise
+     *
+     * @since Java 3D 1.6
+     */
+    public boolean getFrameMetricsEnable() {
+	return frameMetricsCollector != null;
+    }
+
+    /**
+     * Returns the frame metrics of the most recently completed frame of
+     * this view.
+     *
+     * @return the frame metrics of the most recently completed frame,
+     * or null if frame metrics are not enabled or no frame has been
+     * measured yet
+     *
+     * @see #setFrameMetricsEnable
+     *
+     * @since Java 3D 1.6
+     */
+    public FrameMetrics getLastFrameMetrics() {
+	return lastFrameMetrics;
+    }
+
+    /**
+     * Adds the specified FrameMetricsListener to the set of listeners
+     * that are notified after each frame of this view, while frame
+     * metrics are enabled.  If the specified listener is null no action
+     * is taken and no exception is thrown.
+     *
+     * @param listener the listener to add to the set
+     *
+     * @see #setFrameMetricsEnable
+     *
+     * @since Java 3D 1.6
+     */
+    public void addFrameMetricsListener(FrameMetricsListener listener) {
+	if (listener == null) {
+	    return;
+	}
+
+	synchronized (frameMetricsListeners) {
+	    if (!frameMetricsListeners.contains(listener)) {
+		frameMetricsListeners.add(listener);
+	    }
+	}
+    }
+
+    /**
+     * Removes the specified FrameMetricsListener from the set of
+     * listeners. This method performs no function, nor does it throw an
+     * exception if the specified listener is not currently in the set or
+     * is null.
+     *
+     * @param listener the listener to remove from the set
+     *
+     * @since Java 3D 1.6
+     */
+    public void removeFrameMetricsListener(FrameMetricsListener listener) {
+	synchronized (frameMetricsListeners) {
+	    frameMetricsListeners.remove(listener);
+	}
+    }
+
+    /**
+     * Invoked by MasterControl to pass the metrics of a frame to the
+     * listeners.
+     */
+    void notifyFrameMetricsListeners(FrameMetrics metrics) {
+	FrameMetricsListener[] listeners;
+	synchronized (frameMetricsListeners) {
+	    if (frameMetricsListeners.isEmpty()) {
+		return;
+	    }
+	    listeners = frameMetricsListeners.toArray(
+		new FrameMetricsListener[frameMetricsListeners.size()]);
+	}
+
+	for (int i = 0; i < listeners.length; i++) {
+	    try {
+		listeners[i].frameCompleted(this, metrics);
+	    }
+	    catch (RuntimeException e) {
+		System.err.println("Exception occurred in FrameMetricsListener:");
+		e.printStackTrace();
+	    }
+	    catch (Error e) {
+		System.err.println("Error occurred in FrameMetricsListener:");
+		e.printStackTrace();
+	    }
+	}
+    }
+
     /**
      * Retrieves the implementation-dependent maximum number of
      * frames whose start times will be recorded by the system.  This
@@ -2903,7 +3166,8 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 	}
 
 	if ((viewPlatform != null) && viewPlatform.isLive()) {
-	    if (universe.inBehavior && (universe.behaviorScheduler == me)) {
+	    if (universe.inBehavior && (universe.behaviorScheduler != null) &&
+		universe.behaviorScheduler.isBehaviorThread(me)) {
 		throw new IllegalStateException(J3dI18N.getString(s2));
 	    }
 	    return true;
@@ -2998,7 +3262,8 @@ private ArrayList<ArrayList<Canvas3D>> canvasList = new ArrayList<ArrayList<Canv
 
 	if ((viewPlatform != null) &&  viewPlatform.isLive()) {
 	    if (universe.inBehavior &&
-		(Thread.currentThread() ==  universe.behaviorScheduler)) {
+		(universe.behaviorScheduler != null) &&
+		universe.behaviorScheduler.isBehaviorThread(Thread.currentThread())) {
 	            throw new IllegalStateException(J3dI18N.getString(s2));
 	    }
 	}
@@ -176,6 +176,16 @@ class ViewCache extends Object {
      */
     int		visibilityPolicy;
 
+    /**
+     * Defines the small feature culling size, in pixels.
+     */
+    float	smallFeatureCullingSize;
+
+    /**
+     * Defines whether the objects hidden behind the occluders are culled.
+     */
+    boolean	occlusionCullingEnable;
+
     // Flag to enable tracking, if so allowed by the trackingAvailable flag.
     boolean		trackingEnable;
 
@@ -239,6 +249,8 @@ class ViewCache extends Object {
 	backClipPolicy = view.backClipPolicy;
 
 	visibilityPolicy = view.visibilityPolicy;
+	smallFeatureCullingSize = view.smallFeatureCullingSize;
+	occlusionCullingEnable = view.occlusionCullingEnable;
 
 	trackingEnable = view.trackingEnable;
 	userHeadToVworldEnable = view.userHeadToVworldEnable;
@@ -109,6 +109,10 @@ private ViewPlatformRetained[] viewPlatformList = new ViewPlatformRetained[0];
     // This is a global counter for view id's.
     int viewIdCount = 0;
 
+    // Number of live LODSwitch nodes, whose levels depend on the viewer
+    // position
+    int lodSwitchCount = 0;
+
 // This is a vector of free nodeid's
 Vector<String> nodeIdFreeList = new Vector<String>();
 
@@ -262,13 +266,6 @@ ArrayList<Integer> viewIdFreeList = new ArrayList<Integer>();
             }
 	}
 
-	// Java 3D cannot run in headless mode, so we will throw a
-	// HeadlessException if isHeadless() is true. This avoids a
-	// cryptic error message from MasterControl.loadLibraries().
-	if (java.awt.GraphicsEnvironment.isHeadless()) {
-	    throw new java.awt.HeadlessException();
-	}
-
 	// Load the native libraries and create the static
 	// MasterControl object
 	MasterControl.loadLibraries();
@@ -87,6 +87,10 @@ public final class WakeupOnCollisionEntry extends WakeupCriterion {
     SceneGraphPath armingPath = null;
     Bounds armingBounds = null;
 
+    // Box of the bounds last tested by GeometryStructure, which skips
+    // the test while neither this box nor the leaves around it change
+    final double[] collisionBox = CollisionSweep.newBox();
+
     // the following two references are set only after a collision
     // has occurred
     Bounds collidingBounds = null;